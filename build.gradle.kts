@@ -34,14 +34,29 @@ dependencies {
     testImplementation("org.mockito:mockito-junit-jupiter:5.14.2")
 }
 
+// Headless pack crawler: runs the data layer outside Minecraft (see CrawlerMain)
+val crawler = sourceSets.create("crawler") {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().output + sourceSets.main.get().runtimeClasspath
+}
+
 // Make Minecraft classes available to test source set for Mockito-based rendering tests
 sourceSets {
     test {
-        compileClasspath += sourceSets.main.get().compileClasspath
-        runtimeClasspath += sourceSets.main.get().runtimeClasspath
+        compileClasspath += sourceSets.main.get().compileClasspath + crawler.output
+        runtimeClasspath += sourceSets.main.get().runtimeClasspath + crawler.output
     }
 }
 
+// ./gradlew runCrawler --args="modlist.txt build/modpack.ospack"
+tasks.register<JavaExec>("runCrawler") {
+    group = "application"
+    description = "Crawls mcmod.cn pages for a mod list into a cache pack"
+    classpath = crawler.runtimeClasspath
+    mainClass = "com.cy311.omnisearch.crawler.CrawlerMain"
+    workingDir = rootProject.projectDir
+}
+
 val ver = stonecutter.current.version
 
 val generateModMetadata = tasks.register("generateModMetadata", Sync::class) {
@@ -0,0 +1,85 @@
+package com.cy311.omnisearch.crawler;
+
+import com.cy311.omnisearch.data.client.RateGovernor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a crawl did: mods resolved, pages fetched or already cached, what failed and why,
+ * and how fast it went. Written next to the pack as JSON, and printed as a summary.
+ */
+public final class CrawlStats {
+
+    /** @param target the mod or page that failed */
+    public record Failure(String target, String reason) {}
+
+    int modsTotal;
+    int modsSkipped;
+    int modsResolved;
+    int modsUnresolved;
+    int searchPages;
+    int pagesFetched;
+    int pagesCached;
+    int pagesFailed;
+    int pagesMissing;
+    boolean aborted;
+    long elapsedMs;
+    int packEntries;
+    long packBytes;
+    final List<Failure> failures = new ArrayList<>();
+    Map<String, RateGovernor.Stats> governors = Map.of();
+
+    void fail(String target, String reason) {
+        failures.add(new Failure(target, reason));
+    }
+
+    public int modsResolved() {
+        return modsResolved;
+    }
+
+    public int pagesFetched() {
+        return pagesFetched;
+    }
+
+    public int pagesFailed() {
+        return pagesFailed;
+    }
+
+    public boolean aborted() {
+        return aborted;
+    }
+
+    public List<Failure> failures() {
+        return failures;
+    }
+
+    /** Requests that went to the network per minute of crawling. */
+    public double requestsPerMinute() {
+        int requests = searchPages + pagesFetched + pagesMissing + pagesFailed;
+        return elapsedMs > 0 ? requests * 60_000.0 / elapsedMs : 0;
+    }
+
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("mods: %d listed, %d done before, %d resolved, %d unresolved%n",
+            modsTotal, modsSkipped, modsResolved, modsUnresolved));
+        out.append(String.format("pages: %d fetched, %d already cached, %d missing, %d failed; %d search pages%n",
+            pagesFetched, pagesCached, pagesMissing, pagesFailed, searchPages));
+        out.append(String.format("time: %.1f min, %.1f requests/min%s%n",
+            elapsedMs / 60_000.0, requestsPerMinute(), aborted ? " (stopped early, run again to resume)" : ""));
+        out.append(String.format("pack: %d entries, %d KB%n", packEntries, packBytes / 1024));
+        governors.values().forEach(governor -> out.append(String.format(
+            "  %s: %.2f req/s now, %d granted, %d throttles, %.1f s waited%n",
+            governor.host(), governor.rate(), governor.granted(), governor.throttles(), governor.totalWaitMs() / 1000.0)));
+        int shown = Math.min(failures.size(), 20);
+        for (Failure failure : failures.subList(0, shown)) {
+            out.append("  failed ").append(failure.target()).append(": ").append(failure.reason()).append('\n');
+        }
+        if (failures.size() > shown) {
+            out.append("  ... and ").append(failures.size() - shown).append(" more\n");
+        }
+        return out.toString();
+    }
+}
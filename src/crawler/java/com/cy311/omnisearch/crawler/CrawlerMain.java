@@ -0,0 +1,113 @@
+package com.cy311.omnisearch.crawler;
+
+import com.cy311.omnisearch.data.client.KeepAliveTransport;
+import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.RequestExecutor;
+import com.cy311.omnisearch.data.client.SessionCookieStore;
+import com.cy311.omnisearch.data.repository.CacheLayer;
+import com.cy311.omnisearch.data.repository.SearchRepository;
+import com.cy311.omnisearch.data.source.McmodDataSource;
+import com.google.gson.GsonBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Headless pack builder:
+ * {@code CrawlerMain <mod list | mods folder> <output.ospack> [--work dir] [--rate requests/s]
+ * [--max-search-pages n] [--max-failures n]}.
+ * <p>
+ * Crawls the listed mods into a cache in the work directory ({@value #DEFAULT_WORK_DIR}
+ * by default), then exports it as a cache pack for a modpack to ship in its
+ * {@code .omnisearch/packs} folder. The work directory also keeps the cookies, the
+ * progress file and the stats of the last run: interrupt the crawl at any time and run the
+ * same command again to carry on where it stopped. Exits with 1 if the crawl stopped
+ * early, in which case no pack is written.
+ */
+public final class CrawlerMain {
+
+    static final String DEFAULT_WORK_DIR = "omnisearch-crawl";
+    static final double DEFAULT_RATE = 1.0;
+    static final int DEFAULT_MAX_SEARCH_PAGES = 20;
+    static final int DEFAULT_MAX_FAILURES = 10;
+
+    private CrawlerMain() {}
+
+    public static void main(String[] args) throws IOException {
+        Path workDir = Path.of(DEFAULT_WORK_DIR);
+        double rate = DEFAULT_RATE;
+        int maxSearchPages = DEFAULT_MAX_SEARCH_PAGES;
+        int maxFailures = DEFAULT_MAX_FAILURES;
+        Path source = null;
+        Path output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--work" -> workDir = Path.of(args[++i]);
+                    case "--rate" -> rate = Double.parseDouble(args[++i]);
+                    case "--max-search-pages" -> maxSearchPages = Integer.parseInt(args[++i]);
+                    case "--max-failures" -> maxFailures = Integer.parseInt(args[++i]);
+                    default -> {
+                        if (source == null) source = Path.of(args[i]);
+                        else if (output == null) output = Path.of(args[i]);
+                        else throw new IllegalArgumentException(args[i]);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            source = null; // fall through to the usage message
+        }
+        if (source == null || output == null || !(rate > 0) || maxSearchPages < 1 || maxFailures < 1) {
+            System.err.println("usage: CrawlerMain <mod list | mods folder> <output.ospack>"
+                + " [--work dir] [--rate requests/s] [--max-search-pages n] [--max-failures n]");
+            System.exit(2);
+        }
+
+        List<ModList.Mod> mods = ModList.read(source);
+        Files.createDirectories(workDir);
+        var cookies = SessionCookieStore.persistent(workDir.resolve("cookies.json"), true);
+        var client = new McmodHttpClient(new RequestExecutor(), new KeepAliveTransport(), cookies);
+        var cache = new CacheLayer(workDir.resolve("cache"));
+        var repository = new SearchRepository(cache, new McmodDataSource(client), false);
+        var crawler = new PackCrawler(repository, cache, new Pacer(rate), workDir.resolve("progress.txt"),
+            maxSearchPages, maxFailures);
+
+        // Ctrl-C: finish the request in flight and close the cache, so the next run resumes cleanly
+        Thread main = Thread.currentThread();
+        Thread shutdown = new Thread(() -> {
+            crawler.stop();
+            try {
+                main.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException ignored) {
+            }
+        }, "omnisearch-crawler-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdown);
+
+        System.out.printf("crawling %d mods from %s at up to %.2f requests/s%n", mods.size(), source, rate);
+        CrawlStats stats;
+        try {
+            stats = crawler.crawl(mods);
+            stats.governors = client.governorStats();
+            if (!stats.aborted()) {
+                stats.packEntries = cache.exportPack(output);
+                stats.packBytes = Files.size(output);
+            }
+        } finally {
+            repository.close();
+        }
+        Files.writeString(workDir.resolve("stats.json"),
+            new GsonBuilder().setPrettyPrinting().create().toJson(stats), StandardCharsets.UTF_8);
+        System.out.print(stats.summary());
+        if (crawler.stopped()) {
+            return; // already shutting down
+        }
+        Runtime.getRuntime().removeShutdownHook(shutdown);
+        if (stats.aborted()) {
+            System.exit(1);
+        }
+    }
+}
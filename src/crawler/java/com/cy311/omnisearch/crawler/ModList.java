@@ -0,0 +1,133 @@
+package com.cy311.omnisearch.crawler;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The mods a crawl covers, read from a text list or from a modpack's {@code mods} folder.
+ * <p>
+ * A list has one mod per line; blank lines and {@code #} comments are skipped. A line is
+ * a mod name to search mcmod.cn for, or a class page given as {@code 456},
+ * {@code class/456} or its full URL, optionally followed by the mod's name:
+ * <pre>
+ * # Twilight Forest, searched by name
+ * Twilight Forest
+ * # Pinned to its class page when the name search finds the wrong mod
+ * class/2 Industrial Craft 2
+ * </pre>
+ * A folder is read jar by jar: the mod's {@code displayName} from its
+ * {@code neoforge.mods.toml} (or Forge {@code mods.toml}), else a name guessed from the
+ * file name.
+ */
+public final class ModList {
+
+    /**
+     * @param name    what to search for; may be null when a class page is given
+     * @param classId the mcmod.cn class page number, when known up front
+     */
+    public record Mod(@Nullable String name, @Nullable String classId) {
+
+        /** Identifies the mod in the progress file. */
+        public String key() {
+            return classId != null ? "class/" + classId : "name/" + name.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public String toString() {
+            if (classId == null) return name;
+            return name != null ? name + " (class/" + classId + ")" : "class/" + classId;
+        }
+    }
+
+    private static final Pattern CLASS_REF = Pattern.compile(
+        "^(?:https?://(?:www\\.)?mcmod\\.cn/)?(?:class/)?(\\d+)(?:\\.html)?(?:\\s+(.+))?$");
+    private static final Pattern DISPLAY_NAME = Pattern.compile("^\\s*displayName\\s*=\\s*\"([^\"]*)\"", Pattern.MULTILINE);
+    private static final List<String> MOD_METADATA = List.of("META-INF/neoforge.mods.toml", "META-INF/mods.toml");
+    // Version suffix of a jar name: "twilightforest-1.21.1-4.6.jar" → "twilightforest"
+    private static final Pattern JAR_VERSION = Pattern.compile("[-_+ ](?:mc)?v?\\d.*$", Pattern.CASE_INSENSITIVE);
+
+    private ModList() {}
+
+    /** Reads {@code source}: a folder of mod jars, or a text list. */
+    public static List<Mod> read(Path source) throws IOException {
+        if (Files.isDirectory(source)) {
+            return fromJars(source);
+        }
+        return parse(Files.readAllLines(source, StandardCharsets.UTF_8));
+    }
+
+    /** Parses the lines of a mod list; a mod listed twice is kept once. */
+    public static List<Mod> parse(List<String> lines) {
+        Map<String, Mod> mods = new LinkedHashMap<>();
+        for (String raw : lines) {
+            int comment = raw.indexOf('#');
+            String line = (comment >= 0 ? raw.substring(0, comment) : raw).strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            Matcher ref = CLASS_REF.matcher(line);
+            Mod mod = ref.matches()
+                ? new Mod(ref.group(2) != null ? ref.group(2).strip() : null, ref.group(1))
+                : new Mod(line, null);
+            mods.putIfAbsent(mod.key(), mod);
+        }
+        return new ArrayList<>(mods.values());
+    }
+
+    /** One mod per jar in {@code modsDir}, in file name order. */
+    public static List<Mod> fromJars(Path modsDir) throws IOException {
+        List<Path> jars;
+        try (var listing = Files.list(modsDir)) {
+            jars = listing.filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".jar"))
+                .sorted()
+                .toList();
+        }
+        Map<String, Mod> mods = new LinkedHashMap<>();
+        for (Path jar : jars) {
+            Mod mod = new Mod(nameOf(jar), null);
+            mods.putIfAbsent(mod.key(), mod);
+        }
+        return new ArrayList<>(mods.values());
+    }
+
+    /** The jar's display name, or a name guessed from its file name if it has none. */
+    static String nameOf(Path jar) {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            for (String metadata : MOD_METADATA) {
+                ZipEntry entry = zip.getEntry(metadata);
+                if (entry == null) {
+                    continue;
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    Matcher name = DISPLAY_NAME.matcher(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                    if (name.find() && !name.group(1).isBlank() && !name.group(1).contains("${")) {
+                        return name.group(1).strip();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Not a readable jar; the file name is all there is
+        }
+        return nameFromFile(jar.getFileName().toString());
+    }
+
+    static String nameFromFile(String fileName) {
+        String base = fileName.replaceFirst("(?i)\\.jar$", "");
+        String name = JAR_VERSION.matcher(base).replaceFirst("");
+        return (name.isBlank() ? base : name).replace('_', ' ').strip();
+    }
+}
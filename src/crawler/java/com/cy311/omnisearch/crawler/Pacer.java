@@ -0,0 +1,53 @@
+package com.cy311.omnisearch.crawler;
+
+/**
+ * Spaces the crawler's requests, on top of the per-host {@code RateGovernor} the HTTP
+ * client already applies. The gap starts at the configured rate, doubles after each
+ * failed request up to {@link #MAX_INTERVAL_MS}, and halves its way back after each
+ * success, so a struggling site gets left alone for a while without the operator having
+ * to notice.
+ */
+final class Pacer {
+
+    static final long MAX_INTERVAL_MS = 60_000;
+
+    private final long baseIntervalMs;
+    private long intervalMs;
+    private boolean started;
+    private long lastAt;
+
+    /** @param requestsPerSecond the rate while requests succeed */
+    Pacer(double requestsPerSecond) {
+        if (!(requestsPerSecond > 0)) {
+            throw new IllegalArgumentException("rate must be positive: " + requestsPerSecond);
+        }
+        this.baseIntervalMs = Math.max(1, Math.round(1000 / requestsPerSecond));
+        this.intervalMs = baseIntervalMs;
+    }
+
+    /** Sleeps until the next request may go out. */
+    void await() throws InterruptedException {
+        long now = System.nanoTime();
+        long nextAt = lastAt + intervalMs * 1_000_000;
+        long waitNanos = nextAt - now;
+        if (started && waitNanos > 0) {
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+            now = nextAt;
+        }
+        started = true;
+        lastAt = now;
+    }
+
+    void succeeded() {
+        intervalMs = Math.max(baseIntervalMs, intervalMs / 2);
+    }
+
+    void failed() {
+        intervalMs = Math.min(MAX_INTERVAL_MS, Math.max(intervalMs, baseIntervalMs) * 2);
+    }
+
+    /** The current gap between requests. */
+    long intervalMs() {
+        return intervalMs;
+    }
+}
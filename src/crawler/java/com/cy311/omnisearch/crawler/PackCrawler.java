@@ -0,0 +1,342 @@
+package com.cy311.omnisearch.crawler;
+
+import com.cy311.omnisearch.OmnisearchMod;
+import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.SearchHit;
+import com.cy311.omnisearch.data.model.SearchPageBatch;
+import com.cy311.omnisearch.data.model.SearchQuery;
+import com.cy311.omnisearch.data.repository.CacheLayer;
+import com.cy311.omnisearch.data.repository.SearchRepository;
+import com.cy311.omnisearch.data.source.CaptchaRequiredException;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Fills a cache with the mcmod.cn pages of a list of mods, one mod at a time.
+ * <p>
+ * A mod listed by name is resolved to its class page through the site search (first
+ * class hit). Its item pages are the item hits of a search for the mod's names whose
+ * source mod is that mod, over at most {@code maxSearchPages} result pages; the site has
+ * no per-mod item index the parser reads. Every page goes through the
+ * {@link SearchRepository}, so it lands in the cache (and its HTML in the archive) the
+ * same way it does in game.
+ * <p>
+ * Resuming: pages and search pages already in the cache are not requested again, and a
+ * mod whose pages were all fetched is appended to the progress file and skipped by later
+ * runs. A mod with failed pages is not recorded, so the next run retries just those.
+ * <p>
+ * Requests are spaced by a {@link Pacer}. The crawl stops early on a CAPTCHA, after
+ * {@code maxConsecutiveFailures} failed requests in a row, or on {@link #stop}.
+ */
+public final class PackCrawler {
+
+    static final long REQUEST_TIMEOUT_MS = 120_000;
+
+    private final SearchRepository repository;
+    private final CacheLayer cache;
+    private final Pacer pacer;
+    private final Path progressFile;
+    private final int maxSearchPages;
+    private final int maxConsecutiveFailures;
+
+    private volatile boolean stopping;
+    private int consecutiveFailures;
+    private CrawlStats stats;
+
+    PackCrawler(SearchRepository repository, CacheLayer cache, Pacer pacer, Path progressFile,
+                int maxSearchPages, int maxConsecutiveFailures) {
+        this.repository = repository;
+        this.cache = cache;
+        this.pacer = pacer;
+        this.progressFile = progressFile;
+        this.maxSearchPages = maxSearchPages;
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+    }
+
+    /** Makes a running {@link #crawl} return after the request in flight. */
+    public void stop() {
+        stopping = true;
+    }
+
+    boolean stopped() {
+        return stopping;
+    }
+
+    public CrawlStats crawl(List<ModList.Mod> mods) throws IOException {
+        stats = new CrawlStats();
+        stats.modsTotal = mods.size();
+        consecutiveFailures = 0;
+        Set<String> done = readProgress();
+        long start = System.nanoTime();
+        try {
+            for (ModList.Mod mod : mods) {
+                if (done.contains(mod.key())) {
+                    stats.modsSkipped++;
+                    continue;
+                }
+                if (halted()) {
+                    break;
+                }
+                if (crawlMod(mod)) {
+                    Files.writeString(progressFile, mod.key() + "\n", StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                }
+            }
+        } finally {
+            stats.aborted |= stopping;
+            stats.elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        }
+        return stats;
+    }
+
+    // ──────────────────────────────────────────────
+    // One mod
+    // ──────────────────────────────────────────────
+
+    /** @return whether the mod is finished: resolved and all its pages cached, or known to be unresolvable */
+    private boolean crawlMod(ModList.Mod mod) {
+        int failedBefore = stats.failures.size();
+        Set<String> names = new LinkedHashSet<>();
+        if (mod.name() != null) {
+            names.add(mod.name());
+        }
+        String classId = mod.classId();
+        SearchPageBatch firstPage = null;
+        if (classId == null) {
+            firstPage = searchPage(mod.name());
+            if (firstPage == null) {
+                return false;
+            }
+            SearchHit classHit = firstPage.results().stream()
+                .filter(hit -> "class".equals(hit.type()))
+                .findFirst()
+                .orElse(null);
+            if (classHit == null) {
+                stats.modsUnresolved++;
+                stats.fail(mod.toString(), "no class page among the search results");
+                OmnisearchMod.LOGGER.info("[PackCrawler] {}: not on mcmod.cn", mod);
+                return true;
+            }
+            classId = classHit.id().substring("class/".length());
+            names.add(classHit.name());
+        }
+
+        ItemPage classPage = page("class/" + classId);
+        if (classPage == null) {
+            if (halted() || stats.failures.size() > failedBefore) {
+                return false;
+            }
+            stats.modsUnresolved++;
+            stats.fail(mod.toString(), "class/" + classId + " does not exist");
+            return true;
+        }
+        names.addAll(namesIn(classPage.title()));
+        stats.modsResolved++;
+        if (names.isEmpty()) {
+            return true;
+        }
+
+        String query = names.iterator().next();
+        Set<String> items = new LinkedHashSet<>();
+        SearchPageBatch batch = firstPage != null ? firstPage : searchPage(query);
+        for (int pages = 1; batch != null; pages++) {
+            for (SearchHit hit : batch.results()) {
+                if ("item".equals(hit.type()) && fromMod(hit, names)) {
+                    items.add(hit.id());
+                }
+            }
+            String next = batch.nextPageUrl();
+            if (next == null || next.isBlank() || pages >= maxSearchPages || halted()) {
+                break;
+            }
+            batch = searchMore(next);
+        }
+        OmnisearchMod.LOGGER.info("[PackCrawler] {}: class/{}, {} item pages", mod, classId, items.size());
+
+        for (String item : items) {
+            if (halted()) {
+                break;
+            }
+            page(item);
+        }
+        return !halted() && stats.failures.size() == failedBefore;
+    }
+
+    /** Whether a search hit names one of {@code modNames} as its source mod. */
+    static boolean fromMod(SearchHit hit, Set<String> modNames) {
+        for (String name : modNames) {
+            String wanted = normalize(name);
+            if (wanted.isEmpty()) {
+                continue;
+            }
+            if (wanted.equals(normalize(hit.sourceMod())) || wanted.equals(normalize(hit.modEnName()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** A class page title such as "暮色森林 (The Twilight Forest)", whole and in its parts. */
+    static Set<String> namesIn(@Nullable String title) {
+        Set<String> names = new LinkedHashSet<>();
+        if (title == null || title.isBlank()) {
+            return names;
+        }
+        names.add(title.strip());
+        int open = title.indexOf('(');
+        int close = title.lastIndexOf(')');
+        if (open > 0 && close > open) {
+            names.add(title.substring(0, open).strip());
+            names.add(title.substring(open + 1, close).strip());
+        }
+        names.removeIf(String::isEmpty);
+        return names;
+    }
+
+    private static String normalize(@Nullable String name) {
+        if (name == null) return "";
+        return name.toLowerCase(Locale.ROOT).replaceAll("[\\s\\p{Punct}]+", "");
+    }
+
+    // ──────────────────────────────────────────────
+    // Requests
+    // ──────────────────────────────────────────────
+
+    private @Nullable SearchPageBatch searchPage(String query) {
+        SearchPageBatch cached = cache.getSearchPage(McmodHttpClient.buildSearchUrl(query));
+        if (cached != null) {
+            return cached;
+        }
+        SearchPageBatch batch = request("search " + query, () -> repository.searchPage(new SearchQuery(query)));
+        if (batch != null) {
+            stats.searchPages++;
+        }
+        return batch;
+    }
+
+    private @Nullable SearchPageBatch searchMore(String url) {
+        SearchPageBatch cached = cache.getSearchPage(url);
+        if (cached != null) {
+            return cached;
+        }
+        SearchPageBatch batch = request(url, () -> repository.searchMore(url));
+        if (batch != null) {
+            stats.searchPages++;
+        }
+        return batch;
+    }
+
+    private @Nullable ItemPage page(String pageId) {
+        if (halted()) {
+            return null;
+        }
+        ItemPage cached = cache.getPage(pageId);
+        if (cached != null) {
+            stats.pagesCached++;
+            return cached;
+        }
+        if (cache.isMissingPage(pageId)) {
+            stats.pagesMissing++;
+            return null;
+        }
+        // A null page is mcmod.cn saying there is no such page, not a failure
+        Optional<ItemPage> page = request(pageId, () -> repository.getPage(pageId).thenApply(Optional::ofNullable));
+        if (page == null) {
+            stats.pagesFailed++;
+            return null;
+        }
+        if (page.isEmpty()) {
+            stats.pagesMissing++;
+            return null;
+        }
+        stats.pagesFetched++;
+        return page.get();
+    }
+
+    /**
+     * Runs one paced request and waits for it. Failures are recorded and answered with
+     * null; a missing result counts as a failure too.
+     */
+    private <T> @Nullable T request(String target, Supplier<CompletableFuture<T>> call) {
+        if (halted()) {
+            return null;
+        }
+        String failure;
+        try {
+            pacer.await();
+            T result = call.get().get(REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (result != null) {
+                pacer.succeeded();
+                consecutiveFailures = 0;
+                return result;
+            }
+            failure = "no page";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopping = true;
+            return null;
+        } catch (TimeoutException e) {
+            failure = "timed out";
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = rootCause(e);
+            if (cause instanceof CaptchaRequiredException) {
+                stats.fail(target, "CAPTCHA");
+                stats.aborted = true;
+                OmnisearchMod.LOGGER.warn("[PackCrawler] mcmod.cn asks for a CAPTCHA; stopping, run again later to resume");
+                return null;
+            }
+            failure = cause.toString();
+        }
+        stats.fail(target, failure);
+        pacer.failed();
+        OmnisearchMod.LOGGER.warn("[PackCrawler] {} failed: {}; next request in {} ms", target, failure, pacer.intervalMs());
+        if (++consecutiveFailures >= maxConsecutiveFailures) {
+            stats.aborted = true;
+            OmnisearchMod.LOGGER.warn("[PackCrawler] {} failures in a row; stopping, run again later to resume", consecutiveFailures);
+        }
+        return null;
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private boolean halted() {
+        return stopping || stats.aborted;
+    }
+
+    private Set<String> readProgress() throws IOException {
+        if (!Files.exists(progressFile)) {
+            return Set.of();
+        }
+        Set<String> done = new HashSet<>();
+        for (String line : Files.readAllLines(progressFile, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                done.add(line.strip());
+            }
+        }
+        return done;
+    }
+}
@@ -4,8 +4,13 @@ import com.cy311.omnisearch.OmnisearchMod;
 import com.cy311.omnisearch.client.screen.OmnisearchScreen;
 import com.cy311.omnisearch.data.repository.CacheLayer;
 import com.cy311.omnisearch.data.repository.SearchRepository;
+import com.cy311.omnisearch.data.server.CacheServer;
+import com.cy311.omnisearch.data.source.CacheServerDataSource;
 import com.cy311.omnisearch.data.source.McmodDataSource;
+import com.cy311.omnisearch.data.client.KeepAliveTransport;
 import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.RequestExecutor;
+import com.cy311.omnisearch.data.client.SessionCookieStore;
 import com.cy311.omnisearch.keybinds.KeyBinds;
 import com.mojang.blaze3d.platform.InputConstants;
 import net.neoforged.api.distmarker.Dist;
@@ -25,6 +30,8 @@ import net.minecraft.sounds.SoundSource;
 import net.minecraft.resources.ResourceLocation;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+
 /**
  * Low-interference hover query:
  * <ul>
@@ -55,18 +62,65 @@ public class TooltipEventHandler {
 
     private static SearchRepository repository;
     private static McmodHttpClient httpClient;
+    private static @Nullable CacheServer cacheServer;
 
     private static synchronized SearchRepository getRepository() {
         if (repository == null) {
             var mc = Minecraft.getInstance();
             if (mc == null) return null;
-            var cacheDir = mc.gameDirectory.toPath().resolve(".omnisearch/cache");
-            httpClient = new McmodHttpClient();
-            repository = new SearchRepository(new CacheLayer(cacheDir), new McmodDataSource(httpClient));
+            var dataDir = mc.gameDirectory.toPath().resolve(".omnisearch");
+            var cacheDir = dataDir.resolve("cache");
+            // Cookies survive restarts so a solved captcha keeps the session valid
+            var cookies = SessionCookieStore.persistent(dataDir.resolve("cookies.json"), true);
+            httpClient = new McmodHttpClient(new RequestExecutor(), new KeepAliveTransport(), cookies);
+            // A team cache server, if configured, is asked before mcmod.cn
+            String serverUrl = System.getProperty(CacheServerDataSource.URL_PROPERTY);
+            McmodDataSource source = serverUrl != null && !serverUrl.isBlank()
+                ? new CacheServerDataSource(serverUrl, System.getProperty(CacheServer.TOKEN_PROPERTY), httpClient)
+                : new McmodDataSource(httpClient);
+            // Expired pages show at once and are refreshed in the background; the cache may be
+            // shared with other game instances (CacheLayer.SHARED_DIR_PROPERTY)
+            var cache = CacheLayer.open(cacheDir);
+            // Read-only cache packs a modpack ships seed the first lookups
+            cache.mountPacks(dataDir.resolve("packs"));
+            repository = new SearchRepository(cache, source, true);
+            // After a cache schema bump, rebuild pages from their archived HTML rather than the network
+            repository.reparseArchiveInBackground();
+            cacheServer = startCacheServer(repository);
+            // Drain queued cache writes and save cookies when the game exits
+            SearchRepository closing = repository;
+            CacheServer serving = cacheServer;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (serving != null) {
+                    serving.close();
+                }
+                closing.close();
+            }, "omnisearch-shutdown"));
         }
         return repository;
     }
 
+    /**
+     * Serves this client's cache if {@value CacheServer#PORT_PROPERTY} is set: on loopback,
+     * or to the team on {@value CacheServer#BIND_PROPERTY} with {@value CacheServer#TOKEN_PROPERTY}.
+     */
+    private static @Nullable CacheServer startCacheServer(SearchRepository repository) {
+        Integer port = Integer.getInteger(CacheServer.PORT_PROPERTY);
+        if (port == null) {
+            return null;
+        }
+        try {
+            return new CacheServer(repository, CacheServer.bindAddress(System.getProperty(CacheServer.BIND_PROPERTY), port),
+                System.getProperty(CacheServer.TOKEN_PROPERTY));
+        } catch (IllegalArgumentException e) {
+            OmnisearchMod.LOGGER.warn("[TooltipEventHandler] cache server not started: {}", e.getMessage());
+            return null;
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[TooltipEventHandler] cache server could not start on port {}: {}", port, e.toString());
+            return null;
+        }
+    }
+
     @SubscribeEvent
     public static void onClientTick(ClientTickEvent.Post event) {
         var mc = Minecraft.getInstance();
@@ -130,7 +184,9 @@ public class TooltipEventHandler {
             var mc = Minecraft.getInstance();
             if (mc == null) return;
             mc.setScreen(new OmnisearchScreen(getRepository(),
-                httpClient != null ? httpClient::downloadImageBytes : null));
+                httpClient != null ? httpClient::downloadImageBytes : null,
+                httpClient != null ? httpClient.executor() : null,
+                null, null));
         });
     }
 
@@ -237,6 +293,7 @@ public class TooltipEventHandler {
             var screen = new OmnisearchScreen(
                 getRepository(),
                 httpClient != null ? httpClient::downloadImageBytes : null,
+                httpClient != null ? httpClient.executor() : null,
                 displayName,
                 modFilter
             );
@@ -30,13 +30,17 @@ import com.cy311.omnisearch.data.client.RequestExecutor;
  * Loaded textures are cached in-memory and released via {@link #close()}.
  * <p>
  * Thread-safe: downloads run on RequestExecutor, texture upload is scheduled
- * on the render thread via {@link Minecraft#tell}.
+ * on the render thread via {@link Minecraft#tell}. Images requested for drawing go in
+ * the visible-image lane; {@link #preload} batches go in the prefetch lane.
  */
 public class ImageManager implements AutoCloseable {
 
     private final Map<String, ImageEntry> cache = new ConcurrentHashMap<>();
     private final Function<String, byte[]> downloader;
     private final RequestExecutor executor;
+    private final boolean ownsExecutor;
+    // Tags this manager's downloads so close() can drop the queued ones on a shared executor
+    private final String taskTag = "images-" + Integer.toHexString(System.identityHashCode(this));
     private volatile boolean closed;
     /** Monotonic counter bumped whenever any image finishes loading. Used to detect
      *  "an image became ready" cheaply without scanning every URL. */
@@ -45,11 +49,20 @@ public class ImageManager implements AutoCloseable {
     /**
      * @param downloader function that downloads raw image bytes from a URL,
      *                    using session cookies and proper headers. Returns null on failure.
-     * @param executor   thread pool for async downloads
+     * @param executor   thread pool for async downloads; closed together with this manager
      */
     public ImageManager(Function<String, byte[]> downloader, RequestExecutor executor) {
+        this(downloader, executor, true);
+    }
+
+    /**
+     * @param ownsExecutor false when {@code executor} is shared (e.g. the HTTP client's);
+     *                     {@link #close()} then only cancels this manager's queued downloads
+     */
+    public ImageManager(Function<String, byte[]> downloader, RequestExecutor executor, boolean ownsExecutor) {
         this.downloader = downloader;
         this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
     }
 
     /**
@@ -60,6 +73,10 @@ public class ImageManager implements AutoCloseable {
      * The first call for a URL triggers an async HTTP download + texture upload.
      */
     public CompletableFuture<ResourceLocation> getImage(String url) {
+        return getImage(url, RequestExecutor.Priority.VISIBLE_IMAGE);
+    }
+
+    private CompletableFuture<ResourceLocation> getImage(String url, RequestExecutor.Priority priority) {
         if (closed || url == null || url.isBlank()) {
             return CompletableFuture.completedFuture(null);
         }
@@ -150,6 +167,12 @@ public class ImageManager implements AutoCloseable {
                 future.complete(loc);
             });
             return null;
+        }, priority, taskTag).whenComplete((ignored, ex) -> {
+            // Cancelled while queued (or failed): forget the entry so a later request retries
+            if (ex != null && !future.isDone()) {
+                cache.remove(url, entry);
+                future.complete(null);
+            }
         });
 
         return future;
@@ -186,11 +209,12 @@ public class ImageManager implements AutoCloseable {
     }
 
     /**
-     * Pre-loads a batch of images in parallel.
+     * Pre-loads a batch of images in parallel, in the prefetch lane so they never
+     * hold up images that are already on screen.
      */
     public void preload(java.util.List<String> urls) {
         for (String url : urls) {
-            getImage(url);
+            getImage(url, RequestExecutor.Priority.PREFETCH);
         }
     }
 
@@ -210,7 +234,11 @@ public class ImageManager implements AutoCloseable {
     @Override
     public void close() {
         closed = true;
-        executor.close();
+        if (ownsExecutor) {
+            executor.close();
+        } else {
+            executor.cancelTag(taskTag);
+        }
         for (ImageEntry entry : cache.values()) {
             if (entry.location != null) {
                 Minecraft.getInstance().getTextureManager().release(entry.location);
@@ -6,9 +6,12 @@ import com.cy311.omnisearch.client.render.image.ImageManager;
 import com.cy311.omnisearch.client.screen.state.OmnisearchWindowReducer;
 import com.cy311.omnisearch.client.screen.state.OmnisearchWindowState;
 import com.cy311.omnisearch.client.screen.state.SearchSessionState;
+import com.cy311.omnisearch.data.client.Cancellation;
 import com.cy311.omnisearch.data.model.CaptchaContext;
+import com.cy311.omnisearch.data.model.ItemPage;
 import com.cy311.omnisearch.data.model.PendingRequest;
 import com.cy311.omnisearch.data.model.PendingRequestResult;
+import com.cy311.omnisearch.data.model.SearchPageBatch;
 import com.cy311.omnisearch.data.model.SearchQuery;
 import com.cy311.omnisearch.data.repository.SearchRepository;
 import com.cy311.omnisearch.data.source.CaptchaRequiredException;
@@ -25,6 +28,7 @@ import net.minecraft.network.chat.Component;
 import com.cy311.omnisearch.data.model.SearchHit;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import org.jetbrains.annotations.Nullable;
@@ -44,10 +48,14 @@ public class OmnisearchScreen extends Screen {
     private CaptchaImageRenderer captchaImage;
     private ImageManager imageManager;
     private final java.util.function.Function<String, byte[]> imageDownloader;
+    @Nullable
+    private final com.cy311.omnisearch.data.client.RequestExecutor ioExecutor;
     private long searchSeq;
     private long detailSeq;
+    // UI continuations of in-flight requests; linked so cancelling one cancels its HTTP request
     private CompletableFuture<?> searchOp;
     private CompletableFuture<?> detailOp;
+    private CompletableFuture<?> moreOp;
     private final SlideAnimation slide = new SlideAnimation();
     private final FloatingSearchWindow floatingWindow = new FloatingSearchWindow();
     // Clear cache flash message
@@ -75,10 +83,21 @@ public class OmnisearchScreen extends Screen {
 
     public OmnisearchScreen(SearchRepository repo, java.util.function.Function<String, byte[]> imageDownloader,
                             @Nullable String initialQuery, @Nullable String initialModFilter) {
+        this(repo, imageDownloader, null, initialQuery, initialModFilter);
+    }
+
+    /**
+     * @param ioExecutor shared I/O executor for image downloads, so they are prioritised
+     *                   against page fetches; null gives the screen a private pool
+     */
+    public OmnisearchScreen(SearchRepository repo, java.util.function.Function<String, byte[]> imageDownloader,
+                            @Nullable com.cy311.omnisearch.data.client.RequestExecutor ioExecutor,
+                            @Nullable String initialQuery, @Nullable String initialModFilter) {
         super(Component.literal("Omnisearch"));
         OmnisearchMod.LOGGER.debug("Screen constructor called");
         this.repo = repo;
         this.imageDownloader = imageDownloader;
+        this.ioExecutor = ioExecutor;
         this.initialQuery = initialQuery;
         this.initialModFilter = initialModFilter;
         this.preferDirectHoverResolution = initialQuery != null && !initialQuery.isBlank();
@@ -89,7 +108,10 @@ public class OmnisearchScreen extends Screen {
     protected void init() {
         super.init();
         OmnisearchMod.LOGGER.debug("Screen init() called, width={} height={}", width, height);
-        imageManager = new ImageManager(imageDownloader != null ? imageDownloader : url -> null, new com.cy311.omnisearch.data.client.RequestExecutor());
+        java.util.function.Function<String, byte[]> downloader = imageDownloader != null ? imageDownloader : url -> null;
+        imageManager = ioExecutor != null
+            ? new ImageManager(downloader, ioExecutor, false)
+            : new ImageManager(downloader, new com.cy311.omnisearch.data.client.RequestExecutor());
         int cx = (width - SBW) / 2;
         sb = new SearchBarWidget(font, cx, height / 3, SBW);
         resultsPane = new SearchResultsPane(new ResultListWidget(font), font);
@@ -453,6 +475,7 @@ public class OmnisearchScreen extends Screen {
         detailSeq++;
         cancelOp(searchOp);
         cancelOp(detailOp);
+        cancelOp(moreOp);
         closeCaptchaImage();
         if (imageManager != null) {
             imageManager.close();
@@ -506,6 +529,55 @@ public class OmnisearchScreen extends Screen {
         }
     }
 
+    /**
+     * Loads every page after the first in parallel. Pages reach the reducer as they
+     * arrive and it appends them in page order; a failure stops the rest and, for a
+     * CAPTCHA, leaves the first missing page as the request to resume one page at a time.
+     */
+    private void eagerLoadRemainingResults(SearchQuery query, long requestId, SearchPageBatch first) {
+        Minecraft.getInstance().tell(() -> {
+            if (requestId != searchSeq || !query.equals(uiState.search().query())) {
+                return;
+            }
+            uiState = uiState.withSearch(uiState.search().withLoadingMore(true));
+        });
+
+        CompletableFuture<Void> request = repo.searchRemainingPages(query, first, batch -> Minecraft.getInstance().tell(() -> {
+            if (requestId != searchSeq || !query.equals(uiState.search().query())) return;
+            OmnisearchMod.LOGGER.debug("eagerLoadRemainingResults page={} got {} results", batch.page(), batch.results().size());
+            uiState = OmnisearchWindowReducer.reduce(
+                uiState,
+                new SearchEvent.PageResultsLoaded(batch.page(), batch.results(), batch.nextPageUrl())
+            );
+        }));
+        moreOp = Cancellation.propagate(request
+            .exceptionally(ex -> {
+                Minecraft.getInstance().tell(() -> {
+                    if (requestId != searchSeq || !query.equals(uiState.search().query())) return;
+                    Throwable cause = unwrapCompletionCause(ex);
+                    // Pages past the gap are dropped; resuming walks on from the gap
+                    String missingPageUrl = uiState.search().nextPageUrl();
+                    uiState = uiState.withSearch(uiState.search().withBufferedPages(Map.of()));
+                    if (cause instanceof CaptchaRequiredException && missingPageUrl != null) {
+                        uiState = OmnisearchWindowReducer.withPendingRequest(
+                            uiState.withSearch(uiState.search().withLoadingMore(false)),
+                            new PendingRequest.SearchMoreUrl(query, missingPageUrl)
+                        );
+                        handleError(cause);
+                        return;
+                    }
+                    OmnisearchMod.LOGGER.warn("eagerLoadRemainingResults failed after page {}", uiState.search().currentPage(), cause);
+                    uiState = uiState.withSearch(
+                        uiState.search()
+                            .withLoadingMore(false)
+                            .withHasMore(false)
+                            .withNextPageUrl(null)
+                    );
+                });
+                return null;
+            }), request);
+    }
+
     private void eagerLoadRemainingResults(SearchQuery query, long requestId, String nextPageUrl) {
         if (nextPageUrl == null || nextPageUrl.isBlank()) {
             Minecraft.getInstance().tell(() -> {
@@ -529,7 +601,8 @@ public class OmnisearchScreen extends Screen {
             uiState = uiState.withSearch(uiState.search().withLoadingMore(true));
         });
 
-        repo.searchMore(nextPageUrl)
+        CompletableFuture<SearchPageBatch> request = repo.searchMore(nextPageUrl);
+        moreOp = Cancellation.propagate(request
             .thenAccept(batch -> Minecraft.getInstance().tell(() -> {
                 if (requestId != searchSeq || !query.equals(uiState.search().query())) return;
                 OmnisearchMod.LOGGER.debug("eagerLoadRemainingResults url={} got {} results", nextPageUrl, batch.results().size());
@@ -562,7 +635,7 @@ public class OmnisearchScreen extends Screen {
                     );
                 });
                 return null;
-            });
+            }), request);
     }
 
     private void submitSearch() {
@@ -573,13 +646,15 @@ public class OmnisearchScreen extends Screen {
         SearchQuery submittedQuery = uiState.search().query();
         long requestId = ++searchSeq;
         cancelOp(searchOp);
+        cancelOp(moreOp);
         invalidateDetailRequest();
         uiState = OmnisearchWindowReducer.reduce(
             OmnisearchWindowReducer.withPendingRequest(uiState, new PendingRequest.Search(submittedQuery)),
             new SearchEvent.SearchSubmitted()
         );
 
-        searchOp = repo.searchPage(submittedQuery)
+        CompletableFuture<SearchPageBatch> request = repo.searchPage(submittedQuery);
+        searchOp = Cancellation.propagate(request
             .thenAccept(batch -> Minecraft.getInstance().tell(() -> {
                 if (requestId != searchSeq || !submittedQuery.equals(uiState.search().query())) return;
                 uiState = OmnisearchWindowReducer.reduce(
@@ -587,7 +662,7 @@ public class OmnisearchScreen extends Screen {
                     new SearchEvent.SearchResultsLoaded(batch.results(), batch.nextPageUrl())
                 );
                 if (batch.nextPageUrl() != null && !batch.nextPageUrl().isBlank()) {
-                    eagerLoadRemainingResults(submittedQuery, requestId, batch.nextPageUrl());
+                    eagerLoadRemainingResults(submittedQuery, requestId, batch);
                 }
                 if (preferDirectHoverResolution) {
                     int bestIdx = findAutoOpenIndex(
@@ -612,7 +687,7 @@ public class OmnisearchScreen extends Screen {
                     handleError(ex);
                 });
                 return null;
-            });
+            }), request);
     }
 
     private void submitCaptchaAnswer() {
@@ -641,7 +716,15 @@ public class OmnisearchScreen extends Screen {
         long requestId = ++detailSeq;
         cancelOp(detailOp);
 
-        detailOp = repo.getPage(pageId)
+        CompletableFuture<ItemPage> request = repo.getPage(pageId, refreshed -> Minecraft.getInstance().tell(() -> {
+            // Shown from an expired cache entry; newer content arrived in the background
+            if (requestId != detailSeq) return;
+            uiState = OmnisearchWindowReducer.reduce(uiState, new SearchEvent.DetailRefreshed(refreshed));
+            if (imageManager != null) {
+                imageManager.preload(collectImageUrls(refreshed.document()));
+            }
+        }));
+        detailOp = Cancellation.propagate(request
             .thenAccept(page -> Minecraft.getInstance().tell(() -> {
                 if (requestId != detailSeq) return;
                 uiState = OmnisearchWindowReducer.reduce(uiState, new SearchEvent.DetailLoaded(page));
@@ -657,7 +740,7 @@ public class OmnisearchScreen extends Screen {
                     handleError(ex);
                 });
                 return null;
-            });
+            }), request);
     }
 
     private void invalidateDetailRequest() {
@@ -671,8 +754,10 @@ public class OmnisearchScreen extends Screen {
             case PendingRequest.Search ignored -> {
                 long requestId = ++searchSeq;
                 cancelOp(searchOp);
+                cancelOp(moreOp);
                 invalidateDetailRequest();
-                searchOp = repo.resumeAfterCaptcha(pending, captcha, answer)
+                CompletableFuture<PendingRequestResult> request = repo.resumeAfterCaptcha(pending, captcha, answer);
+                searchOp = Cancellation.propagate(request
                     .thenAccept(result -> Minecraft.getInstance().tell(() -> {
                         if (requestId != searchSeq) return;
                         applyPendingResult(result);
@@ -688,12 +773,14 @@ public class OmnisearchScreen extends Screen {
                             handleError(ex);
                         });
                         return null;
-                    });
+                    }), request);
             }
             case PendingRequest.SearchMoreUrl searchMore -> {
                 long requestId = ++searchSeq;
                 cancelOp(searchOp);
-                searchOp = repo.resumeAfterCaptcha(pending, captcha, answer)
+                cancelOp(moreOp);
+                CompletableFuture<PendingRequestResult> request = repo.resumeAfterCaptcha(pending, captcha, answer);
+                searchOp = Cancellation.propagate(request
                     .thenAccept(result -> Minecraft.getInstance().tell(() -> {
                         if (requestId != searchSeq) return;
                         applyPendingResult(result);
@@ -709,12 +796,13 @@ public class OmnisearchScreen extends Screen {
                             handleError(ex);
                         });
                         return null;
-                    });
+                    }), request);
             }
             case PendingRequest.Detail ignored -> {
                 long requestId = ++detailSeq;
                 cancelOp(detailOp);
-                detailOp = repo.resumeAfterCaptcha(pending, captcha, answer)
+                CompletableFuture<PendingRequestResult> request = repo.resumeAfterCaptcha(pending, captcha, answer);
+                detailOp = Cancellation.propagate(request
                     .thenAccept(result -> Minecraft.getInstance().tell(() -> {
                         if (requestId != detailSeq) return;
                         applyPendingResult(result);
@@ -725,7 +813,7 @@ public class OmnisearchScreen extends Screen {
                             handleError(ex);
                         });
                         return null;
-                    });
+                    }), request);
             }
         }
     }
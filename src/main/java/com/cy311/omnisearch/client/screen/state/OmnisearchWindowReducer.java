@@ -8,7 +8,9 @@ import com.cy311.omnisearch.search.SearchEvent;
 import com.cy311.omnisearch.search.SearchState;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public final class OmnisearchWindowReducer {
 
@@ -29,7 +31,8 @@ public final class OmnisearchWindowReducer {
                     .withHasMore(false)
                     .withNextPageUrl(null)
                     .withResults(List.of())
-                    .withUnfilteredResults(List.of()))
+                    .withUnfilteredResults(List.of())
+                    .withBufferedPages(Map.of()))
                 .withDetail(current.detail().resetForNewPage())
                 .withWindow(current.window()
                     .withLoading(SearchState.LoadingState.LOADING)
@@ -58,36 +61,39 @@ public final class OmnisearchWindowReducer {
                         .withCurrentPage(1)
                         .withNextPageUrl(r.nextPageUrl())
                         .withHasMore(hasMore)
-                        .withLoadingMore(false))
+                        .withLoadingMore(false)
+                        .withBufferedPages(Map.of()))
                     .withWindow(current.window()
                         .withPendingRequest(null)
                         .withLoading(SearchState.LoadingState.IDLE)
                         .withErrorMessage(null));
             }
-            case SearchEvent.MoreResultsLoaded r -> {
-                var oldUnfiltered = current.search().unfilteredResults();
-                var newUnfiltered = new ArrayList<SearchHit>(oldUnfiltered.size() + r.results().size());
-                newUnfiltered.addAll(oldUnfiltered);
-                newUnfiltered.addAll(r.results());
-                String modFilter = current.search().modFilter();
-                List<SearchHit> displayResults = newUnfiltered;
-                if (modFilter != null && !modFilter.isBlank()) {
-                    displayResults = newUnfiltered.stream()
-                        .filter(h -> h.sourceMod() != null && h.sourceMod().contains(modFilter))
-                        .toList();
-                    if (displayResults.isEmpty()) {
-                        displayResults = newUnfiltered;
-                    }
+            case SearchEvent.MoreResultsLoaded r -> current
+                .withSearch(appendPage(current.search(), r.results(), r.nextPageUrl()))
+                .withWindow(current.window()
+                    .withLoading(SearchState.LoadingState.IDLE)
+                    .withErrorMessage(null));
+            case SearchEvent.PageResultsLoaded r -> {
+                // Parallel pages arrive in any order: hold each until the ones before it
+                // are in, so results always read in page order
+                var search = current.search();
+                if (r.page() <= search.currentPage() || search.bufferedPages().containsKey(r.page())) {
+                    yield current; // duplicate, or left over from an earlier walk
+                }
+                var buffered = new HashMap<>(search.bufferedPages());
+                buffered.put(r.page(), new SearchSessionState.BufferedPage(r.results(), r.nextPageUrl()));
+                boolean appended = false;
+                SearchSessionState.BufferedPage next;
+                while ((next = buffered.remove(search.currentPage() + 1)) != null) {
+                    search = appendPage(search, next.results(), next.nextPageUrl());
+                    appended = true;
+                }
+                search = search.withBufferedPages(Map.copyOf(buffered));
+                if (!appended) {
+                    yield current.withSearch(search);
                 }
-                boolean hasMore = r.nextPageUrl() != null && !r.nextPageUrl().isBlank();
                 yield current
-                    .withSearch(current.search()
-                        .withResults(displayResults)
-                        .withUnfilteredResults(newUnfiltered)
-                        .withCurrentPage(current.search().currentPage() + 1)
-                        .withNextPageUrl(r.nextPageUrl())
-                        .withHasMore(hasMore)
-                        .withLoadingMore(false))
+                    .withSearch(search.withLoadingMore(search.hasMore()))
                     .withWindow(current.window()
                         .withLoading(SearchState.LoadingState.IDLE)
                         .withErrorMessage(null));
@@ -116,6 +122,10 @@ public final class OmnisearchWindowReducer {
                     .withPendingRequest(null)
                     .withLoading(SearchState.LoadingState.IDLE)
                     .withErrorMessage(null));
+            // Same page, newer content: keep the reader's place, only re-layout
+            case SearchEvent.DetailRefreshed d -> current.search().currentView() == BodyView.DETAIL
+                ? current.withDetail(current.detail().withPage(d.page()).clearLayoutCache())
+                : current;
             case SearchEvent.LinkClicked ignored -> current
                 .withWindow(current.window().withLoading(SearchState.LoadingState.LOADING));
             case SearchEvent.GoBack ignored -> {
@@ -149,4 +159,30 @@ public final class OmnisearchWindowReducer {
     public static OmnisearchWindowState withPendingRequest(OmnisearchWindowState current, PendingRequest pendingRequest) {
         return current.withWindow(current.window().withPendingRequest(pendingRequest));
     }
+
+    /** Appends the next result page, re-applying the mod filter to the grown list. */
+    private static SearchSessionState appendPage(SearchSessionState search, List<SearchHit> results, String nextPageUrl) {
+        var oldUnfiltered = search.unfilteredResults();
+        var newUnfiltered = new ArrayList<SearchHit>(oldUnfiltered.size() + results.size());
+        newUnfiltered.addAll(oldUnfiltered);
+        newUnfiltered.addAll(results);
+        String modFilter = search.modFilter();
+        List<SearchHit> displayResults = newUnfiltered;
+        if (modFilter != null && !modFilter.isBlank()) {
+            displayResults = newUnfiltered.stream()
+                .filter(h -> h.sourceMod() != null && h.sourceMod().contains(modFilter))
+                .toList();
+            if (displayResults.isEmpty()) {
+                displayResults = newUnfiltered;
+            }
+        }
+        boolean hasMore = nextPageUrl != null && !nextPageUrl.isBlank();
+        return search
+            .withResults(displayResults)
+            .withUnfilteredResults(newUnfiltered)
+            .withCurrentPage(search.currentPage() + 1)
+            .withNextPageUrl(nextPageUrl)
+            .withHasMore(hasMore)
+            .withLoadingMore(false);
+    }
 }
@@ -7,6 +7,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public record SearchSessionState(
     BodyView currentView,
@@ -21,10 +22,14 @@ public record SearchSessionState(
     @Nullable String nextPageUrl,
     @Nullable String modFilter,
     List<SearchHit> unfilteredResults,
-    History history
+    History history,
+    Map<Integer, BufferedPage> bufferedPages
 ) {
     public enum BodyView { SEARCH, RESULTS, DETAIL }
 
+    /** A result page that arrived ahead of the pages before it, waiting to be appended. */
+    public record BufferedPage(List<SearchHit> results, @Nullable String nextPageUrl) {}
+
     public record Snapshot(
         BodyView currentView,
         SearchQuery query,
@@ -39,7 +44,7 @@ public record SearchSessionState(
     ) {}
 
     public static SearchSessionState initial() {
-        return new SearchSessionState(BodyView.SEARCH, new SearchQuery(""), List.of(), 0, -1, false, 1, false, false, null, null, List.of(), new History());
+        return new SearchSessionState(BodyView.SEARCH, new SearchQuery(""), List.of(), 0, -1, false, 1, false, false, null, null, List.of(), new History(), Map.of());
     }
 
     public Snapshot snapshot() {
@@ -47,55 +52,59 @@ public record SearchSessionState(
     }
 
     public SearchSessionState withCurrentView(BodyView currentView) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withQuery(SearchQuery query) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withResults(List<SearchHit> results) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withResultsScrollOffset(int resultsScrollOffset) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withSelectedResultIndex(int selectedResultIndex) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withDraggingScrollbar(boolean draggingScrollbar) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withCurrentPage(int currentPage) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withLoadingMore(boolean loadingMore) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withHasMore(boolean hasMore) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withNextPageUrl(@Nullable String nextPageUrl) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withModFilter(@Nullable String modFilter) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withUnfilteredResults(List<SearchHit> unfilteredResults) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState withHistory(History history) {
-        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
+    }
+
+    public SearchSessionState withBufferedPages(Map<Integer, BufferedPage> bufferedPages) {
+        return new SearchSessionState(currentView, query, results, resultsScrollOffset, selectedResultIndex, draggingScrollbar, currentPage, loadingMore, hasMore, nextPageUrl, modFilter, unfilteredResults, history, bufferedPages);
     }
 
     public SearchSessionState restore(Snapshot snapshot, History newHistory) {
@@ -112,7 +121,8 @@ public record SearchSessionState(
             snapshot.nextPageUrl(),
             snapshot.modFilter(),
             snapshot.unfilteredResults(),
-            newHistory
+            newHistory,
+            Map.of()
         );
     }
 
@@ -124,7 +134,7 @@ public record SearchSessionState(
         var filtered = unfilteredResults.stream()
             .filter(h -> modName.equals(h.sourceMod()))
             .toList();
-        return new SearchSessionState(currentView, query, filtered, 0, -1, false, currentPage, loadingMore, hasMore, nextPageUrl, modName, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, filtered, 0, -1, false, currentPage, loadingMore, hasMore, nextPageUrl, modName, unfilteredResults, history, bufferedPages);
     }
 
     /**
@@ -132,7 +142,7 @@ public record SearchSessionState(
      * Keeps unfilteredResults intact so mod filter can be re-applied later.
      */
     public SearchSessionState clearModFilter() {
-        return new SearchSessionState(currentView, query, unfilteredResults, 0, -1, false, currentPage, loadingMore, hasMore, nextPageUrl, null, unfilteredResults, history);
+        return new SearchSessionState(currentView, query, unfilteredResults, 0, -1, false, currentPage, loadingMore, hasMore, nextPageUrl, null, unfilteredResults, history, bufferedPages);
     }
 
     public static final class History {
@@ -0,0 +1,63 @@
+package com.cy311.omnisearch.data.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Carries cancellation back up {@link CompletableFuture} chains.
+ * <p>
+ * Cancelling a dependent stage ({@code thenApply}, {@code thenCompose}, …) does not
+ * cancel the stage it came from, so without these links a cancelled search would keep
+ * its {@link RequestExecutor} task, connection slot and rate-limit tokens. Each layer
+ * (data source, repository, screen) links the future it returns to the futures it
+ * started, so {@code cancel} on the outermost stage reaches the HTTP request.
+ */
+public final class Cancellation {
+
+    private Cancellation() {}
+
+    /**
+     * Makes cancelling {@code downstream} also cancel each of {@code upstreams}.
+     *
+     * @return {@code downstream}, for chaining
+     */
+    public static <T> CompletableFuture<T> propagate(CompletableFuture<T> downstream, CompletableFuture<?>... upstreams) {
+        downstream.whenComplete((value, ex) -> {
+            if (downstream.isCancelled()) {
+                for (CompletableFuture<?> upstream : upstreams) {
+                    upstream.cancel(true);
+                }
+            }
+        });
+        return downstream;
+    }
+
+    /**
+     * {@link CompletableFuture#thenCompose} whose result, when cancelled, cancels whichever
+     * stage is currently running: {@code upstream} before it completes, or the future
+     * returned by {@code next} afterwards.
+     */
+    public static <T, U> CompletableFuture<U> compose(CompletableFuture<T> upstream,
+                                                      Function<? super T, ? extends CompletableFuture<U>> next) {
+        AtomicReference<CompletableFuture<?>> active = new AtomicReference<>(upstream);
+        AtomicReference<CompletableFuture<U>> resultRef = new AtomicReference<>();
+        CompletableFuture<U> result = upstream.thenCompose(value -> {
+            CompletableFuture<U> stage = next.apply(value);
+            active.set(stage);
+            CompletableFuture<U> composed = resultRef.get();
+            // The result may have been cancelled while next() was building the stage
+            if (composed != null && composed.isCancelled()) {
+                stage.cancel(true);
+            }
+            return stage;
+        });
+        resultRef.set(result);
+        result.whenComplete((value, ex) -> {
+            if (result.isCancelled()) {
+                active.get().cancel(true);
+            }
+        });
+        return result;
+    }
+}
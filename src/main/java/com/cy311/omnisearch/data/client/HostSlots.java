@@ -0,0 +1,57 @@
+package com.cy311.omnisearch.data.client;
+
+/**
+ * Connection slots for one host, handed out by priority.
+ * <p>
+ * A waiting foreground request is always served before a waiting background one, and
+ * background work never takes the last {@code reservedForeground} free slots, so
+ * prefetches and refreshes cannot occupy every connection to a host while the player
+ * waits on a search. Waits are interruptible.
+ */
+final class HostSlots {
+    private final int capacity;
+    private final int reservedForeground;
+    private int inUse;
+    private int waitingForeground;
+
+    HostSlots(int capacity, int reservedForeground) {
+        this.capacity = Math.max(1, capacity);
+        this.reservedForeground = Math.max(0, Math.min(reservedForeground, this.capacity - 1));
+    }
+
+    /**
+     * Blocks until a slot is free for a request of this kind and takes it. The caller
+     * must {@link #release()} it when the request is off the wire.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    synchronized void acquire(boolean foreground) throws InterruptedException {
+        if (foreground) {
+            waitingForeground++;
+            try {
+                while (inUse >= capacity) {
+                    wait();
+                }
+            } finally {
+                if (--waitingForeground == 0) {
+                    notifyAll();
+                }
+            }
+        } else {
+            while (waitingForeground > 0 || inUse >= capacity - reservedForeground) {
+                wait();
+            }
+        }
+        inUse++;
+    }
+
+    synchronized void release() {
+        inUse--;
+        notifyAll();
+    }
+
+    /** Slots not currently held. */
+    synchronized int available() {
+        return capacity - inUse;
+    }
+}
@@ -0,0 +1,48 @@
+package com.cy311.omnisearch.data.client;
+
+import com.cy311.omnisearch.data.model.CacheValidators;
+import org.jetbrains.annotations.Nullable;
+import org.jsoup.nodes.Document;
+
+/**
+ * A GET response parsed straight from the socket: the status, the Jsoup tree (null when
+ * there was no body to parse — 304, throttle statuses, blank URLs), what kind of page it
+ * turned out to be, and the validators the server sent with it.
+ *
+ * @param body the decoded bytes the tree was parsed from, if the request asked to keep them
+ */
+public record HtmlResponse(int statusCode, @Nullable Document document, Interstitial interstitial,
+                           CacheValidators validators, byte @Nullable [] body) {
+
+    public HtmlResponse(int statusCode, @Nullable Document document, Interstitial interstitial,
+                        CacheValidators validators) {
+        this(statusCode, document, interstitial, validators, null);
+    }
+
+    /** Response for a request that was never sent. */
+    public static final HtmlResponse EMPTY = new HtmlResponse(0, null, Interstitial.NONE, CacheValidators.NONE);
+
+    /** What mcmod.cn served instead of the requested content, if anything. */
+    public enum Interstitial {
+        NONE,
+        /** The "搜索太频繁" page, or a 429/503 status. */
+        RATE_LIMITED,
+        /** The "安全验证" CAPTCHA challenge. */
+        CAPTCHA
+    }
+
+    /** True if the server confirmed the cached copy is still current. */
+    public boolean notModified() {
+        return statusCode == 304;
+    }
+
+    /** True if there is a content page to hand to the parser. */
+    public boolean hasContent() {
+        return document != null && interstitial == Interstitial.NONE;
+    }
+
+    /** The markup exactly as served, in the charset it was parsed with; null unless the body was kept. */
+    public @Nullable String html() {
+        return body != null && document != null ? new String(body, document.charset()) : null;
+    }
+}
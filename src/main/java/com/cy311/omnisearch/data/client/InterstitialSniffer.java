@@ -0,0 +1,152 @@
+package com.cy311.omnisearch.data.client;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Watches a decoded response body for mcmod.cn's interstitial markers while the parser
+ * reads it, so throttle and CAPTCHA pages are recognised in the same pass that builds the
+ * tree instead of by re-scanning a materialized body.
+ * <p>
+ * Matches the UTF-8 bytes of the markers, which is exact for mcmod.cn's UTF-8 pages, and
+ * counts characters by skipping UTF-8 continuation bytes so the throttle page's size
+ * bound means the same as {@link McmodHttpClient#isRateLimitedPage}.
+ * <p>
+ * Optionally keeps a copy of every byte it passes on, so a caller that archives the page
+ * gets the markup as served without re-serializing the tree.
+ */
+final class InterstitialSniffer extends FilterInputStream {
+
+    // A typical detail page decodes to ~50-100 KB
+    private static final int INITIAL_COPY_SIZE = 64 * 1024;
+
+    private final Marker rateLimited = new Marker("搜索太频繁");
+    private final Marker captchaTitle = new Marker("安全验证");
+    private final Marker captchaWord = new Marker("captcha");
+    private final @Nullable ByteArrayOutputStream copy;
+    private long chars;
+
+    InterstitialSniffer(InputStream in) {
+        this(in, false);
+    }
+
+    InterstitialSniffer(InputStream in, boolean keepBody) {
+        super(in);
+        this.copy = keepBody ? new ByteArrayOutputStream(INITIAL_COPY_SIZE) : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            scan((byte) b);
+            if (copy != null) {
+                copy.write(b);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buf, int off, int len) throws IOException {
+        int n = super.read(buf, off, len);
+        for (int i = 0; i < n; i++) {
+            scan(buf[off + i]);
+        }
+        if (copy != null && n > 0) {
+            copy.write(buf, off, n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        // Route skips through read() so no byte escapes the scan
+        byte[] buf = new byte[(int) Math.min(n, 8192)];
+        int read = read(buf, 0, buf.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void scan(byte b) {
+        if ((b & 0xC0) != 0x80) {
+            chars++;
+        }
+        // Past the size bound the page cannot be the throttle page any more
+        if (chars < McmodHttpClient.RATE_LIMIT_PAGE_MAX_CHARS) {
+            rateLimited.feed(b);
+        }
+        captchaTitle.feed(b);
+        captchaWord.feed(b);
+    }
+
+    /** Classifies everything read so far; final once the stream has been read to the end. */
+    HtmlResponse.Interstitial interstitial() {
+        if (captchaTitle.seen && captchaWord.seen) {
+            return HtmlResponse.Interstitial.CAPTCHA;
+        }
+        if (rateLimited.seen && chars < McmodHttpClient.RATE_LIMIT_PAGE_MAX_CHARS) {
+            return HtmlResponse.Interstitial.RATE_LIMITED;
+        }
+        return HtmlResponse.Interstitial.NONE;
+    }
+
+    /** Every byte read so far, or null if this sniffer was not asked to keep them. */
+    byte @Nullable [] body() {
+        return copy != null ? copy.toByteArray() : null;
+    }
+
+    /** Characters read so far. */
+    long chars() {
+        return chars;
+    }
+
+    /** Streaming substring match (KMP) over the bytes of one marker. */
+    private static final class Marker {
+        private final byte[] pattern;
+        private final int[] fallback;
+        private int matched;
+        boolean seen;
+
+        Marker(String text) {
+            pattern = text.getBytes(StandardCharsets.UTF_8);
+            fallback = new int[pattern.length];
+            for (int i = 1, k = 0; i < pattern.length; i++) {
+                while (k > 0 && pattern[i] != pattern[k]) {
+                    k = fallback[k - 1];
+                }
+                if (pattern[i] == pattern[k]) {
+                    k++;
+                }
+                fallback[i] = k;
+            }
+        }
+
+        void feed(byte b) {
+            if (seen) {
+                return;
+            }
+            while (matched > 0 && b != pattern[matched]) {
+                matched = fallback[matched - 1];
+            }
+            if (b == pattern[matched]) {
+                matched++;
+            }
+            if (matched == pattern.length) {
+                seen = true;
+            }
+        }
+    }
+}
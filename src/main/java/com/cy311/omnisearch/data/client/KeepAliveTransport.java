@@ -0,0 +1,418 @@
+package com.cy311.omnisearch.data.client;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * {@link Transport} over {@link HttpURLConnection} that keeps connections alive between
+ * requests.
+ * <p>
+ * This is the same HTTP stack Jsoup's {@code connect()} drives, so mcmod.cn sees the
+ * same HTTP/1.1 requests it accepted before (java.net.http.HttpClient gets 403s). The
+ * difference is the end of each exchange: Jsoup disconnects, which throws the socket —
+ * and its TLS session — away, whereas this transport reads the body to the end and
+ * closes only the stream, so the JDK's keep-alive cache hands the socket to the next
+ * request for the same host. The cache keeps up to {@code http.maxConnections} (default
+ * 5) idle sockets per host, above the client's {@link McmodHttpClient#MAX_CONCURRENT_PER_HOST}.
+ * <p>
+ * A platform thread blocked waiting for the server ignores interrupts, so an exchange run
+ * by a {@link RequestExecutor} task registers a cancel hook that disconnects it: cancelling
+ * the task aborts the request at once instead of after the read timeout.
+ */
+public final class KeepAliveTransport implements Transport {
+
+    private static final int TIMEOUT_MS = 30_000;
+    private static final int MAX_REDIRECTS = 20;
+    // Leftover body bytes worth reading to save the socket; beyond this we disconnect
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private final int timeoutMs;
+
+    public KeepAliveTransport() {
+        this(TIMEOUT_MS);
+    }
+
+    /**
+     * @param timeoutMs connect and read timeout of each hop
+     */
+    public KeepAliveTransport(int timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        AtomicReference<HttpURLConnection> current = new AtomicReference<>();
+        RequestExecutor.CancelHook cancelHook = RequestExecutor.onCancel(() -> {
+            HttpURLConnection conn = current.get();
+            if (conn != null) {
+                conn.disconnect();
+            }
+        });
+        try {
+            return execute(request, current, cancelHook);
+        } catch (IOException | RuntimeException e) {
+            cancelHook.close();
+            throw e;
+        }
+    }
+
+    private Response execute(Request request, AtomicReference<HttpURLConnection> current,
+                             RequestExecutor.CancelHook cancelHook) throws IOException {
+        Map<String, String> cookies = new LinkedHashMap<>(request.cookies());
+        Map<String, String> received = new LinkedHashMap<>();
+        Map<String, Long> expiries = new LinkedHashMap<>();
+        Method method = request.method();
+        Map<String, String> form = request.formData();
+        String url = request.url();
+        for (int hop = 0; ; hop++) {
+            HttpURLConnection conn = (HttpURLConnection) URI.create(url).toURL().openConnection();
+            current.set(conn);
+            if (Thread.currentThread().isInterrupted()) {
+                // Cancelled before there was a connection for the hook to abort
+                throw new InterruptedIOException("Request cancelled: " + url);
+            }
+            send(conn, method, request.headers(), cookies, form, timeoutMs);
+            int status = conn.getResponseCode();
+            List<String> setCookies = setCookieHeaders(conn);
+            Map<String, String> hopCookies = parseSetCookies(setCookies);
+            received.putAll(hopCookies);
+            hopCookies.keySet().forEach(expiries::remove);
+            expiries.putAll(parseCookieExpiries(setCookies, System.currentTimeMillis()));
+            String location = conn.getHeaderField("Location");
+            if (!request.followRedirects() || !isRedirect(status) || location == null || hop >= MAX_REDIRECTS) {
+                return new ConnectionResponse(conn, status, url, received, expiries, cancelHook);
+            }
+            // Cookies set by a redirect travel with the next hop, as in a browser
+            cookies.putAll(hopCookies);
+            discard(conn, status);
+            url = URI.create(url).resolve(location.replace(" ", "%20")).toString();
+            if (status != 307 && status != 308) {
+                method = Method.GET;
+                form = Map.of();
+            }
+        }
+    }
+
+    /** Configures {@code conn} and sends the request line, headers and any form body. */
+    private static void send(HttpURLConnection conn, Method method, Map<String, String> headers,
+                             Map<String, String> cookies, Map<String, String> form,
+                             int timeoutMs) throws IOException {
+        conn.setRequestMethod(method.name());
+        conn.setInstanceFollowRedirects(false);
+        conn.setConnectTimeout(timeoutMs);
+        conn.setReadTimeout(timeoutMs);
+        conn.setUseCaches(false);
+        headers.forEach(conn::setRequestProperty);
+        if (!cookies.isEmpty()) {
+            StringJoiner header = new StringJoiner("; ");
+            cookies.forEach((name, value) -> header.add(name + "=" + value));
+            conn.setRequestProperty("Cookie", header.toString());
+        }
+        if (method == Method.POST) {
+            StringJoiner body = new StringJoiner("&");
+            form.forEach((name, value) -> body.add(
+                URLEncoder.encode(name, StandardCharsets.UTF_8) + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8)));
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            conn.setDoOutput(true);
+            conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8");
+            conn.setFixedLengthStreamingMode(bytes.length);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    /** {@code Set-Cookie} values; the header map is case-sensitive and servers vary the case. */
+    private static List<String> setCookieHeaders(HttpURLConnection conn) {
+        List<String> values = new ArrayList<>();
+        for (Map.Entry<String, List<String>> header : conn.getHeaderFields().entrySet()) {
+            if ("Set-Cookie".equalsIgnoreCase(header.getKey())) {
+                values.addAll(header.getValue());
+            }
+        }
+        return values;
+    }
+
+    /** Name → value of each {@code Set-Cookie}, ignoring attributes (Jsoup's behaviour). */
+    static Map<String, String> parseSetCookies(@Nullable List<String> headers) {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        if (headers == null) {
+            return cookies;
+        }
+        for (String header : headers) {
+            if (header == null) {
+                continue;
+            }
+            int end = header.indexOf(';');
+            String pair = end >= 0 ? header.substring(0, end) : header;
+            int eq = pair.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            cookies.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+        }
+        return cookies;
+    }
+
+    /**
+     * Name → expiry (epoch millis) for each {@code Set-Cookie} carrying {@code Max-Age}
+     * or a parseable {@code Expires}; {@code Max-Age} wins when both are present.
+     */
+    static Map<String, Long> parseCookieExpiries(@Nullable List<String> headers, long now) {
+        Map<String, Long> expiries = new LinkedHashMap<>();
+        if (headers == null) {
+            return expiries;
+        }
+        for (String header : headers) {
+            if (header == null) {
+                continue;
+            }
+            String[] parts = header.split(";");
+            int eq = parts[0].indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            Long maxAge = null;
+            Long expires = null;
+            for (int i = 1; i < parts.length; i++) {
+                String attr = parts[i].trim();
+                int sep = attr.indexOf('=');
+                if (sep < 0) {
+                    continue;
+                }
+                String key = attr.substring(0, sep).trim();
+                String value = attr.substring(sep + 1).trim();
+                if (key.equalsIgnoreCase("Max-Age")) {
+                    try {
+                        maxAge = now + Long.parseLong(value) * 1000L;
+                    } catch (NumberFormatException ignored) {
+                    }
+                } else if (key.equalsIgnoreCase("Expires")) {
+                    expires = parseHttpDate(value);
+                }
+            }
+            Long expiry = maxAge != null ? maxAge : expires;
+            if (expiry != null) {
+                expiries.put(parts[0].substring(0, eq).trim(), expiry);
+            }
+        }
+        return expiries;
+    }
+
+    /** RFC 1123 date, also in the dashed {@code 01-Jan-2030} form many servers still send. */
+    private static @Nullable Long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value.replace('-', ' '), DateTimeFormatter.RFC_1123_DATE_TIME)
+                .toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /** Raw stream of a response: the error stream for 4xx/5xx, which may be absent. */
+    private static @Nullable InputStream rawBody(HttpURLConnection conn, int status) throws IOException {
+        return status >= 400 ? conn.getErrorStream() : conn.getInputStream();
+    }
+
+    /** Finishes an exchange without using the body, keeping the socket when that is cheap. */
+    private static void discard(HttpURLConnection conn, int status) {
+        try (InputStream in = rawBody(conn, status)) {
+            if (in != null && drain(in) > MAX_DRAIN_BYTES) {
+                conn.disconnect();
+            }
+        } catch (IOException e) {
+            conn.disconnect();
+        }
+    }
+
+    /** Reads up to {@link #MAX_DRAIN_BYTES} + 1 bytes and returns how many were read. */
+    private static long drain(InputStream in) throws IOException {
+        byte[] buf = new byte[8192];
+        long total = 0;
+        int n;
+        while (total <= MAX_DRAIN_BYTES && (n = in.read(buf)) >= 0) {
+            total += n;
+        }
+        return total;
+    }
+
+    /** Strips gzip or deflate (zlib-wrapped or raw, as servers disagree) from a body. */
+    static InputStream decode(InputStream raw, @Nullable String contentEncoding) throws IOException {
+        if (contentEncoding == null) {
+            return raw;
+        }
+        String encoding = contentEncoding.trim().toLowerCase(Locale.ROOT);
+        if (encoding.equals("gzip") || encoding.equals("x-gzip")) {
+            return new GZIPInputStream(raw);
+        }
+        if (encoding.equals("deflate")) {
+            PushbackInputStream in = new PushbackInputStream(raw, 2);
+            int b0 = in.read();
+            int b1 = in.read();
+            if (b1 >= 0) in.unread(b1);
+            if (b0 >= 0) in.unread(b0);
+            boolean zlib = b0 >= 0 && b1 >= 0 && (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0;
+            return new InflaterInputStream(in, new Inflater(!zlib));
+        }
+        return raw;
+    }
+
+    static @Nullable String charsetOf(@Nullable String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String part : contentType.split(";")) {
+            String param = part.trim();
+            if (param.regionMatches(true, 0, "charset=", 0, "charset=".length())) {
+                String value = param.substring("charset=".length()).trim().replace("\"", "");
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Ends the body early once the reading thread is interrupted, as Jsoup's body stream
+     * does: a blocking socket read ignores interrupts, so without this a cancelled request
+     * would still download the whole page. The caller sees the interrupt flag and discards
+     * the truncated result.
+     */
+    private static final class InterruptibleInputStream extends FilterInputStream {
+        InterruptibleInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return Thread.currentThread().isInterrupted() ? -1 : super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return Thread.currentThread().isInterrupted() ? -1 : super.read(b, off, len);
+        }
+    }
+
+    private static final class ConnectionResponse implements Response {
+        private final HttpURLConnection conn;
+        private final int status;
+        private final String url;
+        private final Map<String, String> cookies;
+        private final Map<String, Long> expiries;
+        private final RequestExecutor.CancelHook cancelHook;
+        private @Nullable InputStream raw;
+        private boolean bodyOpened;
+
+        ConnectionResponse(HttpURLConnection conn, int status, String url, Map<String, String> cookies,
+                           Map<String, Long> expiries, RequestExecutor.CancelHook cancelHook) {
+            this.conn = conn;
+            this.cancelHook = cancelHook;
+            this.status = status;
+            this.url = url;
+            this.cookies = Map.copyOf(cookies);
+            this.expiries = Map.copyOf(expiries);
+        }
+
+        @Override
+        public int statusCode() {
+            return status;
+        }
+
+        @Override
+        public String url() {
+            return url;
+        }
+
+        @Override
+        public @Nullable String header(String name) {
+            return conn.getHeaderField(name);
+        }
+
+        @Override
+        public Map<String, String> cookies() {
+            return cookies;
+        }
+
+        @Override
+        public Map<String, Long> cookieExpiries() {
+            return expiries;
+        }
+
+        @Override
+        public @Nullable String charset() {
+            return charsetOf(conn.getContentType());
+        }
+
+        @Override
+        public InputStream body() throws IOException {
+            if (bodyOpened) {
+                throw new IllegalStateException("Response body already read: " + url);
+            }
+            bodyOpened = true;
+            raw = rawBody(conn, status);
+            if (raw == null) {
+                return InputStream.nullInputStream();
+            }
+            return new InterruptibleInputStream(decode(raw, conn.getContentEncoding()));
+        }
+
+        /**
+         * Releases the connection. A body read to the end leaves the socket in the
+         * keep-alive cache; an unread or abandoned body is drained if small, otherwise the
+         * socket is closed rather than blocking on the rest of a large download.
+         */
+        @Override
+        public void close() {
+            try {
+                release();
+            } finally {
+                cancelHook.close();
+            }
+        }
+
+        private void release() {
+            if (!bodyOpened) {
+                bodyOpened = true;
+                discard(conn, status);
+                return;
+            }
+            if (raw == null) {
+                return;
+            }
+            try (InputStream in = raw) {
+                if (Thread.currentThread().isInterrupted() || drain(in) > MAX_DRAIN_BYTES) {
+                    conn.disconnect();
+                }
+            } catch (IOException e) {
+                conn.disconnect();
+            }
+        }
+    }
+}
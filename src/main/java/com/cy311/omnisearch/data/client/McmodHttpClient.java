@@ -1,22 +1,44 @@
 package com.cy311.omnisearch.data.client;
 
-import org.jsoup.Connection;
+import com.cy311.omnisearch.data.model.CacheValidators;
 import org.jsoup.Jsoup;
 
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * HTTP client for fetching raw HTML from mcmod.cn.
  * <p>
- * Uses Jsoup for HTTP (same as verified MapleSugar365 fork).
- * Jsoup's native cookie management matches mcmod.cn's expectations,
- * unlike java.net.http.HttpClient which triggers 403 bot detection.
- * Cookie persistence is instance-scoped (thread-safe via SessionCookieStore).
+ * Requests go through a {@link Transport}; the default {@link KeepAliveTransport} speaks
+ * the same HttpURLConnection-based HTTP/1.1 as Jsoup's {@code connect()} (as in the
+ * verified MapleSugar365 fork), which mcmod.cn accepts — unlike java.net.http.HttpClient,
+ * which triggers 403 bot detection — but reuses connections between requests.
+ * Cookies live in a {@link SessionCookieStore}: instance-scoped by default, or loaded from
+ * and saved to disk when the caller passes a persistent one.
  * <p>
- * Implements AutoCloseable to release the RequestExecutor thread pool.
+ * GET requests are single-flight: concurrent callers asking for the same normalized
+ * URL (hover query, search screen, eager pagination) share one network round trip.
+ * Every request — GETs, CAPTCHA submits and image downloads — first takes a token from
+ * its host's {@link RateGovernor}, which slows down after throttle/CAPTCHA responses,
+ * and then holds one of a few per-host connection slots while it is on the wire. Both
+ * waits serve foreground lanes first, and one slot per host is kept for them.
+ * <p>
+ * {@link #getDocument} parses pages straight off the socket into Jsoup trees, spotting
+ * throttle and CAPTCHA pages in the same pass; the String getters remain for callers that
+ * need the raw markup.
+ * <p>
+ * Implements AutoCloseable to release the RequestExecutor thread pool and the transport.
  */
 public class McmodHttpClient implements AutoCloseable {
 
@@ -25,8 +47,61 @@ public class McmodHttpClient implements AutoCloseable {
     private static final String USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/148.0.0.0 Safari/537.36";
 
     // Cross-request cookie persistence (thread-safe via snapshot/merge)
-    private final SessionCookieStore cookieStore = new SessionCookieStore();
-    private final RequestExecutor executor = new RequestExecutor();
+    private final SessionCookieStore cookieStore;
+    private final RequestExecutor executor;
+    private final Transport transport;
+
+    // Single-flight table: normalized URL → the in-flight GET every concurrent caller joins.
+    // Parsed-document GETs are keyed separately from String GETs of the same URL.
+    private final ConcurrentMap<String, Flight<?>> inFlight = new ConcurrentHashMap<>();
+    private static final String DOCUMENT_KEY_PREFIX = "doc:";
+    private final AtomicLong coalescedRequests = new AtomicLong();
+
+    // Host → AIMD token bucket; every request path paces itself through one of these
+    private final ConcurrentMap<String, RateGovernor> governors = new ConcurrentHashMap<>();
+
+    // Host → connection slots. Bounds concurrency per host when the executor itself does
+    // not (virtual-thread mode runs far more tasks at once than the platform pool), and keeps
+    // one slot that background lanes can never take.
+    private final ConcurrentMap<String, HostSlots> hostSlots = new ConcurrentHashMap<>();
+    static final int MAX_CONCURRENT_PER_HOST = 4;
+    static final int RESERVED_FOREGROUND_SLOTS = 1;
+
+    // Throttle-page retries; the pause between attempts comes from the governor's cooldown
+    private static final int MAX_RATE_LIMIT_RETRIES = 6;
+
+    // The throttle page is ~20K characters; normal result pages are ~45-50K
+    static final int RATE_LIMIT_PAGE_MAX_CHARS = 40000;
+
+    public McmodHttpClient() {
+        this(new RequestExecutor());
+    }
+
+    /**
+     * @param executor I/O executor for all requests; closed together with this client
+     */
+    public McmodHttpClient(RequestExecutor executor) {
+        this(executor, new KeepAliveTransport());
+    }
+
+    /**
+     * @param executor  I/O executor for all requests; closed together with this client
+     * @param transport sends every request; closed together with this client
+     */
+    public McmodHttpClient(RequestExecutor executor, Transport transport) {
+        this(executor, transport, new SessionCookieStore());
+    }
+
+    /**
+     * @param executor    I/O executor for all requests; closed together with this client
+     * @param transport   sends every request; closed together with this client
+     * @param cookieStore session cookies; flushed to disk on close if persistent
+     */
+    public McmodHttpClient(RequestExecutor executor, Transport transport, SessionCookieStore cookieStore) {
+        this.executor = executor;
+        this.transport = transport;
+        this.cookieStore = cookieStore;
+    }
 
     // ──────────────────────────────────────────────
     // Public API
@@ -40,28 +115,77 @@ public class McmodHttpClient implements AutoCloseable {
         if (query == null || query.isBlank()) {
             return CompletableFuture.completedFuture("");
         }
-        return executor.submit(() -> doGetWithRateLimitRetry(buildSearchUrl(query, page)));
+        String url = buildSearchUrl(query, page);
+        return coalesce(normalizeUrl(url), RequestExecutor.Priority.INTERACTIVE, () -> doGetWithRateLimitRetry(url));
     }
 
     public CompletableFuture<String> getHtml(String url) {
+        return getHtml(url, RequestExecutor.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Fetches {@code url} in the given scheduling lane, e.g. {@link RequestExecutor.Priority#PREFETCH}
+     * for eager pagination so it never delays a page the user is waiting on.
+     */
+    public CompletableFuture<String> getHtml(String url, RequestExecutor.Priority priority) {
         if (url == null || url.isBlank()) {
             return CompletableFuture.completedFuture("");
         }
-        return executor.submit(() -> doGetWithRateLimitRetry(url));
+        return coalesce(normalizeUrl(url), priority, () -> doGetWithRateLimitRetry(url));
     }
 
     public CompletableFuture<String> getItemPage(String itemId) {
         if (itemId == null || itemId.isBlank()) {
             return CompletableFuture.completedFuture("");
         }
-        return executor.submit(() -> doGet(buildItemUrl(itemId)));
+        String url = buildItemUrl(itemId);
+        return coalesce(normalizeUrl(url), RequestExecutor.Priority.INTERACTIVE, () -> doGet(url));
     }
 
     public CompletableFuture<String> getModPage(String modId) {
         if (modId == null || modId.isBlank()) {
             return CompletableFuture.completedFuture("");
         }
-        return executor.submit(() -> doGet(buildModUrl(modId)));
+        String url = buildModUrl(modId);
+        return coalesce(normalizeUrl(url), RequestExecutor.Priority.INTERACTIVE, () -> doGet(url));
+    }
+
+    public CompletableFuture<HtmlResponse> getDocument(String url) {
+        return getDocument(url, RequestExecutor.Priority.INTERACTIVE);
+    }
+
+    /**
+     * Fetches {@code url} and parses the body into a Jsoup tree as it streams off the
+     * socket, without building a String of the page. Throttle and CAPTCHA pages are
+     * classified in the same pass (see {@link HtmlResponse#interstitial()}).
+     * <p>
+     * Coalesced like {@link #getHtml(String, RequestExecutor.Priority)}, so concurrent callers
+     * share one tree and must treat it as read-only.
+     */
+    public CompletableFuture<HtmlResponse> getDocument(String url, RequestExecutor.Priority priority) {
+        if (url == null || url.isBlank()) {
+            return CompletableFuture.completedFuture(HtmlResponse.EMPTY);
+        }
+        return coalesce(DOCUMENT_KEY_PREFIX + normalizeUrl(url), priority, () -> doGetDocumentWithRateLimitRetry(url));
+    }
+
+    /**
+     * GETs {@code url} with {@code If-None-Match} / {@code If-Modified-Since} taken from
+     * {@code validators}, so an unchanged page costs a 304 instead of a full download.
+     * Not coalesced: callers holding different validators may get different answers.
+     * The response keeps the body as served ({@link HtmlResponse#html()}) for archiving.
+     */
+    public CompletableFuture<HtmlResponse> getConditional(String url, CacheValidators validators) {
+        return getConditional(url, validators, RequestExecutor.Priority.INTERACTIVE);
+    }
+
+    /** {@link #getConditional(String, CacheValidators)} in the given scheduling lane. */
+    public CompletableFuture<HtmlResponse> getConditional(String url, CacheValidators validators,
+                                                          RequestExecutor.Priority priority) {
+        if (url == null || url.isBlank()) {
+            return CompletableFuture.completedFuture(HtmlResponse.EMPTY);
+        }
+        return executor.submit(() -> doGetDocument(url, validators, true), priority);
     }
 
     public CompletableFuture<String> submitCaptcha(String answerUrl, String answer, Map<String, String> hiddenFields) {
@@ -69,32 +193,40 @@ public class McmodHttpClient implements AutoCloseable {
             return CompletableFuture.completedFuture("");
         }
         return executor.submit(() -> {
-            Connection conn = Jsoup.connect(answerUrl)
-                .userAgent(USER_AGENT)
-                .header("Referer", answerUrl)
-                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
-                .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
-                .cookies(cookieStore.snapshot());
-
-            // Hidden fields first, then captcha params so captcha params take precedence
-            if (hiddenFields != null) {
-                for (Map.Entry<String, String> entry : hiddenFields.entrySet()) {
-                    conn.data(entry.getKey(), entry.getValue());
-                }
+            RateGovernor governor = governorFor(answerUrl);
+            acquirePermit(governor, answerUrl);
+            HostSlots slot = acquireHostSlot(answerUrl);
+            try {
+                return postCaptcha(answerUrl, answer, hiddenFields, governor);
+            } finally {
+                slot.release();
             }
-            conn.data("cc_captcha_answer", answer);
-            conn.data("cc_captcha_submit", "1");
-
-            Connection.Response res = conn
-                .method(Connection.Method.POST)
-                .followRedirects(false)
-                .ignoreHttpErrors(true)
-                .execute();
-            cookieStore.merge(res.cookies());
-            return res.body();
         });
     }
 
+    private String postCaptcha(String answerUrl, String answer, Map<String, String> hiddenFields,
+                               RateGovernor governor) throws java.io.IOException {
+        // Hidden fields first, then captcha params so captcha params take precedence
+        Map<String, String> form = new LinkedHashMap<>();
+        if (hiddenFields != null) {
+            form.putAll(hiddenFields);
+        }
+        form.put("cc_captcha_answer", answer);
+        form.put("cc_captcha_submit", "1");
+
+        Transport.Request request = new Transport.Request(Transport.Method.POST, answerUrl,
+            pageHeaders(answerUrl), cookieStore.snapshot(), form, false);
+        String body;
+        int status;
+        try (Transport.Response res = transport.execute(request)) {
+            cookieStore.merge(res.cookies(), res.cookieExpiries());
+            status = res.statusCode();
+            body = res.bodyText();
+        }
+        recordOutcome(governor, status, classify(status, body));
+        return body;
+    }
+
     // ──────────────────────────────────────────────
     // URL building
     // ──────────────────────────────────────────────
@@ -126,6 +258,39 @@ public class McmodHttpClient implements AutoCloseable {
         return BASE_URL + "/class/" + modId + ".html";
     }
 
+    /**
+     * Normalizes a URL into its single-flight key: lower-case scheme and host, default
+     * port dropped, empty path as "/", fragment removed and query parameters sorted.
+     * Unparseable input is returned trimmed so it still coalesces with itself.
+     */
+    static String normalizeUrl(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            StringBuilder key = new StringBuilder(scheme).append("://");
+            key.append(uri.getHost() != null ? uri.getHost().toLowerCase(Locale.ROOT) : uri.getRawAuthority());
+            int port = uri.getPort();
+            if (port != -1 && !(port == 80 && scheme.equals("http")) && !(port == 443 && scheme.equals("https"))) {
+                key.append(':').append(port);
+            }
+            String path = uri.getRawPath();
+            key.append(path == null || path.isEmpty() ? "/" : path);
+            String query = uri.getRawQuery();
+            if (query != null && !query.isEmpty()) {
+                String[] params = query.split("&");
+                Arrays.sort(params);
+                key.append('?').append(String.join("&", params));
+            }
+            return key.toString();
+        } catch (Exception e) {
+            return trimmed;
+        }
+    }
+
     // ──────────────────────────────────────────────
     // Image download (with session cookies)
     // ──────────────────────────────────────────────
@@ -136,26 +301,33 @@ public class McmodHttpClient implements AutoCloseable {
      */
     @org.jetbrains.annotations.Nullable
     public byte[] downloadImageBytes(String url) {
+        HostSlots slot = null;
         try {
-            Connection.Response res = Jsoup.connect(url)
-                .userAgent(USER_AGENT)
-                .header("Referer", "https://www.mcmod.cn/")
-                .header("Accept", "image/avif,image/webp,image/png,image/*,*;q=0.8")
-                .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
-                .cookies(cookieStore.snapshot())
-                .ignoreContentType(true)
-                .ignoreHttpErrors(true)
-                .followRedirects(true)
-                .execute();
-            cookieStore.merge(res.cookies());
-            if (res.statusCode() >= 200 && res.statusCode() < 400) {
-                return res.bodyAsBytes();
-            }
-            com.cy311.omnisearch.OmnisearchMod.LOGGER.warn("[McmodHttpClient] status={} for: {}", res.statusCode(), url);
-            return null;
+            RateGovernor governor = governorFor(url);
+            acquirePermit(governor, url);
+            slot = acquireHostSlot(url);
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("User-Agent", USER_AGENT);
+            headers.put("Referer", "https://www.mcmod.cn/");
+            headers.put("Accept", "image/avif,image/webp,image/png,image/*,*;q=0.8");
+            headers.put("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8");
+            headers.put("Accept-Encoding", "gzip, deflate");
+            try (Transport.Response res = transport.execute(Transport.Request.get(url, headers, cookieStore.snapshot()))) {
+                cookieStore.merge(res.cookies(), res.cookieExpiries());
+                recordOutcome(governor, res.statusCode(), classify(res.statusCode(), null));
+                if (res.statusCode() >= 200 && res.statusCode() < 400) {
+                    return res.bodyBytes();
+                }
+                com.cy311.omnisearch.OmnisearchMod.LOGGER.warn("[McmodHttpClient] status={} for: {}", res.statusCode(), url);
+                return null;
+            }
         } catch (Exception e) {
             com.cy311.omnisearch.OmnisearchMod.LOGGER.warn("[McmodHttpClient] exception {} for: {}", e.toString(), url);
             return null;
+        } finally {
+            if (slot != null) {
+                slot.release();
+            }
         }
     }
 
@@ -178,13 +350,265 @@ public class McmodHttpClient implements AutoCloseable {
         return cookieStore;
     }
 
+    // ──────────────────────────────────────────────
+    // Request coalescing
+    // ──────────────────────────────────────────────
+
+    /**
+     * Returns how many GET requests were answered by joining an identical in-flight
+     * request instead of going to the network.
+     */
+    public long coalescedRequestCount() {
+        return coalescedRequests.get();
+    }
+
+    /** Number of distinct URLs currently being fetched (package-private for testing). */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Runs {@code fetch} on the I/O pool in the given lane unless a GET with the same key is
+     * already in flight, in which case the caller joins it; a joiner from a higher lane moves
+     * the request to that lane if it has not started yet, so a click on a page that is
+     * queued as a prefetch does not wait behind the prefetch backlog. Each caller gets its
+     * own copy of the shared future so cancelling one caller's view does not fail the
+     * others; once every caller has cancelled, the underlying request is cancelled too.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> coalesce(String key, RequestExecutor.Priority priority, Callable<T> fetch) {
+        while (true) {
+            Flight<T> fresh = new Flight<>(key, priority);
+            // Subscribe before publishing so a joiner cancelling early cannot abandon the flight
+            CompletableFuture<T> view = fresh.subscribe();
+            // Keys are only shared by fetches of the same result type
+            Flight<T> existing = (Flight<T>) inFlight.putIfAbsent(key, fresh);
+            if (existing == null) {
+                fresh.start(executor.submit(fetch, priority), priority);
+                return view;
+            }
+            CompletableFuture<T> joined = existing.subscribe();
+            if (joined != null) {
+                coalescedRequests.incrementAndGet();
+                existing.raise(priority);
+                return joined;
+            }
+            // Every caller of that flight cancelled just now; retire it and start over
+            inFlight.remove(key, existing);
+        }
+    }
+
+    /**
+     * One in-flight GET shared by all callers of the same normalized URL, counting the
+     * callers still waiting on it and the highest lane any of them asked for.
+     */
+    private final class Flight<T> {
+        private final String key;
+        private final CompletableFuture<T> shared = new CompletableFuture<>();
+        private CompletableFuture<T> task;
+        private RequestExecutor.Priority priority;
+        private int subscribers;
+        private boolean abandoned;
+
+        Flight(String key, RequestExecutor.Priority priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+
+        void start(CompletableFuture<T> submitted, RequestExecutor.Priority submittedAt) {
+            RequestExecutor.Priority wanted;
+            synchronized (this) {
+                task = submitted;
+                wanted = priority;
+            }
+            // A joiner may have raised the flight between submit and now
+            if (wanted != submittedAt) {
+                executor.promote(submitted, wanted);
+            }
+            submitted.whenComplete((result, ex) -> {
+                // Remove before completing so late callers start a fresh request
+                inFlight.remove(key, this);
+                if (ex != null) {
+                    shared.completeExceptionally(ex);
+                } else {
+                    shared.complete(result);
+                }
+            });
+        }
+
+        /** Moves the request to {@code wanted} if that lane is higher and it is still queued. */
+        void raise(RequestExecutor.Priority wanted) {
+            CompletableFuture<T> toPromote;
+            synchronized (this) {
+                if (wanted.compareTo(priority) >= 0) {
+                    return;
+                }
+                priority = wanted;
+                toPromote = task;
+            }
+            if (toPromote != null) {
+                executor.promote(toPromote, wanted);
+            }
+        }
+
+        /** Returns a new caller view, or null if the flight was already abandoned. */
+        synchronized CompletableFuture<T> subscribe() {
+            if (abandoned) {
+                return null;
+            }
+            subscribers++;
+            CompletableFuture<T> view = shared.copy();
+            view.whenComplete((result, ex) -> {
+                if (view.isCancelled()) {
+                    unsubscribe();
+                }
+            });
+            return view;
+        }
+
+        private void unsubscribe() {
+            CompletableFuture<T> toCancel;
+            synchronized (this) {
+                if (--subscribers > 0 || shared.isDone()) {
+                    return;
+                }
+                abandoned = true;
+                toCancel = task;
+            }
+            inFlight.remove(key, this);
+            if (toCancel != null) {
+                toCancel.cancel(true);
+            }
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Rate governing
+    // ──────────────────────────────────────────────
+
+    /**
+     * Returns the rate governor for the URL's host, creating it on first use.
+     * Unparseable URLs share a governor under the empty host key.
+     */
+    RateGovernor governorFor(String url) {
+        return governors.computeIfAbsent(hostOf(url), RateGovernor::new);
+    }
+
+    /** Lower-case host of {@code url}, or "" when it has none or cannot be parsed. */
+    static String hostOf(String url) {
+        try {
+            String parsed = URI.create(url.trim()).getHost();
+            if (parsed != null) {
+                return parsed.toLowerCase(Locale.ROOT);
+            }
+        } catch (Exception ignored) {
+            // Fall through to the shared empty host
+        }
+        return "";
+    }
+
+    /**
+     * Blocks until one of the URL host's {@link #MAX_CONCURRENT_PER_HOST} connection slots
+     * is free for the current task's lane and takes it. Called after the governor token,
+     * so a request sleeping through a throttle cooldown holds no slot. The caller must
+     * release the returned slots when done.
+     */
+    private HostSlots acquireHostSlot(String url) {
+        HostSlots slots = hostSlots.computeIfAbsent(hostOf(url),
+            h -> new HostSlots(MAX_CONCURRENT_PER_HOST, RESERVED_FOREGROUND_SLOTS));
+        try {
+            slots.acquire(RequestExecutor.currentPriority().isForeground());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cancelled("Cancelled waiting for a connection slot: " + url, ie);
+        }
+        return slots;
+    }
+
+    /** Connection slots currently free for {@code host} (package-private for testing). */
+    int availableHostSlots(String host) {
+        HostSlots slots = hostSlots.get(host);
+        return slots != null ? slots.available() : MAX_CONCURRENT_PER_HOST;
+    }
+
+    /** Snapshot of every host governor's rate and counters, for diagnostics. */
+    public Map<String, RateGovernor.Stats> governorStats() {
+        Map<String, RateGovernor.Stats> stats = new java.util.TreeMap<>();
+        governors.forEach((host, governor) -> stats.put(host, governor.stats()));
+        return stats;
+    }
+
+    private static void acquirePermit(RateGovernor governor, String url) {
+        try {
+            governor.acquire(RequestExecutor.currentPriority().isForeground());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cancelled("Cancelled waiting for rate governor: " + url, ie);
+        }
+    }
+
+    /**
+     * An interrupt on an I/O thread means the task was cancelled (see {@link RequestExecutor}),
+     * so waits report it as a cancellation rather than a failure.
+     */
+    private static CancellationException cancelled(String message, InterruptedException cause) {
+        CancellationException ce = new CancellationException(message);
+        ce.initCause(cause);
+        return ce;
+    }
+
+    /**
+     * Feeds a response back into the governor: throttle statuses, the "搜索太频繁" page
+     * and CAPTCHA challenges slow the host down; anything else lets it speed up.
+     */
+    private static void recordOutcome(RateGovernor governor, int statusCode, HtmlResponse.Interstitial interstitial) {
+        if (interstitial != HtmlResponse.Interstitial.NONE) {
+            governor.onThrottle();
+            com.cy311.omnisearch.OmnisearchMod.LOGGER.warn(
+                "[McmodHttpClient] throttled by {} (status={}); rate lowered to {}/s",
+                governor.host(), statusCode, String.format(Locale.ROOT, "%.2f", governor.currentRate())
+            );
+        } else {
+            governor.onSuccess();
+        }
+    }
+
+    /** Classifies a response whose body has been read into a String (or has none). */
+    static HtmlResponse.Interstitial classify(int statusCode, @org.jetbrains.annotations.Nullable String body) {
+        if (isCaptchaChallenge(body)) {
+            return HtmlResponse.Interstitial.CAPTCHA;
+        }
+        if (statusCode == 429 || statusCode == 503 || isRateLimitedPage(body)) {
+            return HtmlResponse.Interstitial.RATE_LIMITED;
+        }
+        return HtmlResponse.Interstitial.NONE;
+    }
+
+    /**
+     * Detects a CAPTCHA challenge by the same markers as
+     * {@link com.cy311.omnisearch.data.source.McmodCaptchaHandler#isCaptchaPage}.
+     */
+    static boolean isCaptchaChallenge(String html) {
+        return html != null && html.contains("安全验证") && html.contains("captcha");
+    }
+
     // ──────────────────────────────────────────────
     // Lifecycle
     // ──────────────────────────────────────────────
 
+    /**
+     * The I/O executor behind this client. UI components share it so their downloads
+     * are scheduled against page fetches instead of competing from a separate pool.
+     */
+    public RequestExecutor executor() {
+        return executor;
+    }
+
     @Override
     public void close() {
         executor.close();
+        transport.close();
+        cookieStore.flush();
     }
 
     // ──────────────────────────────────────────────
@@ -192,50 +616,141 @@ public class McmodHttpClient implements AutoCloseable {
     // ──────────────────────────────────────────────
 
     private String doGet(String url) {
+        RateGovernor governor = governorFor(url);
+        acquirePermit(governor, url);
+        HostSlots slot = acquireHostSlot(url);
         try {
-            Connection.Response res = Jsoup.connect(url)
-                .userAgent(USER_AGENT)
-                .header("Referer", "https://www.mcmod.cn/")
-                .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
-                .header("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8")
-                .cookies(cookieStore.snapshot())
-                .method(Connection.Method.GET)
-                .ignoreHttpErrors(true)
-                .execute();
-            cookieStore.merge(res.cookies());
-            return res.body();
+            return executeGet(url, governor);
+        } finally {
+            slot.release();
+        }
+    }
+
+    private String executeGet(String url, RateGovernor governor) {
+        try (Transport.Response res = transport.execute(getRequest(url, CacheValidators.NONE))) {
+            cookieStore.merge(res.cookies(), res.cookieExpiries());
+            String body = res.bodyText();
+            if (Thread.currentThread().isInterrupted()) {
+                // The read was cut short by the interrupt; the page is incomplete
+                throw new CancellationException("GET cancelled: " + url);
+            }
+            recordOutcome(governor, res.statusCode(), classify(res.statusCode(), body));
+            return body;
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("GET request failed: " + url, e);
         }
     }
 
+    private HtmlResponse doGetDocument(String url, CacheValidators validators, boolean keepBody) {
+        RateGovernor governor = governorFor(url);
+        acquirePermit(governor, url);
+        HostSlots slot = acquireHostSlot(url);
+        try {
+            return executeGetDocument(url, governor, validators, keepBody);
+        } finally {
+            slot.release();
+        }
+    }
+
+    /**
+     * Executes a GET and parses the body as it arrives (the transport strips gzip/deflate
+     * on the way), classifying throttle and CAPTCHA pages in the same pass. Statuses that
+     * carry nothing worth parsing — 304, 429, 503 — are returned without reading the body.
+     * Non-empty validators turn it into a conditional GET. With {@code keepBody} the decoded
+     * bytes are copied aside as the parser reads them.
+     */
+    private HtmlResponse executeGetDocument(String url, RateGovernor governor, CacheValidators validators,
+                                            boolean keepBody) {
+        try (Transport.Response res = transport.execute(getRequest(url, validators))) {
+            cookieStore.merge(res.cookies(), res.cookieExpiries());
+            int status = res.statusCode();
+            CacheValidators received = new CacheValidators(res.header("ETag"), res.header("Last-Modified"));
+            if (status == 304 || status == 429 || status == 503) {
+                HtmlResponse.Interstitial interstitial = classify(status, null);
+                recordOutcome(governor, status, interstitial);
+                return new HtmlResponse(status, null, interstitial, received);
+            }
+            InterstitialSniffer sniffer = new InterstitialSniffer(res.body(), keepBody);
+            org.jsoup.nodes.Document doc;
+            try (sniffer) {
+                doc = Jsoup.parse(sniffer, res.charset(), res.url());
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                // The read was cut short by the interrupt; the tree is incomplete
+                throw new CancellationException("GET cancelled: " + url);
+            }
+            HtmlResponse.Interstitial interstitial = sniffer.interstitial();
+            recordOutcome(governor, status, interstitial);
+            return new HtmlResponse(status, doc, interstitial, received, sniffer.body());
+        } catch (CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("GET request failed: " + url, e);
+        }
+    }
+
+    /** Builds a page GET with mcmod.cn's expected headers and the session cookies. */
+    private Transport.Request getRequest(String url, CacheValidators validators) {
+        Map<String, String> headers = pageHeaders("https://www.mcmod.cn/");
+        if (validators.etag() != null && !validators.etag().isBlank()) {
+            headers.put("If-None-Match", validators.etag());
+        }
+        if (validators.lastModified() != null && !validators.lastModified().isBlank()) {
+            headers.put("If-Modified-Since", validators.lastModified());
+        }
+        return Transport.Request.get(url, headers, cookieStore.snapshot());
+    }
+
+    /** The browser-like headers every page request sends. */
+    private static Map<String, String> pageHeaders(String referer) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("User-Agent", USER_AGENT);
+        headers.put("Referer", referer);
+        headers.put("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+        headers.put("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8");
+        headers.put("Accept-Encoding", "gzip, deflate");
+        return headers;
+    }
+
     /**
      * Performs a GET with automatic retry on mcmod.cn's rate-limit interstitial page.
      * <p>
      * When search requests arrive in quick succession (e.g. the mod auto-loading every
      * paginated page), mcmod.cn responds with a page containing "搜索太频繁，请稍后再试"
-     * (0 results, no pagination). Retrying after a short delay lets the throttle relax.
-     * The delay grows with each attempt so a long throttle does not hammer the server.
+     * (0 results, no pagination). The throttle response has already lowered the host's
+     * {@link RateGovernor} rate and started its cooldown, so the retry simply waits for
+     * the next token — and so does every other request to the host in the meantime.
      */
     private String doGetWithRateLimitRetry(String url) {
         int attempt = 0;
         while (true) {
             String html = doGet(url);
-            if (attempt >= 6 || html == null || !isRateLimitedPage(html)) {
+            if (attempt >= MAX_RATE_LIMIT_RETRIES || html == null || !isRateLimitedPage(html)) {
                 return html;
             }
             attempt++;
-            long waitMs = 500L * (1L << (attempt - 1)); // 500ms, 1s, 2s, 4s, 8s, 16s
             com.cy311.omnisearch.OmnisearchMod.LOGGER.warn(
-                "[McmodHttpClient] rate-limited by mcmod.cn (attempt {}); retrying {} in {}ms",
-                attempt, url, waitMs
+                "[McmodHttpClient] rate-limited by mcmod.cn (attempt {}); retrying {} after governor cooldown",
+                attempt, url
             );
-            try {
-                Thread.sleep(waitMs);
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-                return html;
+        }
+    }
+
+    /** {@link #doGetWithRateLimitRetry} for parsed documents. */
+    private HtmlResponse doGetDocumentWithRateLimitRetry(String url) {
+        int attempt = 0;
+        while (true) {
+            HtmlResponse response = doGetDocument(url, CacheValidators.NONE, false);
+            if (attempt >= MAX_RATE_LIMIT_RETRIES || response.interstitial() != HtmlResponse.Interstitial.RATE_LIMITED) {
+                return response;
             }
+            attempt++;
+            com.cy311.omnisearch.OmnisearchMod.LOGGER.warn(
+                "[McmodHttpClient] rate-limited by mcmod.cn (attempt {}); retrying {} after governor cooldown",
+                attempt, url
+            );
         }
     }
 
@@ -246,6 +761,6 @@ public class McmodHttpClient implements AutoCloseable {
         }
         // The throttle page is short (~20KB, normal results are ~45-50KB) and carries the
         // "搜索太频繁，请稍后再试" warning. Require both to avoid mis-detecting legit pages.
-        return html.length() < 40000 && html.contains("搜索太频繁");
+        return html.length() < RATE_LIMIT_PAGE_MAX_CHARS && html.contains("搜索太频繁");
     }
 }
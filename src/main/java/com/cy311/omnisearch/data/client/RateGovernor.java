@@ -0,0 +1,176 @@
+package com.cy311.omnisearch.data.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate governor for all requests to one host, with AIMD rate control.
+ * <p>
+ * Every request takes a token before it goes on the wire. Tokens refill at the current
+ * rate up to a small burst. The rate grows additively after each successful response and
+ * is halved after a throttle or CAPTCHA response, which also starts a cooldown that grows
+ * with consecutive throttles. Eager pagination therefore settles at the fastest rate
+ * mcmod.cn tolerates instead of bursting into the throttle and stalling.
+ * <p>
+ * Thread-safe. {@link #acquire()} sleeps outside the lock and is interruptible; waiting
+ * foreground requests are granted tokens ahead of waiting background ones.
+ */
+public final class RateGovernor {
+    static final double DEFAULT_INITIAL_RATE = 2.0;   // requests per second
+    static final double DEFAULT_MIN_RATE = 0.25;
+    static final double DEFAULT_MAX_RATE = 8.0;
+    static final int DEFAULT_BURST = 4;
+    static final long DEFAULT_BASE_COOLDOWN_MS = 500;
+
+    // Additive increase per success, multiplicative decrease per throttle
+    private static final double ADDITIVE_STEP = 0.05;
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final int MAX_COOLDOWN_DOUBLINGS = 5; // 500ms … 16s
+
+    private final String host;
+    private final double minRate;
+    private final double maxRate;
+    private final int burst;
+    private final long baseCooldownNanos;
+    private final LongSupplier nanoClock;
+
+    private double rate;
+    private double tokens;
+    private long lastRefillNanos;
+    private long cooldownUntilNanos;
+    private int consecutiveThrottles;
+    private long grantedCount;
+    private long throttleCount;
+    private long waitedNanos;
+    private int waitingForeground;
+
+    public RateGovernor(String host) {
+        this(host, DEFAULT_INITIAL_RATE, DEFAULT_MIN_RATE, DEFAULT_MAX_RATE, DEFAULT_BURST, DEFAULT_BASE_COOLDOWN_MS);
+    }
+
+    RateGovernor(String host, double initialRate, double minRate, double maxRate, int burst, long baseCooldownMs) {
+        this(host, initialRate, minRate, maxRate, burst, baseCooldownMs, System::nanoTime);
+    }
+
+    RateGovernor(String host, double initialRate, double minRate, double maxRate, int burst, long baseCooldownMs,
+                 LongSupplier nanoClock) {
+        this.host = host;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.burst = Math.max(1, burst);
+        this.baseCooldownNanos = TimeUnit.MILLISECONDS.toNanos(baseCooldownMs);
+        this.nanoClock = nanoClock;
+        this.rate = Math.max(minRate, Math.min(maxRate, initialRate));
+        this.tokens = this.burst;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Blocks until a token is available (and any throttle cooldown has passed), then takes it.
+     * Same as {@link #acquire(boolean) acquire(true)}.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void acquire() throws InterruptedException {
+        acquire(true);
+    }
+
+    /**
+     * Blocks until a token is available (and any throttle cooldown has passed), then takes it.
+     * Background callers let every waiting foreground caller go first, so a search started
+     * during a cooldown gets the first token after it instead of queueing behind prefetches.
+     *
+     * @param foreground whether the request is one the player is waiting on
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void acquire(boolean foreground) throws InterruptedException {
+        if (foreground) {
+            synchronized (this) {
+                waitingForeground++;
+            }
+        }
+        try {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    long now = nanoClock.getAsLong();
+                    refill(now);
+                    if (now < cooldownUntilNanos) {
+                        waitNanos = cooldownUntilNanos - now;
+                    } else if (!foreground && waitingForeground > 0) {
+                        // The next token belongs to a foreground caller; look again one token later
+                        waitNanos = (long) Math.ceil(1_000_000_000L / rate);
+                    } else if (tokens >= 1.0) {
+                        tokens -= 1.0;
+                        grantedCount++;
+                        return;
+                    } else {
+                        waitNanos = (long) Math.ceil((1.0 - tokens) / rate * 1_000_000_000L);
+                    }
+                    waitedNanos += waitNanos;
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.max(1L, waitNanos));
+            }
+        } finally {
+            if (foreground) {
+                synchronized (this) {
+                    waitingForeground--;
+                }
+            }
+        }
+    }
+
+    /** Records a normal response: the rate creeps up by a fixed step. */
+    public synchronized void onSuccess() {
+        consecutiveThrottles = 0;
+        rate = Math.min(maxRate, rate + ADDITIVE_STEP);
+    }
+
+    /**
+     * Records a throttle or CAPTCHA response: the rate is halved, the bucket is emptied,
+     * and further requests wait out a cooldown that doubles with each consecutive throttle.
+     */
+    public synchronized void onThrottle() {
+        throttleCount++;
+        rate = Math.max(minRate, rate * DECREASE_FACTOR);
+        tokens = 0;
+        long now = nanoClock.getAsLong();
+        lastRefillNanos = now;
+        long cooldown = baseCooldownNanos << Math.min(consecutiveThrottles, MAX_COOLDOWN_DOUBLINGS);
+        cooldownUntilNanos = Math.max(cooldownUntilNanos, now + cooldown);
+        consecutiveThrottles++;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    /** Current refill rate in requests per second. */
+    public synchronized double currentRate() {
+        return rate;
+    }
+
+    /** Returns a consistent snapshot of this governor's counters. */
+    public synchronized Stats stats() {
+        return new Stats(host, rate, grantedCount, throttleCount, TimeUnit.NANOSECONDS.toMillis(waitedNanos));
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(burst, tokens + elapsed * rate / 1_000_000_000L);
+            lastRefillNanos = now;
+        }
+    }
+
+    /**
+     * Point-in-time governor counters.
+     *
+     * @param host          the host this governor paces
+     * @param rate          current refill rate in requests per second
+     * @param granted       tokens handed out so far
+     * @param throttles     throttle/CAPTCHA responses recorded
+     * @param totalWaitMs   cumulative time callers spent waiting for tokens
+     */
+    public record Stats(String host, double rate, long granted, long throttles, long totalWaitMs) {}
+}
@@ -1,44 +1,548 @@
 package com.cy311.omnisearch.data.client;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 /**
- * Fixed-size thread pool executor for blocking I/O operations.
+ * Priority-aware thread pool for blocking I/O operations.
+ * <p>
+ * Tasks are submitted into one of four {@link Priority} lanes. Foreground lanes
+ * (interactive requests, visible images) are always served first, and
+ * {@link #RESERVED_FOREGROUND_THREADS} workers never pick up background lanes, so a
+ * click on a result does not wait behind eager pagination or prefetched images.
+ * Within a group tasks run by priority and age: each lane carries an aging offset,
+ * so a long-waiting lower-priority task eventually outranks newer higher-priority
+ * work instead of starving.
+ * <p>
+ * Queued tasks can be cancelled individually (via their future) or in bulk by tag,
+ * and moved to a higher lane ({@link #promote}).
+ * Cancelling the future of a running task interrupts its thread, which aborts rate
+ * governor and backoff sleeps and, on virtual threads, closes a socket blocked in I/O.
+ * A platform thread blocked in a socket read ignores the interrupt, so the task can
+ * register a hook ({@link #onCancel}) that aborts the call some other way.
  * <p>
- * Replaces ad-hoc {@code new Thread()} creation with a bounded pool
- * that limits concurrent network requests and image downloads.
+ * Two {@link Mode}s share the same queues and {@code submit} API: a fixed pool of
+ * platform threads, or a virtual thread per task bounded by a concurrency semaphore.
+ * The default is chosen by the {@value #VIRTUAL_THREADS_PROPERTY} system property.
  */
 public final class RequestExecutor implements AutoCloseable {
     private static final int THREAD_COUNT = 6;
+    static final int RESERVED_FOREGROUND_THREADS = 2;
+    // Virtual threads are cheap while blocked; the real per-host limit lives in McmodHttpClient
+    static final int VIRTUAL_MAX_CONCURRENCY = 64;
+    public static final String VIRTUAL_THREADS_PROPERTY = "omnisearch.io.virtualThreads";
+
+    /** How tasks get a thread to run on. */
+    public enum Mode {
+        /** A fixed pool of daemon platform threads. */
+        PLATFORM,
+        /** A new virtual thread per task, at most a bounded number running at once. */
+        VIRTUAL;
+
+        /** {@link #VIRTUAL} when {@code -Domnisearch.io.virtualThreads=true}, else {@link #PLATFORM}. */
+        public static Mode fromSystemProperty() {
+            return Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY) ? VIRTUAL : PLATFORM;
+        }
+    }
+
+    /**
+     * Scheduling lanes, highest priority first. The aging offset is how long a task
+     * of this lane must have waited before it ranks level with a fresh interactive task.
+     */
+    public enum Priority {
+        INTERACTIVE(0, true),
+        VISIBLE_IMAGE(1_000, true),
+        PREFETCH(10_000, false),
+        BACKGROUND(60_000, false);
+
+        private final long agingOffsetNanos;
+        private final boolean foreground;
+
+        Priority(long agingOffsetMs, boolean foreground) {
+            this.agingOffsetNanos = TimeUnit.MILLISECONDS.toNanos(agingOffsetMs);
+            this.foreground = foreground;
+        }
+
+        public boolean isForeground() {
+            return foreground;
+        }
+    }
+
+    // Task running on each worker, so blocking calls inside it can honour its priority and cancellation
+    private static final ThreadLocal<Task<?>> CURRENT_TASK = new ThreadLocal<>();
+
+    /** A cancel hook registered with {@link #onCancel}; closing it unregisters the hook. */
+    public interface CancelHook extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final CancelHook NO_HOOK = () -> { };
+
+    private static final Comparator<Task<?>> BY_RANK =
+        Comparator.<Task<?>>comparingLong(task -> task.rank).thenComparingLong(task -> task.sequence);
 
-    private final ExecutorService ioPool;
+    private final Object lock = new Object();
+    private final PriorityQueue<Task<?>> foregroundQueue = new PriorityQueue<>(BY_RANK);
+    private final PriorityQueue<Task<?>> backgroundQueue = new PriorityQueue<>(BY_RANK);
+    private final AtomicLong sequence = new AtomicLong();
+    private final Mode mode;
+    // Platform mode: the fixed workers. Virtual mode: the threads currently running a task.
+    private final Set<Thread> workers = ConcurrentHashMap.newKeySet();
+    private final @Nullable Semaphore virtualSlots;
+    private final @Nullable ThreadFactory virtualFactory;
+    private final int backgroundLimit;
+    private final LongSupplier nanoClock;
+    private int runningBackground;
+    private boolean closed;
 
     public RequestExecutor() {
-        this.ioPool = Executors.newFixedThreadPool(THREAD_COUNT, new DaemonThreadFactory("omnisearch-io"));
+        this(Mode.fromSystemProperty());
+    }
+
+    public RequestExecutor(Mode mode) {
+        this(mode, mode == Mode.VIRTUAL ? VIRTUAL_MAX_CONCURRENCY : THREAD_COUNT, RESERVED_FOREGROUND_THREADS,
+            System::nanoTime);
+    }
+
+    RequestExecutor(int threadCount, int reservedForeground) {
+        this(Mode.PLATFORM, threadCount, reservedForeground, System::nanoTime);
+    }
+
+    RequestExecutor(int threadCount, int reservedForeground, LongSupplier nanoClock) {
+        this(Mode.PLATFORM, threadCount, reservedForeground, nanoClock);
     }
 
     /**
-     * Submits a blocking task to the I/O pool.
+     * @param concurrency platform mode: pool size; virtual mode: maximum tasks running at once
+     */
+    RequestExecutor(Mode mode, int concurrency, int reservedForeground, LongSupplier nanoClock) {
+        this.mode = mode;
+        this.backgroundLimit = Math.max(1, concurrency - reservedForeground);
+        this.nanoClock = nanoClock;
+        if (mode == Mode.VIRTUAL) {
+            this.virtualSlots = new Semaphore(concurrency);
+            this.virtualFactory = Thread.ofVirtual().name("omnisearch-vio-", 0).factory();
+        } else {
+            this.virtualSlots = null;
+            this.virtualFactory = null;
+            ThreadFactory factory = new DaemonThreadFactory("omnisearch-io");
+            for (int i = 0; i < concurrency; i++) {
+                Thread worker = factory.newThread(this::workerLoop);
+                workers.add(worker);
+                worker.start();
+            }
+        }
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * The lane of the task running on the calling thread, or {@link Priority#INTERACTIVE}
+     * when the caller is not running a task of any executor.
+     */
+    public static Priority currentPriority() {
+        Task<?> task = CURRENT_TASK.get();
+        return task != null ? task.priority : Priority.INTERACTIVE;
+    }
+
+    /**
+     * Runs {@code hook} if the task running on the calling thread is cancelled, after its
+     * thread has been interrupted — for blocking calls the interrupt cannot reach, such as
+     * a platform thread waiting on a socket. Runs it at once if the task is already
+     * cancelled; does nothing outside a task. Close the returned hook once the blocking
+     * call is over.
+     */
+    public static CancelHook onCancel(Runnable hook) {
+        Task<?> task = CURRENT_TASK.get();
+        return task != null ? task.addCancelHook(hook) : NO_HOOK;
+    }
+
+    /**
+     * Submits a blocking task to the interactive lane.
      * Exceptions are wrapped in {@link CompletionException}.
      */
     public <T> CompletableFuture<T> submit(Callable<T> task) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return task.call();
-            } catch (Exception e) {
-                throw new CompletionException(e);
+        return submit(task, Priority.INTERACTIVE, null);
+    }
+
+    /**
+     * Submits a blocking task to the given lane.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task, Priority priority) {
+        return submit(task, priority, null);
+    }
+
+    /**
+     * Submits a blocking task to the given lane, labelled with a tag that
+     * {@link #cancelTag(String)} can use to drop it while it is still queued.
+     * Cancelling the returned future removes the task from the queue, or interrupts
+     * it if it is already running.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task, Priority priority, @Nullable String tag) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long rank = nanoClock.getAsLong() + priority.agingOffsetNanos;
+        Task<T> queued = new Task<>(task, priority, tag, sequence.incrementAndGet(), rank, future);
+        synchronized (lock) {
+            if (closed) {
+                future.cancel(false);
+                return future;
             }
-        }, ioPool);
+            queueFor(priority).add(queued);
+            lock.notifyAll();
+        }
+        if (mode == Mode.VIRTUAL) {
+            startVirtualRunner();
+        }
+        future.whenComplete((result, ex) -> {
+            if (future.isCancelled()) {
+                dequeue(queued);
+                queued.interruptIfRunning();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Moves a still-queued task to a higher lane, e.g. when an interactive caller needs the
+     * result of a queued prefetch. It keeps its age, ranking as if it had been submitted
+     * to {@code priority} in the first place. Running, finished and unknown tasks, and
+     * lanes no higher than the task's own, are left alone.
+     *
+     * @param future a future returned by {@code submit}
+     * @return whether the task was moved
+     */
+    public boolean promote(CompletableFuture<?> future, Priority priority) {
+        synchronized (lock) {
+            Task<?> queued = findQueued(future);
+            if (queued == null || priority.compareTo(queued.priority) >= 0) {
+                return false;
+            }
+            queueFor(queued.priority).remove(queued);
+            queued.rank -= queued.priority.agingOffsetNanos - priority.agingOffsetNanos;
+            queued.priority = priority;
+            queueFor(priority).add(queued);
+            lock.notifyAll();
+        }
+        if (mode == Mode.VIRTUAL) {
+            // The runner started for it may have left it behind the background cap
+            startVirtualRunner();
+        }
+        return true;
+    }
+
+    /**
+     * Cancels every still-queued task carrying {@code tag}. Tasks already running are
+     * left alone.
+     *
+     * @return the number of tasks cancelled
+     */
+    public int cancelTag(String tag) {
+        if (tag == null) {
+            return 0;
+        }
+        List<Task<?>> removed = new ArrayList<>();
+        synchronized (lock) {
+            collectTagged(foregroundQueue, tag, removed);
+            collectTagged(backgroundQueue, tag, removed);
+        }
+        for (Task<?> task : removed) {
+            task.future.cancel(false);
+        }
+        return removed.size();
+    }
+
+    /** Number of tasks waiting in the given lane. */
+    public int queuedCount(Priority priority) {
+        synchronized (lock) {
+            int count = 0;
+            for (Task<?> task : queueFor(priority)) {
+                if (task.priority == priority) {
+                    count++;
+                }
+            }
+            return count;
+        }
     }
 
     @Override
     public void close() {
-        ioPool.shutdownNow();
+        List<Task<?>> pending = new ArrayList<>();
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.addAll(foregroundQueue);
+            pending.addAll(backgroundQueue);
+            foregroundQueue.clear();
+            backgroundQueue.clear();
+            lock.notifyAll();
+        }
+        for (Task<?> task : pending) {
+            task.future.cancel(false);
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Scheduling
+    // ──────────────────────────────────────────────
+
+    /**
+     * Virtual mode: each submission starts one short-lived thread. It waits for a
+     * concurrency slot, then runs whichever queued task ranks best at that moment —
+     * not necessarily the one that started it — so priority order holds as in platform
+     * mode. Runners that find nothing eligible exit; a finishing background task starts
+     * a new runner so work held back by the background cap is not stranded.
+     */
+    private void startVirtualRunner() {
+        virtualFactory.newThread(this::runOneVirtual).start();
+    }
+
+    private void runOneVirtual() {
+        try {
+            virtualSlots.acquire();
+        } catch (InterruptedException e) {
+            return;
+        }
+        Task<?> task = null;
+        try {
+            synchronized (lock) {
+                task = closed ? null : pollEligible();
+                if (task != null) {
+                    workers.add(Thread.currentThread());
+                }
+            }
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                workers.remove(Thread.currentThread());
+                finished(task);
+            }
+        } finally {
+            virtualSlots.release();
+        }
+        if (!task.priority.isForeground() && hasQueued()) {
+            startVirtualRunner();
+        }
+    }
+
+    private void workerLoop() {
+        while (true) {
+            Task<?> task;
+            try {
+                task = takeNext();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } finally {
+                finished(task);
+            }
+        }
+    }
+
+    /**
+     * Blocks until a task is eligible to run: the best foreground task, or the best
+     * background task while background work holds fewer than its share of workers.
+     * An aged background task outranking the foreground head is taken first.
+     * Returns null once the executor is closed.
+     */
+    private Task<?> takeNext() throws InterruptedException {
+        synchronized (lock) {
+            while (true) {
+                if (closed) {
+                    return null;
+                }
+                Task<?> next = pollEligible();
+                if (next != null) {
+                    return next;
+                }
+                lock.wait();
+            }
+        }
+    }
+
+    /** Removes and returns the best runnable task, or null; caller holds the lock. */
+    private Task<?> pollEligible() {
+        Task<?> fg = foregroundQueue.peek();
+        Task<?> bg = runningBackground < backgroundLimit ? backgroundQueue.peek() : null;
+        if (bg != null && (fg == null || BY_RANK.compare(bg, fg) < 0)) {
+            backgroundQueue.poll();
+            runningBackground++;
+            return bg;
+        }
+        return fg != null ? foregroundQueue.poll() : null;
+    }
+
+    private void finished(Task<?> task) {
+        if (!task.priority.isForeground()) {
+            synchronized (lock) {
+                runningBackground--;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private boolean hasQueued() {
+        synchronized (lock) {
+            return !foregroundQueue.isEmpty() || !backgroundQueue.isEmpty();
+        }
+    }
+
+    private PriorityQueue<Task<?>> queueFor(Priority priority) {
+        return priority.isForeground() ? foregroundQueue : backgroundQueue;
+    }
+
+    private void dequeue(Task<?> task) {
+        synchronized (lock) {
+            queueFor(task.priority).remove(task);
+        }
+    }
+
+    /** The queued task behind {@code future}, or null; caller holds the lock. */
+    private @Nullable Task<?> findQueued(CompletableFuture<?> future) {
+        for (Task<?> task : foregroundQueue) {
+            if (task.future == future) {
+                return task;
+            }
+        }
+        for (Task<?> task : backgroundQueue) {
+            if (task.future == future) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private static void collectTagged(PriorityQueue<Task<?>> queue, String tag, List<Task<?>> out) {
+        var it = queue.iterator();
+        while (it.hasNext()) {
+            Task<?> task = it.next();
+            if (tag.equals(task.tag)) {
+                it.remove();
+                out.add(task);
+            }
+        }
+    }
+
+    private static final class Task<T> {
+        final Callable<T> callable;
+        // Lane and rank change only while queued, under the executor's lock (see promote)
+        Priority priority;
+        final @Nullable String tag;
+        final long sequence;
+        long rank;
+        final CompletableFuture<T> future;
+        private Thread runner;
+        private boolean cancelled;
+        private final List<Runnable> cancelHooks = new ArrayList<>(1);
+
+        Task(Callable<T> callable, Priority priority, @Nullable String tag, long sequence, long rank,
+             CompletableFuture<T> future) {
+            this.callable = callable;
+            this.priority = priority;
+            this.tag = tag;
+            this.sequence = sequence;
+            this.rank = rank;
+            this.future = future;
+        }
+
+        void run() {
+            synchronized (this) {
+                if (future.isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            CURRENT_TASK.set(this);
+            try {
+                future.complete(callable.call());
+            } catch (CancellationException | InterruptedException e) {
+                future.cancel(false);
+            } catch (Throwable e) {
+                // Errors too (an OOM inflating a page, a parser stack overflow): an
+                // uncompleted future would hang every caller and kill the worker
+                if (future.isCancelled() || Thread.currentThread().isInterrupted()) {
+                    // Failure caused by the interrupt, e.g. a closed socket
+                    future.cancel(false);
+                } else {
+                    future.completeExceptionally(new CompletionException(e));
+                }
+            } finally {
+                CURRENT_TASK.remove();
+                synchronized (this) {
+                    runner = null;
+                    cancelHooks.clear();
+                }
+                // A cancel that raced with completion must not leak into the next task
+                Thread.interrupted();
+            }
+        }
+
+        void interruptIfRunning() {
+            List<Runnable> hooks;
+            synchronized (this) {
+                cancelled = true;
+                if (runner == null) {
+                    return;
+                }
+                // Interrupt first: a hook that finds nothing to abort yet relies on the flag
+                runner.interrupt();
+                hooks = List.copyOf(cancelHooks);
+            }
+            hooks.forEach(Task::runHook);
+        }
+
+        CancelHook addCancelHook(Runnable hook) {
+            synchronized (this) {
+                if (!cancelled) {
+                    cancelHooks.add(hook);
+                    return () -> {
+                        synchronized (this) {
+                            cancelHooks.remove(hook);
+                        }
+                    };
+                }
+            }
+            runHook(hook);
+            return NO_HOOK;
+        }
+
+        private static void runHook(Runnable hook) {
+            try {
+                hook.run();
+            } catch (RuntimeException ignored) {
+                // A failing abort leaves the call to its own timeout
+            }
+        }
     }
 
     private static final class DaemonThreadFactory implements ThreadFactory {
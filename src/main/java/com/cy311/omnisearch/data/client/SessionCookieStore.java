@@ -1,8 +1,28 @@
 package com.cy311.omnisearch.data.client;
 
+import com.cy311.omnisearch.OmnisearchMod;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * Thread-safe session cookie storage with snapshot-based reads.
@@ -10,17 +30,84 @@ import java.util.concurrent.ConcurrentMap;
  * Requests read an immutable snapshot of cookies to avoid holding
  * references to the mutable internal state. Response cookies are
  * merged back into the store after the request completes.
+ * <p>
+ * A store created with {@link #persistent} also lives on disk, so the session that
+ * passed a captcha survives a game restart instead of the first searches of the next
+ * session running into a fresh challenge. Each cookie keeps the expiry the server gave
+ * it; cookies without one are kept for {@link #SESSION_COOKIE_LIFETIME_MS} after they
+ * were last seen. The file is rewritten atomically whenever a cookie value changes, when
+ * an expiry moves by more than a day, and on {@link #flush()}. With integrity checking
+ * on it carries a SHA-256 of its cookies, and a file that does not match is ignored
+ * rather than replayed to the server.
  */
 public final class SessionCookieStore {
-    private final ConcurrentMap<String, String> cookies = new ConcurrentHashMap<>();
+
+    // Session cookies have no expiry of their own; this is how long a saved one is trusted
+    static final long SESSION_COOKIE_LIFETIME_MS = TimeUnit.DAYS.toMillis(7);
+    // A refreshed expiry is written through once it moves by more than this; smaller
+    // refreshes wait for flush() so every response does not rewrite the file
+    private static final long EXPIRY_SAVE_SLACK_MS = TimeUnit.DAYS.toMillis(1);
+    private static final int FILE_VERSION = 1;
+
+    private record StoredCookie(String value, long expiresAt) {}
+
+    // On-disk layout; sha256 is null when integrity checking is off
+    private record CookieFile(int version, List<CookieRecord> cookies, @Nullable String sha256) {}
+
+    private record CookieRecord(String name, String value, long expiresAt) {}
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final ConcurrentMap<String, StoredCookie> cookies = new ConcurrentHashMap<>();
+    private final @Nullable Path file;
+    private final boolean verifyIntegrity;
+    private final LongSupplier clock;
+    private final Object saveLock = new Object();
+    private volatile boolean dirty;
+
+    /** An in-memory store that is gone when the client closes. */
+    public SessionCookieStore() {
+        this(null, false, System::currentTimeMillis);
+    }
+
+    SessionCookieStore(@Nullable Path file, boolean verifyIntegrity, LongSupplier clock) {
+        this.file = file;
+        this.verifyIntegrity = verifyIntegrity;
+        this.clock = clock;
+    }
+
+    /**
+     * Opens a store backed by {@code file}, loading the cookies saved there by an
+     * earlier session. A missing, unreadable or (with {@code verifyIntegrity})
+     * tampered file yields an empty store.
+     */
+    public static SessionCookieStore persistent(Path file, boolean verifyIntegrity) {
+        return persistent(file, verifyIntegrity, System::currentTimeMillis);
+    }
+
+    static SessionCookieStore persistent(Path file, boolean verifyIntegrity, LongSupplier clock) {
+        SessionCookieStore store = new SessionCookieStore(file, verifyIntegrity, clock);
+        store.load();
+        return store;
+    }
 
     /**
      * Returns a mutable snapshot of the current cookies.
      * Safe to pass to Jsoup or other HTTP clients; modifications
      * to the returned map do not affect the internal store.
+     * Expired cookies are dropped on the way.
      */
     public Map<String, String> snapshot() {
-        return new ConcurrentHashMap<>(cookies);
+        long now = clock.getAsLong();
+        Map<String, String> snapshot = new ConcurrentHashMap<>();
+        cookies.forEach((name, cookie) -> {
+            if (cookie.expiresAt() > now) {
+                snapshot.put(name, cookie.value());
+            } else if (cookies.remove(name, cookie)) {
+                dirty = true;
+            }
+        });
+        return snapshot;
     }
 
     /**
@@ -28,8 +115,36 @@ public final class SessionCookieStore {
      * New cookies overwrite existing ones with the same key.
      */
     public void merge(Map<String, String> responseCookies) {
-        if (responseCookies != null && !responseCookies.isEmpty()) {
-            cookies.putAll(responseCookies);
+        merge(responseCookies, Map.of());
+    }
+
+    /**
+     * Merges response cookies with the expiry (epoch millis) the server set for them;
+     * cookies missing from {@code expiries} are session cookies. An expiry in the past
+     * is the server deleting the cookie. A changed value is saved straight away.
+     */
+    public void merge(Map<String, String> responseCookies, Map<String, Long> expiries) {
+        if (responseCookies == null || responseCookies.isEmpty()) {
+            return;
+        }
+        long now = clock.getAsLong();
+        boolean changed = false;
+        for (Map.Entry<String, String> entry : responseCookies.entrySet()) {
+            String name = entry.getKey();
+            String value = entry.getValue();
+            Long expiry = expiries != null ? expiries.get(name) : null;
+            long expiresAt = expiry != null ? expiry : now + SESSION_COOKIE_LIFETIME_MS;
+            if (expiresAt <= now) {
+                changed |= cookies.remove(name) != null;
+            } else {
+                StoredCookie previous = cookies.put(name, new StoredCookie(value, expiresAt));
+                changed |= previous == null || !previous.value().equals(value)
+                    || expiresAt - previous.expiresAt() > EXPIRY_SAVE_SLACK_MS;
+            }
+        }
+        dirty = true;
+        if (changed) {
+            save();
         }
     }
 
@@ -38,6 +153,18 @@ public final class SessionCookieStore {
      */
     public void clear() {
         cookies.clear();
+        dirty = true;
+        save();
+    }
+
+    /**
+     * Writes pending changes (such as refreshed expiries) to disk. A no-op for
+     * in-memory stores and when nothing changed since the last save.
+     */
+    public void flush() {
+        if (dirty) {
+            save();
+        }
     }
 
     /**
@@ -58,6 +185,105 @@ public final class SessionCookieStore {
      * Returns the value for the given key, or null if not present.
      */
     public String get(String key) {
-        return cookies.get(key);
+        StoredCookie cookie = cookies.get(key);
+        return cookie != null ? cookie.value() : null;
+    }
+
+    // ──────────────────────────────────────────────
+    // Persistence
+    // ──────────────────────────────────────────────
+
+    private void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        CookieFile saved;
+        try {
+            saved = GSON.fromJson(Files.readString(file, StandardCharsets.UTF_8), CookieFile.class);
+        } catch (Exception e) {
+            OmnisearchMod.LOGGER.warn("[SessionCookieStore] unreadable cookie file {}: {}", file, e.toString());
+            return;
+        }
+        if (saved == null || saved.version() != FILE_VERSION || saved.cookies() == null) {
+            return;
+        }
+        if (verifyIntegrity && !Objects.equals(saved.sha256(), checksum(saved.cookies()))) {
+            OmnisearchMod.LOGGER.warn("[SessionCookieStore] cookie file {} failed its integrity check; starting a new session", file);
+            return;
+        }
+        long now = clock.getAsLong();
+        for (CookieRecord cookie : saved.cookies()) {
+            if (cookie != null && cookie.name() != null && cookie.value() != null && cookie.expiresAt() > now) {
+                cookies.put(cookie.name(), new StoredCookie(cookie.value(), cookie.expiresAt()));
+            }
+        }
+    }
+
+    /** Writes the store to a temp file beside the target and moves it into place. */
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        synchronized (saveLock) {
+            dirty = false;
+            long now = clock.getAsLong();
+            List<CookieRecord> records = new ArrayList<>();
+            cookies.forEach((name, cookie) -> {
+                if (cookie.expiresAt() > now) {
+                    records.add(new CookieRecord(name, cookie.value(), cookie.expiresAt()));
+                }
+            });
+            records.sort((a, b) -> a.name().compareTo(b.name()));
+            String json = GSON.toJson(new CookieFile(FILE_VERSION, records, verifyIntegrity ? checksum(records) : null));
+
+            Path tmp = null;
+            try {
+                Path dir = file.toAbsolutePath().getParent();
+                Files.createDirectories(dir);
+                tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+                restrictToOwner(tmp);
+                Files.writeString(tmp, json, StandardCharsets.UTF_8);
+                try {
+                    Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                dirty = true;
+                OmnisearchMod.LOGGER.warn("[SessionCookieStore] failed to save cookies to {}: {}", file, e.toString());
+                if (tmp != null) {
+                    try {
+                        Files.deleteIfExists(tmp);
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    /** The file holds a live login session; keep it private where the file system allows. */
+    private static void restrictToOwner(Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException ignored) {
+            // Not a POSIX file system
+        }
+    }
+
+    private static String checksum(List<CookieRecord> records) {
+        StringBuilder canonical = new StringBuilder();
+        for (CookieRecord cookie : records) {
+            if (cookie == null) {
+                continue;
+            }
+            canonical.append(cookie.name()).append('\t').append(cookie.value()).append('\t')
+                .append(cookie.expiresAt()).append('\n');
+        }
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(canonical.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
     }
 }
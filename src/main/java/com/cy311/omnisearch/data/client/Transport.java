@@ -0,0 +1,90 @@
+package com.cy311.omnisearch.data.client;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Sends one HTTP exchange for {@link McmodHttpClient}.
+ * <p>
+ * The client decides what goes on the wire — headers, cookies, form fields — and the
+ * transport only moves it: connection reuse, redirects (collecting every hop's
+ * {@code Set-Cookie}) and body decoding are its business. {@link KeepAliveTransport} is
+ * the production implementation; tests swap in an in-process stub.
+ */
+public interface Transport extends AutoCloseable {
+
+    Response execute(Request request) throws IOException;
+
+    @Override
+    default void close() {
+    }
+
+    enum Method { GET, POST }
+
+    /**
+     * @param headers         request headers, sent in iteration order
+     * @param cookies         sent as a single {@code Cookie} header
+     * @param formData        URL-encoded as the body of a POST; ignored for GET
+     * @param followRedirects whether 3xx responses with a {@code Location} are followed
+     */
+    record Request(Method method, String url, Map<String, String> headers, Map<String, String> cookies,
+                   Map<String, String> formData, boolean followRedirects) {
+
+        public static Request get(String url, Map<String, String> headers, Map<String, String> cookies) {
+            return new Request(Method.GET, url, headers, cookies, Map.of(), true);
+        }
+    }
+
+    /**
+     * A response whose body has not been read yet. Closing it releases the connection,
+     * returning it to the pool when the body was read to the end.
+     */
+    interface Response extends Closeable {
+
+        int statusCode();
+
+        /** The URL that produced this response, after redirects. */
+        String url();
+
+        /** First value of a response header (case-insensitive), or null. */
+        @Nullable String header(String name);
+
+        /** {@code Set-Cookie} name → value pairs from this response and every redirect before it. */
+        Map<String, String> cookies();
+
+        /**
+         * Expiry (epoch millis) of those {@link #cookies()} whose {@code Set-Cookie} gave
+         * one via {@code Max-Age} or {@code Expires}; the rest are session cookies.
+         */
+        default Map<String, Long> cookieExpiries() {
+            return Map.of();
+        }
+
+        /** Charset named in {@code Content-Type}, or null to let the parser detect it. */
+        @Nullable String charset();
+
+        /** The body with any {@code Content-Encoding} already removed. Can be read once. */
+        InputStream body() throws IOException;
+
+        default byte[] bodyBytes() throws IOException {
+            try (InputStream in = body()) {
+                return in.readAllBytes();
+            }
+        }
+
+        default String bodyText() throws IOException {
+            Charset cs = StandardCharsets.UTF_8;
+            String named = charset();
+            if (named != null && Charset.isSupported(named)) {
+                cs = Charset.forName(named);
+            }
+            return new String(bodyBytes(), cs);
+        }
+    }
+}
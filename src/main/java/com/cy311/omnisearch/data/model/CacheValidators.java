@@ -0,0 +1,16 @@
+package com.cy311.omnisearch.data.model;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * HTTP cache validators from a response ({@code ETag}, {@code Last-Modified}), replayed as
+ * {@code If-None-Match} / {@code If-Modified-Since} to revalidate an expired cache entry.
+ */
+public record CacheValidators(@Nullable String etag, @Nullable String lastModified) {
+    public static final CacheValidators NONE = new CacheValidators(null, null);
+
+    /** True if the response carried neither validator, so a conditional GET is impossible. */
+    public boolean isEmpty() {
+        return (etag == null || etag.isBlank()) && (lastModified == null || lastModified.isBlank());
+    }
+}
@@ -0,0 +1,20 @@
+package com.cy311.omnisearch.data.model;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Outcome of a (possibly conditional) detail page fetch.
+ */
+public sealed interface PageFetchResult permits PageFetchResult.Fetched, PageFetchResult.NotModified {
+    /**
+     * A full response: the parsed page (null for an invalid or empty page), its validators
+     * and, if the source keeps it, the HTML the page was parsed from.
+     */
+    record Fetched(@Nullable ItemPage page, CacheValidators validators, @Nullable String html) implements PageFetchResult {
+        public Fetched(@Nullable ItemPage page, CacheValidators validators) {
+            this(page, validators, null);
+        }
+    }
+    /** 304: the cached copy is still current; nothing was downloaded or parsed. */
+    record NotModified() implements PageFetchResult {}
+}
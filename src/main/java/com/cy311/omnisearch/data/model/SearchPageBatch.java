@@ -3,7 +3,37 @@ package com.cy311.omnisearch.data.model;
 import java.util.List;
 import org.jetbrains.annotations.Nullable;
 
+/**
+ * One page of search results.
+ *
+ * @param page           1-based number of this page, or 0 if unknown
+ * @param totalPages     highest page number the pagination links to, or 0 if unknown
+ * @param confirmedEmpty true only if the site served a genuine result page listing nothing;
+ *                       an empty batch standing in for a throttle page, a CAPTCHA or a
+ *                       failed request is not confirmed
+ */
 public record SearchPageBatch(
     List<SearchHit> results,
-    @Nullable String nextPageUrl
-) {}
+    @Nullable String nextPageUrl,
+    int page,
+    int totalPages,
+    boolean confirmedEmpty
+) {
+    public SearchPageBatch(List<SearchHit> results, @Nullable String nextPageUrl) {
+        this(results, nextPageUrl, 0, 0);
+    }
+
+    public SearchPageBatch(List<SearchHit> results, @Nullable String nextPageUrl, int page, int totalPages) {
+        this(results, nextPageUrl, page, totalPages, false);
+    }
+
+    /** A result page the site served with no results on it. */
+    public static SearchPageBatch noResults() {
+        return new SearchPageBatch(List.of(), null, 0, 0, true);
+    }
+
+    /** The same results, numbered as {@code page}. */
+    public SearchPageBatch withPage(int page) {
+        return new SearchPageBatch(results, nextPageUrl, page, totalPages, confirmedEmpty);
+    }
+}
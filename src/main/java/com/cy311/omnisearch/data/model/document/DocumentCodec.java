@@ -0,0 +1,498 @@
+package com.cy311.omnisearch.data.model.document;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Compact, versioned binary form of a {@link Document}, used for cached pages instead of
+ * the JSON tree built by {@link DocNodeAdapterFactory}.
+ * <p>
+ * Layout — every count, length and index is an unsigned LEB128 varint:
+ * <pre>
+ * "ODOC" + format version byte
+ * string table   count, then length + UTF-8 of each string
+ * style table    count, then a flag byte per style (+ string index of its color)
+ * title          inline string
+ * source mod/url string references
+ * section index  count, then the encoded length of each top-level node
+ * sections       the top-level nodes, back to back
+ * </pre>
+ * A node is a tag byte followed by its fields. Running text is stored inline, since it
+ * rarely repeats; URLs, colors, alt texts and table headers go through the string table and
+ * text styles through the style table, so a page with hundreds of links to the same mod
+ * stores that URL once. References are index + 1, with 0 meaning null.
+ * <p>
+ * The section index lets {@link #decode(byte[], int, int, int)} build only the top-level
+ * nodes within the first {@code eagerBytes} of section data — what the first screen shows.
+ * The returned content list decodes any other section the first time it is read, or all
+ * of them at once through {@link #decodeRemaining}.
+ */
+public final class DocumentCodec {
+
+    public static final int FORMAT_VERSION = 1;
+    /** Section bytes decoded up front: comfortably more than one screen of text. */
+    public static final int DEFAULT_EAGER_BYTES = 8 * 1024;
+
+    private static final byte[] MAGIC = {'O', 'D', 'O', 'C'};
+
+    // Node tags; append only, never renumber
+    private static final int HEADING = 0;
+    private static final int PARAGRAPH = 1;
+    private static final int TABLE = 2;
+    private static final int LIST = 3;
+    private static final int IMAGE = 4;
+    private static final int LINK = 5;
+    private static final int DIVIDER = 6;
+    private static final int SECTION = 7;
+    private static final int TEXT = 8;
+    private static final int STYLED_TEXT = 9;
+    private static final int IMAGE_INLINE = 10;
+    private static final int CAPTION = 11;
+
+    // Style flag bits
+    private static final int BOLD = 1;
+    private static final int ITALIC = 1 << 1;
+    private static final int UNDERLINE = 1 << 2;
+    private static final int STRIKETHROUGH = 1 << 3;
+    private static final int COLOR = 1 << 4;
+
+    private static final ParagraphNode.Align[] ALIGNS = ParagraphNode.Align.values();
+
+    private DocumentCodec() {}
+
+    // ──────────────────────────────────────────────
+    // Encoding
+    // ──────────────────────────────────────────────
+
+    public static byte[] encode(Document doc) {
+        Encoder encoder = new Encoder();
+        int sourceMod = encoder.ref(doc.sourceMod());
+        int sourceUrl = encoder.ref(doc.sourceUrl());
+        List<byte[]> sections = new ArrayList<>(doc.content().size());
+        for (DocNode node : doc.content()) {
+            Output section = new Output();
+            encoder.node(section, node);
+            sections.add(section.toByteArray());
+        }
+
+        Output out = new Output();
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(FORMAT_VERSION);
+        out.varint(encoder.strings.size());
+        for (String s : encoder.strings.keySet()) {
+            out.string(s);
+        }
+        out.varint(encoder.styles.size());
+        for (TextStyle style : encoder.styles.keySet()) {
+            int flags = (style.bold() ? BOLD : 0) | (style.italic() ? ITALIC : 0)
+                | (style.underline() ? UNDERLINE : 0) | (style.strikethrough() ? STRIKETHROUGH : 0)
+                | (style.color() != null ? COLOR : 0);
+            out.write(flags);
+            if (style.color() != null) {
+                out.varint(encoder.strings.get(style.color()));
+            }
+        }
+        out.string(doc.title());
+        out.varint(sourceMod);
+        out.varint(sourceUrl);
+        out.varint(sections.size());
+        for (byte[] section : sections) {
+            out.varint(section.length);
+        }
+        for (byte[] section : sections) {
+            out.write(section, 0, section.length);
+        }
+        return out.toByteArray();
+    }
+
+    /** Interns table strings and styles while writing nodes. */
+    private static final class Encoder {
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+        final Map<TextStyle, Integer> styles = new LinkedHashMap<>();
+
+        int ref(@Nullable String s) {
+            return s == null ? 0 : strings.computeIfAbsent(s, k -> strings.size()) + 1;
+        }
+
+        int style(TextStyle style) {
+            if (style.color() != null) {
+                ref(style.color());
+            }
+            return styles.computeIfAbsent(style, k -> styles.size());
+        }
+
+        void nodes(Output out, List<DocNode> nodes) {
+            out.varint(nodes.size());
+            for (DocNode node : nodes) {
+                node(out, node);
+            }
+        }
+
+        void node(Output out, DocNode node) {
+            if (node instanceof HeadingNode hn) {
+                out.write(HEADING);
+                out.varint(Math.max(0, hn.getLevel()));
+                nodes(out, hn.getChildren());
+            } else if (node instanceof ParagraphNode pn) {
+                out.write(PARAGRAPH);
+                out.write(pn.isFirstLineIndent() ? 1 : 0);
+                out.write(pn.getAlign() != null ? pn.getAlign().ordinal() : 0);
+                nodes(out, pn.getChildren());
+            } else if (node instanceof TableNode tn) {
+                out.write(TABLE);
+                out.varint(tn.getHeaders().size());
+                for (String header : tn.getHeaders()) {
+                    out.varint(ref(header));
+                }
+                out.varint(tn.getRows().size());
+                for (List<DocNode> row : tn.getRows()) {
+                    nodes(out, row);
+                }
+                List<List<Integer>> colspans = tn.getRowColspans();
+                if (colspans == null) {
+                    out.varint(0);
+                } else {
+                    out.varint(colspans.size() + 1);
+                    for (List<Integer> row : colspans) {
+                        List<Integer> spans = row != null ? row : List.of();
+                        out.varint(spans.size());
+                        for (Integer span : spans) {
+                            out.varint(span != null ? Math.max(0, span) : 0);
+                        }
+                    }
+                }
+            } else if (node instanceof ListNode ln) {
+                out.write(LIST);
+                out.write(ln.isOrdered() ? 1 : 0);
+                nodes(out, ln.getItems());
+            } else if (node instanceof ImageNode im) {
+                out.write(IMAGE);
+                out.varint(ref(im.getUrl()));
+                out.varint(ref(im.getAlt()));
+                out.varint(ref(im.getLocalPath()));
+                out.varint(Math.max(0, im.getOrigWidth()));
+                out.varint(Math.max(0, im.getOrigHeight()));
+            } else if (node instanceof LinkNode ln) {
+                out.write(LINK);
+                out.varint(ref(ln.getUrl()));
+                nodes(out, ln.getChildren());
+            } else if (node instanceof DividerNode) {
+                out.write(DIVIDER);
+            } else if (node instanceof SectionNode sn) {
+                out.write(SECTION);
+                out.string(sn.getTitle());
+                nodes(out, sn.getChildren());
+            } else if (node instanceof TextNode tn) {
+                out.write(TEXT);
+                out.string(tn.getText());
+            } else if (node instanceof StyledTextNode stn) {
+                out.write(STYLED_TEXT);
+                out.string(stn.getText());
+                out.varint(style(stn.getStyle() != null ? stn.getStyle() : TextStyle.NORMAL));
+            } else if (node instanceof ImageInlineNode iin) {
+                out.write(IMAGE_INLINE);
+                out.varint(ref(iin.getUrl()));
+                out.varint(ref(iin.getAlt()));
+            } else if (node instanceof CaptionNode cn) {
+                out.write(CAPTION);
+                out.string(cn.getText());
+            } else {
+                throw new IllegalArgumentException("No binary encoding for " + node.getClass().getName());
+            }
+        }
+    }
+
+    private static final class Output extends ByteArrayOutputStream {
+        Output() {
+            super(256);
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        /** Inline string: length + 1 (0 for null), then UTF-8. */
+        void string(@Nullable String s) {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Decoding
+    // ──────────────────────────────────────────────
+
+    public static Document decode(byte[] data) {
+        return decode(data, 0, data.length, DEFAULT_EAGER_BYTES);
+    }
+
+    /**
+     * Decodes the document in {@code data[offset, offset + length)}, building top-level nodes
+     * up front until {@code eagerBytes} of section data are covered (always at least one).
+     * The rest are decoded on demand; {@code data} must not be modified afterwards.
+     *
+     * @throws IllegalArgumentException if the bytes are not a document of this format version
+     */
+    public static Document decode(byte[] data, int offset, int length, int eagerBytes) {
+        Input in = new Input(data, offset, offset + length);
+        for (byte b : MAGIC) {
+            if (in.readByte() != b) {
+                throw new IllegalArgumentException("Not an encoded document");
+            }
+        }
+        int version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported document format version " + version);
+        }
+        String[] strings = new String[in.count()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.string();
+        }
+        TextStyle[] styles = new TextStyle[in.count()];
+        for (int i = 0; i < styles.length; i++) {
+            int flags = in.readByte();
+            String color = (flags & COLOR) != 0 ? strings[in.varint()] : null;
+            styles[i] = new TextStyle((flags & BOLD) != 0, (flags & ITALIC) != 0,
+                (flags & UNDERLINE) != 0, (flags & STRIKETHROUGH) != 0, color);
+        }
+        Tables tables = new Tables(strings, styles);
+        String title = in.string();
+        String sourceMod = tables.ref(in.varint());
+        String sourceUrl = tables.ref(in.varint());
+
+        int[] offsets = new int[in.count() + 1];
+        int position = 0;
+        for (int i = 1; i < offsets.length; i++) {
+            position += in.varint();
+            offsets[i] = position;
+        }
+        if (position != in.limit - in.pos) {
+            throw new IllegalArgumentException("Section index does not match the encoded length");
+        }
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] += in.pos;
+        }
+        LazyContent content = new LazyContent(data, offsets, tables);
+        for (int i = 0; i < content.size() && (i == 0 || offsets[i] - offsets[0] < eagerBytes); i++) {
+            content.get(i);
+        }
+        return new Document(title, sourceMod, sourceUrl, content);
+    }
+
+    /** Decodes every section {@link #decode} deferred; a no-op for other documents. */
+    public static void decodeRemaining(Document doc) {
+        if (doc.content() instanceof LazyContent lazy) {
+            lazy.decodeAll();
+        }
+    }
+
+    /** How many top-level nodes of {@code doc} are built so far. */
+    static int decodedSections(Document doc) {
+        return doc.content() instanceof LazyContent lazy ? lazy.decodedCount() : doc.content().size();
+    }
+
+    private record Tables(String[] strings, TextStyle[] styles) {
+        @Nullable String ref(int ref) {
+            return ref == 0 ? null : strings[ref - 1];
+        }
+    }
+
+    /**
+     * Top-level nodes backed by their encoded bytes; each is decoded on first access and
+     * kept. The bytes are released once every node has been decoded.
+     */
+    private static final class LazyContent extends AbstractList<DocNode> implements RandomAccess {
+        private final DocNode[] nodes;
+        private final int[] offsets;
+        private final Tables tables;
+        @Nullable
+        private byte[] data;
+        private int decoded;
+
+        LazyContent(byte[] data, int[] offsets, Tables tables) {
+            this.nodes = new DocNode[offsets.length - 1];
+            this.offsets = offsets;
+            this.tables = tables;
+            this.data = nodes.length > 0 ? data : null;
+        }
+
+        @Override
+        public synchronized DocNode get(int index) {
+            Objects.checkIndex(index, nodes.length);
+            DocNode node = nodes[index];
+            if (node == null) {
+                Input in = new Input(Objects.requireNonNull(data), offsets[index], offsets[index + 1]);
+                node = in.node(tables);
+                nodes[index] = node;
+                if (++decoded == nodes.length) {
+                    data = null;
+                }
+            }
+            return node;
+        }
+
+        @Override
+        public int size() {
+            return nodes.length;
+        }
+
+        synchronized void decodeAll() {
+            for (int i = 0; i < nodes.length && data != null; i++) {
+                get(i);
+            }
+        }
+
+        synchronized int decodedCount() {
+            return decoded;
+        }
+
+    }
+
+    private static final class Input {
+        private final byte[] data;
+        private final int limit;
+        private int pos;
+
+        Input(byte[] data, int pos, int limit) {
+            this.data = data;
+            this.pos = pos;
+            this.limit = limit;
+        }
+
+        int readByte() {
+            if (pos >= limit) {
+                throw new IllegalArgumentException("Encoded document is truncated");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        /** A count that cannot exceed the bytes left, so corrupt input cannot over-allocate. */
+        int count() {
+            int count = varint();
+            if (count < 0 || count > limit - pos) {
+                throw new IllegalArgumentException("Implausible count " + count);
+            }
+            return count;
+        }
+
+        @Nullable String string() {
+            int length = varint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > limit - pos) {
+                throw new IllegalArgumentException("Encoded document is truncated");
+            }
+            String s = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        List<DocNode> nodes(Tables tables) {
+            int count = count();
+            List<DocNode> nodes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                nodes.add(node(tables));
+            }
+            return nodes;
+        }
+
+        DocNode node(Tables tables) {
+            int tag = readByte();
+            return switch (tag) {
+                case HEADING -> {
+                    int level = varint();
+                    yield new HeadingNode(level, nodes(tables));
+                }
+                case PARAGRAPH -> {
+                    boolean indent = readByte() != 0;
+                    ParagraphNode.Align align = ALIGNS[Math.min(readByte(), ALIGNS.length - 1)];
+                    yield new ParagraphNode(nodes(tables), indent, align);
+                }
+                case TABLE -> table(tables);
+                case LIST -> {
+                    boolean ordered = readByte() != 0;
+                    yield new ListNode(ordered, nodes(tables));
+                }
+                case IMAGE -> new ImageNode(tables.ref(varint()), tables.ref(varint()), tables.ref(varint()),
+                    varint(), varint());
+                case LINK -> {
+                    String url = tables.ref(varint());
+                    yield new LinkNode(url, nodes(tables));
+                }
+                case DIVIDER -> new DividerNode();
+                case SECTION -> {
+                    String title = string();
+                    yield new SectionNode(title, nodes(tables));
+                }
+                case TEXT -> new TextNode(string());
+                case STYLED_TEXT -> {
+                    String text = string();
+                    yield new StyledTextNode(text, tables.styles()[varint()]);
+                }
+                case IMAGE_INLINE -> new ImageInlineNode(tables.ref(varint()), tables.ref(varint()));
+                case CAPTION -> new CaptionNode(string());
+                default -> throw new IllegalArgumentException("Unknown node tag " + tag);
+            };
+        }
+
+        private TableNode table(Tables tables) {
+            int headerCount = count();
+            List<String> headers = new ArrayList<>(headerCount);
+            for (int i = 0; i < headerCount; i++) {
+                headers.add(tables.ref(varint()));
+            }
+            int rowCount = count();
+            List<List<DocNode>> rows = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                rows.add(nodes(tables));
+            }
+            // Row count + 1, or 0 for a table without colspans
+            int spanRows = count() - 1;
+            if (spanRows < 0) {
+                return new TableNode(headers, rows);
+            }
+            List<List<Integer>> colspans = new ArrayList<>(spanRows);
+            for (int i = 0; i < spanRows; i++) {
+                int cells = count();
+                List<Integer> row = new ArrayList<>(cells);
+                for (int j = 0; j < cells; j++) {
+                    int span = varint();
+                    row.add(span != 0 ? span : null);
+                }
+                colspans.add(row);
+            }
+            return new TableNode(headers, rows, colspans);
+        }
+    }
+}
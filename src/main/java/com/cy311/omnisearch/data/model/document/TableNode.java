@@ -1,5 +1,7 @@
 package com.cy311.omnisearch.data.model.document;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -32,6 +34,11 @@ public class TableNode extends DocNode {
         return rows;
     }
 
+    /** The raw per-cell colspans, or null if the table carries none. */
+    public @Nullable List<List<Integer>> getRowColspans() {
+        return rowColspans;
+    }
+
     /**
      * Returns the colspan of the cell at {@code rowIdx}/{@code cellIdx}, defaulting to 1
      * when no colspan metadata is present (old caches, hand-built tables).
@@ -35,6 +35,8 @@ public class McmodParser {
     private static final Pattern TEXT_ALIGN_PATTERN = Pattern.compile("text-align\\s*:\\s*(\\w+)", Pattern.CASE_INSENSITIVE);
     private static final Pattern TEXT_INDENT_PATTERN = Pattern.compile("text-indent\\s*:\\s*([^;]+)", Pattern.CASE_INSENSITIVE);
     private static final Pattern PAGE_PARAM_PATTERN = Pattern.compile("[?&]page=(\\d+)");
+    // Every search.mcmod.cn page, results or none, is titled "<query> - MC百科搜索"
+    private static final String SEARCH_TITLE_SUFFIX = "MC百科搜索";
 
     /** Common named CSS colors → hex. mcmod.cn uses these sparingly; keep the set small. */
     private static final java.util.Map<String, String> NAMED_COLORS = java.util.Map.of(
@@ -93,8 +95,14 @@ public class McmodParser {
         if (html == null || html.isBlank()) {
             return Collections.emptyList();
         }
+        return parseSearchResultsDom(Jsoup.parse(html));
+    }
 
-        org.jsoup.nodes.Document doc = Jsoup.parse(html);
+    /**
+     * Parses an already-built search results tree, e.g. one streamed straight from the
+     * HTTP response rather than materialized as a String first.
+     */
+    public List<SearchHit> parseSearchResultsDom(org.jsoup.nodes.Document doc) {
         Elements resultItems = doc.select(".search-result-list .result-item");
         if (resultItems.isEmpty()) {
             OmnisearchMod.LOGGER.debug("[McmodParser] no .result-item nodes found in search html");
@@ -287,8 +295,37 @@ public class McmodParser {
         if (html == null || html.isBlank()) {
             return new SearchPageBatch(List.of(), null);
         }
-        org.jsoup.nodes.Document doc = Jsoup.parse(html, pageUrl);
-        return new SearchPageBatch(parseSearchResults(html), extractNextSearchPageUrl(doc, pageUrl));
+        return parseSearchPageDom(Jsoup.parse(html, pageUrl), pageUrl);
+    }
+
+    public SearchPageBatch parseSearchPageDom(org.jsoup.nodes.Document doc, String pageUrl) {
+        return new SearchPageBatch(
+            parseSearchResultsDom(doc),
+            extractNextSearchPageUrl(doc, pageUrl),
+            extractPageNumber(pageUrl),
+            extractTotalPages(doc, pageUrl)
+        );
+    }
+
+    /**
+     * Whether {@code doc} is a search.mcmod.cn result page — its result list, or at least
+     * the search site's title — rather than some other page that merely parses to no
+     * results. Only such a page can confirm that a search found nothing.
+     */
+    public boolean isSearchResultsPage(org.jsoup.nodes.Document doc) {
+        if (doc.selectFirst(".search-result-list, .search-result") != null) {
+            return true;
+        }
+        return doc.title().endsWith(SEARCH_TITLE_SUFFIX);
+    }
+
+    /**
+     * Builds the URL of another page of the same search from any page's URL (typically a
+     * batch's {@code nextPageUrl}), so remaining pages can be requested without walking
+     * the chain.
+     */
+    public static String searchPageUrl(String pageUrl, int page) {
+        return withPageParam(pageUrl, page);
     }
 
     // ──────────────────────────────────────────────
@@ -306,14 +343,22 @@ public class McmodParser {
         if (html == null || html.isBlank()) {
             return new Document("", null, url, List.of());
         }
+        return parseItemPageDom(Jsoup.parse(html, url), url);
+    }
 
+    /**
+     * Parses an already-built item page tree.
+     *
+     * @param doc Jsoup tree of the detail page, with {@code url} as its base URI
+     * @param url Page URL (filled into Document.sourceUrl)
+     * @return Parsed Document
+     */
+    public Document parseItemPageDom(org.jsoup.nodes.Document doc, String url) {
         // Extract numeric item ID from URL
         String itemId = "";
         java.util.regex.Matcher idMatcher = java.util.regex.Pattern.compile("/item/(\\d+)").matcher(url);
         if (idMatcher.find()) itemId = idMatcher.group(1);
 
-        org.jsoup.nodes.Document doc = Jsoup.parse(html, url);
-
         // Title
         String title = "";
         Element titleEl = doc.selectFirst("div.itemname h5");
@@ -419,8 +464,17 @@ public class McmodParser {
         if (html == null || html.isBlank()) {
             return new Document("", null, url, List.of());
         }
+        return parseModPageDom(Jsoup.parse(html, url), url);
+    }
 
-        org.jsoup.nodes.Document doc = Jsoup.parse(html, url);
+    /**
+     * Parses an already-built mod page tree.
+     *
+     * @param doc Jsoup tree of the detail page, with {@code url} as its base URI
+     * @param url Page URL
+     * @return Parsed Document
+     */
+    public Document parseModPageDom(org.jsoup.nodes.Document doc, String url) {
 
         // Title — try multiple possible selectors
         String title = "";
@@ -1283,6 +1337,22 @@ public class McmodParser {
         return nextPage == -1 ? null : withPageParam(pageUrl, nextPage);
     }
 
+    /**
+     * Highest page number the pagination links to — the "尾页" (last page) link carries it
+     * even when the numbered links only show a window around the current page. Never less
+     * than the current page.
+     */
+    private static int extractTotalPages(org.jsoup.nodes.Document doc, String pageUrl) {
+        int total = extractPageNumber(pageUrl);
+        for (Element a : doc.select("a.page-link[data-page]")) {
+            total = Math.max(total, parsePageToken(a.attr("data-page")));
+        }
+        for (Element a : doc.select(".pagination a[href]")) {
+            total = Math.max(total, parsePageParam(a.attr("href")));
+        }
+        return total;
+    }
+
     /**
      * Rebuilds a page URL with the given page number, replacing an existing page=
      * parameter or appending one. The base pageUrl is already properly encoded.
@@ -0,0 +1,73 @@
+package com.cy311.omnisearch.data.repository;
+
+import com.cy311.omnisearch.data.model.CacheValidators;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The HTML a cached page was parsed from, kept by {@link CacheLayer} under its own format
+ * version so it outlives {@code CACHE_VERSION} bumps.
+ *
+ * @param fetchedAt  when the HTML was downloaded; a page re-derived from it is exactly as fresh
+ * @param validators the response's validators, so the re-derived page can still be revalidated
+ */
+public record ArchivedPage(String html, long fetchedAt, @Nullable CacheValidators validators) {
+
+    byte[] encode() {
+        byte[] body = html.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length + 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(fetchedAt);
+            out.writeBoolean(validators != null);
+            if (validators != null) {
+                writeNullable(out, validators.etag());
+                writeNullable(out, validators.lastModified());
+            }
+            out.writeInt(body.length);
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a record written by {@link #encode}.
+     *
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    static ArchivedPage decode(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            long fetchedAt = in.readLong();
+            CacheValidators validators = in.readBoolean()
+                ? new CacheValidators(readNullable(in), readNullable(in))
+                : null;
+            int length = in.readInt();
+            if (length < 0 || length != in.available()) {
+                throw new IllegalArgumentException("HTML length does not match the record");
+            }
+            byte[] body = in.readNBytes(length);
+            return new ArchivedPage(new String(body, StandardCharsets.UTF_8), fetchedAt, validators);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated archive record", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static @Nullable String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
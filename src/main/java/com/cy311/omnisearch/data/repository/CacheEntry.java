@@ -1,6 +1,14 @@
 package com.cy311.omnisearch.data.repository;
 
+import com.cy311.omnisearch.data.model.CacheValidators;
+import org.jetbrains.annotations.Nullable;
+
 /**
- * Wrapper for cached data with a timestamp for TTL checking.
+ * Wrapper for cached data with a timestamp for TTL checking, plus the HTTP validators
+ * used to revalidate the entry once it expires (null for entries written without them).
  */
-public record CacheEntry<T>(T data, long timestamp) {}
+public record CacheEntry<T>(T data, long timestamp, @Nullable CacheValidators validators) {
+    public CacheEntry(T data, long timestamp) {
+        this(data, timestamp, null);
+    }
+}
@@ -0,0 +1,400 @@
+package com.cy311.omnisearch.data.repository;
+
+import com.cy311.omnisearch.OmnisearchMod;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Low-priority housekeeping for {@link CacheLayer}'s directory, on its own minimum-priority
+ * thread. At startup it deletes what older versions left behind: the one-file-per-entry
+ * directories, anything named with a {@code v<N>_} schema prefix, and abandoned temporary
+ * files. In a shared cache it also deletes the {@code v<N>} and {@code html-v<N>}
+ * directories of older versions next to the current ones ({@link #retireOlderVersions}),
+ * once no instance still has their stores open. A minute later, and every ten minutes after that, it sweeps the segment store:
+ * <ul>
+ *   <li>compacts as soon as expired and superseded records add up to a megabyte, rather
+ *       than waiting until they make up half the store as the write path does;</li>
+ *   <li>evicts the least recently used keys once the store outgrows the disk budget
+ *       ({@link SegmentStore#evictToBudget});</li>
+ *   <li>saves the keys' access times and a snapshot of the store's index.</li>
+ * </ul>
+ * The HTML archive, if there is one, is swept the same way and may take up to half the
+ * budget; the entry store gets what the archive leaves.
+ * {@link #submit} runs other low-priority work, such as re-parsing archived pages, on the
+ * same thread between sweeps.
+ * Reads are reported through {@link #recordAccess}, which never touches the store; the
+ * next sweep hands them over, so a page served from memory all day still counts as used.
+ */
+public final class CacheJanitor implements AutoCloseable {
+
+    /**
+     * Disk usage of the cache, for the debug screen.
+     *
+     * @param storeBytes     bytes of segment files right now
+     * @param liveBytes      bytes of records the store still serves
+     * @param archiveBytes   bytes of the HTML archive's segment files
+     * @param directoryBytes the whole cache directory, as of the last sweep (-1 before it)
+     * @param lastSweepMillis wall-clock time of the last sweep, 0 if none ran yet
+     */
+    public record Stats(long budgetBytes, long storeBytes, long liveBytes, int segments, int keys,
+                        long archiveBytes, long directoryBytes, int sweeps, long evictedKeys,
+                        long reclaimedBytes, int orphansDeleted, long lastSweepMillis) {}
+
+    static final long INITIAL_DELAY_MS = 60_000;
+    static final long INTERVAL_MS = 10 * 60_000;
+    // Garbage worth a sweep-time compaction even while it is a small share of the store
+    private static final long SWEEP_MIN_GARBAGE_BYTES = 1024 * 1024;
+    // A temporary file this old belongs to a write that will never finish
+    private static final long ABANDONED_TMP_MS = 60 * 60_000;
+    private static final List<String> LEGACY_DIRS = List.of("search", "page", "stale");
+    private static final Pattern VERSION_PREFIX = Pattern.compile("v\\d+_.*");
+    // A shared cache's per-version directories: v<N> for entries, html-v<N> for the archive
+    private static final Pattern VERSION_DIR = Pattern.compile("((?:html-)?v)(\\d+)");
+    private static final double ARCHIVE_BUDGET_SHARE = 0.5;
+
+    private final Path cacheDir;
+    private final SegmentStore store;
+    private final CacheWriteBehind writeBehind;
+    private final @Nullable SegmentStore archive;
+    private final @Nullable CacheWriteBehind archiveWriteBehind;
+    private final long budgetBytes;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, Long> accessed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private volatile List<Path> currentVersionDirs = List.of();
+
+    // Guarded by this
+    private int sweeps;
+    private long evictedKeys;
+    private long reclaimedBytes;
+    private int orphansDeleted;
+    private long lastSweepMillis;
+    private long directoryBytes = -1;
+
+    CacheJanitor(Path cacheDir, SegmentStore store, CacheWriteBehind writeBehind, long budgetBytes, LongSupplier clock) {
+        this(cacheDir, store, writeBehind, null, null, budgetBytes, clock);
+    }
+
+    CacheJanitor(Path cacheDir, SegmentStore store, CacheWriteBehind writeBehind,
+                 @Nullable SegmentStore archive, @Nullable CacheWriteBehind archiveWriteBehind,
+                 long budgetBytes, LongSupplier clock) {
+        this.cacheDir = cacheDir;
+        this.store = store;
+        this.writeBehind = writeBehind;
+        this.archive = archive;
+        this.archiveWriteBehind = archiveWriteBehind;
+        this.budgetBytes = budgetBytes;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "omnisearch-cache-janitor");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /** Deletes leftovers now and schedules the periodic sweeps. */
+    void start() {
+        try {
+            scheduler.execute(this::deleteOrphansQuietly);
+            scheduler.scheduleWithFixedDelay(this::sweepQuietly, INITIAL_DELAY_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed before it started
+        }
+    }
+
+    /**
+     * Makes leftover sweeps also delete older siblings of {@code current} — the version
+     * directories of a shared cache root. Call before {@link #start}.
+     */
+    void retireOlderVersions(Path... current) {
+        currentVersionDirs = List.of(current);
+    }
+
+    /** Notes that {@code key} was just read. Cheap and lock-free; safe on any thread. */
+    void recordAccess(String key) {
+        accessed.put(key, clock.getAsLong());
+    }
+
+    /**
+     * Runs {@code task} on the janitor's low-priority thread.
+     *
+     * @return completes when the task has run; fails if the janitor is closed
+     */
+    CompletableFuture<Void> submit(Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, scheduler);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** Runs {@code task} on the janitor's thread every {@code intervalMs} until it closes; failures are logged. */
+    void every(long intervalMs, Runnable task) {
+        try {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    OmnisearchMod.LOGGER.debug("[CacheJanitor] periodic task failed: {}", e.toString());
+                }
+            }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closed
+        }
+    }
+
+    /** Runs a full sweep on the calling thread. */
+    void sweep() {
+        int orphans = deleteOrphans();
+        Map<String, Long> accesses = drainAccesses();
+        long[] result = new long[2];
+        long storeBudget = budgetBytes;
+        if (archive != null && archiveWriteBehind != null) {
+            archiveWriteBehind.runExclusive(() -> {
+                archive.recordAccess(accesses);
+                tidy(archive, (long) (budgetBytes * ARCHIVE_BUDGET_SHARE), result);
+            });
+            storeBudget -= archive.stats().totalBytes();
+        }
+        long budget = storeBudget;
+        writeBehind.runExclusive(() -> {
+            store.recordAccess(accesses);
+            tidy(store, budget, result);
+        });
+        long size = directorySize();
+        synchronized (this) {
+            sweeps++;
+            evictedKeys += result[0];
+            reclaimedBytes += Math.max(0, result[1]);
+            orphansDeleted += orphans;
+            directoryBytes = size;
+            lastSweepMillis = System.currentTimeMillis();
+        }
+        if (result[0] > 0 || result[1] > 0 || orphans > 0) {
+            OmnisearchMod.LOGGER.debug("[CacheJanitor] evicted {} keys, reclaimed {} bytes, deleted {} leftovers",
+                result[0], result[1], orphans);
+        }
+    }
+
+    public synchronized Stats stats() {
+        SegmentStore.Stats storeStats = store.stats();
+        long archiveBytes = archive != null ? archive.stats().totalBytes() : 0;
+        return new Stats(budgetBytes, storeStats.totalBytes(), storeStats.liveBytes(), storeStats.segments(),
+            storeStats.keys(), archiveBytes, directoryBytes, sweeps, evictedKeys, reclaimedBytes, orphansDeleted,
+            lastSweepMillis);
+    }
+
+    /** Stops the sweeps and hands the last access times to the store, which saves them on close. */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        Map<String, Long> last = drainAccesses();
+        if (!last.isEmpty()) {
+            writeBehind.runExclusive(() -> store.recordAccess(last));
+            if (archive != null && archiveWriteBehind != null) {
+                archiveWriteBehind.runExclusive(() -> archive.recordAccess(last));
+            }
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Internals
+    // ──────────────────────────────────────────────
+
+    /** Compacts and evicts {@code target} down to {@code budget}, adding keys evicted and bytes freed to {@code result}. */
+    private static void tidy(SegmentStore target, long budget, long[] result) {
+        long before = target.stats().totalBytes();
+        target.compactIfNeeded(SWEEP_MIN_GARBAGE_BYTES, 0);
+        result[0] += target.evictToBudget(budget);
+        result[1] += before - target.stats().totalBytes();
+        target.saveAccessTimes();
+        target.saveManifest();
+    }
+
+    private Map<String, Long> drainAccesses() {
+        Map<String, Long> drained = new HashMap<>();
+        for (Map.Entry<String, Long> entry : accessed.entrySet()) {
+            // Only remove the time we copied; a newer one recorded meanwhile waits for the next sweep
+            if (accessed.remove(entry.getKey(), entry.getValue())) {
+                drained.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Deletes the legacy entry directories, {@code v<N>_} leftovers at the top level,
+     * abandoned {@code .tmp} files in the store and dictionary directories, and retired
+     * version directories.
+     *
+     * @return how many files were deleted
+     */
+    private int deleteOrphans() {
+        int deleted = deleteOlderVersions();
+        if (!Files.isDirectory(cacheDir)) {
+            return deleted;
+        }
+        try (Stream<Path> children = Files.list(cacheDir)) {
+            for (Path child : children.toList()) {
+                String name = child.getFileName().toString();
+                if (LEGACY_DIRS.contains(name) || VERSION_PREFIX.matcher(name).matches()) {
+                    deleted += deleteRecursively(child);
+                } else if (Files.isDirectory(child)) {
+                    deleted += deleteAbandonedTmp(child);
+                }
+            }
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.debug("[CacheJanitor] listing {} failed: {}", cacheDir, e.toString());
+        }
+        return deleted;
+    }
+
+    /** Deletes the older version directories next to {@link #currentVersionDirs} that no instance uses. */
+    private int deleteOlderVersions() {
+        int deleted = 0;
+        for (Path current : currentVersionDirs) {
+            Matcher version = VERSION_DIR.matcher(current.getFileName().toString());
+            if (!version.matches() || !Files.isDirectory(current.getParent())) {
+                continue;
+            }
+            try (Stream<Path> siblings = Files.list(current.getParent())) {
+                for (Path sibling : siblings.toList()) {
+                    Matcher older = VERSION_DIR.matcher(sibling.getFileName().toString());
+                    if (older.matches() && older.group(1).equals(version.group(1))
+                        && Integer.parseInt(older.group(2)) < Integer.parseInt(version.group(2))
+                        && Files.isDirectory(sibling)) {
+                        deleted += deleteIfUnused(sibling);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                OmnisearchMod.LOGGER.debug("[CacheJanitor] looking for old versions beside {} failed: {}", current, e.toString());
+            }
+        }
+        return deleted;
+    }
+
+    /** Deletes a retired version directory unless a store in it is still open somewhere. */
+    private static int deleteIfUnused(Path versionDir) throws IOException {
+        List<Closeable> held = new ArrayList<>();
+        try {
+            List<Path> storeDirs;
+            try (Stream<Path> files = Files.walk(versionDir, 2)) {
+                storeDirs = files.filter(file -> file.getFileName().toString().equals(SegmentStore.LOCK_FILE))
+                    .map(Path::getParent)
+                    .toList();
+            }
+            for (Path storeDir : storeDirs) {
+                Closeable lock = StoreLock.lockIfUnused(storeDir);
+                if (lock == null) {
+                    OmnisearchMod.LOGGER.debug("[CacheJanitor] {} is still in use; keeping it", versionDir);
+                    return 0;
+                }
+                held.add(lock);
+            }
+            // Delete under the locks so no instance opens the stores meanwhile; the lock files go after
+            int deleted = deleteRecursively(versionDir);
+            releaseAll(held);
+            return deleted + deleteRecursively(versionDir);
+        } finally {
+            releaseAll(held);
+        }
+    }
+
+    private static void releaseAll(List<Closeable> locks) {
+        for (Closeable lock : locks) {
+            try {
+                lock.close();
+            } catch (IOException ignored) {
+            }
+        }
+        locks.clear();
+    }
+
+    private int deleteAbandonedTmp(Path dir) throws IOException {
+        int deleted = 0;
+        long cutoff = System.currentTimeMillis() - ABANDONED_TMP_MS;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                if (file.getFileName().toString().endsWith(".tmp")
+                    && Files.getLastModifiedTime(file).toMillis() < cutoff
+                    && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private static int deleteRecursively(Path root) {
+        int deleted = 0;
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                try {
+                    boolean file = !Files.isDirectory(path);
+                    if (Files.deleteIfExists(path) && file) {
+                        deleted++;
+                    }
+                } catch (IOException ignored) {
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return deleted;
+    }
+
+    private long directorySize() {
+        AtomicLong size = new AtomicLong();
+        try (Stream<Path> paths = Files.walk(cacheDir)) {
+            paths.forEach(path -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        size.addAndGet(attributes.size());
+                    }
+                } catch (IOException ignored) {
+                    // Deleted while walking
+                }
+            });
+        } catch (IOException e) {
+            return -1;
+        }
+        return size.get();
+    }
+
+    private void deleteOrphansQuietly() {
+        int deleted = deleteOrphans();
+        synchronized (this) {
+            orphansDeleted += deleted;
+        }
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            OmnisearchMod.LOGGER.warn("[CacheJanitor] sweep failed: {}", e.toString());
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package com.cy311.omnisearch.data.repository;
 
+import com.cy311.omnisearch.OmnisearchMod;
 import com.cy311.omnisearch.data.model.*;
 import com.cy311.omnisearch.data.model.document.DocNodeAdapterFactory;
+import com.cy311.omnisearch.data.model.document.DocumentCodec;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
@@ -9,6 +11,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.security.MessageDigest;
@@ -16,8 +19,74 @@ import java.security.NoSuchAlgorithmException;
 import java.util.Comparator;
 import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
-public class CacheLayer {
+/**
+ * Two-tier cache for search results and item pages: a log-structured {@link SegmentStore}
+ * under the cache directory, fronted by a bounded in-memory tier of already deserialized
+ * entries. Each key's previous generation is kept as its stale copy, the fallback when a
+ * refresh fails.
+ * <p>
+ * Search results, both whole result sets and single result pages, are stored as JSON;
+ * item pages as binary {@link PageEntryCodec} records, whose documents decode their first
+ * screen eagerly and the rest on first use or in the background on the cache I/O pool.
+ * All are Deflate-compressed on the way to disk by an
+ * {@link EntryCompressor}, with a preset dictionary per entry type trained from the first
+ * entries this cache stores ({@code dict/}); its ratio and CPU cost are reported by
+ * {@link #compressionStats()} and logged on close.
+ * <p>
+ * The memory tier ({@link TinyLfuCache}) is weighed by each entry's serialized length, a
+ * cheap proxy for the size of its document tree, and keeps the entries that
+ * are requested most often rather than merely most recently. Entries still carry their
+ * timestamp, so TTLs apply to memory hits exactly as to disk reads. Values handed out
+ * are shared between callers and must be treated as read-only.
+ * <p>
+ * The {@code ...Async} getters never touch the disk on the caller's thread: memory hits
+ * complete immediately, anything else is read on a small cache I/O pool. Writes go
+ * through a coalescing {@link CacheWriteBehind} queue and remain readable before they
+ * reach disk; {@link #close()} drains it.
+ * <p>
+ * Disk use is capped by a budget ({@value #DISK_BUDGET_PROPERTY}, in megabytes, default
+ * {@value #DEFAULT_DISK_BUDGET_MB}): a low-priority {@link CacheJanitor} evicts the least
+ * recently used entries beyond it, compacts away expired ones and deletes what older
+ * versions left in the directory, such as the one-file-per-entry {@code search/},
+ * {@code page/} and {@code stale/} directories. {@link #diskStats()} reports the usage.
+ * <p>
+ * Next to the entries, an archive ({@code archive/}, versioned by {@link #ARCHIVE_VERSION}
+ * rather than {@link #CACHE_VERSION}) keeps the HTML each page was parsed from. A schema
+ * bump thus invalidates the parsed pages but not their sources: they are re-derived from
+ * the archive ({@link #restorePage}) instead of downloaded again. The archive has its own
+ * compression dictionaries ({@code archive-dict/}) and may use up to half the disk budget.
+ * <p>
+ * Game instances of a multi-instance launcher can share one user-level cache instead of
+ * each downloading the same pages ({@link #open}, {@value #SHARED_DIR_PROPERTY}). Its stores
+ * are opened as shared {@link SegmentStore}s, which lock out each other's writes and pick up
+ * each other's records; entries another instance replaced are dropped from the memory tier
+ * within {@link #SHARED_REFRESH_MS}. Entries live in a {@code v<CACHE_VERSION>} directory and
+ * archived HTML in an {@code html-v<ARCHIVE_VERSION>} one, so instances on another schema
+ * version keep their own copies instead of compacting away each other's records. The
+ * janitor deletes older versions' directories once no instance has them open.
+ * <p>
+ * Below the store sit any read-only {@link CachePack}s a modpack ships ({@link
+ * #mountPacks}): a key the store does not have is looked up in them, so a pack's pages and
+ * searches show at once on first use, expired ones revalidated like any other entry.
+ * {@link #exportPack} writes this cache's entries as such a pack.
+ * <p>
+ * Searches mcmod.cn confirmed have no results, and pages it confirmed do not exist, are
+ * remembered in a separate in-memory {@link NegativeCache} for a few minutes
+ * ({@value #NEGATIVE_TTL_PROPERTY}, default {@value #DEFAULT_NEGATIVE_TTL_MINUTES}), so
+ * hovering an item the site does not know costs one lookup rather than one per hover.
+ * Empty batches that only stand in for throttle or CAPTCHA pages are never stored there.
+ */
+public class CacheLayer implements AutoCloseable {
     // Cache schema version — increment when parser/layout changes to invalidate old caches
     // v9: ParagraphNode gained firstLineIndent (CSS text-indent + editor typed spaces)
     // v10: TableNode gained rowColspans (colspan merged cells)
@@ -26,126 +95,663 @@ public class CacheLayer {
     // v13: span.figure image+caption extraction (CaptionNode)
     // v14: item icon prefers .item-info-table header cell (avoids .common-imglist gallery)
     // v15: SearchHit gained modEnName (English mod name) for hover mod scoping
-    static final int CACHE_VERSION = 15;
+    // v16: pages stored as binary DocumentCodec records instead of JSON
+    // v17: entries Deflate-compressed with per-type dictionaries (dict/<type>-v<version>.dict)
+    // Records of other versions in the segment store are skipped and compacted away
+    static final int CACHE_VERSION = 17;
+    // HTML archive format version — bump only when ArchivedPage's encoding changes; the
+    // archive is what lets CACHE_VERSION bumps skip the network
+    static final int ARCHIVE_VERSION = 1;
 
     // TTL configuration (milliseconds)
     private static final long SEARCH_TTL_MS = 7 * 24 * 60 * 60 * 1000L;   // 7 days
     private static final long PAGE_TTL_MS = 30 * 24 * 60 * 60 * 1000L;    // 30 days
     private static final long STALE_RETENTION_MS = 90 * 24 * 60 * 60 * 1000L; // 90 days
 
+    // Memory tier budget, in bytes of serialized entries
+    static final long DEFAULT_MEMORY_WEIGHT = 8L * 1024 * 1024;
+    // Typical entry size, used to size the frequency sketch
+    private static final int TYPICAL_ENTRY_WEIGHT = 8 * 1024;
+    // Write-behind batching: flush this long after the first queued write, or at this many keys
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final int FLUSH_BATCH_SIZE = 32;
+    private static final int READ_THREADS = 2;
+
+    /** System property overriding the disk budget, in megabytes. */
+    public static final String DISK_BUDGET_PROPERTY = "omnisearch.cache.maxDiskMb";
+    static final long DEFAULT_DISK_BUDGET_MB = 256;
+    /** System property: a directory the cache is shared in with other game instances. */
+    public static final String SHARED_DIR_PROPERTY = "omnisearch.cache.sharedDir";
+    // How often a shared cache picks up what other instances wrote
+    static final long SHARED_REFRESH_MS = 2_000;
+    /** System property: how long confirmed empty searches and missing pages are remembered, in minutes. */
+    public static final String NEGATIVE_TTL_PROPERTY = "omnisearch.cache.negativeTtlMinutes";
+    static final long DEFAULT_NEGATIVE_TTL_MINUTES = 30;
+    private static final long NEGATIVE_MEMORY_WEIGHT = 256 * 1024;
+
     private final Path cacheDir;
+    private final Path archiveDir;
     private final Gson gson;
+    // Keyed by store key for fresh entries, "stale/" + store key for stale ones
+    private final TinyLfuCache<String, CacheEntry<?>> memory;
+    // Store keys confirmed to have nothing behind them
+    private final NegativeCache negatives;
+    private final SegmentStore store;
+    private final EntryCompressor compressor;
+    private final CacheWriteBehind writeBehind;
+    private final SegmentStore archive;
+    private final EntryCompressor archiveCompressor;
+    private final CacheWriteBehind archiveWriteBehind;
+    private final CacheJanitor janitor;
+    private final ExecutorService readExecutor;
+    // Newest mount first
+    private final List<CachePack> packs = new CopyOnWriteArrayList<>();
 
     public CacheLayer(Path cacheDir) {
-        this(cacheDir, new GsonBuilder()
+        this(cacheDir, defaultGson());
+    }
+
+    /**
+     * The shared cache under {@value #SHARED_DIR_PROPERTY} if that property is set and the
+     * directory can be created, else the private cache in {@code privateDir}.
+     */
+    public static CacheLayer open(Path privateDir) {
+        String shared = System.getProperty(SHARED_DIR_PROPERTY);
+        if (shared == null || shared.isBlank()) {
+            return new CacheLayer(privateDir);
+        }
+        try {
+            Path root = Path.of(shared);
+            Files.createDirectories(root);
+            OmnisearchMod.LOGGER.info("[CacheLayer] sharing the cache in {}", root);
+            return shared(root, defaultGson(), DEFAULT_MEMORY_WEIGHT,
+                Long.getLong(DISK_BUDGET_PROPERTY, DEFAULT_DISK_BUDGET_MB) * 1024 * 1024);
+        } catch (IOException | InvalidPathException e) {
+            OmnisearchMod.LOGGER.warn("[CacheLayer] shared cache {} is unusable, using {}: {}", shared, privateDir, e.toString());
+            return new CacheLayer(privateDir);
+        }
+    }
+
+    /** A cache in {@code root} that other processes may use at the same time. */
+    static CacheLayer shared(Path root, Gson gson, long memoryWeight, long diskBudgetBytes) {
+        return new CacheLayer(root.resolve("v" + CACHE_VERSION), root.resolve("html-v" + ARCHIVE_VERSION),
+            gson, memoryWeight, diskBudgetBytes, true);
+    }
+
+    private static Gson defaultGson() {
+        return new GsonBuilder()
             .registerTypeAdapterFactory(new DocNodeAdapterFactory())
-            .create());
+            .create();
     }
 
     /**
      * Creates a CacheLayer with a custom Gson instance (for testing or custom config).
      */
     CacheLayer(Path cacheDir, Gson gson) {
+        this(cacheDir, gson, DEFAULT_MEMORY_WEIGHT);
+    }
+
+    CacheLayer(Path cacheDir, Gson gson, long memoryWeight) {
+        this(cacheDir, gson, memoryWeight, Long.getLong(DISK_BUDGET_PROPERTY, DEFAULT_DISK_BUDGET_MB) * 1024 * 1024);
+    }
+
+    CacheLayer(Path cacheDir, Gson gson, long memoryWeight, long diskBudgetBytes) {
+        this(cacheDir, cacheDir, gson, memoryWeight, diskBudgetBytes, false);
+    }
+
+    /**
+     * @param archiveDir where the HTML archive lives, {@code cacheDir} unless shared
+     * @param shared     whether other processes use the same directories at the same time
+     */
+    private CacheLayer(Path cacheDir, Path archiveDir, Gson gson, long memoryWeight, long diskBudgetBytes,
+                       boolean shared) {
         this.cacheDir = cacheDir;
+        this.archiveDir = archiveDir;
         this.gson = gson;
+        this.memory = new TinyLfuCache<>(memoryWeight, (int) Math.max(16, memoryWeight / TYPICAL_ENTRY_WEIGHT));
+        this.negatives = new NegativeCache(Long.getLong(NEGATIVE_TTL_PROPERTY, DEFAULT_NEGATIVE_TTL_MINUTES) * 60_000,
+            NEGATIVE_MEMORY_WEIGHT, System::currentTimeMillis);
+        this.store = new SegmentStore(cacheDir.resolve("store"), CACHE_VERSION, STALE_RETENTION_MS, shared);
+        this.compressor = new EntryCompressor(cacheDir.resolve("dict"), CACHE_VERSION);
+        this.writeBehind = new CacheWriteBehind(store, compressor::compress, FLUSH_DELAY_MS, FLUSH_BATCH_SIZE);
+        this.archive = new SegmentStore(archiveDir.resolve("archive"), ARCHIVE_VERSION, STALE_RETENTION_MS, shared);
+        this.archiveCompressor = new EntryCompressor(archiveDir.resolve("archive-dict"), ARCHIVE_VERSION);
+        this.archiveWriteBehind = new CacheWriteBehind(archive, archiveCompressor::compress, FLUSH_DELAY_MS, FLUSH_BATCH_SIZE);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.readExecutor = Executors.newFixedThreadPool(READ_THREADS, r -> {
+            Thread t = new Thread(r, "omnisearch-cache-io-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.janitor = new CacheJanitor(cacheDir, store, writeBehind, archive, archiveWriteBehind, diskBudgetBytes,
+            System::currentTimeMillis);
+        if (shared) {
+            janitor.retireOlderVersions(cacheDir, archiveDir);
+        }
+        janitor.start();
+        if (shared) {
+            store.setChangeListener(new SegmentStore.ChangeListener() {
+                @Override
+                public void changed(String key) {
+                    memory.invalidate(key);
+                    memory.invalidate(memoryKey(key, true));
+                    negatives.invalidate(key);
+                }
+
+                @Override
+                public void everything() {
+                    memory.clear();
+                    negatives.clear();
+                }
+            });
+            janitor.every(SHARED_REFRESH_MS, () -> {
+                store.refresh();
+                archive.refresh();
+            });
+        }
     }
 
     // === Search result cache ===
 
+    /** The cached results, an empty list if the search is known to find nothing, else null. */
     public @Nullable List<SearchHit> getSearchResults(SearchQuery query) {
+        if (negatives.contains(searchKey(query))) {
+            return List.of();
+        }
         Type dataType = new TypeToken<List<SearchHit>>() {}.getType();
-        return getEntry(searchPath(query), SEARCH_TTL_MS, dataType);
+        return getEntry(searchKey(query), false, SEARCH_TTL_MS, dataType);
     }
 
     public void putSearchResults(SearchQuery query, List<SearchHit> results) {
-        if (results == null || results.isEmpty()) return; // don't cache empty results
-        Path fresh = searchPath(query);
-        Path stale = staleSearchPath(query);
-        moveToStale(fresh, stale);
-        saveEntry(fresh, results);
+        // Empty lists are not stored: only putNoSearchResults may vouch for an empty answer
+        if (results == null || results.isEmpty()) return;
+        negatives.invalidate(searchKey(query));
+        putEntry(searchKey(query), new CacheEntry<>(results, System.currentTimeMillis()));
+    }
+
+    /** Remembers, for the negative TTL, that mcmod.cn confirmed {@code query} finds nothing. */
+    public void putNoSearchResults(SearchQuery query) {
+        negatives.put(searchKey(query));
+    }
+
+    /**
+     * Returns the current search entry regardless of its age, or null if there is none;
+     * see {@link #getPageEntry}.
+     */
+    public @Nullable CacheEntry<List<SearchHit>> getSearchEntry(SearchQuery query) {
+        Type dataType = new TypeToken<List<SearchHit>>() {}.getType();
+        return readEntry(searchKey(query), false, dataType);
     }
 
     public @Nullable List<SearchHit> getSearchResultsStale(SearchQuery query) {
         Type dataType = new TypeToken<List<SearchHit>>() {}.getType();
-        return getEntry(staleSearchPath(query), STALE_RETENTION_MS, dataType);
+        return getEntry(searchKey(query), true, STALE_RETENTION_MS, dataType);
+    }
+
+    // === Search result pages ===
+
+    /**
+     * Returns one page of a paginated search, as fetched from {@code pageUrl}, or null if
+     * it is not cached or has expired. Entries are keyed by the URL's path and parameters
+     * (query, filter, page number) regardless of their order or encoding.
+     */
+    public @Nullable SearchPageBatch getSearchPage(String pageUrl) {
+        if (negatives.contains(searchPageKey(pageUrl))) {
+            return SearchPageBatch.noResults();
+        }
+        return getEntry(searchPageKey(pageUrl), false, SEARCH_TTL_MS, SearchPageBatch.class);
+    }
+
+    /**
+     * Stores a result page. A {@linkplain SearchPageBatch#confirmedEmpty() confirmed empty}
+     * one goes to the negative tier; other empty batches are dropped, as throttle and
+     * CAPTCHA pages parse as such and must never stand in for results.
+     */
+    public void putSearchPage(String pageUrl, SearchPageBatch batch) {
+        if (batch == null) return;
+        String key = searchPageKey(pageUrl);
+        if (batch.confirmedEmpty()) {
+            negatives.put(key);
+            return;
+        }
+        if (batch.results().isEmpty()) return;
+        negatives.invalidate(key);
+        putEntry(key, new CacheEntry<>(batch, System.currentTimeMillis()));
+    }
+
+    public @Nullable SearchPageBatch getSearchPageStale(String pageUrl) {
+        return getEntry(searchPageKey(pageUrl), true, STALE_RETENTION_MS, SearchPageBatch.class);
     }
 
     // === Page cache ===
 
     public @Nullable ItemPage getPage(String pageId) {
-        return getEntry(pagePath(pageId), PAGE_TTL_MS, ItemPage.class);
+        return getEntry(pageKey(pageId), false, PAGE_TTL_MS, ItemPage.class);
     }
 
     public void putPage(String pageId, ItemPage page) {
-        Path fresh = pagePath(pageId);
-        Path stale = stalePagePath(pageId);
-        moveToStale(fresh, stale);
-        saveEntry(fresh, page);
+        putPage(pageId, page, null);
+    }
+
+    /**
+     * Stores a page together with the validators of the response it was parsed from,
+     * so it can be revalidated with a conditional GET once it expires.
+     */
+    public void putPage(String pageId, ItemPage page, @Nullable CacheValidators validators) {
+        negatives.invalidate(pageKey(pageId));
+        putEntry(pageKey(pageId), new CacheEntry<>(page, System.currentTimeMillis(), validators));
+    }
+
+    /** Whether mcmod.cn confirmed, within the negative TTL, that there is no such page. */
+    public boolean isMissingPage(String pageId) {
+        return negatives.contains(pageKey(pageId));
+    }
+
+    /** Remembers, for the negative TTL, that mcmod.cn has no page {@code pageId}. */
+    public void putMissingPage(String pageId) {
+        negatives.put(pageKey(pageId));
+    }
+
+    /**
+     * Returns the current page entry regardless of its age — the candidate for conditional
+     * revalidation once {@link #getPage} has reported it expired — or null if there is none.
+     */
+    public @Nullable CacheEntry<ItemPage> getPageEntry(String pageId) {
+        return readEntry(pageKey(pageId), false, ItemPage.class);
+    }
+
+    /**
+     * Marks a page entry as fresh again after the server answered 304 Not Modified:
+     * only the timestamp changes, the stale copy is left alone.
+     */
+    public void touchPage(String pageId, CacheEntry<ItemPage> entry) {
+        String key = pageKey(pageId);
+        CacheEntry<ItemPage> touched = new CacheEntry<>(entry.data(), System.currentTimeMillis(), entry.validators());
+        byte[] payload = PageEntryCodec.encode(touched);
+        memory.put(key, touched, payload.length);
+        writeBehind.touch(key, touched, payload);
     }
 
     public @Nullable ItemPage getPageStale(String pageId) {
-        return getEntry(stalePagePath(pageId), STALE_RETENTION_MS, ItemPage.class);
+        return getEntry(pageKey(pageId), true, STALE_RETENTION_MS, ItemPage.class);
+    }
+
+    // === HTML archive ===
+
+    /**
+     * Keeps the HTML {@code pageId} was just parsed from, replacing what was archived for
+     * it before, so the page can be re-derived without the network after a schema bump.
+     */
+    public void archiveHtml(String pageId, String html, @Nullable CacheValidators validators) {
+        ArchivedPage archived = new ArchivedPage(html, System.currentTimeMillis(), validators);
+        // Same generation: an archive has no use for the HTML it replaces
+        archiveWriteBehind.touch(pageKey(pageId), new CacheEntry<>(archived, archived.fetchedAt()), archived.encode());
+    }
+
+    /** The HTML archived for {@code pageId}, or null if there is none. */
+    public @Nullable ArchivedPage getArchivedPage(String pageId) {
+        String key = pageKey(pageId);
+        List<CacheWriteBehind.Write> queued = archiveWriteBehind.pending(key);
+        if (queued != null) {
+            return (ArchivedPage) queued.getLast().entry().data();
+        }
+        byte[] stored = archive.readFresh(key);
+        if (stored == null) return null;
+        try {
+            return ArchivedPage.decode(archiveCompressor.decompress(key, stored));
+        } catch (Exception e) {
+            return null; // corrupted record → treat as missing
+        }
+    }
+
+    /**
+     * Stores a page re-derived from its archived HTML as if it had just been fetched at
+     * {@code archived.fetchedAt()}, so it expires and revalidates on the original schedule.
+     */
+    public void restorePage(String pageId, ArchivedPage archived, ItemPage page) {
+        putEntry(pageKey(pageId), new CacheEntry<>(page, archived.fetchedAt(), archived.validators()));
+    }
+
+    /** Ids of the archived pages that have no cache entry, such as all of them after a schema bump. */
+    List<String> archivedPagesWithoutEntry() {
+        return archive.keys().stream()
+            .filter(key -> !store.contains(key) && writeBehind.pending(key) == null)
+            .map(key -> key.substring(pageKey("").length()))
+            .toList();
+    }
+
+    /** Runs {@code task} on the cache's low-priority housekeeping thread. */
+    CompletableFuture<Void> runInBackground(Runnable task) {
+        return janitor.submit(task);
+    }
+
+    // === Async reads (each completes with null on a miss, like its blocking counterpart) ===
+
+    public CompletableFuture<List<SearchHit>> getSearchResultsAsync(SearchQuery query) {
+        if (negatives.contains(searchKey(query))) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return readAsync(searchKey(query), false, () -> getSearchResults(query));
+    }
+
+    public CompletableFuture<CacheEntry<List<SearchHit>>> getSearchEntryAsync(SearchQuery query) {
+        return readAsync(searchKey(query), false, () -> getSearchEntry(query));
+    }
+
+    public CompletableFuture<List<SearchHit>> getSearchResultsStaleAsync(SearchQuery query) {
+        return readAsync(searchKey(query), true, () -> getSearchResultsStale(query));
+    }
+
+    public CompletableFuture<SearchPageBatch> getSearchPageAsync(String pageUrl) {
+        if (negatives.contains(searchPageKey(pageUrl))) {
+            return CompletableFuture.completedFuture(SearchPageBatch.noResults());
+        }
+        return readAsync(searchPageKey(pageUrl), false, () -> getSearchPage(pageUrl));
+    }
+
+    public CompletableFuture<SearchPageBatch> getSearchPageStaleAsync(String pageUrl) {
+        return readAsync(searchPageKey(pageUrl), true, () -> getSearchPageStale(pageUrl));
+    }
+
+    public CompletableFuture<ItemPage> getPageAsync(String pageId) {
+        return readAsync(pageKey(pageId), false, () -> getPage(pageId));
+    }
+
+    public CompletableFuture<CacheEntry<ItemPage>> getPageEntryAsync(String pageId) {
+        return readAsync(pageKey(pageId), false, () -> getPageEntry(pageId));
+    }
+
+    public CompletableFuture<ItemPage> getPageStaleAsync(String pageId) {
+        return readAsync(pageKey(pageId), true, () -> getPageStale(pageId));
+    }
+
+    public CompletableFuture<ArchivedPage> getArchivedPageAsync(String pageId) {
+        if (archiveWriteBehind.pending(pageKey(pageId)) != null) {
+            return CompletableFuture.completedFuture(getArchivedPage(pageId));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> getArchivedPage(pageId), readExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(getArchivedPage(pageId)); // closed
+        }
     }
 
     public void clear() {
-        deleteDirectory(cacheDir);
+        writeBehind.discardAnd(() -> archiveWriteBehind.discardAnd(() -> {
+            memory.clear();
+            negatives.clear();
+            store.clear();
+            compressor.reset();
+            archive.clear();
+            archiveCompressor.reset();
+            deleteDirectory(cacheDir);
+            deleteDirectory(archiveDir);
+        }));
+    }
+
+    // === Cache packs ===
+
+    /**
+     * Maps every {@value CachePack#EXTENSION} file in {@code packDir} as a read-only tier
+     * below the store. Packs that cannot be read, or were built for another cache version,
+     * are logged and skipped.
+     *
+     * @return how many packs were mounted
+     */
+    public int mountPacks(Path packDir) {
+        if (!Files.isDirectory(packDir)) {
+            return 0;
+        }
+        List<Path> files;
+        try (var listing = Files.list(packDir)) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith(CachePack.EXTENSION))
+                .sorted()
+                .toList();
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[CacheLayer] listing cache packs in {} failed: {}", packDir, e.toString());
+            return 0;
+        }
+        int mounted = 0;
+        for (Path file : files) {
+            long start = System.nanoTime();
+            try {
+                CachePack pack = CachePack.open(file, CACHE_VERSION);
+                packs.addFirst(pack);
+                mounted++;
+                OmnisearchMod.LOGGER.info("[CacheLayer] mounted cache pack {}: {} entries in {} ms",
+                    file.getFileName(), pack.size(), (System.nanoTime() - start) / 1_000_000);
+            } catch (IOException e) {
+                OmnisearchMod.LOGGER.warn("[CacheLayer] skipping cache pack {}: {}", file, e.getMessage());
+            }
+        }
+        return mounted;
+    }
+
+    /**
+     * Writes the fresh copy of every stored entry to a cache pack at {@code target}, for a
+     * modpack to ship. Queued writes are flushed first; entries only a mounted pack holds
+     * are not included.
+     *
+     * @return how many entries the pack holds
+     */
+    public int exportPack(Path target) throws IOException {
+        writeBehind.flush();
+        CachePack.Builder builder = new CachePack.Builder(CACHE_VERSION);
+        for (String key : store.keys()) {
+            byte[] stored = store.readFresh(key);
+            if (stored == null) {
+                continue;
+            }
+            try {
+                builder.add(key, compressor.decompress(key, stored));
+            } catch (IllegalArgumentException e) {
+                // Unreadable here too; the pack just lacks it
+            }
+        }
+        builder.write(target, System.currentTimeMillis());
+        return builder.size();
+    }
+
+    /** Writes every queued cache write to disk now. */
+    public void flush() {
+        writeBehind.flush();
+        archiveWriteBehind.flush();
+    }
+
+    /**
+     * Drains the write-behind queue and stops the cache threads. Reads still work
+     * afterwards (on the caller's thread) and writes go straight to disk.
+     */
+    @Override
+    public void close() {
+        readExecutor.shutdown();
+        janitor.close();
+        writeBehind.close();
+        store.close();
+        archiveWriteBehind.close();
+        archive.close();
+        compressor.stats().forEach((kind, stats) -> {
+            if (stats.writes() > 0 || stats.reads() > 0) {
+                OmnisearchMod.LOGGER.info("[CacheLayer] {} entries: {} written at {}% of raw size ({} us each), {} read ({} us each){}",
+                    kind, stats.writes(), Math.round(stats.ratio() * 100), Math.round(stats.compressMicrosPerWrite()),
+                    stats.reads(), Math.round(stats.decompressMicrosPerRead()), stats.dictionary() ? ", dictionary" : "");
+            }
+        });
+    }
+
+    /** Hit, miss and eviction counts of the in-memory tier, plus its current weight. */
+    public TinyLfuCache.Stats memoryStats() {
+        return memory.stats();
+    }
+
+    /** Compression ratio and CPU time per entry type since startup. */
+    public Map<EntryCompressor.Kind, EntryCompressor.Stats> compressionStats() {
+        return compressor.stats();
+    }
+
+    /** Disk usage against the budget, and what the janitor has cleaned up so far. */
+    public CacheJanitor.Stats diskStats() {
+        return janitor.stats();
+    }
+
+    /** Runs a janitor sweep now, on the calling thread. */
+    void sweep() {
+        janitor.sweep();
+    }
+
+    SegmentStore.Stats storeStats() {
+        return store.stats();
+    }
+
+    static String searchKey(SearchQuery query) {
+        return "search/" + md5(query.text());
+    }
+
+    static String searchPageKey(String pageUrl) {
+        int query = pageUrl.indexOf('?');
+        String path = query < 0 ? pageUrl : pageUrl.substring(0, query);
+        Map<String, String> params = new TreeMap<>();
+        if (query >= 0) {
+            for (String pair : pageUrl.substring(query + 1).split("&")) {
+                if (pair.isEmpty()) continue;
+                int eq = pair.indexOf('=');
+                params.put(decode(eq < 0 ? pair : pair.substring(0, eq)), eq < 0 ? "" : decode(pair.substring(eq + 1)));
+            }
+        }
+        params.putIfAbsent("page", "1");
+        return "searchpage/" + md5(path + "?" + params);
+    }
+
+    static String pageKey(String pageId) {
+        return "page/" + pageId;
     }
 
     // === Internal methods ===
 
-    private @Nullable <T> T getEntry(Path path, long ttlMs, Type dataType) {
-        if (!Files.exists(path)) return null;
+    /**
+     * Runs {@code read} on the cache I/O pool unless the entry is already in memory (or
+     * still queued for writing), in which case no thread hop is worth its latency.
+     */
+    private <T> CompletableFuture<T> readAsync(String key, boolean stale, Supplier<T> read) {
+        if (memory.contains(memoryKey(key, stale)) || writeBehind.pending(key) != null) {
+            return CompletableFuture.completedFuture(read.get());
+        }
         try {
-            String json = Files.readString(path);
-            Type entryType = TypeToken.getParameterized(CacheEntry.class, dataType).getType();
-            CacheEntry<T> entry = gson.fromJson(json, entryType);
+            return CompletableFuture.supplyAsync(read, readExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(read.get()); // closed
+        }
+    }
+
+    private @Nullable <T> T getEntry(String key, boolean stale, long ttlMs, Type dataType) {
+        CacheEntry<T> entry = readEntry(key, stale, System.currentTimeMillis() - ttlMs, dataType);
+        if (entry == null) return null;
+        long age = System.currentTimeMillis() - entry.timestamp();
+        if (age > ttlMs) return null; // expired
+        return entry.data();
+    }
+
+    private @Nullable <T> CacheEntry<T> readEntry(String key, boolean stale, Type dataType) {
+        return readEntry(key, stale, Long.MIN_VALUE, dataType);
+    }
+
+    /**
+     * Memory, then the write-behind queue, then the segment store, then the cache packs. A
+     * stored record written before {@code notBefore} is a miss the store answers from its
+     * index, without reading or decompressing it.
+     */
+    @SuppressWarnings("unchecked")
+    private @Nullable <T> CacheEntry<T> readEntry(String key, boolean stale, long notBefore, Type dataType) {
+        String memoryKey = memoryKey(key, stale);
+        CacheEntry<?> resident = memory.get(memoryKey);
+        if (resident != null) {
+            janitor.recordAccess(key);
+            return (CacheEntry<T>) resident;
+        }
+
+        List<CacheWriteBehind.Write> queued = writeBehind.pending(key);
+        byte[] stored;
+        if (queued == null) {
+            stored = stale ? store.readStale(key, notBefore) : store.readFresh(key, notBefore);
+        } else if (!stale || queued.size() == 2) {
+            CacheWriteBehind.Write write = stale ? queued.getFirst() : queued.getLast();
+            memory.put(memoryKey, write.entry(), write.payload().length);
+            janitor.recordAccess(key);
+            return (CacheEntry<T>) write.entry();
+        } else {
+            // One queued version: a new generation demotes the stored fresh entry to stale,
+            // a refresh keeps the stored stale entry
+            stored = queued.getFirst().newGeneration() ? store.readFresh(key, notBefore) : store.readStale(key, notBefore);
+        }
+        if (stored == null && packs.isEmpty()) return null;
+        try {
+            byte[] payload = stored != null ? compressor.decompress(key, stored) : readPacks(key);
+            if (payload == null) return null;
+            CacheEntry<T> entry = deserialize(payload, dataType);
             if (entry == null || entry.data() == null) return null;
             // Treat empty lists as cache miss (prevent stale empty cache from blocking fetches)
             if (entry.data() instanceof List && ((List<?>) entry.data()).isEmpty()) return null;
-            long age = System.currentTimeMillis() - entry.timestamp();
-            if (age > ttlMs) return null; // expired
-            return entry.data();
+            memory.put(memoryKey, entry, payload.length);
+            janitor.recordAccess(key);
+            if (entry.data() instanceof ItemPage page) {
+                decodeRemainingInBackground(page);
+            }
+            return entry;
         } catch (Exception e) {
-            return null; // corrupted file → treat as cache miss
+            return null; // corrupted record → treat as cache miss
         }
     }
 
-    private <T> void saveEntry(Path path, T data) {
-        try {
-            Files.createDirectories(path.getParent());
-            CacheEntry<T> entry = new CacheEntry<>(data, System.currentTimeMillis());
-            String json = gson.toJson(entry);
-            Files.writeString(path, json);
-        } catch (IOException e) {
-            // Cache write failure is non-fatal
+    /** The entry the newest mounted pack holds for {@code key}, serialized. */
+    private @Nullable byte[] readPacks(String key) {
+        for (CachePack pack : packs) {
+            byte[] payload = pack.read(key);
+            if (payload != null) {
+                return payload;
+            }
         }
+        return null;
     }
 
-    private void moveToStale(Path fresh, Path stale) {
-        if (Files.exists(fresh)) {
-            try {
-                Files.createDirectories(stale.getParent());
-                Files.move(fresh, stale, StandardCopyOption.REPLACE_EXISTING);
-            } catch (IOException ignored) {
-                // Stale move failure is non-fatal; new cache will still be written
-            }
-        }
+    /**
+     * Stores {@code entry}, timestamp as given, as a new generation of {@code key}; the
+     * previous one becomes the stale copy.
+     */
+    <T> void putEntry(String key, CacheEntry<T> entry) {
+        byte[] payload = serialize(entry);
+        memory.invalidate(memoryKey(key, true));
+        memory.put(key, entry, payload.length);
+        writeBehind.put(key, entry, payload);
     }
 
-    private Path searchPath(SearchQuery query) {
-        return cacheDir.resolve("search").resolve("v" + CACHE_VERSION + "_" + md5(query.text()) + ".json");
+    @SuppressWarnings("unchecked")
+    private byte[] serialize(CacheEntry<?> entry) {
+        if (entry.data() instanceof ItemPage) {
+            return PageEntryCodec.encode((CacheEntry<ItemPage>) entry);
+        }
+        return gson.toJson(entry).getBytes(StandardCharsets.UTF_8);
     }
 
-    private Path staleSearchPath(SearchQuery query) {
-        return cacheDir.resolve("stale").resolve("search").resolve("v" + CACHE_VERSION + "_" + md5(query.text()) + ".json");
+    @SuppressWarnings("unchecked")
+    private <T> CacheEntry<T> deserialize(byte[] payload, Type dataType) {
+        if (dataType == ItemPage.class) {
+            return (CacheEntry<T>) PageEntryCodec.decode(payload);
+        }
+        Type entryType = TypeToken.getParameterized(CacheEntry.class, dataType).getType();
+        return gson.fromJson(new String(payload, StandardCharsets.UTF_8), entryType);
     }
 
-    private Path pagePath(String pageId) {
-        return cacheDir.resolve("page").resolve("v" + CACHE_VERSION + "_" + pageId.replace("/", "_") + ".json");
+    /** Finishes decoding a page's document off the caller's thread, ahead of its layout. */
+    private void decodeRemainingInBackground(ItemPage page) {
+        try {
+            readExecutor.execute(() -> DocumentCodec.decodeRemaining(page.document()));
+        } catch (RejectedExecutionException e) {
+            // Closed; the remaining sections decode on first access
+        }
     }
 
-    private Path stalePagePath(String pageId) {
-        return cacheDir.resolve("stale").resolve("page").resolve("v" + CACHE_VERSION + "_" + pageId.replace("/", "_") + ".json");
+    private static String memoryKey(String key, boolean stale) {
+        return stale ? "stale/" + key : key;
     }
 
     private static String md5(String input) {
@@ -158,10 +764,20 @@ public class CacheLayer {
         }
     }
 
+    private static String decode(String component) {
+        try {
+            return URLDecoder.decode(component, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return component; // malformed escape; the raw text still keys consistently
+        }
+    }
+
+    /** Deletes {@code dir} except the stores' lock files, which other processes may hold. */
     private static void deleteDirectory(Path dir) {
         if (!Files.exists(dir)) return;
         try {
             Files.walk(dir)
+                .filter(path -> !path.getFileName().toString().equals(SegmentStore.LOCK_FILE))
                 .sorted(Comparator.reverseOrder())
                 .forEach(path -> {
                     try {
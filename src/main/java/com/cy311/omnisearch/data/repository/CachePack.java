@@ -0,0 +1,309 @@
+package com.cy311.omnisearch.data.repository;
+
+import com.cy311.omnisearch.OmnisearchMod;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only file of pre-built cache entries that a modpack can ship, so its players'
+ * first lookups need no network. {@link CacheLayer} consults mounted packs below its
+ * own store ({@link CacheLayer#mountPacks}); entries it stores later shadow them.
+ * <p>
+ * The file is memory-mapped, not read: opening a pack reads only its header and
+ * dictionaries, and a lookup binary-searches the index and compares keys in the mapping,
+ * then inflates the entry straight from it. Layout (big-endian):
+ * <pre>
+ *   header      magic "OSPK", format version, cache schema version, entry count (ints),
+ *               index offset, creation time (longs)
+ *   dictionaries per {@link EntryCompressor.Kind}, in order: length (int), bytes
+ *   entries     key length (int), key (UTF-8), payload length (int), CRC-32 of the payload (int),
+ *               payload (an {@link EntryCompressor} record)
+ *   index       per entry, sorted: 64-bit FNV-1a hash of the key, entry offset (longs)
+ * </pre>
+ * Payloads are the serialized entries {@link CacheLayer} stores, compressed with the
+ * pack's own dictionaries, which {@link Builder} trains from the entries it is given. A
+ * pack built for another {@link CacheLayer#CACHE_VERSION} cannot be decoded and is
+ * refused when opened. An entry failing its checksum is a miss.
+ */
+final class CachePack {
+
+    static final String EXTENSION = ".ospack";
+    static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x4F53504B; // "OSPK"
+    private static final int HEADER_BYTES = 32;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    // Entries per kind the dictionaries are trained from
+    private static final int TRAINING_SAMPLES = 64;
+
+    private final Path file;
+    private final ByteBuffer mapped;
+    private final int count;
+    private final int indexOffset;
+    private final long createdAt;
+    private final EntryCompressor compressor;
+
+    private CachePack(Path file, ByteBuffer mapped, int count, int indexOffset, long createdAt,
+                      EntryCompressor compressor) {
+        this.file = file;
+        this.mapped = mapped;
+        this.count = count;
+        this.indexOffset = indexOffset;
+        this.createdAt = createdAt;
+        this.compressor = compressor;
+    }
+
+    /**
+     * Maps {@code file} and checks its header.
+     *
+     * @throws IOException if it cannot be read, is not a pack, or holds entries of another
+     *                     format or schema version
+     */
+    static CachePack open(Path file, int schemaVersion) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("pack is larger than 2 GB");
+            }
+            // The mapping outlives the channel
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (mapped.limit() < HEADER_BYTES || mapped.getInt(0) != MAGIC) {
+                throw new IOException("not a cache pack");
+            }
+            if (mapped.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("pack format " + mapped.getInt(4) + ", expected " + FORMAT_VERSION);
+            }
+            if (mapped.getInt(8) != schemaVersion) {
+                throw new IOException("pack built for cache version " + mapped.getInt(8) + ", expected " + schemaVersion);
+            }
+            int count = mapped.getInt(12);
+            long indexOffset = mapped.getLong(16);
+            if (count < 0 || indexOffset < HEADER_BYTES
+                || indexOffset + (long) count * INDEX_ENTRY_BYTES != mapped.limit()) {
+                throw new IOException("pack index is damaged");
+            }
+            Map<EntryCompressor.Kind, byte[]> dictionaries = new EnumMap<>(EntryCompressor.Kind.class);
+            int position = HEADER_BYTES;
+            for (EntryCompressor.Kind kind : EntryCompressor.Kind.values()) {
+                int length = mapped.getInt(position);
+                if (length < 0 || position + 4L + length > indexOffset) {
+                    throw new IOException("pack dictionaries are damaged");
+                }
+                byte[] dictionary = new byte[length];
+                mapped.get(position + 4, dictionary);
+                dictionaries.put(kind, dictionary);
+                position += 4 + length;
+            }
+            return new CachePack(file, mapped, count, (int) indexOffset, mapped.getLong(24),
+                new EntryCompressor(dictionaries));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("pack is truncated", e);
+        }
+    }
+
+    /** The serialized entry stored under {@code key}, or null if the pack has none or it is damaged. */
+    @Nullable byte[] read(String key) {
+        ByteBuffer payload = find(key);
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return compressor.decompress(key, payload);
+        } catch (IllegalArgumentException e) {
+            OmnisearchMod.LOGGER.debug("[CachePack] {} in {} is unreadable: {}", key, file, e.getMessage());
+            return null;
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    /** When the pack was built, as its builder said. */
+    long createdAt() {
+        return createdAt;
+    }
+
+    // ──────────────────────────────────────────────
+    // Lookup
+    // ──────────────────────────────────────────────
+
+    /** The compressed payload of {@code key}, a view into the mapping with its checksum verified. */
+    private @Nullable ByteBuffer find(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = hash(keyBytes);
+        // First index slot whose hash is not below the key's
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(mapped.getLong(indexOffset + mid * INDEX_ENTRY_BYTES), hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        ByteBuffer wanted = ByteBuffer.wrap(keyBytes);
+        // Keys whose hashes collide sit next to each other
+        for (int slot = low; slot < count && mapped.getLong(indexOffset + slot * INDEX_ENTRY_BYTES) == hash; slot++) {
+            try {
+                int offset = (int) mapped.getLong(indexOffset + slot * INDEX_ENTRY_BYTES + 8);
+                int keyLength = mapped.getInt(offset);
+                if (keyLength != keyBytes.length || !mapped.slice(offset + 4, keyLength).equals(wanted)) {
+                    continue;
+                }
+                int payloadOffset = offset + 4 + keyLength;
+                int payloadLength = mapped.getInt(payloadOffset);
+                ByteBuffer payload = mapped.slice(payloadOffset + 8, payloadLength);
+                if (crc(payload) != mapped.getInt(payloadOffset + 4)) {
+                    OmnisearchMod.LOGGER.debug("[CachePack] {} in {} fails its checksum", key, file);
+                    return null;
+                }
+                return payload;
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                return null; // damaged offsets
+            }
+        }
+        return null;
+    }
+
+    /** 64-bit FNV-1a. */
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static int crc(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    // ──────────────────────────────────────────────
+    // Building
+    // ──────────────────────────────────────────────
+
+    /**
+     * Collects serialized entries and writes them as a pack. The first entries of each kind
+     * are held back until its dictionary is trained from them; later ones are compressed as
+     * they arrive. Adding a key again replaces its entry.
+     */
+    static final class Builder {
+
+        private final int schemaVersion;
+        private final Map<EntryCompressor.Kind, byte[]> dictionaries = new EnumMap<>(EntryCompressor.Kind.class);
+        private final Map<EntryCompressor.Kind, Map<String, byte[]>> waiting = new EnumMap<>(EntryCompressor.Kind.class);
+        private final TreeMap<String, byte[]> compressed = new TreeMap<>();
+        private EntryCompressor compressor = new EntryCompressor(Map.of());
+
+        Builder(int schemaVersion) {
+            this.schemaVersion = schemaVersion;
+        }
+
+        /** Adds {@code payload}, the serialized entry {@link CacheLayer} stores under {@code key}. */
+        Builder add(String key, byte[] payload) {
+            EntryCompressor.Kind kind = EntryCompressor.Kind.of(key);
+            if (dictionaries.containsKey(kind)) {
+                compressed.put(key, compressor.compress(key, payload));
+                return this;
+            }
+            Map<String, byte[]> held = waiting.computeIfAbsent(kind, k -> new TreeMap<>());
+            held.put(key, payload);
+            if (held.size() >= TRAINING_SAMPLES) {
+                train(kind);
+            }
+            return this;
+        }
+
+        int size() {
+            return compressed.size() + waiting.values().stream().mapToInt(Map::size).sum();
+        }
+
+        /** Writes the pack to {@code target}, replacing it atomically. */
+        void write(Path target, long createdAt) throws IOException {
+            for (EntryCompressor.Kind kind : EntryCompressor.Kind.values()) {
+                if (!dictionaries.containsKey(kind)) {
+                    train(kind);
+                }
+            }
+            List<long[]> index = new ArrayList<>(compressed.size());
+            Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(schemaVersion);
+                out.writeInt(compressed.size());
+                out.writeLong(0); // index offset, known at the end
+                out.writeLong(createdAt);
+                for (EntryCompressor.Kind kind : EntryCompressor.Kind.values()) {
+                    byte[] dictionary = dictionaries.get(kind);
+                    out.writeInt(dictionary.length);
+                    out.write(dictionary);
+                }
+                for (Map.Entry<String, byte[]> entry : compressed.entrySet()) {
+                    byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    index.add(new long[] {hash(key), out.size()});
+                    out.writeInt(key.length);
+                    out.write(key);
+                    out.writeInt(entry.getValue().length);
+                    out.writeInt(crc(ByteBuffer.wrap(entry.getValue())));
+                    out.write(entry.getValue());
+                }
+                if (out.size() == Integer.MAX_VALUE) {
+                    throw new IOException("pack would be larger than 2 GB");
+                }
+                index.sort((a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(a[1], b[1]));
+                for (long[] slot : index) {
+                    out.writeLong(slot[0]);
+                    out.writeLong(slot[1]);
+                }
+            }
+            long indexOffset = Files.size(tmp) - (long) index.size() * INDEX_ENTRY_BYTES;
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(8).putLong(0, indexOffset), 16);
+                channel.force(true);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /** Trains the dictionary of {@code kind} from its held-back entries, then compresses them. */
+        private void train(EntryCompressor.Kind kind) {
+            Map<String, byte[]> held = waiting.getOrDefault(kind, Map.of());
+            List<byte[]> samples = new ArrayList<>(held.size());
+            for (byte[] payload : held.values()) {
+                samples.add(payload.length > EntryCompressor.MAX_SAMPLE_BYTES
+                    ? Arrays.copyOf(payload, EntryCompressor.MAX_SAMPLE_BYTES)
+                    : payload);
+            }
+            dictionaries.put(kind, samples.isEmpty()
+                ? new byte[0]
+                : DictionaryTrainer.train(samples, DictionaryTrainer.MAX_DICTIONARY_BYTES));
+            compressor = new EntryCompressor(dictionaries);
+            held.forEach((key, payload) -> compressed.put(key, compressor.compress(key, payload)));
+            waiting.remove(kind);
+        }
+    }
+}
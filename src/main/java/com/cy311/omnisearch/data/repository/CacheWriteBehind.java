@@ -0,0 +1,220 @@
+package com.cy311.omnisearch.data.repository;
+
+import com.cy311.omnisearch.OmnisearchMod;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Coalescing write-behind queue in front of {@link CacheLayer}'s {@link SegmentStore}.
+ * <p>
+ * Writes are recorded per key and appended in batches on a single writer thread, either
+ * {@code flushDelayMs} after the first pending write or as soon as {@code batchSize} keys
+ * are pending. A key keeps at most its last two queued versions — the fresh one and the
+ * one it superseded, which becomes the stale generation — so a page stored five times in
+ * quick succession costs two records. Until a write reaches the store it stays visible
+ * through {@link #pending}, letting readers see their own writes. After each flush the
+ * store gets a chance to compact, still on the writer thread. Payloads pass through an
+ * {@code encoder} (compression) on their way into the store, so that work is also off the
+ * caller's thread; queued writes keep the payload as given. {@link #close()} flushes
+ * whatever is queued; after that, writes go straight to the store on the calling thread.
+ */
+final class CacheWriteBehind implements AutoCloseable {
+
+    /**
+     * A queued version of a key's entry. {@code newGeneration} false means it replaces the
+     * current generation (a timestamp refresh) instead of superseding it.
+     */
+    record Write(CacheEntry<?> entry, byte[] payload, boolean newGeneration) {}
+
+    private final SegmentStore store;
+    private final BiFunction<String, byte[], byte[]> encoder;
+    // Guarded by this; each value is an immutable list of one or two writes, oldest first
+    private final Map<String, List<Write>> pending = new LinkedHashMap<>();
+    // The batch being appended right now; still visible to readers until it is in the store
+    private Map<String, List<Write>> inFlight = Map.of();
+    // Held while the store changes, so clear() cannot interleave with a flush
+    private final Object storeLock = new Object();
+    private final ScheduledExecutorService writer;
+    private final long flushDelayMs;
+    private final int batchSize;
+    private @Nullable ScheduledFuture<?> scheduledFlush;
+    private boolean closed;
+
+    CacheWriteBehind(SegmentStore store, long flushDelayMs, int batchSize) {
+        this(store, (key, payload) -> payload, flushDelayMs, batchSize);
+    }
+
+    /**
+     * @param encoder turns a key's queued payload into the bytes stored for it
+     */
+    CacheWriteBehind(SegmentStore store, BiFunction<String, byte[], byte[]> encoder, long flushDelayMs, int batchSize) {
+        this.store = store;
+        this.encoder = encoder;
+        this.flushDelayMs = flushDelayMs;
+        this.batchSize = batchSize;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "omnisearch-cache-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** The queued versions of {@code key}, oldest first, or null if the store is current. */
+    synchronized @Nullable List<Write> pending(String key) {
+        List<Write> flushing = inFlight.get(key);
+        List<Write> queued = pending.get(key);
+        if (flushing == null || queued == null) {
+            return queued != null ? queued : flushing;
+        }
+        List<Write> combined = flushing;
+        for (Write write : queued) {
+            combined = coalesce(combined, write);
+        }
+        return combined;
+    }
+
+    /** Queues a new generation of {@code key}; the current one becomes its stale copy. */
+    void put(String key, CacheEntry<?> entry, byte[] payload) {
+        enqueue(key, new Write(entry, payload, true));
+    }
+
+    /** Queues a refreshed copy of {@code key}'s current generation; its stale copy stays. */
+    void touch(String key, CacheEntry<?> entry, byte[] payload) {
+        enqueue(key, new Write(entry, payload, false));
+    }
+
+    /** Appends every pending write to the store on the calling thread. */
+    void flush() {
+        synchronized (storeLock) {
+            Map<String, List<Write>> batch;
+            synchronized (this) {
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                // Writes queued from here on are relative to the store with this batch applied
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+                inFlight = batch;
+            }
+            try {
+                List<SegmentStore.Write> records = new ArrayList<>();
+                batch.forEach((key, writes) -> {
+                    for (Write write : writes) {
+                        records.add(new SegmentStore.Write(key, write.newGeneration(), write.entry().timestamp(),
+                            encoder.apply(key, write.payload())));
+                    }
+                });
+                store.write(records);
+            } finally {
+                synchronized (this) {
+                    inFlight = Map.of();
+                }
+            }
+            store.compactIfNeeded();
+        }
+    }
+
+    /** Drops every pending write and runs {@code action} with no flush in progress. */
+    void discardAnd(Runnable action) {
+        synchronized (storeLock) {
+            synchronized (this) {
+                pending.clear();
+                if (scheduledFlush != null) {
+                    scheduledFlush.cancel(false);
+                    scheduledFlush = null;
+                }
+            }
+            action.run();
+        }
+    }
+
+    /** Runs {@code action} with no flush in progress; queued writes stay queued. */
+    void runExclusive(Runnable action) {
+        synchronized (storeLock) {
+            action.run();
+        }
+    }
+
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /** Flushes the queue and stops the writer thread; later writes are synchronous. */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        writer.shutdown();
+        flush();
+    }
+
+    // ──────────────────────────────────────────────
+    // Queueing
+    // ──────────────────────────────────────────────
+
+    private void enqueue(String key, Write write) {
+        boolean writeThrough;
+        synchronized (this) {
+            List<Write> queued = pending.get(key);
+            pending.put(key, queued == null ? List.of(write) : coalesce(queued, write));
+            writeThrough = closed;
+            if (!writeThrough) {
+                if (pending.size() >= batchSize) {
+                    if (scheduledFlush != null) {
+                        scheduledFlush.cancel(false);
+                    }
+                    submitFlush(0);
+                } else if (scheduledFlush == null) {
+                    submitFlush(flushDelayMs);
+                }
+            }
+        }
+        if (writeThrough) {
+            flush();
+        }
+    }
+
+    /** Adds {@code write} to a key's queued versions, keeping the last two. */
+    private static List<Write> coalesce(List<Write> queued, Write write) {
+        Write last = queued.getLast();
+        if (!write.newGeneration()) {
+            // Same generation as the last queued version, so it takes over that version's role
+            List<Write> replaced = new ArrayList<>(queued);
+            replaced.set(replaced.size() - 1, new Write(write.entry(), write.payload(), last.newGeneration()));
+            return List.copyOf(replaced);
+        }
+        return List.of(last, write);
+    }
+
+    private void submitFlush(long delayMs) {
+        try {
+            scheduledFlush = writer.schedule(this::flushQuietly, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Closing; close() flushes what is left
+            scheduledFlush = null;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            OmnisearchMod.LOGGER.warn("[CacheWriteBehind] flush failed: {}", e.toString());
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds a Deflate preset dictionary from sample cache entries.
+ * <p>
+ * A simplified form of zstd's COVER algorithm: every 8-byte substring ("k-mer") is scored by
+ * how many samples share it, the samples are split into one epoch per dictionary segment,
+ * and each epoch contributes its best-scoring 64-byte segment. Once a segment is picked its
+ * k-mers score zero, so later segments add new content instead of repeating it. Deflate
+ * prefers near matches, so the segments are laid out with the most valuable last, closest
+ * to the data being compressed.
+ */
+final class DictionaryTrainer {
+
+    /** Deflate's window; dictionary bytes beyond it could never be referenced. */
+    static final int MAX_DICTIONARY_BYTES = 32 * 1024;
+    private static final int KMER = 8;
+    private static final int SEGMENT = 64;
+
+    private record Segment(byte[] sample, int start, long score) {}
+
+    private DictionaryTrainer() {}
+
+    /**
+     * @return a dictionary of at most {@code maxBytes}, empty if the samples share nothing
+     */
+    static byte[] train(List<byte[]> samples, int maxBytes) {
+        int limit = Math.min(maxBytes, MAX_DICTIONARY_BYTES);
+        Map<Long, Integer> frequency = new HashMap<>();
+        long totalBytes = 0;
+        for (byte[] sample : samples) {
+            Set<Long> seen = new HashSet<>();
+            for (int i = 0; i + KMER <= sample.length; i++) {
+                seen.add(kmer(sample, i));
+            }
+            for (Long kmer : seen) {
+                frequency.merge(kmer, 1, Integer::sum);
+            }
+            totalBytes += sample.length;
+        }
+
+        long epochBytes = Math.max(SEGMENT, totalBytes / Math.max(1, limit / SEGMENT));
+        List<Segment> chosen = new ArrayList<>();
+        int sampleIndex = 0;
+        int offset = 0;
+        while (sampleIndex < samples.size()) {
+            Segment best = null;
+            long taken = 0;
+            // An epoch may span the tail of one sample and the head of the next
+            while (sampleIndex < samples.size() && taken < epochBytes) {
+                byte[] sample = samples.get(sampleIndex);
+                int end = (int) Math.min(sample.length, offset + (epochBytes - taken));
+                Segment candidate = bestSegment(sample, offset, end, frequency);
+                if (candidate != null && (best == null || candidate.score() > best.score())) {
+                    best = candidate;
+                }
+                taken += end - offset;
+                if (end == sample.length) {
+                    sampleIndex++;
+                    offset = 0;
+                } else {
+                    offset = end;
+                }
+            }
+            if (best != null && best.score() > 0) {
+                chosen.add(best);
+                for (int i = best.start(); i + KMER <= best.start() + SEGMENT; i++) {
+                    frequency.remove(kmer(best.sample(), i));
+                }
+            }
+        }
+
+        chosen.sort(Comparator.comparingLong(Segment::score));
+        ByteArrayOutputStream out = new ByteArrayOutputStream(limit);
+        for (int i = Math.max(0, chosen.size() - limit / SEGMENT); i < chosen.size(); i++) {
+            out.write(chosen.get(i).sample(), chosen.get(i).start(), SEGMENT);
+        }
+        return out.toByteArray();
+    }
+
+    /** The highest-scoring segment within {@code sample[from, to)}, or null if none fits. */
+    private static @Nullable Segment bestSegment(byte[] sample, int from, int to, Map<Long, Integer> frequency) {
+        if (to - from < SEGMENT) {
+            return null;
+        }
+        long window = 0;
+        for (int i = from; i <= from + SEGMENT - KMER; i++) {
+            window += score(sample, i, frequency);
+        }
+        Segment best = new Segment(sample, from, window);
+        for (int start = from + 1; start + SEGMENT <= to; start++) {
+            window += score(sample, start + SEGMENT - KMER, frequency) - score(sample, start - 1, frequency);
+            if (window > best.score()) {
+                best = new Segment(sample, start, window);
+            }
+        }
+        return best;
+    }
+
+    /** Samples sharing the k-mer at {@code i}, beyond the one it was seen in. */
+    private static int score(byte[] sample, int i, Map<Long, Integer> frequency) {
+        return Math.max(0, frequency.getOrDefault(kmer(sample, i), 0) - 1);
+    }
+
+    private static long kmer(byte[] data, int i) {
+        long value = 0;
+        for (int j = 0; j < KMER; j++) {
+            value = (value << 8) | (data[i + j] & 0xFF);
+        }
+        return value;
+    }
+}
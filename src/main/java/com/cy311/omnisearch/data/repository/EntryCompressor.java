@@ -0,0 +1,465 @@
+package com.cy311.omnisearch.data.repository;
+
+import com.cy311.omnisearch.OmnisearchMod;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Transparent Deflate compression of cache entries, with a preset dictionary per entry
+ * {@link Kind} trained from the entries the cache itself stores.
+ * <p>
+ * Until a kind has a dictionary, its entries are compressed without one while the first
+ * {@link #TRAINING_SAMPLES} of them are kept as samples; the dictionary is then trained
+ * ({@link DictionaryTrainer}), saved as {@code <kind>-v<schema>.dict} and used for every
+ * later entry. A dictionary is never replaced within a schema version — entries compressed
+ * with it must stay readable — and dictionaries of other schema versions are deleted on load.
+ * <p>
+ * Several processes sharing a cache directory converge on one dictionary per kind: the
+ * first to save its dictionary wins, and a process that finds one already saved adopts it
+ * instead of its own. An entry naming a dictionary this process does not have makes it
+ * look for a newly saved one, at most every {@link #RECHECK_INTERVAL_MS}.
+ * <p>
+ * A compressor built from given dictionaries ({@link #EntryCompressor(Map)}) has no
+ * directory: it neither trains nor saves, as for the read-only {@link CachePack}s.
+ * <p>
+ * Stored format: a mode byte, then for {@link #DEFLATE} and {@link #DEFLATE_DICT} the raw
+ * length (int), for {@link #DEFLATE_DICT} the dictionary's Adler-32 (int), then a raw Deflate
+ * stream. Entries too small to gain anything, or that do not shrink, are {@link #STORED}.
+ * <p>
+ * Thread-safe. Per-kind ratio and CPU time are available from {@link #stats()}.
+ */
+public final class EntryCompressor {
+
+    /** Entry types, each with its own dictionary, told apart by their store key. */
+    public enum Kind {
+        SEARCH, PAGE;
+
+        static Kind of(String key) {
+            return key.startsWith("page/") ? PAGE : SEARCH;
+        }
+
+        private String fileName(int schemaVersion) {
+            return name().toLowerCase(Locale.ROOT) + "-v" + schemaVersion + ".dict";
+        }
+    }
+
+    /**
+     * Per-kind counters since startup.
+     *
+     * @param rawBytes    uncompressed bytes of the entries written
+     * @param storedBytes bytes those entries took after compression
+     */
+    public record Stats(long writes, long rawBytes, long storedBytes, long compressNanos,
+                        long reads, long decompressNanos, boolean dictionary) {
+        /** Stored size as a fraction of the raw size; 1 before anything is written. */
+        public double ratio() {
+            return rawBytes == 0 ? 1.0 : (double) storedBytes / rawBytes;
+        }
+
+        public double compressMicrosPerWrite() {
+            return writes == 0 ? 0 : compressNanos / 1e3 / writes;
+        }
+
+        public double decompressMicrosPerRead() {
+            return reads == 0 ? 0 : decompressNanos / 1e3 / reads;
+        }
+    }
+
+    static final byte STORED = 0;
+    static final byte DEFLATE = 1;
+    static final byte DEFLATE_DICT = 2;
+
+    static final int TRAINING_SAMPLES = 48;
+    // Samples are truncated so one huge page cannot dominate the dictionary
+    static final int MAX_SAMPLE_BYTES = 16 * 1024;
+    private static final int MIN_COMPRESS_BYTES = 64;
+    private static final Pattern DICT_NAME = Pattern.compile("(\\w+)-v(\\d+)\\.dict");
+    static final long RECHECK_INTERVAL_MS = 10_000;
+
+    private final @Nullable Path dir;
+    private final int schemaVersion;
+    private final int trainingSamples;
+
+    // Guarded by this
+    private final Map<Kind, byte[]> dictionaries = new EnumMap<>(Kind.class);
+    private final Map<Kind, Integer> dictionaryIds = new EnumMap<>(Kind.class);
+    private final Map<Kind, List<byte[]>> samples = new EnumMap<>(Kind.class);
+    private final Map<Kind, Counters> counters = new EnumMap<>(Kind.class);
+    private final Map<Kind, Long> lastRecheck = new EnumMap<>(Kind.class);
+    private boolean loaded;
+
+    EntryCompressor(Path dir, int schemaVersion) {
+        this(dir, schemaVersion, TRAINING_SAMPLES);
+    }
+
+    EntryCompressor(Path dir, int schemaVersion, int trainingSamples) {
+        this.dir = dir;
+        this.schemaVersion = schemaVersion;
+        this.trainingSamples = trainingSamples;
+        for (Kind kind : Kind.values()) {
+            counters.put(kind, new Counters());
+        }
+    }
+
+    /** A compressor that uses exactly {@code dictionaries}; kinds without one are compressed without. */
+    EntryCompressor(Map<Kind, byte[]> dictionaries) {
+        this.dir = null;
+        this.schemaVersion = 0;
+        this.trainingSamples = 0;
+        for (Kind kind : Kind.values()) {
+            counters.put(kind, new Counters());
+        }
+        dictionaries.forEach((kind, dictionary) -> {
+            if (dictionary.length > 0) {
+                this.dictionaries.put(kind, dictionary);
+                this.dictionaryIds.put(kind, adler(dictionary));
+            }
+        });
+        this.loaded = true;
+    }
+
+    /** Compresses {@code raw}, the serialized entry stored under {@code key}. */
+    byte[] compress(String key, byte[] raw) {
+        Kind kind = Kind.of(key);
+        long start = System.nanoTime();
+        byte[] dictionary = dictionaryFor(kind, raw);
+        byte[] stored = raw.length < MIN_COMPRESS_BYTES ? null : deflate(raw, dictionary);
+        if (stored == null) {
+            stored = new byte[raw.length + 1];
+            stored[0] = STORED;
+            System.arraycopy(raw, 0, stored, 1, raw.length);
+        }
+        recordWrite(kind, raw.length, stored.length, System.nanoTime() - start);
+        return stored;
+    }
+
+    /**
+     * Restores what {@link #compress} was given.
+     *
+     * @throws IllegalArgumentException if the data is damaged or needs an unknown dictionary
+     */
+    byte[] decompress(String key, byte[] stored) {
+        return decompress(key, ByteBuffer.wrap(stored));
+    }
+
+    /**
+     * Restores what {@link #compress} was given from the remaining bytes of {@code stored},
+     * which are read in place (a memory-mapped buffer is not copied) and not consumed.
+     *
+     * @throws IllegalArgumentException if the data is damaged or needs an unknown dictionary
+     */
+    byte[] decompress(String key, ByteBuffer stored) {
+        Kind kind = Kind.of(key);
+        long start = System.nanoTime();
+        if (!stored.hasRemaining()) {
+            throw new IllegalArgumentException("Empty cache record");
+        }
+        byte[] raw;
+        ByteBuffer header = stored.slice();
+        byte mode = header.get();
+        if (mode == STORED) {
+            raw = new byte[header.remaining()];
+            header.get(raw);
+        } else if (mode == DEFLATE || mode == DEFLATE_DICT) {
+            if (header.remaining() < (mode == DEFLATE_DICT ? 8 : 4)) {
+                throw new IllegalArgumentException("Compressed entry is truncated");
+            }
+            int length = header.getInt();
+            byte[] dictionary = null;
+            if (mode == DEFLATE_DICT) {
+                int id = header.getInt();
+                dictionary = dictionary(kind, id);
+                if (dictionary == null) {
+                    throw new IllegalArgumentException("Unknown " + kind + " dictionary " + Integer.toHexString(id));
+                }
+            }
+            raw = inflate(header, length, dictionary);
+        } else {
+            throw new IllegalArgumentException("Unknown compression mode " + mode);
+        }
+        recordRead(kind, System.nanoTime() - start);
+        return raw;
+    }
+
+    public synchronized Map<Kind, Stats> stats() {
+        ensureLoaded();
+        Map<Kind, Stats> stats = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            Counters c = counters.get(kind);
+            stats.put(kind, new Stats(c.writes, c.rawBytes, c.storedBytes, c.compressNanos,
+                c.reads, c.decompressNanos, dictionaries.containsKey(kind)));
+        }
+        return stats;
+    }
+
+    /** Forgets every dictionary and sample (the cache was cleared along with its files). */
+    synchronized void reset() {
+        dictionaries.clear();
+        dictionaryIds.clear();
+        samples.clear();
+        loaded = false;
+    }
+
+    // ──────────────────────────────────────────────
+    // Dictionaries
+    // ──────────────────────────────────────────────
+
+    /** The dictionary to compress with; collects {@code raw} as a sample until one exists. */
+    private @Nullable byte[] dictionaryFor(Kind kind, byte[] raw) {
+        List<byte[]> batch;
+        synchronized (this) {
+            ensureLoaded();
+            byte[] dictionary = dictionaries.get(kind);
+            if (dictionary != null || dir == null) {
+                return dictionary;
+            }
+            List<byte[]> collected = samples.computeIfAbsent(kind, k -> new ArrayList<>());
+            collected.add(raw.length > MAX_SAMPLE_BYTES ? Arrays.copyOf(raw, MAX_SAMPLE_BYTES) : raw);
+            if (collected.size() < trainingSamples) {
+                return null;
+            }
+            batch = List.copyOf(collected);
+            samples.remove(kind);
+        }
+        long start = System.nanoTime();
+        byte[] dictionary = DictionaryTrainer.train(batch, DictionaryTrainer.MAX_DICTIONARY_BYTES);
+        if (dictionary.length == 0) {
+            return null;
+        }
+        dictionary = save(kind, dictionary);
+        synchronized (this) {
+            if (!dictionaries.containsKey(kind)) {
+                dictionaries.put(kind, dictionary);
+                dictionaryIds.put(kind, adler(dictionary));
+            }
+            OmnisearchMod.LOGGER.debug("[EntryCompressor] trained {} dictionary of {} bytes from {} samples in {} ms",
+                kind, dictionary.length, batch.size(), (System.nanoTime() - start) / 1_000_000);
+            return dictionaries.get(kind);
+        }
+    }
+
+    private synchronized @Nullable byte[] dictionary(Kind kind, int id) {
+        ensureLoaded();
+        Integer current = dictionaryIds.get(kind);
+        if (current != null && current == id) {
+            return dictionaries.get(kind);
+        }
+        return recheck(kind, id);
+    }
+
+    /**
+     * Adopts the saved dictionary of {@code kind} if it is the one with {@code id}, which
+     * another process sharing the directory saved since this one loaded.
+     */
+    private @Nullable byte[] recheck(Kind kind, int id) {
+        if (dir == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Long last = lastRecheck.get(kind);
+        if (last != null && now - last < RECHECK_INTERVAL_MS * 1_000_000) {
+            return null;
+        }
+        lastRecheck.put(kind, now);
+        try {
+            Path path = dir.resolve(kind.fileName(schemaVersion));
+            if (!Files.exists(path)) {
+                return null;
+            }
+            byte[] dictionary = Files.readAllBytes(path);
+            if (adler(dictionary) != id) {
+                return null;
+            }
+            dictionaries.put(kind, dictionary);
+            dictionaryIds.put(kind, id);
+            samples.remove(kind);
+            return dictionary;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded || dir == null) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (var files = Files.list(dir)) {
+            for (Path path : files.toList()) {
+                Matcher m = DICT_NAME.matcher(path.getFileName().toString());
+                if (!m.matches()) {
+                    continue;
+                }
+                if (Integer.parseInt(m.group(2)) != schemaVersion) {
+                    Files.deleteIfExists(path);
+                    continue;
+                }
+                for (Kind kind : Kind.values()) {
+                    if (path.getFileName().toString().equals(kind.fileName(schemaVersion))) {
+                        byte[] dictionary = Files.readAllBytes(path);
+                        dictionaries.put(kind, dictionary);
+                        dictionaryIds.put(kind, adler(dictionary));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[EntryCompressor] loading dictionaries from {} failed: {}", dir, e.toString());
+        }
+    }
+
+    /**
+     * Saves {@code dictionary} unless a dictionary of {@code kind} is saved already, as
+     * another process sharing the directory may have done.
+     *
+     * @return the dictionary to use: the one saved first
+     */
+    private byte[] save(Kind kind, byte[] dictionary) {
+        Path target = dir.resolve(kind.fileName(schemaVersion));
+        Path tmp = null;
+        try {
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, kind.fileName(schemaVersion), ".tmp");
+            Files.write(tmp, dictionary);
+            // No REPLACE_EXISTING: a saved dictionary has entries that depend on it
+            Files.move(tmp, target);
+            return dictionary;
+        } catch (FileAlreadyExistsException e) {
+            return adoptSaved(kind, target, dictionary);
+        } catch (IOException e) {
+            // Still used for this session; entries written with it become misses next time
+            OmnisearchMod.LOGGER.warn("[EntryCompressor] saving {} dictionary failed: {}", kind, e.toString());
+            return dictionary;
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static byte[] adoptSaved(Kind kind, Path saved, byte[] fallback) {
+        try {
+            byte[] dictionary = Files.readAllBytes(saved);
+            OmnisearchMod.LOGGER.debug("[EntryCompressor] adopted the {} dictionary another process saved", kind);
+            return dictionary.length > 0 ? dictionary : fallback;
+        } catch (IOException e) {
+            return fallback;
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Deflate
+    // ──────────────────────────────────────────────
+
+    /** The stored form of {@code raw}, or null if compression does not make it smaller. */
+    private static @Nullable byte[] deflate(byte[] raw, @Nullable byte[] dictionary) {
+        int headerBytes = dictionary != null ? 9 : 5;
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw);
+            deflater.finish();
+            // No point in a result that is not smaller than storing the entry as is
+            byte[] out = new byte[raw.length];
+            int length = headerBytes;
+            while (!deflater.finished()) {
+                if (length == out.length) {
+                    return null;
+                }
+                length += deflater.deflate(out, length, out.length - length);
+            }
+            ByteBuffer header = ByteBuffer.wrap(out, 0, headerBytes);
+            header.put(dictionary != null ? DEFLATE_DICT : DEFLATE).putInt(raw.length);
+            if (dictionary != null) {
+                header.putInt(adler(dictionary));
+            }
+            return Arrays.copyOf(out, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(ByteBuffer input, int length, @Nullable byte[] dictionary) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative entry length");
+        }
+        Inflater inflater = new Inflater(true);
+        try {
+            if (dictionary != null) {
+                inflater.setDictionary(dictionary);
+            }
+            inflater.setInput(input);
+            byte[] raw = new byte[length];
+            int read = 0;
+            while (read < length) {
+                int n = inflater.inflate(raw, read, length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Compressed entry is truncated");
+                }
+                read += n;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Compressed entry is damaged", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int adler(byte[] data) {
+        Adler32 adler = new Adler32();
+        adler.update(data);
+        return (int) adler.getValue();
+    }
+
+    // ──────────────────────────────────────────────
+    // Stats
+    // ──────────────────────────────────────────────
+
+    private static final class Counters {
+        long writes;
+        long rawBytes;
+        long storedBytes;
+        long compressNanos;
+        long reads;
+        long decompressNanos;
+    }
+
+    private synchronized void recordWrite(Kind kind, int rawBytes, int storedBytes, long nanos) {
+        Counters c = counters.get(kind);
+        c.writes++;
+        c.rawBytes += rawBytes;
+        c.storedBytes += storedBytes;
+        c.compressNanos += nanos;
+    }
+
+    private synchronized void recordRead(Kind kind, long nanos) {
+        Counters c = counters.get(kind);
+        c.reads++;
+        c.decompressNanos += nanos;
+    }
+}
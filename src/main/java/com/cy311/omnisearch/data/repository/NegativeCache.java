@@ -0,0 +1,70 @@
+package com.cy311.omnisearch.data.repository;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers, for a short while, the cache keys mcmod.cn confirmed have nothing behind
+ * them: searches that found no results and pages that do not exist. Hover lookups of
+ * items the site does not know would otherwise go to the network on every hover, the
+ * search twice (the {@code filter=0} fallback after the empty primary search).
+ * <p>
+ * Kept apart from the entry tiers: it lives in memory only, under its own small weight
+ * budget, and its entries expire after a TTL of minutes rather than days, so an answer
+ * that changes (a page added to the site) is seen soon. Only confirmed answers may be put
+ * here; an empty result standing in for a throttle or CAPTCHA page must not be.
+ * <p>
+ * Thread-safe.
+ */
+final class NegativeCache {
+
+    // Per entry: the key's characters plus the map and node overhead
+    private static final int ENTRY_OVERHEAD = 64;
+
+    // Key → when it was confirmed missing
+    private final TinyLfuCache<String, Long> confirmed;
+    private final long ttlMs;
+    private final LongSupplier clock;
+
+    /**
+     * @param ttlMs     how long an answer is trusted; 0 or less disables the cache
+     * @param maxWeight memory budget, in bytes
+     */
+    NegativeCache(long ttlMs, long maxWeight, LongSupplier clock) {
+        this.confirmed = new TinyLfuCache<>(maxWeight, (int) Math.max(16, maxWeight / ENTRY_OVERHEAD));
+        this.ttlMs = ttlMs;
+        this.clock = clock;
+    }
+
+    /** Records that {@code key} was just confirmed to have nothing behind it. */
+    void put(String key) {
+        if (ttlMs > 0) {
+            confirmed.put(key, clock.getAsLong(), 2L * key.length() + ENTRY_OVERHEAD);
+        }
+    }
+
+    /** Whether {@code key} was confirmed missing within the TTL. */
+    boolean contains(String key) {
+        Long at = confirmed.get(key);
+        if (at == null) {
+            return false;
+        }
+        if (clock.getAsLong() - at >= ttlMs) {
+            confirmed.invalidate(key);
+            return false;
+        }
+        return true;
+    }
+
+    /** Forgets {@code key}, e.g. because content for it was just stored. */
+    void invalidate(String key) {
+        confirmed.invalidate(key);
+    }
+
+    void clear() {
+        confirmed.clear();
+    }
+
+    long ttlMs() {
+        return ttlMs;
+    }
+}
@@ -0,0 +1,88 @@
+package com.cy311.omnisearch.data.repository;
+
+import com.cy311.omnisearch.data.model.CacheValidators;
+import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.document.Document;
+import com.cy311.omnisearch.data.model.document.DocumentCodec;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Binary record for a cached {@link ItemPage}: the entry's timestamp, validators and page
+ * fields, followed by the document in {@link DocumentCodec} form. Search results stay JSON;
+ * pages are where the size and the decode time go.
+ */
+final class PageEntryCodec {
+
+    private PageEntryCodec() {}
+
+    static byte[] encode(CacheEntry<ItemPage> entry) {
+        ItemPage page = entry.data();
+        CacheValidators validators = entry.validators();
+        byte[] document = DocumentCodec.encode(page.document());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(document.length + 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(entry.timestamp());
+            out.writeBoolean(validators != null);
+            if (validators != null) {
+                writeNullable(out, validators.etag());
+                writeNullable(out, validators.lastModified());
+            }
+            writeNullable(out, page.id());
+            writeNullable(out, page.title());
+            writeNullable(out, page.sourceMod());
+            writeNullable(out, page.url());
+            out.writeInt(document.length);
+            out.write(document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory stream
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a record written by {@link #encode}; the document's later sections are decoded
+     * lazily (see {@link DocumentCodec#decode(byte[], int, int, int)}).
+     *
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    static CacheEntry<ItemPage> decode(byte[] record) {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(record);
+        try (DataInputStream in = new DataInputStream(bytes)) {
+            long timestamp = in.readLong();
+            CacheValidators validators = in.readBoolean()
+                ? new CacheValidators(readNullable(in), readNullable(in))
+                : null;
+            String id = readNullable(in);
+            String title = readNullable(in);
+            String sourceMod = readNullable(in);
+            String url = readNullable(in);
+            int length = in.readInt();
+            int offset = record.length - bytes.available();
+            if (length < 0 || length != bytes.available()) {
+                throw new IllegalArgumentException("Document length does not match the record");
+            }
+            Document document = DocumentCodec.decode(record, offset, length, DocumentCodec.DEFAULT_EAGER_BYTES);
+            return new CacheEntry<>(new ItemPage(id, title, sourceMod, document, url), timestamp, validators);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated page record", e);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static @Nullable String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -1,21 +1,77 @@
 package com.cy311.omnisearch.data.repository;
 
+import com.cy311.omnisearch.OmnisearchMod;
+import com.cy311.omnisearch.data.client.Cancellation;
+import com.cy311.omnisearch.data.client.McmodHttpClient;
 import com.cy311.omnisearch.data.model.*;
 import com.cy311.omnisearch.data.source.CaptchaCapableDataSource;
 import com.cy311.omnisearch.data.source.DataSource;
 import com.cy311.omnisearch.data.source.McmodDataSource;
+import com.cy311.omnisearch.data.source.ReparsingDataSource;
+import com.cy311.omnisearch.data.source.RevalidatingDataSource;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class SearchRepository implements AutoCloseable {
     private final CacheLayer cache;
     private final DataSource primarySource;
+    private final boolean staleWhileRevalidate;
+    // Background refreshes in flight, by cache key; callers asking for the same key share one
+    private final ConcurrentHashMap<String, CompletableFuture<?>> refreshes = new ConcurrentHashMap<>();
 
     public SearchRepository(CacheLayer cache, DataSource primarySource) {
+        this(cache, primarySource, false);
+    }
+
+    /**
+     * @param staleWhileRevalidate when true, an expired cache entry is returned at once and
+     *                             refreshed in the background (see {@link #getPage(String, Consumer)});
+     *                             when false the caller waits for the refresh, and stale
+     *                             copies are only used after a network failure
+     */
+    public SearchRepository(CacheLayer cache, DataSource primarySource, boolean staleWhileRevalidate) {
         this.cache = cache;
         this.primarySource = primarySource;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    /**
+     * Re-derives, at low priority, every page whose HTML is archived but whose cache entry
+     * is gone — typically all of them after a {@code CACHE_VERSION} bump — so they are
+     * already parsed when first opened. Pages opened before the batch reaches them are
+     * re-derived on demand by {@link #getPage}. Does nothing unless the data source can
+     * parse archived HTML.
+     *
+     * @return completes with the number of pages re-derived
+     */
+    public CompletableFuture<Integer> reparseArchiveInBackground() {
+        if (!(primarySource instanceof ReparsingDataSource source)) {
+            return CompletableFuture.completedFuture(0);
+        }
+        int[] restored = new int[1];
+        return cache.runInBackground(() -> {
+            for (String pageId : cache.archivedPagesWithoutEntry()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break; // closing
+                }
+                if (restoreFromArchive(source, pageId, cache.getArchivedPage(pageId))) {
+                    restored[0]++;
+                }
+            }
+            if (restored[0] > 0) {
+                OmnisearchMod.LOGGER.info("[SearchRepository] re-derived {} pages from archived HTML", restored[0]);
+            }
+        }).thenApply(ignored -> restored[0]);
     }
 
     /** Clears all cached data. Force-refreshes on next request. */
@@ -23,6 +79,7 @@ public class SearchRepository implements AutoCloseable {
         cache.clear();
     }
 
+    /** Closes the data source, then drains pending cache writes to disk. */
     @Override
     public void close() {
         if (primarySource instanceof AutoCloseable closeable) {
@@ -32,31 +89,86 @@ public class SearchRepository implements AutoCloseable {
                 // Ignore close errors
             }
         }
+        cache.close();
     }
 
     public CompletableFuture<List<SearchHit>> search(SearchQuery query) {
-        // 1. Check fresh cache
-        var cached = cache.getSearchResults(query);
-        if (cached != null) {
-            return CompletableFuture.completedFuture(cached);
+        return search(query, null);
+    }
+
+    /**
+     * Searches like {@link #search(SearchQuery)}. In stale-while-revalidate mode an expired
+     * entry is returned at once and refreshed in the background; {@code onRefresh} receives
+     * the new results if they differ, on whichever thread completed the refresh.
+     */
+    public CompletableFuture<List<SearchHit>> search(SearchQuery query, @Nullable Consumer<List<SearchHit>> onRefresh) {
+        // 1. Check fresh cache (read off the caller's thread unless already in memory)
+        return Cancellation.compose(cache.getSearchResultsAsync(query), cached -> {
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            if (!staleWhileRevalidate) {
+                return fetchSearch(query);
+            }
+            // 2. Expired entry → serve it now, refresh behind the user's back
+            return Cancellation.compose(cache.getSearchEntryAsync(query), expired -> {
+                if (expired == null) {
+                    return fetchSearch(query);
+                }
+                refreshInBackground(CacheLayer.searchKey(query), () -> refreshSearch(query), expired.data(), onRefresh);
+                return CompletableFuture.completedFuture(expired.data());
+            });
+        });
+    }
+
+    /**
+     * Cache miss → fetch remote (cancelling the result cancels the fetch). From mcmod.cn the
+     * search goes through {@link #searchPage}, whose batch tells a confirmed empty answer,
+     * remembered as such, from one that only stands in for a throttle or CAPTCHA page.
+     */
+    private CompletableFuture<List<SearchHit>> fetchSearch(SearchQuery query) {
+        CompletableFuture<List<SearchHit>> remote;
+        if (primarySource instanceof McmodDataSource) {
+            CompletableFuture<SearchPageBatch> page = searchPage(query);
+            remote = Cancellation.propagate(page.thenApply(batch -> {
+                if (batch.confirmedEmpty()) {
+                    cache.putNoSearchResults(query);
+                }
+                return batch.results();
+            }), page);
+        } else {
+            remote = primarySource.search(query);
         }
-        // 2. Cache miss -> fetch remote
-        return primarySource.search(query)
+        return Cancellation.propagate(remote
             .thenApply(results -> {
                 cache.putSearchResults(query, results);
                 return results;
             })
-            .exceptionally(ex -> {
-                // 3. Network error -> try stale cache
-                var stale = cache.getSearchResultsStale(query);
+            .exceptionallyCompose(ex -> cache.getSearchResultsStaleAsync(query).thenApply(stale -> {
+                // Network error -> try stale cache
                 if (stale != null) return stale;
                 throw new CompletionException(ex);
-            });
+            })), remote);
     }
 
+    private CompletableFuture<List<SearchHit>> refreshSearch(SearchQuery query) {
+        CompletableFuture<List<SearchHit>> remote = primarySource instanceof RevalidatingDataSource source
+            ? source.refreshSearch(query)
+            : primarySource.search(query);
+        return remote.thenApply(results -> {
+            cache.putSearchResults(query, results);
+            return results;
+        });
+    }
+
+    /**
+     * Fetches the first page of results for {@code query}. Every result page is cached
+     * under its URL, so repeating a search within the TTL — first page and the pages
+     * {@link #searchRemainingPages} loads after it — needs no network at all.
+     */
     public CompletableFuture<SearchPageBatch> searchPage(SearchQuery query) {
         if (primarySource instanceof McmodDataSource source) {
-            return source.searchPage(query);
+            return cachedSearchPage(McmodHttpClient.buildSearchUrl(query.text()), () -> source.searchPage(query));
         }
         return search(query).thenApply(results -> new SearchPageBatch(results, null));
     }
@@ -66,31 +178,275 @@ public class SearchRepository implements AutoCloseable {
      */
     public CompletableFuture<SearchPageBatch> searchMore(String pageUrl) {
         if (primarySource instanceof McmodDataSource source) {
-            return source.searchMore(pageUrl);
+            if (pageUrl == null || pageUrl.isBlank()) {
+                return source.searchMore(pageUrl);
+            }
+            return cachedSearchPage(pageUrl, () -> source.searchMore(pageUrl));
         }
         return CompletableFuture.completedFuture(new SearchPageBatch(List.of(), null));
     }
 
+    /**
+     * Fetches every result page after {@code first}, in parallel where the source can,
+     * handing each to {@code onPage} as it arrives (not necessarily in page order). Pages
+     * come from the cache where it has them. Once all arrived, the whole result set is
+     * cached as {@code query}'s results, where {@link #search} finds it — unless a page
+     * came back empty without the site confirming it (a throttle or CAPTCHA stand-in),
+     * since the set would then be missing that page's hits.
+     */
+    public CompletableFuture<Void> searchRemainingPages(SearchQuery query, SearchPageBatch first,
+                                                        Consumer<SearchPageBatch> onPage) {
+        if (primarySource instanceof McmodDataSource source) {
+            List<SearchPageBatch> pages = Collections.synchronizedList(new ArrayList<>());
+            AtomicBoolean complete = new AtomicBoolean(true);
+            CompletableFuture<Void> fanOut = source.searchRemainingPages(first, this::searchMore, batch -> {
+                if (batch.results().isEmpty() && !batch.confirmedEmpty()) {
+                    complete.set(false);
+                }
+                pages.add(batch);
+                onPage.accept(batch);
+            });
+            return Cancellation.propagate(fanOut.thenRun(() -> {
+                if (!complete.get()) {
+                    OmnisearchMod.LOGGER.debug("[SearchRepository] a result page of '{}' was missing; not caching the merged set",
+                        query.text());
+                    return;
+                }
+                List<SearchHit> all = new ArrayList<>(first.results());
+                synchronized (pages) {
+                    // Walked pages carry no number (all 0) and arrived in order; the sort is stable
+                    pages.sort(Comparator.comparingInt(SearchPageBatch::page));
+                    pages.forEach(page -> all.addAll(page.results()));
+                }
+                cache.putSearchResults(query, all);
+            }), fanOut);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /** A search result page from the cache, else from {@code fetch} (then cached), else its stale copy. */
+    private CompletableFuture<SearchPageBatch> cachedSearchPage(String pageUrl, Supplier<CompletableFuture<SearchPageBatch>> fetch) {
+        return Cancellation.compose(cache.getSearchPageAsync(pageUrl), cached -> {
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            CompletableFuture<SearchPageBatch> remote = fetch.get();
+            return Cancellation.propagate(remote
+                .thenApply(batch -> {
+                    cache.putSearchPage(pageUrl, batch);
+                    return batch;
+                })
+                .exceptionallyCompose(ex -> cache.getSearchPageStaleAsync(pageUrl).thenApply(stale -> {
+                    if (stale != null) return stale;
+                    throw new CompletionException(ex);
+                })), remote);
+        });
+    }
+
     public CompletableFuture<ItemPage> getPage(String pageId) {
-        // 1. Check fresh cache
-        var cached = cache.getPage(pageId);
-        if (cached != null) {
-            return CompletableFuture.completedFuture(cached);
+        return getPage(pageId, null);
+    }
+
+    /**
+     * Loads a page like {@link #getPage(String)}. In stale-while-revalidate mode an expired
+     * entry is returned at once and revalidated in the background at low priority, at most
+     * once at a time per page however many callers ask; {@code onRefresh} receives the new
+     * page if it differs from the one returned, on whichever thread completed the refresh.
+     * A failed refresh is only logged: the caller already has content.
+     */
+    public CompletableFuture<ItemPage> getPage(String pageId, @Nullable Consumer<ItemPage> onRefresh) {
+        // 0. Confirmed missing a few minutes ago → still missing
+        if (cache.isMissingPage(pageId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // 1. Check fresh cache (read off the caller's thread unless already in memory)
+        return Cancellation.compose(cache.getPageAsync(pageId), cached -> {
+            if (cached != null) {
+                return CompletableFuture.completedFuture(cached);
+            }
+            if (!(primarySource instanceof ReparsingDataSource source)) {
+                return loadMissingPage(pageId, onRefresh);
+            }
+            // 2. No entry at all (e.g. after a schema bump) → re-derive it from archived HTML
+            return Cancellation.compose(restoreFromArchive(source, pageId), restored -> restored
+                ? Cancellation.compose(cache.getPageAsync(pageId), fresh -> fresh != null
+                    ? CompletableFuture.completedFuture(fresh)
+                    : loadMissingPage(pageId, onRefresh))
+                : loadMissingPage(pageId, onRefresh));
+        });
+    }
+
+    /** A page with no fresh entry: refreshed in the caller's wait, or in the background under stale-while-revalidate. */
+    private CompletableFuture<ItemPage> loadMissingPage(String pageId, @Nullable Consumer<ItemPage> onRefresh) {
+        if (!staleWhileRevalidate) {
+            return fetchPage(pageId);
         }
-        // 2. Cache miss → fetch remote
-        return primarySource.getPage(pageId)
+        // 3. Expired entry → serve it now, refresh behind the user's back
+        return Cancellation.compose(cache.getPageEntryAsync(pageId), expired -> {
+            if (expired == null) {
+                return fetchPage(pageId);
+            }
+            refreshInBackground(CacheLayer.pageKey(pageId), () -> refreshPage(pageId, expired), expired.data(), onRefresh);
+            return CompletableFuture.completedFuture(expired.data());
+        });
+    }
+
+    /**
+     * Re-derives {@code pageId} from its archived HTML if it has no cache entry at all. The
+     * restored entry keeps the original fetch time and validators, so if it has expired
+     * meanwhile the usual revalidation follows, most likely as a cheap 304.
+     *
+     * @return completes with whether a page was restored
+     */
+    private CompletableFuture<Boolean> restoreFromArchive(ReparsingDataSource source, String pageId) {
+        return Cancellation.compose(cache.getPageEntryAsync(pageId), entry -> entry != null
+            ? CompletableFuture.completedFuture(false)
+            : cache.getArchivedPageAsync(pageId).thenApply(archived -> restoreFromArchive(source, pageId, archived)));
+    }
+
+    private boolean restoreFromArchive(ReparsingDataSource source, String pageId, @Nullable ArchivedPage archived) {
+        if (archived == null) {
+            return false;
+        }
+        ItemPage page;
+        try {
+            page = source.parsePage(pageId, archived.html());
+        } catch (RuntimeException e) {
+            OmnisearchMod.LOGGER.debug("[SearchRepository] re-parsing archived {} failed: {}", pageId, e.toString());
+            return false;
+        }
+        if (page == null) {
+            return false;
+        }
+        cache.restorePage(pageId, archived, page);
+        return true;
+    }
+
+    private CompletableFuture<ItemPage> fetchPage(String pageId) {
+        // Expired entry with validators → conditional GET; 304 just re-stamps it
+        if (primarySource instanceof RevalidatingDataSource source) {
+            return revalidatePage(source, pageId);
+        }
+        // Cache miss → fetch remote (cancelling the result cancels the fetch)
+        CompletableFuture<ItemPage> remote = primarySource.getPage(pageId);
+        return Cancellation.propagate(remote
             .thenApply(page -> {
                 if (page != null) {
                     cache.putPage(pageId, page);
+                } else {
+                    cache.putMissingPage(pageId);
                 }
                 return page;
             })
-            .exceptionally(ex -> {
-                // 3. Network error → try stale cache
-                var stale = cache.getPageStale(pageId);
-                if (stale != null) return stale;
-                throw new CompletionException(ex);
+            .exceptionallyCompose(ex -> staleOrFail(pageId, ex)), remote);
+    }
+
+    /**
+     * Fetches a page whose fresh cache entry is missing or expired. If the expired entry
+     * carries validators the fetch is conditional, and a 304 answer only bumps the entry's
+     * timestamp — no download, no parse. Entries cached before validators were recorded
+     * simply get a full fetch, which stores validators for next time.
+     */
+    private CompletableFuture<ItemPage> revalidatePage(RevalidatingDataSource source, String pageId) {
+        return Cancellation.compose(cache.getPageEntryAsync(pageId), expired -> revalidatePage(source, pageId, expired));
+    }
+
+    private CompletableFuture<ItemPage> revalidatePage(RevalidatingDataSource source, String pageId,
+                                                       CacheEntry<ItemPage> expired) {
+        CompletableFuture<PageFetchResult> remote = source.fetchPage(pageId, validatorsOf(expired));
+        return Cancellation.propagate(remote
+            .thenApply(result -> store(pageId, expired, result))
+            .exceptionallyCompose(ex -> staleOrFail(pageId, ex)), remote);
+    }
+
+    /** The background half of stale-while-revalidate for pages. */
+    private CompletableFuture<ItemPage> refreshPage(String pageId, CacheEntry<ItemPage> expired) {
+        if (primarySource instanceof RevalidatingDataSource source) {
+            return source.refreshPage(pageId, validatorsOf(expired)).thenApply(result -> store(pageId, expired, result));
+        }
+        return primarySource.getPage(pageId).thenApply(page -> {
+            if (page != null) {
+                cache.putPage(pageId, page);
+            } else {
+                cache.putMissingPage(pageId);
+            }
+            return page;
+        });
+    }
+
+    private static @Nullable CacheValidators validatorsOf(@Nullable CacheEntry<ItemPage> entry) {
+        return entry != null && entry.validators() != null && !entry.validators().isEmpty()
+            ? entry.validators()
+            : null;
+    }
+
+    /** Caches the outcome of a conditional fetch and returns the page it stands for. */
+    private ItemPage store(String pageId, @Nullable CacheEntry<ItemPage> expired, PageFetchResult result) {
+        return switch (result) {
+            case PageFetchResult.NotModified ignored when expired != null -> {
+                cache.touchPage(pageId, expired);
+                yield expired.data();
+            }
+            case PageFetchResult.NotModified ignored ->
+                throw new IllegalStateException("304 for " + pageId + " without a cached copy");
+            case PageFetchResult.Fetched fetched -> {
+                if (fetched.page() != null) {
+                    cache.putPage(pageId, fetched.page(), fetched.validators());
+                    if (fetched.html() != null) {
+                        cache.archiveHtml(pageId, fetched.html(), fetched.validators());
+                    }
+                } else {
+                    cache.putMissingPage(pageId);
+                }
+                yield fetched.page();
+            }
+        };
+    }
+
+    /**
+     * Starts {@code refresh} unless one for {@code key} is already running, and hands its
+     * result to {@code onRefresh} if it differs from {@code current}. Nothing links the
+     * refresh to the caller's future, so cancelling that (the user navigating away) lets
+     * it finish and update the cache.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> void refreshInBackground(String key, Supplier<CompletableFuture<T>> refresh, T current,
+                                         @Nullable Consumer<T> onRefresh) {
+        CompletableFuture<T> started = new CompletableFuture<>();
+        CompletableFuture<T> running = (CompletableFuture<T>) refreshes.putIfAbsent(key, started);
+        if (running == null) {
+            running = started;
+            CompletableFuture<T> remote;
+            try {
+                remote = refresh.get();
+            } catch (RuntimeException e) {
+                remote = CompletableFuture.failedFuture(e);
+            }
+            remote.whenComplete((result, ex) -> {
+                refreshes.remove(key, started);
+                if (ex != null) {
+                    OmnisearchMod.LOGGER.debug("[SearchRepository] background refresh of {} failed: {}", key, ex.toString());
+                    started.completeExceptionally(ex);
+                } else {
+                    started.complete(result);
+                }
             });
+        }
+        if (onRefresh != null) {
+            running.thenAccept(result -> {
+                if (result != null && !result.equals(current)) {
+                    onRefresh.accept(result);
+                }
+            });
+        }
+    }
+
+    /** Network error → the stale copy of the page if there is one, else the error. */
+    private CompletableFuture<ItemPage> staleOrFail(String pageId, Throwable ex) {
+        return cache.getPageStaleAsync(pageId).thenApply(stale -> {
+            if (stale != null) return stale;
+            throw new CompletionException(ex);
+        });
     }
 
     /**
@@ -98,41 +454,53 @@ public class SearchRepository implements AutoCloseable {
      */
     public CompletableFuture<List<SearchHit>> submitCaptcha(SearchQuery originalQuery, CaptchaContext captcha, String answer) {
         if (primarySource instanceof CaptchaCapableDataSource source) {
-            return source.submitCaptcha(originalQuery, captcha, answer)
-                .thenApply(results -> {
-                    cache.putSearchResults(originalQuery, results);
-                    return results;
-                });
+            CompletableFuture<List<SearchHit>> remote = source.submitCaptcha(originalQuery, captcha, answer);
+            return Cancellation.propagate(remote.thenApply(results -> {
+                cache.putSearchResults(originalQuery, results);
+                return results;
+            }), remote);
         }
         return CompletableFuture.failedFuture(new UnsupportedOperationException("CAPTCHA not supported by this data source"));
     }
 
     public CompletableFuture<List<SearchHit>> submitCaptchaForSearchPage(SearchQuery originalQuery, int page, CaptchaContext captcha, String answer) {
         if (primarySource instanceof CaptchaCapableDataSource source) {
-            String pageUrl = page < 2 ? null : com.cy311.omnisearch.data.client.McmodHttpClient.buildSearchUrl(originalQuery.text(), page);
-            return source.submitCaptchaForSearchPage(originalQuery, pageUrl, captcha, answer)
-                .thenApply(SearchPageBatch::results);
+            String pageUrl = page < 2 ? null : McmodHttpClient.buildSearchUrl(originalQuery.text(), page);
+            CompletableFuture<SearchPageBatch> remote = source.submitCaptchaForSearchPage(originalQuery, pageUrl, captcha, answer);
+            return Cancellation.propagate(remote.thenApply(SearchPageBatch::results), remote);
         }
         return CompletableFuture.failedFuture(new UnsupportedOperationException("CAPTCHA not supported by this data source"));
     }
 
     public CompletableFuture<SearchPageBatch> submitCaptchaForSearchPage(SearchQuery originalQuery, String pageUrl, CaptchaContext captcha, String answer) {
         if (primarySource instanceof CaptchaCapableDataSource source) {
-            return source.submitCaptchaForSearchPage(originalQuery, pageUrl, captcha, answer);
+            CompletableFuture<SearchPageBatch> remote = source.submitCaptchaForSearchPage(originalQuery, pageUrl, captcha, answer);
+            String cacheUrl = pageUrl != null ? pageUrl : McmodHttpClient.buildSearchUrl(originalQuery.text());
+            return Cancellation.propagate(remote.thenApply(batch -> {
+                cache.putSearchPage(cacheUrl, batch);
+                return batch;
+            }), remote);
         }
         return CompletableFuture.failedFuture(new UnsupportedOperationException("CAPTCHA not supported by this data source"));
     }
 
     /**
-     * Submits a CAPTCHA answer and retries the original page request.
+     * Submits a CAPTCHA answer and retries the original page request; the page is cached,
+     * and archived, like any other fetch.
      */
     public CompletableFuture<ItemPage> submitCaptchaForPage(String pageId, CaptchaContext captcha, String answer) {
         if (primarySource instanceof CaptchaCapableDataSource source) {
-            return source.submitCaptchaForPage(pageId, captcha, answer)
-                .thenApply(page -> {
-                    if (page != null) cache.putPage(pageId, page);
-                    return page;
-                });
+            CompletableFuture<PageFetchResult.Fetched> remote = source.submitCaptchaForPageFetch(pageId, captcha, answer);
+            return Cancellation.propagate(remote.thenApply(fetched -> {
+                ItemPage page = fetched.page();
+                if (page != null) {
+                    cache.putPage(pageId, page, fetched.validators());
+                    if (fetched.html() != null) {
+                        cache.archiveHtml(pageId, fetched.html(), fetched.validators());
+                    }
+                }
+                return page;
+            }), remote);
         }
         return CompletableFuture.failedFuture(new UnsupportedOperationException("CAPTCHA not supported by this data source"));
     }
@@ -142,20 +510,30 @@ public class SearchRepository implements AutoCloseable {
             return CompletableFuture.failedFuture(new IllegalArgumentException("Missing pending request"));
         }
         return switch (pending) {
-            case PendingRequest.Search search -> submitCaptchaForSearchPage(
-                search.query(),
-                com.cy311.omnisearch.data.client.McmodHttpClient.buildSearchUrl(search.query().text()),
-                captcha,
-                answer
-            ).thenApply(batch -> new PendingRequestResult.SearchResults(batch.results(), batch.nextPageUrl()));
-            case PendingRequest.SearchMoreUrl searchMore -> submitCaptchaForSearchPage(
-                searchMore.query(),
-                searchMore.pageUrl(),
-                captcha,
-                answer
-            ).thenApply(batch -> new PendingRequestResult.MoreSearchResults(batch.results(), batch.nextPageUrl()));
-            case PendingRequest.Detail detail -> submitCaptchaForPage(detail.pageId(), captcha, answer)
-                .thenApply(PendingRequestResult.DetailPage::new);
+            case PendingRequest.Search search -> {
+                var remote = submitCaptchaForSearchPage(
+                    search.query(),
+                    McmodHttpClient.buildSearchUrl(search.query().text()),
+                    captcha,
+                    answer
+                );
+                yield Cancellation.propagate(remote.thenApply(
+                    batch -> new PendingRequestResult.SearchResults(batch.results(), batch.nextPageUrl())), remote);
+            }
+            case PendingRequest.SearchMoreUrl searchMore -> {
+                var remote = submitCaptchaForSearchPage(
+                    searchMore.query(),
+                    searchMore.pageUrl(),
+                    captcha,
+                    answer
+                );
+                yield Cancellation.propagate(remote.thenApply(
+                    batch -> new PendingRequestResult.MoreSearchResults(batch.results(), batch.nextPageUrl())), remote);
+            }
+            case PendingRequest.Detail detail -> {
+                var remote = submitCaptchaForPage(detail.pageId(), captcha, answer);
+                yield Cancellation.propagate(remote.thenApply(PendingRequestResult.DetailPage::new), remote);
+            }
         };
     }
 }
@@ -0,0 +1,1010 @@
+package com.cy311.omnisearch.data.repository;
+
+import com.cy311.omnisearch.OmnisearchMod;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Log-structured key/value store behind {@link CacheLayer}.
+ * <p>
+ * Records are appended to segment files ({@code seg-<n>.log}) that roll over at a size
+ * limit, and an in-memory index built by replaying the segments on first use maps each key
+ * to where its records live. Every key keeps two generations: the fresh record and the one
+ * it replaced, which serves as the stale fallback. Writing a new generation demotes the
+ * fresh record to stale; rewriting the same generation (a revalidated page getting a new
+ * timestamp) replaces the fresh record and leaves the stale one alone.
+ * <p>
+ * Superseded records, records older than {@code maxAgeMs} and records written under another
+ * schema version are garbage. {@link #compactIfNeeded()} copies the live records into new
+ * segments once garbage makes up most of the store, then deletes the old ones. Each record
+ * carries a CRC-32; a torn write at the end of the last segment is truncated away on load.
+ * <p>
+ * The store also tracks when each key was last used — written here, read through
+ * {@link CacheLayer} and reported by {@link #recordAccess} — and keeps those times in
+ * {@code access.idx} across restarts. {@link #evictToBudget} drops the least recently used
+ * keys when the segments outgrow a size budget.
+ * <p>
+ * Each key's index entry carries its records' timestamps, so a lookup that would only
+ * find an expired or missing record ({@link #readFresh(String, long)}) is answered without
+ * touching the disk. {@link #saveManifest} snapshots the index to {@code manifest.idx}
+ * along with how far into each segment it reaches; the next load starts from that snapshot
+ * and replays only what was appended after it, instead of reading every record. The
+ * snapshot is trusted only while exactly the segments it names exist and none got shorter
+ * — after a compaction that has not been snapshotted, or a truncated segment, the store is
+ * replayed in full as before.
+ * <p>
+ * A store opened as shared may be used by several processes at once, such as the game
+ * instances of a multi-instance launcher pointing at one user-level cache. Every operation
+ * that changes the store, and every load, runs under a {@link StoreLock} on
+ * {@code store.lock}, which also counts appends and rewrites. Before touching the store a
+ * process catches up on the others' changes: it replays the tails they appended, or
+ * reloads the whole index after one of them compacted. A read that finds its key catches
+ * up only when {@link #refresh} is called; a miss catches up first, because another
+ * process may have written the key since. Reads never create segment files: a segment
+ * that another process compacted away is a miss that reloads the index, and only the
+ * segment being appended to is created. A {@link ChangeListener} hears about keys
+ * another process replaced, so copies held in memory can be dropped.
+ * <p>
+ * Thread-safe. All operations lock the store; reads are short positional reads.
+ */
+final class SegmentStore implements AutoCloseable {
+
+    static final long DEFAULT_SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final int MAGIC = 0x4F534331; // "OSC1"
+    // magic, body length, CRC-32 of the body
+    private static final int HEADER_BYTES = 12;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("seg-(\\d+)\\.log");
+    private static final String ACCESS_FILE = "access.idx";
+    private static final int ACCESS_MAGIC = 0x4F534141; // "OSAA"
+    private static final String MANIFEST_FILE = "manifest.idx";
+    private static final int MANIFEST_MAGIC = 0x4F534D31; // "OSM1"
+    static final String LOCK_FILE = "store.lock";
+    // Eviction stops once live data is down to this share of the budget, so it does not rerun at once
+    private static final double EVICTION_LOW_WATER = 0.75;
+
+    /** One record to append; {@code newGeneration} false rewrites the current generation. */
+    record Write(String key, boolean newGeneration, long timestamp, byte[] payload) {}
+
+    /**
+     * @param liveBytes bytes held by records the index still points at
+     */
+    record Stats(int segments, long totalBytes, long liveBytes, int keys) {}
+
+    private record Location(int segment, long offset, int length, long generation, long timestamp) {}
+
+    private record Slot(Location fresh, @Nullable Location stale) {}
+
+    private record Decoded(int schemaVersion, long generation, long timestamp, String key, byte[] payload) {}
+
+    /** Told about records that another process sharing the store wrote. */
+    interface ChangeListener {
+        /** {@code key} has a new record. */
+        void changed(String key);
+
+        /** The store was rewritten; any key may have changed. */
+        void everything();
+    }
+
+    private final Path dir;
+    private final int schemaVersion;
+    private final long maxAgeMs;
+    private final long segmentBytes;
+    private final LongSupplier clock;
+
+    private final Map<String, Slot> index = new HashMap<>();
+    // Last use of each indexed key; keys without one count as used when last written
+    private final Map<String, Long> lastAccess = new HashMap<>();
+    private boolean accessDirty;
+    // Whether the index changed since manifest.idx was written
+    private boolean manifestDirty;
+    private final TreeMap<Integer, FileChannel> segments = new TreeMap<>();
+    private boolean loaded;
+    private int activeId;
+    private long totalBytes;
+    private long liveBytes;
+    // How far into each segment the index reaches
+    private final Map<Integer, Long> indexedTo = new HashMap<>();
+
+    // Shared stores only
+    private final @Nullable StoreLock lock;
+    private StoreLock.Version seen = new StoreLock.Version(0, 0);
+    private boolean appended;
+    private boolean relaidOut;
+    // A segment the index points at is gone, compacted away by another process; the next use reloads
+    private boolean segmentMissing;
+    private @Nullable ChangeListener listener;
+
+    SegmentStore(Path dir, int schemaVersion, long maxAgeMs) {
+        this(dir, schemaVersion, maxAgeMs, false);
+    }
+
+    SegmentStore(Path dir, int schemaVersion, long maxAgeMs, boolean shared) {
+        this(dir, schemaVersion, maxAgeMs, DEFAULT_SEGMENT_BYTES, System::currentTimeMillis, shared);
+    }
+
+    SegmentStore(Path dir, int schemaVersion, long maxAgeMs, long segmentBytes, LongSupplier clock) {
+        this(dir, schemaVersion, maxAgeMs, segmentBytes, clock, false);
+    }
+
+    /**
+     * @param shared whether other processes may use {@code dir} at the same time
+     */
+    SegmentStore(Path dir, int schemaVersion, long maxAgeMs, long segmentBytes, LongSupplier clock, boolean shared) {
+        this.dir = dir;
+        this.schemaVersion = schemaVersion;
+        this.maxAgeMs = maxAgeMs;
+        this.segmentBytes = segmentBytes;
+        this.clock = clock;
+        this.lock = shared ? new StoreLock(dir.resolve(LOCK_FILE)) : null;
+    }
+
+    /** Sets who hears about other processes' writes to a shared store. */
+    synchronized void setChangeListener(@Nullable ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /** Catches up with other processes' changes to a shared store; does nothing otherwise. */
+    synchronized void refresh() {
+        if (lock != null) {
+            exit(enter());
+        }
+    }
+
+    synchronized @Nullable byte[] readFresh(String key) {
+        return readFresh(key, Long.MIN_VALUE);
+    }
+
+    /** The fresh record of {@code key} if it was written at {@code notBefore} or later; older ones are not read. */
+    synchronized @Nullable byte[] readFresh(String key, long notBefore) {
+        return lookup(key, notBefore, false);
+    }
+
+    synchronized @Nullable byte[] readStale(String key) {
+        return readStale(key, Long.MIN_VALUE);
+    }
+
+    /** The stale record of {@code key} if it was written at {@code notBefore} or later. */
+    synchronized @Nullable byte[] readStale(String key, long notBefore) {
+        return lookup(key, notBefore, true);
+    }
+
+    synchronized boolean contains(String key) {
+        if (loaded && (lock == null || index.containsKey(key))) {
+            return index.containsKey(key);
+        }
+        boolean entered = enter();
+        try {
+            return index.containsKey(key);
+        } finally {
+            exit(entered);
+        }
+    }
+
+    /** A snapshot of the stored keys, in no particular order. */
+    synchronized List<String> keys() {
+        boolean entered = enter();
+        try {
+            return List.copyOf(index.keySet());
+        } finally {
+            exit(entered);
+        }
+    }
+
+    /** Appends {@code writes} in order. Failures are logged; the cache just misses later. */
+    synchronized void write(List<Write> writes) {
+        if (!enter()) {
+            return;
+        }
+        try {
+            for (Write write : writes) {
+                Slot slot = index.get(write.key());
+                long generation = slot == null ? 1
+                    : write.newGeneration() ? slot.fresh().generation() + 1 : slot.fresh().generation();
+                ByteBuffer record = encode(schemaVersion, generation, write.timestamp(), write.key(), write.payload());
+                Location location = append(record, generation, write.timestamp());
+                index(write.key(), location);
+                lastAccess.put(write.key(), clock.getAsLong());
+                accessDirty = true;
+            }
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[SegmentStore] append to {} failed: {}", dir, e.toString());
+        } finally {
+            exit(true);
+        }
+    }
+
+    /** Deletes every segment and forgets every key, for every process sharing the store. */
+    synchronized void clear() {
+        if (!enter()) {
+            return;
+        }
+        try {
+            closeChannels();
+            index.clear();
+            lastAccess.clear();
+            indexedTo.clear();
+            accessDirty = false;
+            manifestDirty = false;
+            totalBytes = 0;
+            liveBytes = 0;
+            relaidOut = true;
+            try {
+                for (int id : segmentIds()) {
+                    Files.deleteIfExists(segmentPath(id));
+                }
+                Files.deleteIfExists(dir.resolve(ACCESS_FILE));
+                Files.deleteIfExists(dir.resolve(MANIFEST_FILE));
+            } catch (IOException e) {
+                OmnisearchMod.LOGGER.warn("[SegmentStore] clearing {} failed: {}", dir, e.toString());
+            }
+            activeId = 0;
+            loaded = true;
+        } finally {
+            exit(true);
+        }
+    }
+
+    synchronized Stats stats() {
+        boolean entered = enter();
+        try {
+            return new Stats(segments.size(), totalBytes, liveBytes, index.size());
+        } finally {
+            exit(entered);
+        }
+    }
+
+    /**
+     * Rewrites the live records into new segments when garbage — superseded, expired or
+     * other-schema records — exceeds half the store.
+     *
+     * @return whether a compaction ran
+     */
+    synchronized boolean compactIfNeeded() {
+        // Not worth rewriting the store for less than a quarter segment of garbage
+        return compactIfNeeded(segmentBytes / 4, 0.5);
+    }
+
+    /**
+     * Compacts once garbage reaches both {@code minGarbageBytes} and {@code minGarbageShare}
+     * of the store.
+     *
+     * @return whether a compaction ran
+     */
+    synchronized boolean compactIfNeeded(long minGarbageBytes, double minGarbageShare) {
+        if (!enter()) {
+            return false;
+        }
+        try {
+            return compactIfGarbage(minGarbageBytes, minGarbageShare);
+        } finally {
+            exit(true);
+        }
+    }
+
+    private boolean compactIfGarbage(long minGarbageBytes, double minGarbageShare) {
+        long expiredBytes = 0;
+        long oldest = clock.getAsLong() - maxAgeMs;
+        for (Slot slot : index.values()) {
+            if (slot.fresh().timestamp() < oldest) {
+                expiredBytes += slot.fresh().length();
+            }
+            if (slot.stale() != null && slot.stale().timestamp() < oldest) {
+                expiredBytes += slot.stale().length();
+            }
+        }
+        long garbage = totalBytes - liveBytes + expiredBytes;
+        if (garbage == 0 || garbage < minGarbageBytes || garbage < totalBytes * minGarbageShare) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    /** Marks keys as used at the given times; keys no longer stored are ignored. */
+    synchronized void recordAccess(Map<String, Long> times) {
+        boolean entered = enter();
+        try {
+            times.forEach((key, time) -> {
+                if (index.containsKey(key)) {
+                    lastAccess.merge(key, time, Math::max);
+                    accessDirty = true;
+                }
+            });
+        } finally {
+            exit(entered);
+        }
+    }
+
+    /**
+     * If the segments take more than {@code maxBytes}, forgets the least recently used keys
+     * (both generations) until the live records fit in three quarters of it, and compacts.
+     *
+     * @return how many keys were evicted
+     */
+    synchronized int evictToBudget(long maxBytes) {
+        if (!enter()) {
+            return 0;
+        }
+        try {
+            return evict(maxBytes);
+        } finally {
+            exit(true);
+        }
+    }
+
+    private int evict(long maxBytes) {
+        if (totalBytes <= maxBytes) {
+            return 0;
+        }
+        List<String> keys = new ArrayList<>(index.keySet());
+        keys.sort(Comparator.comparingLong(this::lastUsed));
+        long target = (long) (maxBytes * EVICTION_LOW_WATER);
+        int evicted = 0;
+        for (String key : keys) {
+            if (liveBytes <= target) {
+                break;
+            }
+            Slot slot = index.remove(key);
+            manifestDirty = true;
+            liveBytes -= slot.fresh().length() + (slot.stale() != null ? slot.stale().length() : 0);
+            lastAccess.remove(key);
+            evicted++;
+        }
+        accessDirty = true;
+        compact();
+        return evicted;
+    }
+
+    /** Writes the access times to {@code access.idx} if they changed since the last save. */
+    synchronized void saveAccessTimes() {
+        if (!loaded || !accessDirty || !enter()) {
+            return;
+        }
+        try {
+            writeAccessTimes();
+        } finally {
+            exit(true);
+        }
+    }
+
+    private void writeAccessTimes() {
+        Path target = dir.resolve(ACCESS_FILE);
+        Path tmp = dir.resolve(ACCESS_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(ACCESS_MAGIC);
+            out.writeInt(index.size());
+            for (String key : index.keySet()) {
+                out.writeUTF(key);
+                out.writeLong(lastUsed(key));
+            }
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[SegmentStore] saving access times to {} failed: {}", dir, e.toString());
+            return;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            accessDirty = false;
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[SegmentStore] saving access times to {} failed: {}", dir, e.toString());
+        }
+    }
+
+    /**
+     * Snapshots the index to {@code manifest.idx} if it changed since the last snapshot.
+     * Records appended later are picked up by replaying the segments past the snapshot.
+     */
+    synchronized void saveManifest() {
+        if (!loaded || !manifestDirty || !enter()) {
+            return;
+        }
+        try {
+            writeManifest();
+        } finally {
+            exit(true);
+        }
+    }
+
+    private void writeManifest() {
+        Path target = dir.resolve(MANIFEST_FILE);
+        Path tmp = dir.resolve(MANIFEST_FILE + ".tmp");
+        try {
+            // The snapshot must not name bytes that are not on disk yet
+            for (FileChannel channel : segments.values()) {
+                channel.force(false);
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MANIFEST_MAGIC);
+                out.writeInt(schemaVersion);
+                out.writeInt(segments.size());
+                for (Map.Entry<Integer, FileChannel> segment : segments.entrySet()) {
+                    out.writeInt(segment.getKey());
+                    out.writeLong(segment.getValue().size());
+                }
+                out.writeInt(index.size());
+                for (Map.Entry<String, Slot> entry : index.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    writeLocation(out, entry.getValue().fresh());
+                    out.writeBoolean(entry.getValue().stale() != null);
+                    if (entry.getValue().stale() != null) {
+                        writeLocation(out, entry.getValue().stale());
+                    }
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            manifestDirty = false;
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[SegmentStore] saving the manifest of {} failed: {}", dir, e.toString());
+        }
+    }
+
+    /** Forces appended records to disk and releases the segment files; the next use reloads. */
+    @Override
+    public synchronized void close() {
+        saveAccessTimes();
+        saveManifest();
+        for (FileChannel channel : segments.values()) {
+            try {
+                channel.force(false);
+            } catch (IOException ignored) {
+            }
+        }
+        closeChannels();
+        index.clear();
+        lastAccess.clear();
+        indexedTo.clear();
+        totalBytes = 0;
+        liveBytes = 0;
+        loaded = false;
+        if (lock != null) {
+            lock.close();
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Sharing
+    // ──────────────────────────────────────────────
+
+    /**
+     * Loads the store if needed; a shared store also takes the lock and catches up with the
+     * other processes. Everything that uses the index runs between this and {@link #exit}.
+     *
+     * @return false if the lock could not be taken, in which case the caller may read what
+     *         it has but must not change the store
+     */
+    private boolean enter() {
+        if (lock != null) {
+            try {
+                lock.lock();
+            } catch (IOException e) {
+                OmnisearchMod.LOGGER.warn("[SegmentStore] locking {} failed: {}", dir, e.toString());
+                ensureLoaded();
+                return false;
+            }
+        }
+        ensureLoaded();
+        if (segmentMissing) {
+            segmentMissing = false;
+            reload();
+        } else if (lock != null) {
+            sync();
+        }
+        return true;
+    }
+
+    /** Publishes what this operation changed and releases the lock {@link #enter} took. */
+    private void exit(boolean entered) {
+        if (lock == null || !entered) {
+            return;
+        }
+        try {
+            if (lock.outermost() && (appended || relaidOut)) {
+                seen = lock.publish(relaidOut);
+            }
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[SegmentStore] publishing changes to {} failed: {}", dir, e.toString());
+        } finally {
+            if (lock.outermost()) {
+                appended = false;
+                relaidOut = false;
+            }
+            lock.unlock();
+        }
+    }
+
+    /** Brings the index up to date with the other processes' changes. Only while locked. */
+    private void sync() {
+        try {
+            StoreLock.Version current = lock.read();
+            if (current.equals(seen)) {
+                return;
+            }
+            if (current.layouts() != seen.layouts()) {
+                reload();
+            } else {
+                catchUp();
+            }
+            seen = current;
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[SegmentStore] catching up with {} failed: {}", dir, e.toString());
+        }
+    }
+
+    /** Indexes the records other processes appended since the index was last brought up to date. */
+    private void catchUp() throws IOException {
+        List<Integer> ids = segmentIds();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            int id = ids.get(i);
+            long from = indexedTo.getOrDefault(id, 0L);
+            totalBytes += replay(id, i == ids.size() - 1, from, keys) - from;
+        }
+        if (!ids.isEmpty()) {
+            activeId = Math.max(activeId, ids.get(ids.size() - 1));
+        }
+        if (listener != null) {
+            keys.forEach(listener::changed);
+        }
+    }
+
+    /** Loads the index again after another process rewrote the store, keeping unsaved access times. */
+    private void reload() {
+        Map<String, Long> accesses = new HashMap<>(lastAccess);
+        closeChannels();
+        index.clear();
+        lastAccess.clear();
+        indexedTo.clear();
+        totalBytes = 0;
+        liveBytes = 0;
+        loaded = false;
+        ensureLoaded();
+        accesses.forEach((key, time) -> {
+            if (index.containsKey(key)) {
+                lastAccess.merge(key, time, Math::max);
+            }
+        });
+        if (listener != null) {
+            listener.everything();
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Index
+    // ──────────────────────────────────────────────
+
+    /** Applies a record to the index, in log order. */
+    private void index(String key, Location location) {
+        manifestDirty = true;
+        Slot slot = index.get(key);
+        if (slot == null) {
+            index.put(key, new Slot(location, null));
+            liveBytes += location.length();
+        } else if (location.generation() > slot.fresh().generation()) {
+            if (slot.stale() != null) {
+                liveBytes -= slot.stale().length();
+            }
+            index.put(key, new Slot(location, slot.fresh()));
+            liveBytes += location.length();
+        } else if (location.generation() == slot.fresh().generation()) {
+            liveBytes += location.length() - slot.fresh().length();
+            index.put(key, new Slot(location, slot.stale()));
+        } else if (slot.stale() == null || location.generation() >= slot.stale().generation()) {
+            // An older generation replayed after a newer one (compaction output)
+            liveBytes += location.length() - (slot.stale() != null ? slot.stale().length() : 0);
+            index.put(key, new Slot(slot.fresh(), location));
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            Files.createDirectories(dir);
+            if (lock != null && lock.held()) {
+                seen = lock.read();
+            }
+            List<Integer> ids = segmentIds();
+            Map<Integer, Long> covered = loadManifest(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                totalBytes += replay(ids.get(i), i == ids.size() - 1, covered.getOrDefault(ids.get(i), 0L), null);
+            }
+            if (covered.isEmpty() && !ids.isEmpty()) {
+                manifestDirty = true; // replayed in full; next time the snapshot saves that
+            }
+            activeId = ids.isEmpty() ? 0 : ids.get(ids.size() - 1);
+            loadAccessTimes();
+        } catch (NoSuchFileException e) {
+            segmentMissing = true; // deleted between listing and opening it
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.warn("[SegmentStore] loading {} failed: {}", dir, e.toString());
+        }
+    }
+
+    private long lastUsed(String key) {
+        Long time = lastAccess.get(key);
+        return time != null ? time : index.get(key).fresh().timestamp();
+    }
+
+    /** Restores the saved access times of keys that are still indexed; damage just loses them. */
+    private void loadAccessTimes() {
+        Path file = dir.resolve(ACCESS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != ACCESS_MAGIC) {
+                return;
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String key = in.readUTF();
+                long time = in.readLong();
+                if (index.containsKey(key)) {
+                    lastAccess.put(key, time);
+                }
+            }
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.debug("[SegmentStore] {} is unreadable: {}", file, e.toString());
+        }
+    }
+
+    /**
+     * Fills the index from {@code manifest.idx} if it still describes the segments on disk.
+     *
+     * @return how many bytes of each segment the manifest covers; empty if it is missing,
+     *         damaged or out of date, and the index is left empty
+     */
+    private Map<Integer, Long> loadManifest(List<Integer> ids) {
+        Path file = dir.resolve(MANIFEST_FILE);
+        if (!Files.exists(file)) {
+            return Map.of();
+        }
+        Map<Integer, Long> covered = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MANIFEST_MAGIC || in.readInt() != schemaVersion) {
+                return Map.of();
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                int id = in.readInt();
+                long size = in.readLong();
+                if (!ids.contains(id) || Files.size(segmentPath(id)) < size) {
+                    return Map.of();
+                }
+                covered.put(id, size);
+            }
+            // Every segment up to the newest it names must be one it names, or log order is lost
+            int newest = covered.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            if (ids.stream().anyMatch(id -> id <= newest && !covered.containsKey(id))) {
+                return Map.of();
+            }
+            long oldest = clock.getAsLong() - maxAgeMs;
+            for (int i = in.readInt(); i > 0; i--) {
+                String key = in.readUTF();
+                Location fresh = readLocation(in);
+                Location stale = in.readBoolean() ? readLocation(in) : null;
+                // Stale before fresh, as compaction writes them
+                if (stale != null && stale.timestamp() >= oldest) {
+                    index(key, stale);
+                }
+                if (fresh.timestamp() >= oldest) {
+                    index(key, fresh);
+                }
+            }
+        } catch (IOException e) {
+            OmnisearchMod.LOGGER.debug("[SegmentStore] {} is unreadable: {}", file, e.toString());
+            index.clear();
+            liveBytes = 0;
+            return Map.of();
+        }
+        manifestDirty = false;
+        return covered;
+    }
+
+    private static void writeLocation(DataOutputStream out, Location location) throws IOException {
+        out.writeInt(location.segment());
+        out.writeLong(location.offset());
+        out.writeInt(location.length());
+        out.writeLong(location.generation());
+        out.writeLong(location.timestamp());
+    }
+
+    private static Location readLocation(DataInputStream in) throws IOException {
+        return new Location(in.readInt(), in.readLong(), in.readInt(), in.readLong(), in.readLong());
+    }
+
+    /**
+     * Reads a segment's records from byte {@code from} on into the index, adding their keys
+     * to {@code keys} if given; a bad tail on the last segment is cut off.
+     *
+     * @return the segment's size
+     */
+    private long replay(int id, boolean last, long from, @Nullable List<String> keys) throws IOException {
+        FileChannel channel = channel(id);
+        long size = channel.size();
+        long offset = from;
+        long oldest = clock.getAsLong() - maxAgeMs;
+        while (offset < size) {
+            ByteBuffer header = readFully(channel, offset, HEADER_BYTES, size);
+            if (header == null || header.getInt() != MAGIC) {
+                break;
+            }
+            int bodyLength = header.getInt();
+            int crc = header.getInt();
+            if (bodyLength < 0 || offset + HEADER_BYTES + bodyLength > size) {
+                break;
+            }
+            ByteBuffer body = readFully(channel, offset + HEADER_BYTES, bodyLength, size);
+            if (body == null || crc(body) != crc) {
+                break;
+            }
+            Decoded record = decode(body);
+            int length = HEADER_BYTES + bodyLength;
+            if (record.schemaVersion() == schemaVersion && record.timestamp() >= oldest) {
+                index(record.key(), new Location(id, offset, length, record.generation(), record.timestamp()));
+                if (keys != null) {
+                    keys.add(record.key());
+                }
+            }
+            offset += length;
+        }
+        if (offset < size) {
+            OmnisearchMod.LOGGER.warn("[SegmentStore] {} is damaged after byte {}", segmentPath(id), offset);
+            if (last) {
+                channel.truncate(offset);
+                size = offset;
+            }
+        }
+        indexedTo.put(id, size);
+        return size;
+    }
+
+    // ──────────────────────────────────────────────
+    // Segments
+    // ──────────────────────────────────────────────
+
+    private Location append(ByteBuffer record, long generation, long timestamp) throws IOException {
+        int length = record.remaining();
+        FileChannel active = activeId == 0 ? null : channel(activeId, true);
+        if (active == null || (active.size() > 0 && active.size() + length > segmentBytes)) {
+            activeId = nextSegmentId();
+            active = channel(activeId, true);
+        }
+        long offset = active.size();
+        while (record.hasRemaining()) {
+            active.write(record, offset + length - record.remaining());
+        }
+        totalBytes += length;
+        indexedTo.put(activeId, offset + length);
+        appended = true;
+        return new Location(activeId, offset, length, generation, timestamp);
+    }
+
+    /**
+     * Copies every live, unexpired record into fresh segments (stale before fresh, so a
+     * replay rebuilds the same generations) and deletes the segments they came from.
+     */
+    private void compact() {
+        List<Integer> oldIds = new ArrayList<>(segments.keySet());
+        long oldest = clock.getAsLong() - maxAgeMs;
+        Map<String, Slot> live = new HashMap<>(index);
+        index.clear();
+        liveBytes = 0;
+        long reclaimed = totalBytes;
+        relaidOut = true;
+        // Copies go to segments numbered after every old one, so replay order stays log order
+        activeId = nextSegmentId();
+        try {
+            for (Map.Entry<String, Slot> entry : live.entrySet()) {
+                Slot slot = entry.getValue();
+                if (slot.fresh().timestamp() < oldest) {
+                    continue;
+                }
+                if (slot.stale() != null && slot.stale().timestamp() >= oldest) {
+                    index(entry.getKey(), copy(slot.stale()));
+                }
+                index(entry.getKey(), copy(slot.fresh()));
+            }
+            for (int id : oldIds) {
+                FileChannel channel = segments.remove(id);
+                indexedTo.remove(id);
+                long size = channel.size();
+                channel.close();
+                Files.deleteIfExists(segmentPath(id));
+                totalBytes -= size;
+            }
+            lastAccess.keySet().retainAll(index.keySet());
+            reclaimed -= totalBytes;
+            OmnisearchMod.LOGGER.debug("[SegmentStore] compacted {} segments, reclaimed {} bytes", oldIds.size(), reclaimed);
+        } catch (IOException e) {
+            // The old segments are intact; start over from what is on disk
+            OmnisearchMod.LOGGER.warn("[SegmentStore] compaction of {} failed: {}", dir, e.toString());
+            closeChannels();
+            index.clear();
+            lastAccess.clear();
+            indexedTo.clear();
+            totalBytes = 0;
+            liveBytes = 0;
+            loaded = false;
+        }
+    }
+
+    private Location copy(Location from) throws IOException {
+        FileChannel source = channel(from.segment());
+        ByteBuffer record = readFully(source, from.offset(), from.length(), source.size());
+        if (record == null) {
+            throw new EOFException("record beyond end of " + segmentPath(from.segment()));
+        }
+        return append(record, from.generation(), from.timestamp());
+    }
+
+    /**
+     * The record of {@code key} written at {@code notBefore} or later. In a shared store a
+     * miss first catches up with the other processes, one of which may have written it.
+     */
+    private @Nullable byte[] lookup(String key, long notBefore, boolean stale) {
+        if (loaded) {
+            byte[] found = find(key, notBefore, stale);
+            if (found != null || (lock == null && !segmentMissing)) {
+                return found;
+            }
+        }
+        boolean entered = enter();
+        try {
+            return find(key, notBefore, stale);
+        } finally {
+            exit(entered);
+        }
+    }
+
+    private @Nullable byte[] find(String key, long notBefore, boolean stale) {
+        Slot slot = index.get(key);
+        Location location = slot == null ? null : stale ? slot.stale() : slot.fresh();
+        return location != null && location.timestamp() >= notBefore ? read(location) : null;
+    }
+
+    private @Nullable byte[] read(Location location) {
+        try {
+            FileChannel channel = channel(location.segment());
+            ByteBuffer record = readFully(channel, location.offset(), location.length(), channel.size());
+            if (record == null) {
+                return null;
+            }
+            record.position(HEADER_BYTES);
+            ByteBuffer body = record.slice();
+            if (crc(body) != record.getInt(8)) {
+                return null;
+            }
+            return decode(body).payload();
+        } catch (NoSuchFileException e) {
+            segmentMissing = true;
+            return null;
+        } catch (IOException e) {
+            return null; // unreadable record → cache miss
+        }
+    }
+
+    private int nextSegmentId() {
+        return Math.max(activeId, segments.isEmpty() ? 0 : segments.lastKey()) + 1;
+    }
+
+    /** An existing segment; one that is gone throws {@link NoSuchFileException} rather than coming back empty. */
+    private FileChannel channel(int id) throws IOException {
+        return channel(id, false);
+    }
+
+    /** @param create whether a missing file is created; only for the active segment */
+    private FileChannel channel(int id, boolean create) throws IOException {
+        FileChannel channel = segments.get(id);
+        if (channel == null || !channel.isOpen()) {
+            channel = create
+                ? FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(segmentPath(id), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(id, channel);
+        }
+        return channel;
+    }
+
+    private void closeChannels() {
+        for (FileChannel channel : segments.values()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        segments.clear();
+    }
+
+    private List<Integer> segmentIds() throws IOException {
+        List<Integer> ids = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return ids;
+        }
+        try (var files = Files.list(dir)) {
+            files.forEach(path -> {
+                Matcher m = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (m.matches()) {
+                    ids.add(Integer.parseInt(m.group(1)));
+                }
+            });
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private Path segmentPath(int id) {
+        return dir.resolve(String.format("seg-%06d.log", id));
+    }
+
+    // ──────────────────────────────────────────────
+    // Record format
+    // ──────────────────────────────────────────────
+
+    static ByteBuffer encode(int schemaVersion, long generation, long timestamp, String key, byte[] payload) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int bodyLength = 4 + 8 + 8 + 4 + keyBytes.length + 4 + payload.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        buffer.putInt(MAGIC).putInt(bodyLength).putInt(0);
+        buffer.putInt(schemaVersion).putLong(generation).putLong(timestamp);
+        buffer.putInt(keyBytes.length).put(keyBytes);
+        buffer.putInt(payload.length).put(payload);
+        buffer.putInt(8, crc(buffer.slice(HEADER_BYTES, bodyLength)));
+        buffer.flip();
+        return buffer;
+    }
+
+    private static Decoded decode(ByteBuffer body) {
+        int version = body.getInt();
+        long generation = body.getLong();
+        long timestamp = body.getLong();
+        byte[] key = new byte[body.getInt()];
+        body.get(key);
+        byte[] payload = new byte[body.getInt()];
+        body.get(payload);
+        return new Decoded(version, generation, timestamp, new String(key, StandardCharsets.UTF_8), payload);
+    }
+
+    private static int crc(ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /** Reads {@code length} bytes at {@code offset}, or null if the file ends first. */
+    private static @Nullable ByteBuffer readFully(FileChannel channel, long offset, int length, long size) throws IOException {
+        if (offset + length > size) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,266 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a {@link SegmentStore} directory shared by several processes, and the
+ * change counters that tell each of them what the others did.
+ * <p>
+ * The lock is an OS file lock on the lock file, which the OS drops if its process dies.
+ * File locks belong to the whole JVM, so stores in the same JVM also take a per-file
+ * {@link ReentrantLock} first. The lock is reentrant, so the nested operations of one
+ * store operation take the file lock only once.
+ * <p>
+ * The lock file's first 16 bytes hold two counters, read and written only while the lock
+ * is held:
+ * <ul>
+ *   <li>{@code changes} goes up whenever records are appended;</li>
+ *   <li>{@code layouts} goes up whenever segments are rewritten or deleted (compaction,
+ *       eviction, clear), which invalidates every location another process has indexed.</li>
+ * </ul>
+ * The lock file is never deleted. A process still holding the old file would no longer
+ * exclude one that created a new file.
+ * <p>
+ * The lock itself is only held for the length of an operation, so each open store also
+ * holds a shared lock on {@value #PRESENCE_FILE} next to it, until it is closed.
+ * {@link #lockIfUnused} takes both exclusively, which tells whether any process still
+ * uses a directory, e.g. one a newer cache version left behind.
+ */
+final class StoreLock implements AutoCloseable {
+
+    /** The counters as of some moment; equal versions mean nothing happened in between. */
+    record Version(long changes, long layouts) {}
+
+    static final String PRESENCE_FILE = "instances.lock";
+
+    private static final ConcurrentHashMap<Path, ReentrantLock> IN_PROCESS = new ConcurrentHashMap<>();
+    // Presence file → this JVM's shared lock on it; file locks cannot overlap within one JVM
+    private static final ConcurrentHashMap<Path, Presence> PRESENT = new ConcurrentHashMap<>();
+
+    // The shared lock lives as long as the channel
+    private static final class Presence {
+        final FileChannel channel;
+        int holders;
+
+        Presence(FileChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final Path file;
+    private final Path presenceFile;
+    private final ReentrantLock local;
+    private FileChannel channel;
+    private FileLock held;
+    private boolean present;
+
+    StoreLock(Path file) {
+        this.file = file.toAbsolutePath().normalize();
+        this.presenceFile = this.file.resolveSibling(PRESENCE_FILE);
+        this.local = IN_PROCESS.computeIfAbsent(this.file, path -> new ReentrantLock());
+    }
+
+    /** Blocks until this thread holds the lock, against other threads and other processes. */
+    void lock() throws IOException {
+        local.lock();
+        if (local.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            if (channel == null || !channel.isOpen()) {
+                Files.createDirectories(file.getParent());
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+            if (!present) {
+                joinPresence();
+                present = true;
+            }
+            held = channel.lock();
+        } catch (IOException | RuntimeException e) {
+            local.unlock();
+            throw e;
+        }
+    }
+
+    void unlock() {
+        try {
+            if (local.getHoldCount() == 1 && held != null) {
+                held.release();
+            }
+        } catch (IOException ignored) {
+            // The channel is gone, and the lock with it
+        } finally {
+            if (local.getHoldCount() == 1) {
+                held = null;
+            }
+            local.unlock();
+        }
+    }
+
+    /** Whether the calling thread holds the lock. */
+    boolean held() {
+        return local.isHeldByCurrentThread();
+    }
+
+    /** Whether the calling thread holds the lock and this is its outermost hold. */
+    boolean outermost() {
+        return local.getHoldCount() == 1;
+    }
+
+    /** The current counters; zeros for a new lock file. Only while locked. */
+    Version read() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) <= 0) {
+                return new Version(0, 0);
+            }
+        }
+        buffer.flip();
+        return new Version(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Records one more change, and one more layout change if {@code layoutChanged}. Only
+     * while locked.
+     *
+     * @return the new counters
+     */
+    Version publish(boolean layoutChanged) throws IOException {
+        Version current = read();
+        Version next = new Version(current.changes() + 1, current.layouts() + (layoutChanged ? 1 : 0));
+        ByteBuffer buffer = ByteBuffer.allocate(16).putLong(next.changes()).putLong(next.layouts()).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, buffer.position());
+        }
+        return next;
+    }
+
+    /**
+     * Closes the lock file; the next {@link #lock} opens it again. Closing a channel may drop
+     * every lock the JVM holds on the file, so this waits until no other store in this JVM
+     * holds it.
+     */
+    @Override
+    public void close() {
+        local.lock();
+        try {
+            if (present) {
+                leavePresence();
+                present = false;
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+                channel = null;
+                held = null;
+            }
+        } finally {
+            local.unlock();
+        }
+    }
+
+    private void joinPresence() throws IOException {
+        try {
+            PRESENT.compute(presenceFile, (path, presence) -> {
+                if (presence == null) {
+                    try {
+                        FileChannel shared = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+                        try {
+                            shared.lock(0, Long.MAX_VALUE, true);
+                            presence = new Presence(shared);
+                        } catch (IOException | RuntimeException e) {
+                            shared.close();
+                            throw e;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                presence.holders++;
+                return presence;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void leavePresence() {
+        PRESENT.computeIfPresent(presenceFile, (path, presence) -> {
+            if (--presence.holders > 0) {
+                return presence;
+            }
+            try {
+                presence.channel.close();
+            } catch (IOException ignored) {
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Takes the lock and the presence file of the store in {@code dir} exclusively if no
+     * store, in this process or another, has it open or is in the middle of an operation.
+     * Missing files are not created.
+     *
+     * @return releases both when closed; null if the store is in use
+     */
+    static @Nullable Closeable lockIfUnused(Path dir) {
+        Path lockFile = dir.resolve(SegmentStore.LOCK_FILE).toAbsolutePath().normalize();
+        Path presence = lockFile.resolveSibling(PRESENCE_FILE);
+        if (PRESENT.containsKey(presence)) {
+            return null;
+        }
+        ReentrantLock local = IN_PROCESS.computeIfAbsent(lockFile, path -> new ReentrantLock());
+        if (!local.tryLock()) {
+            return null;
+        }
+        List<FileChannel> channels = new ArrayList<>(2);
+        Closeable release = () -> {
+            for (FileChannel open : channels) {
+                try {
+                    open.close();
+                } catch (IOException ignored) {
+                }
+            }
+            local.unlock();
+        };
+        try {
+            for (Path path : List.of(presence, lockFile)) {
+                if (!Files.exists(path)) {
+                    continue;
+                }
+                FileChannel open = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channels.add(open);
+                if (open.tryLock() == null) {
+                    release.close();
+                    return null;
+                }
+            }
+            return release;
+        } catch (IOException | OverlappingFileLockException e) {
+            try {
+                release.close();
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Weight-bounded in-memory cache with W-TinyLFU admission and eviction.
+ * <p>
+ * New entries land in a small LRU window (1% of the weight budget) so a burst of
+ * one-off lookups cannot flush the cache. When the window overflows, its oldest entry
+ * competes with the main region's eviction victim and is admitted only if it has been
+ * requested more often, as estimated by a count-min sketch of recent access frequency.
+ * The main region is a segmented LRU: entries start in probation and move to the
+ * protected segment (80% of the main budget) when hit again. The sketch halves its
+ * counters periodically, so popularity fades with time.
+ * <p>
+ * Thread-safe; all operations take the cache's lock, none block on I/O.
+ */
+public final class TinyLfuCache<K, V> {
+
+    private enum Region { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        long weight;
+        Region region;
+
+        Node(K key, V value, long weight, Region region) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.region = region;
+        }
+    }
+
+    private final long maxWeight;
+    private final long windowMax;
+    private final long protectedMax;
+    private final FrequencySketch sketch;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<K, Node<K, V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<K, V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxWeight       total weight the cache may hold
+     * @param expectedEntries rough number of entries at capacity, to size the sketch
+     */
+    TinyLfuCache(long maxWeight, int expectedEntries) {
+        this.maxWeight = Math.max(1, maxWeight);
+        this.windowMax = Math.max(1, this.maxWeight / 100);
+        this.protectedMax = (this.maxWeight - windowMax) * 4 / 5;
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    synchronized @Nullable V get(K key) {
+        sketch.increment(key);
+        Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        switch (node.region) {
+            case WINDOW -> window.get(key);
+            case PROBATION -> promote(node);
+            case PROTECTED -> protectedSegment.get(key);
+        }
+        return node.value;
+    }
+
+    /** Whether {@code key} is resident, without counting as an access. */
+    synchronized boolean contains(K key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * Stores {@code value}. An entry heavier than the whole cache is not kept (and
+     * replaces nothing — any older value for the key is dropped).
+     */
+    synchronized void put(K key, V value, long weight) {
+        Node<K, V> existing = nodes.get(key);
+        if (weight > maxWeight) {
+            if (existing != null) {
+                remove(existing);
+            }
+            return;
+        }
+        if (existing != null) {
+            adjustWeight(existing, weight - existing.weight);
+            existing.value = value;
+            existing.weight = weight;
+            segment(existing.region).get(key);
+        } else {
+            sketch.increment(key);
+            Node<K, V> node = new Node<>(key, value, weight, Region.WINDOW);
+            nodes.put(key, node);
+            window.put(key, node);
+            windowWeight += weight;
+        }
+        evictWindow();
+        evictProtected();
+        evictMain();
+    }
+
+    synchronized void invalidate(K key) {
+        Node<K, V> node = nodes.get(key);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+    synchronized void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        windowWeight = 0;
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, nodes.size(), windowWeight + probationWeight + protectedWeight, maxWeight);
+    }
+
+    /**
+     * @param weight    current total weight of the entries held
+     * @param maxWeight the cache's weight budget
+     */
+    public record Stats(long hits, long misses, long evictions, int size, long weight, long maxWeight) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Region bookkeeping
+    // ──────────────────────────────────────────────
+
+    private LinkedHashMap<K, Node<K, V>> segment(Region region) {
+        return switch (region) {
+            case WINDOW -> window;
+            case PROBATION -> probation;
+            case PROTECTED -> protectedSegment;
+        };
+    }
+
+    private void adjustWeight(Node<K, V> node, long delta) {
+        switch (node.region) {
+            case WINDOW -> windowWeight += delta;
+            case PROBATION -> probationWeight += delta;
+            case PROTECTED -> protectedWeight += delta;
+        }
+    }
+
+    private void move(Node<K, V> node, Region to) {
+        segment(node.region).remove(node.key);
+        adjustWeight(node, -node.weight);
+        node.region = to;
+        segment(to).put(node.key, node);
+        adjustWeight(node, node.weight);
+    }
+
+    private void remove(Node<K, V> node) {
+        nodes.remove(node.key);
+        segment(node.region).remove(node.key);
+        adjustWeight(node, -node.weight);
+    }
+
+    /** A second hit moves a probation entry into the protected segment. */
+    private void promote(Node<K, V> node) {
+        move(node, Region.PROTECTED);
+        evictProtected();
+    }
+
+    /** Window overflow moves its oldest entries to probation, where they must earn their place. */
+    private void evictWindow() {
+        while (windowWeight > windowMax && !window.isEmpty()) {
+            move(window.values().iterator().next(), Region.PROBATION);
+        }
+    }
+
+    /** Protected overflow demotes its oldest entries back to probation. */
+    private void evictProtected() {
+        while (protectedWeight > protectedMax && !protectedSegment.isEmpty()) {
+            move(protectedSegment.values().iterator().next(), Region.PROBATION);
+        }
+    }
+
+    /**
+     * Shrinks the cache back under its budget. The newest probation entry (the window's
+     * latest cast-off) duels the oldest one: the less frequently used of the two goes.
+     */
+    private void evictMain() {
+        while (windowWeight + probationWeight + protectedWeight > maxWeight) {
+            Node<K, V> victim = null;
+            Node<K, V> candidate = null;
+            if (!probation.isEmpty()) {
+                Iterator<Node<K, V>> it = probation.values().iterator();
+                victim = it.next();
+                candidate = victim;
+                while (it.hasNext()) {
+                    candidate = it.next();
+                }
+            }
+            Node<K, V> evict;
+            if (victim == null) {
+                // Everything lives in the window or the protected segment
+                evict = !protectedSegment.isEmpty()
+                    ? protectedSegment.values().iterator().next()
+                    : window.values().iterator().next();
+            } else if (candidate == victim) {
+                evict = victim;
+            } else {
+                evict = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+            }
+            remove(evict);
+            evictions++;
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Frequency sketch
+    // ──────────────────────────────────────────────
+
+    /**
+     * Count-min sketch with four rows of saturating 4-bit counters. After ten times the
+     * expected number of entries have been counted, every counter is halved, so the
+     * estimates track recent rather than all-time popularity.
+     */
+    static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(16, Math.min(1 << 20, expectedEntries)) - 1) << 1;
+            this.table = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = 10 * Math.max(16, expectedEntries);
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (table[row][index] < MAX_COUNT) {
+                    table[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, table[row][indexOf(hash, row)]);
+            }
+            return min;
+        }
+
+        private void reset() {
+            for (byte[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >>> 1);
+                }
+            }
+            additions /= 2;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * 0x9E3779B1;
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x45D9F3B;
+            return h ^ (h >>> 16);
+        }
+    }
+}
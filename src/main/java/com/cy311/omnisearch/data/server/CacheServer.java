@@ -0,0 +1,345 @@
+package com.cy311.omnisearch.data.server;
+
+import com.cy311.omnisearch.OmnisearchMod;
+import com.cy311.omnisearch.data.client.KeepAliveTransport;
+import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.RequestExecutor;
+import com.cy311.omnisearch.data.client.SessionCookieStore;
+import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.SearchPageBatch;
+import com.cy311.omnisearch.data.model.SearchQuery;
+import com.cy311.omnisearch.data.model.document.DocNodeAdapterFactory;
+import com.cy311.omnisearch.data.repository.CacheLayer;
+import com.cy311.omnisearch.data.repository.SearchRepository;
+import com.cy311.omnisearch.data.source.CaptchaRequiredException;
+import com.cy311.omnisearch.data.source.McmodDataSource;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves one node's cache to the other clients on a LAN, so a team on the same modpack
+ * downloads and parses each mcmod.cn page once.
+ * <p>
+ * Read-only HTTP endpoints, answering JSON (gzipped when the client accepts it):
+ * <ul>
+ *   <li>{@value #PAGE_PATH}{@code ?id=item/123} — an {@link ItemPage}; 404 if there is no such page</li>
+ *   <li>{@value #SEARCH_PATH}{@code ?q=...} — the first {@link SearchPageBatch} of a search</li>
+ *   <li>{@value #SEARCH_PAGE_PATH}{@code ?url=...} — the batch of a {@code search.mcmod.cn}
+ *       result page URL, as found in a batch's {@code nextPageUrl}</li>
+ * </ul>
+ * Everything goes through the node's {@link SearchRepository}: cached entries are served
+ * as they are, misses are filled by its single rate-governed {@link McmodHttpClient} and
+ * cached for the next client, so mcmod.cn sees one polite crawler however many clients
+ * ask. If mcmod.cn answers with a CAPTCHA the request gets 503; the asking client then
+ * goes to mcmod.cn itself, where its user can solve it ({@link
+ * com.cy311.omnisearch.data.source.CacheServerDataSource}). A search that comes back empty
+ * without mcmod.cn confirming it (a throttle page, a failed request) gets 503 as well, so
+ * the client does not take it for "no results".
+ * <p>
+ * Every fill spends this node's mcmod.cn session, so the server listens on loopback unless
+ * {@value #BIND_PROPERTY} names another address, and serving beyond loopback requires a
+ * shared token ({@value #TOKEN_PROPERTY}) that clients send as a bearer token; requests
+ * without it get 401.
+ * <p>
+ * Runs inside a client ({@value #PORT_PROPERTY}) or headless via {@link #main}.
+ */
+public final class CacheServer implements AutoCloseable {
+
+    /** System property: serve this client's cache on the given port. */
+    public static final String PORT_PROPERTY = "omnisearch.cacheServer.port";
+    /** System property: address to listen on, e.g. {@code 0.0.0.0}; loopback if unset. */
+    public static final String BIND_PROPERTY = "omnisearch.cacheServer.bind";
+    /** System property: shared token clients must send; required to listen beyond loopback. */
+    public static final String TOKEN_PROPERTY = "omnisearch.cacheServer.token";
+    public static final int DEFAULT_PORT = 25590;
+    public static final String PAGE_PATH = "/v1/page";
+    public static final String SEARCH_PATH = "/v1/search";
+    public static final String SEARCH_PAGE_PATH = "/v1/searchpage";
+
+    private static final Pattern PAGE_ID = Pattern.compile("(item|class)/\\d+");
+    private static final String SEARCH_HOST = "search.mcmod.cn";
+    // Longer than a client waits: an abandoned fill still lands in the cache for the retry
+    private static final long UPSTREAM_TIMEOUT_MS = 60_000;
+    private static final int THREADS = 8;
+    private static final String BEARER = "Bearer ";
+
+    private record Reply(int status, @Nullable Object body) {}
+
+    private final SearchRepository repository;
+    private final byte @Nullable [] token;
+    private final Gson gson = new GsonBuilder()
+        .registerTypeAdapterFactory(new DocNodeAdapterFactory())
+        .create();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Starts serving {@code repository} on a loopback {@code address} (port 0 picks a free
+     * one), without a token.
+     *
+     * @throws IOException if the address cannot be bound
+     */
+    public CacheServer(SearchRepository repository, InetSocketAddress address) throws IOException {
+        this(repository, address, null);
+    }
+
+    /**
+     * Starts serving {@code repository} on {@code address} (port 0 picks a free one).
+     *
+     * @param token shared token every request must carry, or null to serve without one
+     * @throws IllegalArgumentException if {@code address} is not loopback and there is no token
+     * @throws IOException if the address cannot be bound
+     */
+    public CacheServer(SearchRepository repository, InetSocketAddress address, @Nullable String token)
+            throws IOException {
+        boolean hasToken = token != null && !token.isBlank();
+        if (!hasToken && (address.getAddress() == null || !address.getAddress().isLoopbackAddress())) {
+            throw new IllegalArgumentException("serving " + address + " beyond loopback requires " + TOKEN_PROPERTY);
+        }
+        this.repository = repository;
+        this.token = hasToken ? token.getBytes(StandardCharsets.UTF_8) : null;
+        this.server = HttpServer.create(address, 0);
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "omnisearch-cache-server-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext(PAGE_PATH, exchange -> handle(exchange, this::page));
+        server.createContext(SEARCH_PATH, exchange -> handle(exchange, this::search));
+        server.createContext(SEARCH_PAGE_PATH, exchange -> handle(exchange, this::searchPage));
+        server.start();
+        OmnisearchMod.LOGGER.info("[CacheServer] serving the cache on {}", server.getAddress());
+    }
+
+    /**
+     * The address to listen on: {@code host} if given, else loopback. A host that is not
+     * loopback serves the LAN and needs a token.
+     */
+    public static InetSocketAddress bindAddress(@Nullable String host, int port) {
+        return host == null || host.isBlank()
+            ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+            : new InetSocketAddress(host, port);
+    }
+
+    /** The bound port. */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /** Requests answered with content, and requests that failed upstream. */
+    public long servedCount() {
+        return served.get();
+    }
+
+    public long failedCount() {
+        return failed.get();
+    }
+
+    /** Stops accepting requests, giving those in progress a second. The repository stays open. */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Headless server: {@code CacheServer <cacheDir> [port] [bindAddress]}, with the token
+     * from {@value #TOKEN_PROPERTY} when binding beyond loopback. Keeps its cookies next to
+     * the cache directory and runs until the process is stopped.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: CacheServer <cacheDir> [port] [bindAddress]");
+            System.exit(2);
+        }
+        Path cacheDir = Path.of(args[0]);
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        InetSocketAddress address = bindAddress(args.length > 2 ? args[2] : null, port);
+        String token = System.getProperty(TOKEN_PROPERTY);
+        boolean loopback = address.getAddress() != null && address.getAddress().isLoopbackAddress();
+        if ((token == null || token.isBlank()) && !loopback) {
+            System.err.println("serving " + address + " requires -D" + TOKEN_PROPERTY + "=<shared token>");
+            System.exit(2);
+        }
+        var cookies = SessionCookieStore.persistent(cacheDir.resolveSibling("cookies.json"), true);
+        var client = new McmodHttpClient(new RequestExecutor(), new KeepAliveTransport(), cookies);
+        var repository = new SearchRepository(new CacheLayer(cacheDir), new McmodDataSource(client), true);
+        repository.reparseArchiveInBackground();
+        var cacheServer = new CacheServer(repository, address, token);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            cacheServer.close();
+            repository.close();
+        }, "omnisearch-shutdown"));
+    }
+
+    // ──────────────────────────────────────────────
+    // Endpoints
+    // ──────────────────────────────────────────────
+
+    private Reply page(Map<String, String> params) {
+        String id = params.get("id");
+        if (id == null || !PAGE_ID.matcher(id).matches()) {
+            return new Reply(400, null);
+        }
+        return await(repository.getPage(id));
+    }
+
+    private Reply search(Map<String, String> params) {
+        String q = params.get("q");
+        if (q == null || q.isBlank()) {
+            return new Reply(400, null);
+        }
+        return await(repository.searchPage(new SearchQuery(q)));
+    }
+
+    private Reply searchPage(Map<String, String> params) {
+        String url = params.get("url");
+        // Only search result pages: anything else would make this an open proxy
+        if (url == null || !isSearchPageUrl(url)) {
+            return new Reply(400, null);
+        }
+        return await(repository.searchMore(url));
+    }
+
+    static boolean isSearchPageUrl(String url) {
+        try {
+            URI uri = URI.create(url);
+            return "https".equals(uri.getScheme()) && SEARCH_HOST.equals(uri.getHost()) && uri.getPort() == -1;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // ──────────────────────────────────────────────
+    // Exchange handling
+    // ──────────────────────────────────────────────
+
+    private void handle(HttpExchange exchange, Function<Map<String, String>, Reply> endpoint) {
+        try (exchange) {
+            Reply reply;
+            if (!authorized(exchange)) {
+                reply = new Reply(401, null);
+            } else if (!"GET".equals(exchange.getRequestMethod())) {
+                reply = new Reply(405, null);
+            } else {
+                reply = endpoint.apply(queryParams(exchange.getRequestURI().getRawQuery()));
+            }
+            respond(exchange, reply);
+        } catch (IOException | RuntimeException e) {
+            OmnisearchMod.LOGGER.debug("[CacheServer] {} failed: {}", exchange.getRequestURI(), e.toString());
+        }
+    }
+
+    /** Whether the request carries the server's token, if it has one. */
+    private boolean authorized(HttpExchange exchange) {
+        if (token == null) {
+            return true;
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith(BEARER)) {
+            return false;
+        }
+        return MessageDigest.isEqual(token, header.substring(BEARER.length()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Reply await(CompletableFuture<?> future) {
+        try {
+            Object value = future.get(UPSTREAM_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            if (value == null) {
+                return new Reply(404, null);
+            }
+            if (value instanceof SearchPageBatch batch && batch.results().isEmpty() && !batch.confirmedEmpty()) {
+                // Throttled or failed upstream rather than a search that matches nothing
+                failed.incrementAndGet();
+                return new Reply(503, null);
+            }
+            served.incrementAndGet();
+            return new Reply(200, value);
+        } catch (ExecutionException e) {
+            failed.incrementAndGet();
+            if (e.getCause() instanceof CaptchaRequiredException) {
+                return new Reply(503, null);
+            }
+            OmnisearchMod.LOGGER.debug("[CacheServer] upstream failed: {}", e.getCause().toString());
+            return new Reply(502, null);
+        } catch (TimeoutException e) {
+            failed.incrementAndGet();
+            return new Reply(504, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Reply(503, null);
+        }
+    }
+
+    private void respond(HttpExchange exchange, Reply reply) throws IOException {
+        if (reply.body() == null) {
+            exchange.sendResponseHeaders(reply.status(), -1);
+            return;
+        }
+        byte[] json = gson.toJson(reply.body()).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accept != null && accept.contains("gzip")) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(reply.status(), 0);
+            try (OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+                out.write(json);
+            }
+        } else {
+            exchange.sendResponseHeaders(reply.status(), json.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(json);
+            }
+        }
+    }
+
+    private static Map<String, String> queryParams(@Nullable String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) {
+                continue;
+            }
+            try {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException ignored) {
+                // Malformed escape; the parameter counts as missing
+            }
+        }
+        return params;
+    }
+}
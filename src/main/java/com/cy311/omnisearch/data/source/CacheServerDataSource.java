@@ -0,0 +1,239 @@
+package com.cy311.omnisearch.data.source;
+
+import com.cy311.omnisearch.OmnisearchMod;
+import com.cy311.omnisearch.data.client.Cancellation;
+import com.cy311.omnisearch.data.client.KeepAliveTransport;
+import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.Transport;
+import com.cy311.omnisearch.data.model.CacheValidators;
+import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.PageFetchResult;
+import com.cy311.omnisearch.data.model.SearchHit;
+import com.cy311.omnisearch.data.model.SearchPageBatch;
+import com.cy311.omnisearch.data.model.SearchQuery;
+import com.cy311.omnisearch.data.model.document.DocNodeAdapterFactory;
+import com.cy311.omnisearch.data.server.CacheServer;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * {@link McmodDataSource} that asks a team {@link CacheServer} first and only goes to
+ * mcmod.cn itself when the server cannot help.
+ * <p>
+ * Searches, result pages and detail pages come from the server. Everything else, such as
+ * CAPTCHA submissions and re-parsing archived HTML, is inherited and goes direct. A
+ * request falls back to the inherited direct fetch when the server is unreachable, fails,
+ * or answers 503 because mcmod.cn wants a CAPTCHA, which the user must then solve here,
+ * or because it was throttled and has no confirmed answer.
+ * After a connection failure the server is skipped for {@link #RETRY_AFTER_MS}, so a server
+ * that is down costs one timeout rather than one per request. A 404 is an answer, not a
+ * failure: the page does not exist.
+ * <p>
+ * Pages from the server carry no validators, so the local cache revalidates them through
+ * the server as full fetches; those are LAN round trips, not mcmod.cn requests.
+ */
+public class CacheServerDataSource extends McmodDataSource {
+
+    /** System property: base URL of the team cache server, e.g. {@code http://192.168.1.10:25590}. */
+    public static final String URL_PROPERTY = "omnisearch.cacheServer.url";
+
+    static final long RETRY_AFTER_MS = 60_000;
+    private static final int TIMEOUT_MS = 5_000;
+    private static final int THREADS = 4;
+
+    /** The server could not serve a request; the direct fetch takes over. */
+    private static final class ServerUnavailableException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ServerUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    private final String serverUrl;
+    private final @Nullable String token;
+    private final Transport transport;
+    private final LongSupplier clock;
+    private final Gson gson = new GsonBuilder()
+        .registerTypeAdapterFactory(new DocNodeAdapterFactory())
+        .create();
+    private final ExecutorService executor;
+    private volatile long skipUntil;
+
+    /**
+     * @param serverUrl base URL of the cache server, without a trailing path
+     * @param client    mcmod.cn client for the direct fallback
+     */
+    public CacheServerDataSource(String serverUrl, McmodHttpClient client) {
+        this(serverUrl, null, client);
+    }
+
+    /**
+     * @param serverUrl base URL of the cache server, without a trailing path
+     * @param token     the server's shared token ({@value CacheServer#TOKEN_PROPERTY}), or null
+     * @param client    mcmod.cn client for the direct fallback
+     */
+    public CacheServerDataSource(String serverUrl, @Nullable String token, McmodHttpClient client) {
+        this(serverUrl, token, new KeepAliveTransport(TIMEOUT_MS), client, System::currentTimeMillis);
+    }
+
+    CacheServerDataSource(String serverUrl, Transport transport, McmodHttpClient client, LongSupplier clock) {
+        this(serverUrl, null, transport, client, clock);
+    }
+
+    CacheServerDataSource(String serverUrl, @Nullable String token, Transport transport, McmodHttpClient client,
+                          LongSupplier clock) {
+        super(client);
+        this.serverUrl = serverUrl.endsWith("/") ? serverUrl.substring(0, serverUrl.length() - 1) : serverUrl;
+        this.token = token == null || token.isBlank() ? null : token;
+        this.transport = transport;
+        this.clock = clock;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread t = new Thread(r, "omnisearch-cache-peer-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public String name() {
+        return "mcmod via " + serverUrl;
+    }
+
+    @Override
+    public CompletableFuture<SearchPageBatch> searchPage(SearchQuery query) {
+        if (query == null || query.text() == null || query.text().isBlank()) {
+            return super.searchPage(query);
+        }
+        return viaServer(CacheServer.SEARCH_PATH + "?q=" + encode(query.text()), SearchPageBatch.class,
+            () -> super.searchPage(query));
+    }
+
+    @Override
+    public CompletableFuture<List<SearchHit>> refreshSearch(SearchQuery query) {
+        CompletableFuture<SearchPageBatch> page = viaServer(CacheServer.SEARCH_PATH + "?q=" + encode(query.text()),
+            SearchPageBatch.class, () -> null);
+        return Cancellation.propagate(page
+            .thenApply(SearchPageBatch::results)
+            .exceptionallyCompose(ex -> super.refreshSearch(query)), page);
+    }
+
+    @Override
+    public CompletableFuture<SearchPageBatch> searchMore(String pageUrl) {
+        if (pageUrl == null || pageUrl.isBlank()) {
+            return super.searchMore(pageUrl);
+        }
+        return viaServer(CacheServer.SEARCH_PAGE_PATH + "?url=" + encode(pageUrl), SearchPageBatch.class,
+            () -> super.searchMore(pageUrl));
+    }
+
+    @Override
+    public CompletableFuture<ItemPage> getPage(String pageId) {
+        return viaServer(pagePath(pageId), ItemPage.class, () -> super.getPage(pageId));
+    }
+
+    @Override
+    public CompletableFuture<PageFetchResult> fetchPage(String pageId, @Nullable CacheValidators validators) {
+        return fetchedViaServer(pageId, () -> super.fetchPage(pageId, validators));
+    }
+
+    @Override
+    public CompletableFuture<PageFetchResult> refreshPage(String pageId, @Nullable CacheValidators validators) {
+        return fetchedViaServer(pageId, () -> super.refreshPage(pageId, validators));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        transport.close();
+        super.close();
+    }
+
+    // ──────────────────────────────────────────────
+    // Internal
+    // ──────────────────────────────────────────────
+
+    private CompletableFuture<PageFetchResult> fetchedViaServer(String pageId,
+                                                                Supplier<CompletableFuture<PageFetchResult>> direct) {
+        CompletableFuture<ItemPage> page = viaServer(pagePath(pageId), ItemPage.class, () -> null);
+        return Cancellation.compose(page.handle((value, ex) -> ex), ex -> ex == null
+            ? CompletableFuture.completedFuture(new PageFetchResult.Fetched(page.join(), CacheValidators.NONE))
+            : direct.get());
+    }
+
+    /**
+     * Fetches {@code pathAndQuery} from the server, or runs {@code direct} if the server
+     * cannot answer. A null {@code direct} result means "fail instead", for callers that
+     * fall back on their own.
+     */
+    private <T> CompletableFuture<T> viaServer(String pathAndQuery, Class<T> type,
+                                               Supplier<CompletableFuture<T>> direct) {
+        CompletableFuture<T> remote = ask(pathAndQuery, type);
+        return Cancellation.compose(remote.handle((value, ex) -> ex), ex -> {
+            if (ex == null) {
+                return CompletableFuture.completedFuture(remote.join());
+            }
+            CompletableFuture<T> fallback = direct.get();
+            if (fallback == null) {
+                return CompletableFuture.failedFuture(ex);
+            }
+            OmnisearchMod.LOGGER.debug("[CacheServerDataSource] {} not served: {}", pathAndQuery, ex.toString());
+            return fallback;
+        });
+    }
+
+    private <T> CompletableFuture<T> ask(String pathAndQuery, Class<T> type) {
+        if (clock.getAsLong() < skipUntil) {
+            return CompletableFuture.failedFuture(new ServerUnavailableException("skipped after a recent failure"));
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> fetch(pathAndQuery, type), executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e); // closed
+        }
+    }
+
+    /** One blocking exchange with the server: the parsed body, null for 404, else an exception. */
+    private <T> @Nullable T fetch(String pathAndQuery, Class<T> type) {
+        Map<String, String> headers = token == null
+            ? Map.of("Accept", "application/json", "Accept-Encoding", "gzip")
+            : Map.of("Accept", "application/json", "Accept-Encoding", "gzip", "Authorization", "Bearer " + token);
+        Transport.Request request = Transport.Request.get(serverUrl + pathAndQuery, headers, Map.of());
+        try (Transport.Response response = transport.execute(request)) {
+            return switch (response.statusCode()) {
+                case 200 -> gson.fromJson(response.bodyText(), type);
+                case 404 -> null;
+                default -> throw new UncheckedIOException(
+                    new ServerUnavailableException("HTTP " + response.statusCode()));
+            };
+        } catch (IOException e) {
+            // Unreachable (or answering garbage): stop trying for a while
+            skipUntil = clock.getAsLong() + RETRY_AFTER_MS;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String pagePath(String pageId) {
+        return CacheServer.PAGE_PATH + "?id=" + encode(pageId == null ? "" : pageId);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -1,7 +1,10 @@
 package com.cy311.omnisearch.data.source;
 
 import com.cy311.omnisearch.data.model.CaptchaContext;
+import com.cy311.omnisearch.data.client.Cancellation;
+import com.cy311.omnisearch.data.model.CacheValidators;
 import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.PageFetchResult;
 import com.cy311.omnisearch.data.model.SearchPageBatch;
 import com.cy311.omnisearch.data.model.SearchHit;
 import com.cy311.omnisearch.data.model.SearchQuery;
@@ -15,4 +18,14 @@ public interface CaptchaCapableDataSource extends DataSource {
     CompletableFuture<SearchPageBatch> submitCaptchaForSearchPage(SearchQuery originalQuery, String pageUrl, CaptchaContext captcha, String answer);
 
     CompletableFuture<ItemPage> submitCaptchaForPage(String pageId, CaptchaContext captcha, String answer);
+
+    /**
+     * {@link #submitCaptchaForPage} as a fetch result, carrying the validators and HTML of the
+     * retried page when the source keeps them. By default it has neither.
+     */
+    default CompletableFuture<PageFetchResult.Fetched> submitCaptchaForPageFetch(String pageId, CaptchaContext captcha,
+                                                                                String answer) {
+        CompletableFuture<ItemPage> page = submitCaptchaForPage(pageId, captcha, answer);
+        return Cancellation.propagate(page.thenApply(p -> new PageFetchResult.Fetched(p, CacheValidators.NONE)), page);
+    }
 }
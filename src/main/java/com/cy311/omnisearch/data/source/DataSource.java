@@ -35,7 +35,9 @@ public interface DataSource {
      * </ul>
      *
      * @param pageId Page identifier (e.g. "item/123", "class/456")
-     * @return Future of the parsed page, or {@code null} if the pageId is invalid
+     * @return Future of the parsed page, or {@code null} if the pageId is invalid or the
+     *         source confirmed there is no such page; transient failures complete
+     *         exceptionally instead, since a null is remembered as a missing page
      */
     CompletableFuture<ItemPage> getPage(String pageId);
 
@@ -37,8 +37,17 @@ public class McmodCaptchaHandler {
         if (html == null || html.isBlank()) {
             return null;
         }
+        return parseCaptchaDom(Jsoup.parse(html, pageUrl), pageUrl);
+    }
 
-        Document doc = Jsoup.parse(html, pageUrl);
+    /**
+     * Parses an already-built CAPTCHA page tree into a CaptchaContext.
+     *
+     * @param doc     Jsoup tree of the CAPTCHA page, with {@code pageUrl} as its base URI
+     * @param pageUrl The URL that triggered the CAPTCHA
+     * @return CaptchaContext with image data and question, or null if parsing fails
+     */
+    public CaptchaContext parseCaptchaDom(Document doc, String pageUrl) {
 
         // Find image: <img src="data:image/png;base64,...">
         Element img = doc.selectFirst("img[src^=data:image/png;base64]");
@@ -1,17 +1,26 @@
 package com.cy311.omnisearch.data.source;
 
 import com.cy311.omnisearch.OmnisearchMod;
+import com.cy311.omnisearch.data.client.Cancellation;
+import com.cy311.omnisearch.data.client.HtmlResponse;
 import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.RequestExecutor;
+import com.cy311.omnisearch.data.model.CacheValidators;
 import com.cy311.omnisearch.data.model.CaptchaContext;
 import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.PageFetchResult;
 import com.cy311.omnisearch.data.model.SearchPageBatch;
 import com.cy311.omnisearch.data.model.SearchHit;
 import com.cy311.omnisearch.data.model.SearchQuery;
 import com.cy311.omnisearch.data.model.document.Document;
 import com.cy311.omnisearch.data.parser.McmodParser;
+import org.jetbrains.annotations.Nullable;
+import org.jsoup.Jsoup;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 
 /**
@@ -21,12 +30,20 @@ import java.util.concurrent.CompletableFuture;
  * {@link McmodCaptchaHandler} to provide a unified async API for
  * searching and browsing mcmod.cn.
  * <p>
+ * Every returned future is linked with {@link Cancellation}: cancelling it cancels the
+ * underlying HTTP request, including the fallback or CAPTCHA-retry request if that
+ * stage has already started.
+ * <p>
  * Uses constructor injection for testability.
  */
-public class McmodDataSource implements CaptchaCapableDataSource, AutoCloseable {
+public class McmodDataSource implements CaptchaCapableDataSource, RevalidatingDataSource, ReparsingDataSource, AutoCloseable {
 
     private static final String BASE_URL = "https://www.mcmod.cn";
 
+    // Result pages requested at once by searchRemainingPages; the client's host slots
+    // and rate governor decide how fast they actually go out
+    static final int MAX_PARALLEL_PAGES = 3;
+
     private final McmodHttpClient client;
     private final McmodParser parser;
     private final McmodCaptchaHandler captchaHandler;
@@ -60,10 +77,24 @@ public class McmodDataSource implements CaptchaCapableDataSource, AutoCloseable
 
     @Override
     public CompletableFuture<List<SearchHit>> search(SearchQuery query) {
-        return searchPage(query).thenApply(SearchPageBatch::results);
+        CompletableFuture<SearchPageBatch> page = searchPage(query);
+        return Cancellation.propagate(page.thenApply(SearchPageBatch::results), page);
     }
 
     public CompletableFuture<SearchPageBatch> searchPage(SearchQuery query) {
+        return searchPage(query, client::getDocument);
+    }
+
+    /** Refreshes a cached search in the background lane, behind everything the user waits on. */
+    @Override
+    public CompletableFuture<List<SearchHit>> refreshSearch(SearchQuery query) {
+        CompletableFuture<SearchPageBatch> page =
+            searchPage(query, url -> client.getDocument(url, RequestExecutor.Priority.BACKGROUND));
+        return Cancellation.propagate(page.thenApply(SearchPageBatch::results), page);
+    }
+
+    private CompletableFuture<SearchPageBatch> searchPage(SearchQuery query,
+                                                          Function<String, CompletableFuture<HtmlResponse>> get) {
         if (query == null || query.text() == null || query.text().isBlank()) {
             return CompletableFuture.completedFuture(new SearchPageBatch(List.of(), null));
         }
@@ -71,28 +102,67 @@ public class McmodDataSource implements CaptchaCapableDataSource, AutoCloseable
         // param is not sent. Fall back to filter=0 only if the primary query yields nothing.
         String primaryUrl = McmodHttpClient.buildSearchUrl(query.text(), 1, 3);
         String fallbackUrl = McmodHttpClient.buildSearchUrl(query.text(), 1, 0);
-        return fetchSearchPage(primaryUrl, "primary")
-            .thenCompose(batch -> {
-                if (!batch.results().isEmpty() || (batch.nextPageUrl() != null && !batch.nextPageUrl().isBlank())) {
-                    return CompletableFuture.completedFuture(batch);
-                }
-                OmnisearchMod.LOGGER.warn(
-                    "[McmodDataSource] primary search returned no results for query='{}'; retrying fallback url={}",
-                    query.text(),
-                    fallbackUrl
-                );
-                return fetchSearchPage(fallbackUrl, "fallback");
-            });
+        return Cancellation.compose(fetchSearchPage(primaryUrl, "primary", get), batch -> {
+            if (!batch.results().isEmpty() || (batch.nextPageUrl() != null && !batch.nextPageUrl().isBlank())) {
+                return CompletableFuture.completedFuture(batch);
+            }
+            OmnisearchMod.LOGGER.warn(
+                "[McmodDataSource] primary search returned no results for query='{}'; retrying fallback url={}",
+                query.text(),
+                fallbackUrl
+            );
+            return fetchSearchPage(fallbackUrl, "fallback", get);
+        });
     }
 
     /**
      * Fetches a specific page of search results using the real next-page URL parsed from the site.
+     * Runs in the prefetch lane: eager pagination yields to searches and detail pages.
      */
     public CompletableFuture<SearchPageBatch> searchMore(String pageUrl) {
         if (pageUrl == null || pageUrl.isBlank()) {
             return CompletableFuture.completedFuture(new SearchPageBatch(List.of(), null));
         }
-        return fetchSearchPage(pageUrl, "next");
+        return parseSearchResponse(client.getDocument(pageUrl, RequestExecutor.Priority.PREFETCH), pageUrl, "next");
+    }
+
+    /**
+     * Fetches every page after {@code first} in parallel (see {@link SearchPageFanOut}),
+     * delivering each to {@code onPage} as it arrives — not necessarily in page order.
+     * Falls back to walking {@code nextPageUrl} one page at a time when the first page
+     * did not report its number.
+     *
+     * @return completes once every page was delivered; cancelling it cancels the pages in flight
+     */
+    public CompletableFuture<Void> searchRemainingPages(SearchPageBatch first, Consumer<SearchPageBatch> onPage) {
+        return searchRemainingPages(first, this::searchMore, onPage);
+    }
+
+    /**
+     * {@link #searchRemainingPages(SearchPageBatch, Consumer)} loading each page URL with
+     * {@code fetch} instead of {@link #searchMore}, e.g. to answer pages from a cache.
+     */
+    public CompletableFuture<Void> searchRemainingPages(SearchPageBatch first,
+                                                        Function<String, CompletableFuture<SearchPageBatch>> fetch,
+                                                        Consumer<SearchPageBatch> onPage) {
+        if (first.nextPageUrl() == null || first.nextPageUrl().isBlank()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (first.page() < 1) {
+            return walkRemainingPages(first.nextPageUrl(), fetch, onPage);
+        }
+        return SearchPageFanOut.start(first, fetch, onPage, MAX_PARALLEL_PAGES);
+    }
+
+    private CompletableFuture<Void> walkRemainingPages(String pageUrl, Function<String, CompletableFuture<SearchPageBatch>> fetch,
+                                                       Consumer<SearchPageBatch> onPage) {
+        return Cancellation.compose(fetch.apply(pageUrl), batch -> {
+            onPage.accept(batch);
+            if (batch.nextPageUrl() == null || batch.nextPageUrl().isBlank()) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            return walkRemainingPages(batch.nextPageUrl(), fetch, onPage);
+        });
     }
 
     @Override
@@ -101,52 +171,120 @@ public class McmodDataSource implements CaptchaCapableDataSource, AutoCloseable
             return CompletableFuture.completedFuture(null);
         }
 
-        String url = BASE_URL + "/" + pageId + ".html";
-
-        CompletableFuture<String> htmlFuture;
-        if (pageId.startsWith("item/")) {
-            String itemId = pageId.substring("item/".length());
-            htmlFuture = client.getItemPage(itemId);
-        } else if (pageId.startsWith("class/")) {
-            String modId = pageId.substring("class/".length());
-            htmlFuture = client.getModPage(modId);
-        } else {
+        if (!isDetailPageId(pageId)) {
             return CompletableFuture.completedFuture(null);
         }
+        String url = BASE_URL + "/" + pageId + ".html";
+        CompletableFuture<HtmlResponse> response = client.getDocument(url);
+        return Cancellation.propagate(response.thenApply(res -> parseDetailPage(pageId, res, url)), response);
+    }
 
-        return htmlFuture.thenApply(html -> {
-            if (html.isBlank()) return null;
-            checkCaptcha(html, url);
-            Document doc;
-            try {
-                if (pageId.startsWith("item/")) {
-                    doc = parser.parseItemPage(html, url);
-                } else {
-                    doc = parser.parseModPage(html, url);
-                }
-            } catch (Exception e) {
-                com.cy311.omnisearch.OmnisearchMod.LOGGER.error("[McmodDataSource] parseItemPage exception", e);
-                throw e;
+    /**
+     * Fetches a detail page with a conditional GET when validators are known. A 304 skips
+     * the download and the parse; a full response is parsed as in {@link #getPage}.
+     */
+    @Override
+    public CompletableFuture<PageFetchResult> fetchPage(String pageId, @Nullable CacheValidators validators) {
+        return fetchPage(pageId, validators, RequestExecutor.Priority.INTERACTIVE);
+    }
+
+    /** {@link #fetchPage(String, CacheValidators)} in the background lane. */
+    @Override
+    public CompletableFuture<PageFetchResult> refreshPage(String pageId, @Nullable CacheValidators validators) {
+        return fetchPage(pageId, validators, RequestExecutor.Priority.BACKGROUND);
+    }
+
+    private CompletableFuture<PageFetchResult> fetchPage(String pageId, @Nullable CacheValidators validators,
+                                                         RequestExecutor.Priority priority) {
+        if (pageId == null || !isDetailPageId(pageId)) {
+            return CompletableFuture.completedFuture(new PageFetchResult.Fetched(null, CacheValidators.NONE));
+        }
+        String url = BASE_URL + "/" + pageId + ".html";
+        CompletableFuture<HtmlResponse> response =
+            client.getConditional(url, validators != null ? validators : CacheValidators.NONE, priority);
+        return Cancellation.propagate(response.thenApply(res -> {
+            if (res.notModified()) {
+                OmnisearchMod.LOGGER.debug("[McmodDataSource] not modified: {}", url);
+                return new PageFetchResult.NotModified();
             }
-            return new ItemPage(pageId, doc.title(), doc.sourceMod(), doc, url);
-        });
+            return fetched(pageId, res, url);
+        }), response);
+    }
+
+    /** A full detail response as a fetch result, with the markup as served for the archive. */
+    private PageFetchResult.Fetched fetched(String pageId, HtmlResponse res, String url) {
+        ItemPage page = parseDetailPage(pageId, res, url);
+        return new PageFetchResult.Fetched(page, res.validators(), page != null ? res.html() : null);
+    }
+
+    @Override
+    public @Nullable ItemPage parsePage(String pageId, String html) {
+        if (pageId == null || !isDetailPageId(pageId)) {
+            return null;
+        }
+        String url = BASE_URL + "/" + pageId + ".html";
+        var res = new HtmlResponse(200, Jsoup.parse(html, url), HtmlResponse.Interstitial.NONE, CacheValidators.NONE);
+        return parseDetailPage(pageId, res, url);
     }
 
     // ──────────────────────────────────────────────
     // Internal
     // ──────────────────────────────────────────────
 
+    private static boolean isDetailPageId(String pageId) {
+        return pageId.startsWith("item/") || pageId.startsWith("class/");
+    }
+
     /**
-     * Checks if the HTML response is a CAPTCHA page and throws if so.
+     * Whether an empty batch is the site's own answer that the search found nothing: a 200
+     * search result page without results. Throttle and CAPTCHA pages never get here
+     * ({@link HtmlResponse#hasContent}), nor does any other page that merely parses empty.
      */
-    private void checkCaptcha(String html, String pageUrl) {
-        if (captchaHandler.isCaptchaPage(html)) {
-            CaptchaContext ctx = captchaHandler.parseCaptcha(html, pageUrl);
-            if (ctx != null) {
-                throw new CaptchaRequiredException(ctx);
+    private boolean confirmsNoResults(HtmlResponse res, SearchPageBatch batch) {
+        return batch.results().isEmpty()
+            && (batch.nextPageUrl() == null || batch.nextPageUrl().isBlank())
+            && res.statusCode() == 200
+            && parser.isSearchResultsPage(res.document());
+    }
+
+    /** Parses a detail page; null if mcmod.cn says there is no such page (404/410). */
+    private @Nullable ItemPage parseDetailPage(String pageId, HtmlResponse res, String url) {
+        checkInterstitial(res, url);
+        if (res.document() == null) return null;
+        if (res.statusCode() == 404 || res.statusCode() == 410) {
+            OmnisearchMod.LOGGER.debug("[McmodDataSource] no such page: {}", url);
+            return null;
+        }
+        Document doc;
+        try {
+            if (pageId.startsWith("item/")) {
+                doc = parser.parseItemPageDom(res.document(), url);
             } else {
-                throw new RuntimeException("检测到 mcmod.cn 验证码，但解析失败，可能页面结构已更改。");
+                doc = parser.parseModPageDom(res.document(), url);
+            }
+        } catch (Exception e) {
+            com.cy311.omnisearch.OmnisearchMod.LOGGER.error("[McmodDataSource] parseItemPage exception", e);
+            throw e;
+        }
+        return new ItemPage(pageId, doc.title(), doc.sourceMod(), doc, url);
+    }
+
+    /**
+     * Throws if the response is a CAPTCHA challenge, or a throttle page the client's
+     * retries could not get past — neither may be parsed (or cached) as a detail page.
+     */
+    private void checkInterstitial(HtmlResponse res, String pageUrl) {
+        switch (res.interstitial()) {
+            case CAPTCHA -> {
+                CaptchaContext ctx = res.document() != null ? captchaHandler.parseCaptchaDom(res.document(), pageUrl) : null;
+                if (ctx != null) {
+                    throw new CaptchaRequiredException(ctx);
+                } else {
+                    throw new RuntimeException("检测到 mcmod.cn 验证码，但解析失败，可能页面结构已更改。");
+                }
             }
+            case RATE_LIMITED -> throw new RuntimeException("mcmod.cn 请求过于频繁，请稍后再试。");
+            case NONE -> { }
         }
     }
 
@@ -158,41 +296,56 @@ public class McmodDataSource implements CaptchaCapableDataSource, AutoCloseable
      * We then retry the search with the now-valid cookies.
      */
     public CompletableFuture<List<SearchHit>> submitCaptcha(SearchQuery originalQuery, CaptchaContext captcha, String answer) {
-        return submitCaptchaForSearchPage(originalQuery, McmodHttpClient.buildSearchUrl(originalQuery.text()), captcha, answer)
-            .thenApply(SearchPageBatch::results);
+        CompletableFuture<SearchPageBatch> page =
+            submitCaptchaForSearchPage(originalQuery, McmodHttpClient.buildSearchUrl(originalQuery.text()), captcha, answer);
+        return Cancellation.propagate(page.thenApply(SearchPageBatch::results), page);
     }
 
     @Override
     public CompletableFuture<SearchPageBatch> submitCaptchaForSearchPage(SearchQuery originalQuery, String pageUrl, CaptchaContext captcha, String answer) {
-        return client.submitCaptcha(captcha.answerUrl(), answer, captcha.hiddenFields())
-            .thenCompose(html -> {
-                if (html == null || html.isBlank()) return CompletableFuture.completedFuture(new SearchPageBatch(List.of(), null));
-                if (captchaHandler.isCaptchaPage(html)) {
-                    CaptchaContext newCtx = captchaHandler.parseCaptcha(html, captcha.answerUrl());
-                    if (newCtx != null) {
-                        throw new CaptchaRequiredException(newCtx);
-                    } else {
-                        throw new RuntimeException("检测到 mcmod.cn 验证码，但解析失败，可能页面结构已更改。");
-                    }
+        return Cancellation.compose(client.submitCaptcha(captcha.answerUrl(), answer, captcha.hiddenFields()), html -> {
+            if (html == null || html.isBlank()) return CompletableFuture.completedFuture(new SearchPageBatch(List.of(), null));
+            if (captchaHandler.isCaptchaPage(html)) {
+                CaptchaContext newCtx = captchaHandler.parseCaptcha(html, captcha.answerUrl());
+                if (newCtx != null) {
+                    throw new CaptchaRequiredException(newCtx);
+                } else {
+                    throw new RuntimeException("检测到 mcmod.cn 验证码，但解析失败，可能页面结构已更改。");
                 }
-                String targetUrl = (pageUrl == null || pageUrl.isBlank())
-                    ? McmodHttpClient.buildSearchUrl(originalQuery.text())
-                    : pageUrl;
-                return fetchSearchPage(targetUrl, "captcha-resume");
-            });
+            }
+            String targetUrl = (pageUrl == null || pageUrl.isBlank())
+                ? McmodHttpClient.buildSearchUrl(originalQuery.text())
+                : pageUrl;
+            return fetchSearchPage(targetUrl, "captcha-resume");
+        });
     }
 
     private CompletableFuture<SearchPageBatch> fetchSearchPage(String url, String phase) {
-        return client.getHtml(url)
-            .thenApply(html -> {
-                int htmlLength = html == null ? -1 : html.length();
-                OmnisearchMod.LOGGER.debug("[McmodDataSource] fetchSearchPage phase={} url={} htmlLength={}", phase, url, htmlLength);
-                if (html == null || html.isBlank()) {
-                    OmnisearchMod.LOGGER.warn("[McmodDataSource] empty search html phase={} url={}", phase, url);
+        return fetchSearchPage(url, phase, client::getDocument);
+    }
+
+    private CompletableFuture<SearchPageBatch> fetchSearchPage(String url, String phase,
+                                                               Function<String, CompletableFuture<HtmlResponse>> get) {
+        return parseSearchResponse(get.apply(url), url, phase);
+    }
+
+    private CompletableFuture<SearchPageBatch> parseSearchResponse(CompletableFuture<HtmlResponse> response, String url, String phase) {
+        return Cancellation.propagate(response
+            .thenApply(res -> {
+                OmnisearchMod.LOGGER.debug("[McmodDataSource] fetchSearchPage phase={} url={} status={} interstitial={}",
+                    phase, url, res.statusCode(), res.interstitial());
+                if (res.interstitial() == HtmlResponse.Interstitial.CAPTCHA) {
+                    checkInterstitial(res, url);
+                }
+                if (!res.hasContent()) {
+                    OmnisearchMod.LOGGER.warn("[McmodDataSource] no search page to parse phase={} url={} interstitial={}",
+                        phase, url, res.interstitial());
                     return new SearchPageBatch(List.of(), null);
                 }
-                checkCaptcha(html, url);
-                SearchPageBatch batch = parser.parseSearchPage(html, url);
+                SearchPageBatch batch = parser.parseSearchPageDom(res.document(), url);
+                if (confirmsNoResults(res, batch)) {
+                    batch = new SearchPageBatch(List.of(), null, batch.page(), batch.totalPages(), true);
+                }
                 OmnisearchMod.LOGGER.info(
                     "[McmodDataSource] parsed search phase={} url={} results={} nextPageUrl={}",
                     phase,
@@ -201,47 +354,43 @@ public class McmodDataSource implements CaptchaCapableDataSource, AutoCloseable
                     batch.nextPageUrl()
                 );
                 return batch;
-            });
+            }), response);
     }
 
     /**
      * Submits a CAPTCHA answer and retries the original page request.
      */
     public CompletableFuture<ItemPage> submitCaptchaForPage(String pageId, CaptchaContext captcha, String answer) {
+        CompletableFuture<PageFetchResult.Fetched> fetch = submitCaptchaForPageFetch(pageId, captcha, answer);
+        return Cancellation.propagate(fetch.thenApply(PageFetchResult.Fetched::page), fetch);
+    }
+
+    /**
+     * {@link #submitCaptchaForPage}, also handing out the validators and the HTML of the
+     * retried page so it is cached and archived like any other fetch.
+     */
+    @Override
+    public CompletableFuture<PageFetchResult.Fetched> submitCaptchaForPageFetch(String pageId, CaptchaContext captcha,
+                                                                              String answer) {
         String url = BASE_URL + "/" + pageId + ".html";
-        return client.submitCaptcha(captcha.answerUrl(), answer, captcha.hiddenFields())
-            .thenCompose(html -> {
-                if (html == null || html.isBlank()) return CompletableFuture.completedFuture(null);
-                if (captchaHandler.isCaptchaPage(html)) {
-                    CaptchaContext newCtx = captchaHandler.parseCaptcha(html, captcha.answerUrl());
-                    if (newCtx != null) {
-                        throw new CaptchaRequiredException(newCtx);
-                    } else {
-                        throw new RuntimeException("检测到 mcmod.cn 验证码，但解析失败，可能页面结构已更改。");
-                    }
+        PageFetchResult.Fetched nothing = new PageFetchResult.Fetched(null, CacheValidators.NONE);
+        return Cancellation.compose(client.submitCaptcha(captcha.answerUrl(), answer, captcha.hiddenFields()), html -> {
+            if (html == null || html.isBlank()) return CompletableFuture.completedFuture(nothing);
+            if (captchaHandler.isCaptchaPage(html)) {
+                CaptchaContext newCtx = captchaHandler.parseCaptcha(html, captcha.answerUrl());
+                if (newCtx != null) {
+                    throw new CaptchaRequiredException(newCtx);
+                } else {
+                    throw new RuntimeException("检测到 mcmod.cn 验证码，但解析失败，可能页面结构已更改。");
                 }
-                // Success: cookies now valid, retry the page request
-                String itemId = pageId.startsWith("item/") ? pageId.substring("item/".length()) : "";
-                CompletableFuture<String> pageFuture = pageId.startsWith("item/")
-                    ? client.getItemPage(itemId)
-                    : client.getModPage(pageId.startsWith("class/") ? pageId.substring("class/".length()) : "");
-                return pageFuture.thenApply(pageHtml -> {
-                    if (pageHtml == null || pageHtml.isBlank()) return null;
-                    if (captchaHandler.isCaptchaPage(pageHtml)) {
-                        CaptchaContext newCtx = captchaHandler.parseCaptcha(pageHtml, url);
-                        if (newCtx != null) {
-                            throw new CaptchaRequiredException(newCtx);
-                        }
-                    }
-                    Document doc;
-                    if (pageId.startsWith("item/")) {
-                        doc = parser.parseItemPage(pageHtml, url);
-                    } else {
-                        doc = parser.parseModPage(pageHtml, url);
-                    }
-                    return new ItemPage(pageId, doc.title(), doc.sourceMod(), doc, url);
-                });
-            });
+            }
+            // Success: cookies now valid, retry the page request
+            if (!isDetailPageId(pageId)) {
+                return CompletableFuture.completedFuture(nothing);
+            }
+            CompletableFuture<HtmlResponse> pageFuture = client.getConditional(url, CacheValidators.NONE);
+            return Cancellation.propagate(pageFuture.thenApply(res -> fetched(pageId, res, url)), pageFuture);
+        });
     }
 
     @Override
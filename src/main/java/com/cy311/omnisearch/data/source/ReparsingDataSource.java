@@ -0,0 +1,20 @@
+package com.cy311.omnisearch.data.source;
+
+import com.cy311.omnisearch.data.model.ItemPage;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A data source that hands out the HTML behind the pages it fetches
+ * ({@link com.cy311.omnisearch.data.model.PageFetchResult.Fetched#html()}) and can parse
+ * that HTML again later, so a parser upgrade re-derives cached pages without the network.
+ */
+public interface ReparsingDataSource extends DataSource {
+    /**
+     * Parses a detail page from HTML this source fetched earlier. Runs on the calling thread.
+     *
+     * @param pageId page identifier, as for {@link #getPage(String)}
+     * @param html   the page's HTML as handed out with it
+     * @return the page, or null if {@code html} holds none
+     */
+    @Nullable ItemPage parsePage(String pageId, String html);
+}
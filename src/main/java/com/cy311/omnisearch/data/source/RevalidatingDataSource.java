@@ -0,0 +1,38 @@
+package com.cy311.omnisearch.data.source;
+
+import com.cy311.omnisearch.data.model.CacheValidators;
+import com.cy311.omnisearch.data.model.PageFetchResult;
+import com.cy311.omnisearch.data.model.SearchHit;
+import com.cy311.omnisearch.data.model.SearchQuery;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A data source that can refresh detail pages with conditional GETs, and refresh cached
+ * content in the background without holding up requests the user is waiting on.
+ */
+public interface RevalidatingDataSource extends DataSource {
+    /**
+     * Fetches a detail page, sending {@code validators} (if any) so the server can answer
+     * "not modified" instead of the full page.
+     *
+     * @param pageId     page identifier, as for {@link #getPage(String)}
+     * @param validators validators stored with the cached copy, or null for a plain fetch
+     */
+    CompletableFuture<PageFetchResult> fetchPage(String pageId, @Nullable CacheValidators validators);
+
+    /**
+     * {@link #fetchPage} for a background refresh of content the user already sees;
+     * implementations should queue it behind interactive requests.
+     */
+    default CompletableFuture<PageFetchResult> refreshPage(String pageId, @Nullable CacheValidators validators) {
+        return fetchPage(pageId, validators);
+    }
+
+    /** {@link #search} for a background refresh, queued like {@link #refreshPage}. */
+    default CompletableFuture<List<SearchHit>> refreshSearch(SearchQuery query) {
+        return search(query);
+    }
+}
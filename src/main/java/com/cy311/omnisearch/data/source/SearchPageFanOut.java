@@ -0,0 +1,114 @@
+package com.cy311.omnisearch.data.source;
+
+import com.cy311.omnisearch.data.model.SearchPageBatch;
+import com.cy311.omnisearch.data.parser.McmodParser;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Fetches the pages after a search's first page in parallel.
+ * <p>
+ * The first page reports how many pages there are, so pages 2…N can be requested at
+ * once instead of one round trip after another. At most {@code maxInFlight} pages are
+ * outstanding; the client's per-host rate governor still paces the actual requests, so
+ * this only bounds how much prefetch work sits queued ahead of a new search. Pages are
+ * handed to the callback as they arrive — out of order — tagged with their page number.
+ * <p>
+ * If the last known page still links further (pagination that does not show the final
+ * page), the range grows to what that page reports. The first failure cancels the pages
+ * still in flight and fails the whole fan-out; cancelling the returned future does the same.
+ */
+final class SearchPageFanOut {
+
+    private final Function<String, CompletableFuture<SearchPageBatch>> fetch;
+    private final Consumer<SearchPageBatch> onPage;
+    private final int maxInFlight;
+    private final String templateUrl;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final Set<CompletableFuture<SearchPageBatch>> inFlight = new HashSet<>();
+    private int nextPage;
+    private int lastPage;
+
+    private SearchPageFanOut(SearchPageBatch first, Function<String, CompletableFuture<SearchPageBatch>> fetch,
+                             Consumer<SearchPageBatch> onPage, int maxInFlight) {
+        this.fetch = fetch;
+        this.onPage = onPage;
+        this.maxInFlight = maxInFlight;
+        this.templateUrl = first.nextPageUrl();
+        this.nextPage = first.page() + 1;
+        this.lastPage = Math.max(first.totalPages(), nextPage);
+    }
+
+    /**
+     * Starts fetching the pages after {@code first}, which must have a next page and a
+     * known page number.
+     *
+     * @return completes once every page was delivered to {@code onPage}
+     */
+    static CompletableFuture<Void> start(SearchPageBatch first, Function<String, CompletableFuture<SearchPageBatch>> fetch,
+                                         Consumer<SearchPageBatch> onPage, int maxInFlight) {
+        SearchPageFanOut fanOut = new SearchPageFanOut(first, fetch, onPage, maxInFlight);
+        fanOut.done.whenComplete((ignored, ex) -> {
+            if (fanOut.done.isCancelled()) {
+                fanOut.cancelInFlight();
+            }
+        });
+        fanOut.launch();
+        return fanOut.done;
+    }
+
+    private void launch() {
+        while (true) {
+            int page;
+            CompletableFuture<SearchPageBatch> request;
+            synchronized (this) {
+                if (done.isDone()) {
+                    return;
+                }
+                if (nextPage > lastPage) {
+                    if (inFlight.isEmpty()) {
+                        done.complete(null);
+                    }
+                    return;
+                }
+                if (inFlight.size() >= maxInFlight) {
+                    return;
+                }
+                page = nextPage++;
+                request = fetch.apply(McmodParser.searchPageUrl(templateUrl, page));
+                inFlight.add(request);
+            }
+            request.whenComplete((batch, ex) -> onComplete(page, request, batch, ex));
+        }
+    }
+
+    private void onComplete(int page, CompletableFuture<SearchPageBatch> request, SearchPageBatch batch, Throwable ex) {
+        synchronized (this) {
+            inFlight.remove(request);
+            if (done.isDone()) {
+                return;
+            }
+            if (ex != null) {
+                done.completeExceptionally(ex);
+                cancelInFlight();
+                return;
+            }
+            if (page == lastPage && batch.nextPageUrl() != null && !batch.nextPageUrl().isBlank()) {
+                lastPage = Math.max(batch.totalPages(), page + 1);
+            }
+        }
+        onPage.accept(batch.withPage(page));
+        launch();
+    }
+
+    private synchronized void cancelInFlight() {
+        for (CompletableFuture<SearchPageBatch> request : Set.copyOf(inFlight)) {
+            request.cancel(true);
+        }
+        inFlight.clear();
+    }
+}
@@ -9,9 +9,13 @@ public sealed interface SearchEvent {
     record SearchSubmitted() implements SearchEvent {}
     record SearchResultsLoaded(List<SearchHit> results, String nextPageUrl) implements SearchEvent {}
     record MoreResultsLoaded(List<SearchHit> results, String nextPageUrl) implements SearchEvent {}
+    /** A numbered result page from a parallel fetch; pages may arrive in any order. */
+    record PageResultsLoaded(int page, List<SearchHit> results, String nextPageUrl) implements SearchEvent {}
     record ModFilterSelected(String modName) implements SearchEvent {}
     record ResultSelected(int index) implements SearchEvent {}
     record DetailLoaded(ItemPage page) implements SearchEvent {}
+    /** Newer content for the page on screen, after it was shown from an expired cache entry. */
+    record DetailRefreshed(ItemPage page) implements SearchEvent {}
     record LinkClicked(String url) implements SearchEvent {}
     record GoBack() implements SearchEvent {}
     record CaptchaSolved(String solution) implements SearchEvent {}
@@ -14,6 +14,7 @@ public class SearchReducer {
                 .withPendingRequest(null)
                 .withLoading(SearchState.LoadingState.IDLE);
             case SearchEvent.MoreResultsLoaded r -> current; // handled by OmnisearchWindowReducer
+            case SearchEvent.PageResultsLoaded r -> current; // handled by OmnisearchWindowReducer
             case SearchEvent.ModFilterSelected m -> current; // handled by OmnisearchWindowReducer
             case SearchEvent.ResultSelected r -> {
                 if (r.index() < 0 || r.index() >= current.results().size()) {
@@ -30,6 +31,9 @@ public class SearchReducer {
                 .withDetailPage(d.page())
                 .withPendingRequest(null)
                 .withLoading(SearchState.LoadingState.IDLE);
+            case SearchEvent.DetailRefreshed d -> current.currentPage() == SearchState.Page.DETAIL
+                ? current.withDetailPage(d.page())
+                : current;
             case SearchEvent.LinkClicked l -> current
                 .withNavStack(current.navStack().push(current))
                 .withPage(SearchState.Page.DETAIL)
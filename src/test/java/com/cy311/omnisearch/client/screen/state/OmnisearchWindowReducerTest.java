@@ -62,6 +62,33 @@ class OmnisearchWindowReducerTest {
         assertEquals(SearchSessionState.BodyView.DETAIL, state.search().currentView());
     }
 
+    @Test
+    void detailRefreshed_replacesPageButKeepsScrollOffset() {
+        OmnisearchWindowState state = OmnisearchWindowState.initial();
+        List<SearchHit> results = List.of(new SearchHit("item/1", "娜迦鳞片", "item", "暮色森林", null));
+        ItemPage page = new ItemPage("item/1", "娜迦鳞片", "暮色森林", new Document("title", null, null, List.of()), "https://example.com");
+        ItemPage newer = new ItemPage("item/1", "娜迦鳞片", "暮色森林", new Document("title 2", null, null, List.of()), "https://example.com");
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.SearchResultsLoaded(results, null));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.ResultSelected(0));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.DetailLoaded(page));
+        state = state.withDetail(state.detail().withScrollOffset(120));
+
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.DetailRefreshed(newer));
+
+        assertEquals(newer, state.detail().page());
+        assertEquals(120, state.detail().scrollOffset());
+    }
+
+    @Test
+    void detailRefreshed_isIgnoredAwayFromDetailView() {
+        OmnisearchWindowState state = OmnisearchWindowState.initial();
+        ItemPage page = new ItemPage("item/1", "娜迦鳞片", "暮色森林", new Document("title", null, null, List.of()), "https://example.com");
+
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.DetailRefreshed(page));
+
+        assertNull(state.detail().page());
+    }
+
     @Test
     void errorOccurred_setsWindowErrorOnly() {
         OmnisearchWindowState state = OmnisearchWindowState.initial();
@@ -179,4 +206,58 @@ class OmnisearchWindowReducerTest {
         assertEquals(3, state.search().results().size());
         assertEquals(3, state.search().unfilteredResults().size());
     }
+
+    @Test
+    void pageResultsLoaded_outOfOrderPagesAreAppendedInPageOrder() {
+        OmnisearchWindowState state = OmnisearchWindowState.initial();
+        SearchHit hit1 = new SearchHit("item/1", "巫妖", "item", "暮色森林", null);
+        SearchHit hit2 = new SearchHit("item/2", "巫妖塔", "item", "暮色森林", null);
+        SearchHit hit3 = new SearchHit("item/3", "巫妖权杖", "item", "暮色森林", null);
+        SearchHit hit4 = new SearchHit("item/4", "巫妖之冠", "item", "暮色森林", null);
+
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.SearchResultsLoaded(List.of(hit1), "page2"));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.PageResultsLoaded(4, List.of(hit4), null));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.PageResultsLoaded(3, List.of(hit3), "page4"));
+
+        // Pages 3 and 4 wait for page 2
+        assertEquals(List.of(hit1), state.search().results());
+        assertEquals(1, state.search().currentPage());
+        assertEquals(2, state.search().bufferedPages().size());
+
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.PageResultsLoaded(2, List.of(hit2), "page3"));
+
+        assertEquals(List.of(hit1, hit2, hit3, hit4), state.search().results());
+        assertEquals(4, state.search().currentPage());
+        assertTrue(state.search().bufferedPages().isEmpty());
+        assertFalse(state.search().hasMore());
+        assertFalse(state.search().loadingMore());
+    }
+
+    @Test
+    void pageResultsLoaded_ignoresDuplicateAndStalePages() {
+        OmnisearchWindowState state = OmnisearchWindowState.initial();
+        SearchHit hit1 = new SearchHit("item/1", "巫妖", "item", "暮色森林", null);
+        SearchHit hit2 = new SearchHit("item/2", "巫妖塔", "item", "暮色森林", null);
+
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.SearchResultsLoaded(List.of(hit1), "page2"));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.PageResultsLoaded(2, List.of(hit2), "page3"));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.PageResultsLoaded(2, List.of(hit2), "page3"));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.PageResultsLoaded(1, List.of(hit1), "page2"));
+
+        assertEquals(List.of(hit1, hit2), state.search().results());
+        assertEquals(2, state.search().currentPage());
+        assertTrue(state.search().loadingMore(), "Page 3 is still expected");
+    }
+
+    @Test
+    void searchSubmitted_dropsBufferedPages() {
+        OmnisearchWindowState state = OmnisearchWindowState.initial();
+        SearchHit hit = new SearchHit("item/1", "巫妖", "item", "暮色森林", null);
+
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.SearchResultsLoaded(List.of(hit), "page2"));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.PageResultsLoaded(3, List.of(hit), null));
+        state = OmnisearchWindowReducer.reduce(state, new SearchEvent.SearchSubmitted());
+
+        assertTrue(state.search().bufferedPages().isEmpty());
+    }
 }
@@ -0,0 +1,92 @@
+package com.cy311.omnisearch.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModListTest {
+
+    @TempDir
+    Path tempDir;
+
+    // ══════════════════════════════════════════════
+    // Text lists
+    // ══════════════════════════════════════════════
+
+    @Test
+    void parse_readsNamesAndClassReferences() {
+        List<ModList.Mod> mods = ModList.parse(List.of(
+            "# modpack",
+            "Twilight Forest",
+            "",
+            "class/2 Industrial Craft 2   # pinned",
+            "https://www.mcmod.cn/class/456.html",
+            "  3099  "));
+
+        assertEquals(List.of(
+            new ModList.Mod("Twilight Forest", null),
+            new ModList.Mod("Industrial Craft 2", "2"),
+            new ModList.Mod(null, "456"),
+            new ModList.Mod(null, "3099")), mods);
+    }
+
+    @Test
+    void parse_keepsAModListedTwiceOnce() {
+        List<ModList.Mod> mods = ModList.parse(List.of("Create", "create", "class/456", "456 Twilight Forest"));
+
+        assertEquals(List.of(new ModList.Mod("Create", null), new ModList.Mod(null, "456")), mods);
+    }
+
+    @Test
+    void key_identifiesByClassIdWhenKnown() {
+        assertEquals("class/456", new ModList.Mod("Twilight Forest", "456").key());
+        assertEquals("name/twilight forest", new ModList.Mod("Twilight Forest", null).key());
+    }
+
+    // ══════════════════════════════════════════════
+    // Mods folders
+    // ══════════════════════════════════════════════
+
+    @Test
+    void fromJars_readsDisplayNamesAndFallsBackToFileNames() throws IOException {
+        jar("twilightforest-1.21.1-4.6.jar", "META-INF/neoforge.mods.toml",
+            "modLoader=\"javafml\"\n[[mods]]\nmodId=\"twilightforest\"\ndisplayName=\"The Twilight Forest\"\n");
+        jar("create-1.20.1-0.5.1.jar", "META-INF/mods.toml", "[[mods]]\n  displayName = \"Create\"\n");
+        jar("jei_1.21.1-neoforge-19.0.jar", "META-INF/neoforge.mods.toml", "displayName=\"${mod_name}\"\n");
+        Files.writeString(tempDir.resolve("readme.txt"), "not a mod");
+
+        List<ModList.Mod> mods = ModList.read(tempDir);
+
+        assertEquals(List.of(
+            new ModList.Mod("Create", null),
+            new ModList.Mod("jei", null),
+            new ModList.Mod("The Twilight Forest", null)), mods);
+    }
+
+    @Test
+    void nameFromFile_dropsTheVersion() {
+        assertEquals("twilightforest", ModList.nameFromFile("twilightforest-1.21.1-4.6.jar"));
+        assertEquals("Mouse Tweaks", ModList.nameFromFile("Mouse_Tweaks-mc1.21-2.26.jar"));
+        assertEquals("sodium", ModList.nameFromFile("sodium+mc1.21-0.6.0.jar"));
+        assertEquals("1.21", ModList.nameFromFile("1.21.jar"));
+    }
+
+    private void jar(String name, String entry, String content) throws IOException {
+        try (OutputStream out = Files.newOutputStream(tempDir.resolve(name));
+             ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry(entry));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.cy311.omnisearch.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacerTest {
+
+    @Test
+    void failures_doubleTheGapAndSuccessesHalveItBack() {
+        Pacer pacer = new Pacer(2);
+        assertEquals(500, pacer.intervalMs());
+
+        pacer.failed();
+        pacer.failed();
+        assertEquals(2000, pacer.intervalMs());
+
+        pacer.succeeded();
+        assertEquals(1000, pacer.intervalMs());
+        pacer.succeeded();
+        pacer.succeeded();
+        assertEquals(500, pacer.intervalMs());
+    }
+
+    @Test
+    void gap_isCapped() {
+        Pacer pacer = new Pacer(0.1);
+        for (int i = 0; i < 10; i++) {
+            pacer.failed();
+        }
+        assertEquals(Pacer.MAX_INTERVAL_MS, pacer.intervalMs());
+    }
+
+    @Test
+    void await_spacesRequestsByTheGap() throws InterruptedException {
+        Pacer pacer = new Pacer(20);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            pacer.await();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs >= 145, "took " + elapsedMs + " ms");
+    }
+
+    @Test
+    void rate_mustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new Pacer(0));
+        assertThrows(IllegalArgumentException.class, () -> new Pacer(Double.NaN));
+    }
+}
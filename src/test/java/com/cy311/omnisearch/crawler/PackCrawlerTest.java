@@ -0,0 +1,242 @@
+package com.cy311.omnisearch.crawler;
+
+import com.cy311.omnisearch.data.model.CaptchaContext;
+import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.SearchHit;
+import com.cy311.omnisearch.data.model.SearchQuery;
+import com.cy311.omnisearch.data.model.document.Document;
+import com.cy311.omnisearch.data.model.document.TextNode;
+import com.cy311.omnisearch.data.repository.CacheLayer;
+import com.cy311.omnisearch.data.repository.SearchRepository;
+import com.cy311.omnisearch.data.source.CaptchaRequiredException;
+import com.cy311.omnisearch.data.source.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackCrawlerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CacheLayer cache;
+    private FakeSite site;
+    private SearchRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CacheLayer(tempDir.resolve("cache"));
+        site = new FakeSite();
+        repository = new SearchRepository(cache, site, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    private PackCrawler crawler(int maxConsecutiveFailures) {
+        return new PackCrawler(repository, cache, new Pacer(1000), tempDir.resolve("progress.txt"),
+            5, maxConsecutiveFailures);
+    }
+
+    private static final List<ModList.Mod> TWILIGHT = List.of(new ModList.Mod("Twilight Forest", null));
+
+    // ══════════════════════════════════════════════
+    // Crawling
+    // ══════════════════════════════════════════════
+
+    @Test
+    void crawl_resolvesTheModAndFetchesOnlyItsItemPages() throws IOException {
+        CrawlStats stats = crawler(5).crawl(TWILIGHT);
+
+        assertEquals(1, stats.modsResolved());
+        assertEquals(3, stats.pagesFetched());
+        assertEquals(List.of("class/456", "item/1", "item/3"), site.pageRequests);
+        assertNotNull(cache.getPage("item/1"));
+        assertNotNull(cache.getPage("class/456"));
+        assertNull(cache.getPage("item/2"), "item of another mod");
+        assertFalse(stats.aborted());
+        assertEquals(List.of("name/twilight forest"), Files.readAllLines(tempDir.resolve("progress.txt")));
+    }
+
+    @Test
+    void classIdFromTheList_skipsResolvingAndSearchesByTheClassPageTitle() throws IOException {
+        CrawlStats stats = crawler(5).crawl(List.of(new ModList.Mod(null, "456")));
+
+        assertEquals(1, stats.modsResolved());
+        assertEquals(List.of("暮色森林 (The Twilight Forest)"), site.searches);
+        assertEquals(List.of("class/456", "item/1", "item/3"), site.pageRequests);
+    }
+
+    @Test
+    void modNotOnTheSite_isRecordedAsUnresolvedAndFinished() throws IOException {
+        CrawlStats stats = crawler(5).crawl(List.of(new ModList.Mod("Unknown Mod", null)));
+
+        assertEquals(0, stats.modsResolved());
+        assertEquals(1, stats.failures().size());
+        assertTrue(site.pageRequests.isEmpty());
+        assertEquals(List.of("name/unknown mod"), Files.readAllLines(tempDir.resolve("progress.txt")));
+    }
+
+    @Test
+    void missingPage_isCountedButDoesNotHoldTheModBack() throws IOException {
+        site.missing.add("item/3");
+        CrawlStats first = crawler(5).crawl(TWILIGHT);
+
+        assertEquals(0, first.pagesFailed());
+        assertEquals(2, first.pagesFetched());
+        assertTrue(first.summary().contains("1 missing"), first.summary());
+        assertEquals(List.of("name/twilight forest"), Files.readAllLines(tempDir.resolve("progress.txt")));
+    }
+
+    // ══════════════════════════════════════════════
+    // Resuming
+    // ══════════════════════════════════════════════
+
+    @Test
+    void secondRun_skipsFinishedModsWithoutRequests() throws IOException {
+        crawler(5).crawl(TWILIGHT);
+        site.pageRequests.clear();
+        site.searches.clear();
+
+        CrawlStats stats = crawler(5).crawl(TWILIGHT);
+
+        assertEquals(0, stats.modsResolved());
+        assertTrue(site.pageRequests.isEmpty());
+        assertTrue(site.searches.isEmpty());
+    }
+
+    @Test
+    void failedPage_leavesTheModUnfinishedAndTheNextRunFetchesOnlyWhatIsMissing() throws IOException {
+        site.failing.add("item/3");
+        CrawlStats first = crawler(5).crawl(TWILIGHT);
+
+        assertEquals(1, first.pagesFailed());
+        assertFalse(Files.exists(tempDir.resolve("progress.txt")));
+
+        site.failing.clear();
+        site.pageRequests.clear();
+        CrawlStats second = crawler(5).crawl(TWILIGHT);
+
+        assertEquals(List.of("item/3"), site.pageRequests);
+        assertEquals(1, second.pagesFetched());
+        assertEquals(List.of("name/twilight forest"), Files.readAllLines(tempDir.resolve("progress.txt")));
+    }
+
+    // ══════════════════════════════════════════════
+    // Stopping early
+    // ══════════════════════════════════════════════
+
+    @Test
+    void captcha_stopsTheCrawl() throws IOException {
+        site.captcha = true;
+        List<ModList.Mod> mods = List.of(new ModList.Mod("Twilight Forest", null), new ModList.Mod("Other", null));
+
+        CrawlStats stats = crawler(5).crawl(mods);
+
+        assertTrue(stats.aborted());
+        assertEquals(List.of("class/456"), site.pageRequests);
+        assertEquals(List.of("Twilight Forest"), site.searches);
+    }
+
+    @Test
+    void failuresInARow_stopTheCrawl() throws IOException {
+        site.failing.addAll(List.of("class/456", "item/1", "item/3"));
+        List<ModList.Mod> mods = List.of(new ModList.Mod(null, "456"), new ModList.Mod(null, "457"),
+            new ModList.Mod(null, "458"));
+
+        CrawlStats stats = crawler(2).crawl(mods);
+
+        assertTrue(stats.aborted());
+        assertEquals(List.of("class/456", "class/457"), site.pageRequests);
+    }
+
+    // ══════════════════════════════════════════════
+    // Matching
+    // ══════════════════════════════════════════════
+
+    @Test
+    void namesIn_splitsTheChineseAndEnglishNames() {
+        assertEquals(Set.of("暮色森林 (The Twilight Forest)", "暮色森林", "The Twilight Forest"),
+            PackCrawler.namesIn("暮色森林 (The Twilight Forest)"));
+        assertEquals(Set.of("Create"), PackCrawler.namesIn("Create"));
+        assertTrue(PackCrawler.namesIn(null).isEmpty());
+    }
+
+    @Test
+    void fromMod_matchesEitherNameIgnoringCaseAndSpacing() {
+        Set<String> names = Set.of("暮色森林", "The Twilight Forest");
+
+        assertTrue(PackCrawler.fromMod(new SearchHit("item/1", "a", "item", "暮色森林", null, null), names));
+        assertTrue(PackCrawler.fromMod(new SearchHit("item/1", "a", "item", "x", null, "the twilightforest"), names));
+        assertFalse(PackCrawler.fromMod(new SearchHit("item/1", "a", "item", "暮色森林扩展", null, null), names));
+    }
+
+    // ══════════════════════════════════════════════
+    // Fake site
+    // ══════════════════════════════════════════════
+
+    /** Twilight Forest is class/456 with items 1 and 3; item 2 belongs to another mod. */
+    static class FakeSite implements DataSource {
+        final List<String> pageRequests = new CopyOnWriteArrayList<>();
+        final List<String> searches = new CopyOnWriteArrayList<>();
+        final Set<String> failing = new HashSet<>();
+        final Set<String> missing = new HashSet<>();
+        volatile boolean captcha;
+
+        @Override
+        public CompletableFuture<List<SearchHit>> search(SearchQuery query) {
+            searches.add(query.text());
+            if (query.text().contains("Unknown")) {
+                return CompletableFuture.completedFuture(List.of());
+            }
+            return CompletableFuture.completedFuture(List.of(
+                new SearchHit("class/456", "暮色森林", "class", null, null),
+                new SearchHit("item/1", "娜迦鳞片", "item", "暮色森林", null, "The Twilight Forest"),
+                new SearchHit("item/2", "森林之剑", "item", "另一个模组", null, null),
+                new SearchHit("item/3", "巫妖塔", "item", "暮色森林", "自然生成", "The Twilight Forest")));
+        }
+
+        @Override
+        public CompletableFuture<ItemPage> getPage(String pageId) {
+            pageRequests.add(pageId);
+            if (captcha) {
+                return CompletableFuture.failedFuture(
+                    new CaptchaRequiredException(new CaptchaContext("url", "id", "answerUrl")));
+            }
+            if (missing.contains(pageId)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (failing.contains(pageId) || !pageId.startsWith("class/456") && pageId.startsWith("class/")) {
+                return CompletableFuture.failedFuture(new IOException("connection reset"));
+            }
+            String title = pageId.equals("class/456") ? "暮色森林 (The Twilight Forest)" : "Page " + pageId;
+            return CompletableFuture.completedFuture(new ItemPage(pageId, title, "暮色森林",
+                new Document(title, null, null, List.of(new TextNode("content"))),
+                "https://www.mcmod.cn/" + pageId + ".html"));
+        }
+
+        @Override
+        public String name() {
+            return "fake";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+    }
+}
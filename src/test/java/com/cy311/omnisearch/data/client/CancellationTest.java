@@ -0,0 +1,81 @@
+package com.cy311.omnisearch.data.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CancellationTest {
+
+    // ══════════════════════════════════════════════
+    // propagate
+    // ══════════════════════════════════════════════
+
+    @Test
+    void propagate_cancellingDownstreamCancelsUpstream() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<Integer> downstream = Cancellation.propagate(upstream.thenApply(String::length), upstream);
+
+        downstream.cancel(true);
+
+        assertTrue(upstream.isCancelled());
+    }
+
+    @Test
+    void propagate_normalCompletionLeavesUpstreamAlone() {
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+        CompletableFuture<Integer> downstream = Cancellation.propagate(upstream.thenApply(String::length), upstream);
+
+        upstream.complete("abc");
+
+        assertEquals(3, (int) downstream.join());
+        assertFalse(upstream.isCancelled());
+    }
+
+    // ══════════════════════════════════════════════
+    // compose
+    // ══════════════════════════════════════════════
+
+    @Test
+    void compose_cancelBeforeFirstStageCompletes_cancelsFirstStage() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<String>> second = new AtomicReference<>();
+        CompletableFuture<String> result = Cancellation.compose(first, value -> {
+            second.set(new CompletableFuture<>());
+            return second.get();
+        });
+
+        result.cancel(true);
+
+        assertTrue(first.isCancelled());
+        assertNull(second.get(), "The next stage must not start after cancellation");
+    }
+
+    @Test
+    void compose_cancelDuringSecondStage_cancelsSecondStage() {
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+        CompletableFuture<String> result = Cancellation.compose(first, value -> second);
+
+        first.complete("primary");
+        result.cancel(true);
+
+        assertTrue(second.isCancelled());
+    }
+
+    @Test
+    void compose_behavesLikeThenComposeOnSuccessAndFailure() {
+        CompletableFuture<String> ok = Cancellation.compose(
+            CompletableFuture.completedFuture("a"), value -> CompletableFuture.completedFuture(value + "b"));
+        assertEquals("ab", ok.join());
+
+        CompletableFuture<String> failed = Cancellation.compose(
+            CompletableFuture.completedFuture("a"), value -> {
+                throw new IllegalStateException("boom");
+            });
+        assertTrue(failed.isCompletedExceptionally());
+        assertFalse(failed.isCancelled());
+    }
+}
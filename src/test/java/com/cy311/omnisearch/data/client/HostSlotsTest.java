@@ -0,0 +1,80 @@
+package com.cy311.omnisearch.data.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostSlotsTest {
+
+    @Test
+    void background_neverTakesTheReservedSlot() throws Exception {
+        HostSlots slots = new HostSlots(3, 1);
+        slots.acquire(false);
+        slots.acquire(false);
+
+        Thread background = Thread.ofPlatform().start(() -> {
+            try {
+                slots.acquire(false);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Thread.sleep(100);
+        assertEquals(1, slots.available(), "The last slot is kept for foreground work");
+
+        slots.acquire(true);
+        assertEquals(0, slots.available());
+        background.interrupt();
+        background.join(1_000);
+    }
+
+    @Test
+    void release_servesAWaitingForegroundRequestBeforeAnEarlierBackgroundOne() throws Exception {
+        HostSlots slots = new HostSlots(2, 1);
+        slots.acquire(true);
+        slots.acquire(true);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Thread background = Thread.ofPlatform().start(() -> take(slots, false, order));
+        Thread.sleep(50);
+        Thread foreground = Thread.ofPlatform().start(() -> take(slots, true, order));
+        Thread.sleep(50);
+
+        slots.release();
+        foreground.join(1_000);
+        assertEquals(List.of("foreground"), order);
+
+        slots.release();
+        slots.release();
+        background.join(1_000);
+        assertEquals(List.of("foreground", "background"), order);
+    }
+
+    @Test
+    void interruptedForegroundWaiter_letsBackgroundThrough() throws Exception {
+        HostSlots slots = new HostSlots(2, 0);
+        slots.acquire(true);
+        slots.acquire(true);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Thread foreground = Thread.ofPlatform().start(() -> take(slots, true, order));
+        Thread background = Thread.ofPlatform().start(() -> take(slots, false, order));
+        Thread.sleep(50);
+        foreground.interrupt();
+        foreground.join(1_000);
+        slots.release();
+        background.join(1_000);
+
+        assertEquals(List.of("background"), order);
+    }
+
+    private static void take(HostSlots slots, boolean foreground, List<String> order) {
+        try {
+            slots.acquire(foreground);
+            order.add(foreground ? "foreground" : "background");
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.cy311.omnisearch.data.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InterstitialSnifferTest {
+
+    // ══════════════════════════════════════════════
+    // Classification
+    // ══════════════════════════════════════════════
+
+    @Test
+    void normalPage_isNotAnInterstitial() throws IOException {
+        assertEquals(HtmlResponse.Interstitial.NONE, sniff("<html><body>娜迦鳞片 - 暮色森林</body></html>", 4096));
+    }
+
+    @Test
+    void captchaPage_isDetected() throws IOException {
+        String html = "<html><body><p>安全验证</p><img class=\"captcha\"></body></html>";
+        assertEquals(HtmlResponse.Interstitial.CAPTCHA, sniff(html, 4096));
+    }
+
+    @Test
+    void shortThrottlePage_isDetected() throws IOException {
+        String html = "<html><body><p>搜索太频繁，请稍后再试</p></body></html>";
+        assertEquals(HtmlResponse.Interstitial.RATE_LIMITED, sniff(html, 4096));
+    }
+
+    @Test
+    void longPageMentioningThrottle_isNotRateLimited() throws IOException {
+        // Same rule as McmodHttpClient.isRateLimitedPage: the marker only counts on a short page
+        String html = "<html><body><p>搜索太频繁</p>" + "中".repeat(McmodHttpClient.RATE_LIMIT_PAGE_MAX_CHARS) + "</body></html>";
+        assertEquals(HtmlResponse.Interstitial.NONE, sniff(html, 4096));
+        assertFalse(McmodHttpClient.isRateLimitedPage(html));
+    }
+
+    // ══════════════════════════════════════════════
+    // Streaming
+    // ══════════════════════════════════════════════
+
+    @Test
+    void markersSplitAcrossReads_areStillMatched() throws IOException {
+        // One byte per read splits every multi-byte character across calls
+        String html = "<p>安全验证</p><i>capcaptcha</i>";
+        assertEquals(HtmlResponse.Interstitial.CAPTCHA, sniff(html, 1));
+    }
+
+    @Test
+    void chars_countsCharactersNotBytes() throws IOException {
+        InterstitialSniffer sniffer = new InterstitialSniffer(
+            new ByteArrayInputStream("ab验证".getBytes(StandardCharsets.UTF_8)));
+        sniffer.readAllBytes();
+        assertEquals(4, sniffer.chars());
+    }
+
+    @Test
+    void skip_nonPositiveCountSkipsNothing() throws IOException {
+        InterstitialSniffer sniffer = new InterstitialSniffer(
+            new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, sniffer.skip(-1));
+        assertEquals(0, sniffer.skip(0));
+        assertEquals(1, sniffer.skip(1));
+        assertEquals("bc", new String(sniffer.readAllBytes(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void keepBody_copiesExactlyTheBytesPassedOn() throws IOException {
+        byte[] html = "<html><body>娜迦鳞片 &amp; 暮色森林</body></html>".getBytes(StandardCharsets.UTF_8);
+        InterstitialSniffer sniffer = new InterstitialSniffer(new ByteArrayInputStream(html), true);
+        sniffer.read();
+        sniffer.readAllBytes();
+
+        assertArrayEquals(html, sniffer.body());
+        assertNull(new InterstitialSniffer(new ByteArrayInputStream(html)).body());
+    }
+
+    private static HtmlResponse.Interstitial sniff(String html, int chunk) throws IOException {
+        InterstitialSniffer sniffer = new InterstitialSniffer(
+            new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)));
+        byte[] buf = new byte[chunk];
+        while (sniffer.read(buf, 0, chunk) >= 0) {
+            // Drain
+        }
+        return sniffer.interstitial();
+    }
+}
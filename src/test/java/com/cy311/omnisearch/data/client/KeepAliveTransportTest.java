@@ -0,0 +1,234 @@
+package com.cy311.omnisearch.data.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeepAliveTransportTest {
+
+    private HttpServer server;
+    private String base;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile String lastCookieHeader;
+    private volatile String lastBody;
+    private final CountDownLatch releaseStall = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            lastCookieHeader = exchange.getRequestHeaders().getFirst("Cookie");
+            lastBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String path = exchange.getRequestURI().getPath();
+            switch (path) {
+                case "/stall" -> {
+                    // Accepts the request but sends nothing until the test ends
+                    try {
+                        releaseStall.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    exchange.sendResponseHeaders(204, -1);
+                }
+                case "/redirect" -> {
+                    exchange.getResponseHeaders().add("Set-Cookie", "hop=1; Path=/");
+                    exchange.getResponseHeaders().add("Location", "/landing");
+                    exchange.sendResponseHeaders(302, -1);
+                }
+                case "/missing" -> {
+                    byte[] body = "gone".getBytes(StandardCharsets.UTF_8);
+                    exchange.sendResponseHeaders(404, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+                default -> {
+                    byte[] body = ("page " + path).getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+                    exchange.getResponseHeaders().add("Set-Cookie", "landed=yes");
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseStall.countDown();
+        server.stop(0);
+    }
+
+    // ══════════════════════════════════════════════
+    // Connection reuse
+    // ══════════════════════════════════════════════
+
+    @Test
+    void sequentialRequests_reuseOneConnection() throws Exception {
+        try (KeepAliveTransport transport = new KeepAliveTransport()) {
+            for (int i = 0; i < 5; i++) {
+                try (Transport.Response res = transport.execute(Transport.Request.get(base + "/page" + i, Map.of(), Map.of()))) {
+                    assertEquals("page /page" + i, res.bodyText());
+                }
+            }
+        }
+        assertEquals(1, clientPorts.size(), "Every request should ride the same socket, ports=" + clientPorts);
+    }
+
+    @Test
+    void unreadBody_stillReleasesConnectionForReuse() throws Exception {
+        try (KeepAliveTransport transport = new KeepAliveTransport()) {
+            for (int i = 0; i < 3; i++) {
+                transport.execute(Transport.Request.get(base + "/skipped", Map.of(), Map.of())).close();
+            }
+        }
+        assertEquals(1, clientPorts.size(), "Small unread bodies should be drained, ports=" + clientPorts);
+    }
+
+    // ══════════════════════════════════════════════
+    // Cancellation
+    // ══════════════════════════════════════════════
+
+    @Test
+    void cancel_disconnectsARequestStillWaitingForTheFirstByte() throws Exception {
+        try (KeepAliveTransport transport = new KeepAliveTransport(30_000);
+             RequestExecutor executor = new RequestExecutor(1, 0)) {
+            CountDownLatch sent = new CountDownLatch(1);
+            CompletableFuture<Integer> stalled = executor.submit(() -> {
+                sent.countDown();
+                try (Transport.Response response = transport.execute(Transport.Request.get(base + "/stall", Map.of(), Map.of()))) {
+                    return response.statusCode();
+                }
+            });
+            assertTrue(sent.await(5, TimeUnit.SECONDS));
+            Thread.sleep(200);
+
+            long start = System.nanoTime();
+            stalled.cancel(true);
+            // The only worker is free again long before the 30s read timeout
+            assertEquals("free", executor.submit(() -> "free").get(5, TimeUnit.SECONDS));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Exchange semantics
+    // ══════════════════════════════════════════════
+
+    @Test
+    void redirect_carriesHopCookiesAndReportsFinalUrl() throws Exception {
+        try (KeepAliveTransport transport = new KeepAliveTransport();
+             Transport.Response res = transport.execute(Transport.Request.get(base + "/redirect", Map.of(), Map.of("session", "abc")))) {
+            assertEquals(200, res.statusCode());
+            assertEquals(base + "/landing", res.url());
+            assertEquals(Map.of("hop", "1", "landed", "yes"), res.cookies());
+            res.bodyText();
+        }
+        assertEquals("session=abc; hop=1", lastCookieHeader);
+    }
+
+    @Test
+    void redirect_notFollowedWhenDisabled() throws Exception {
+        Transport.Request request = new Transport.Request(Transport.Method.POST, base + "/redirect",
+            Map.of(), Map.of(), Map.of("answer", "a b&c"), false);
+        try (KeepAliveTransport transport = new KeepAliveTransport();
+             Transport.Response res = transport.execute(request)) {
+            assertEquals(302, res.statusCode());
+            assertEquals(Map.of("hop", "1"), res.cookies());
+        }
+        assertEquals("answer=a+b%26c", lastBody);
+    }
+
+    @Test
+    void errorStatus_bodyIsReadable() throws Exception {
+        try (KeepAliveTransport transport = new KeepAliveTransport();
+             Transport.Response res = transport.execute(Transport.Request.get(base + "/missing", Map.of(), Map.of()))) {
+            assertEquals(404, res.statusCode());
+            assertEquals("gone", res.bodyText());
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Body decoding
+    // ══════════════════════════════════════════════
+
+    @Test
+    void decode_handlesGzipZlibAndRawDeflate() throws Exception {
+        byte[] plain = "<html>暮色森林</html>".getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(plain);
+        }
+        ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(zlib)) {
+            out.write(plain);
+        }
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(raw, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+            out.write(plain);
+        }
+
+        assertArrayEquals(plain, readAll(KeepAliveTransport.decode(new ByteArrayInputStream(gzip.toByteArray()), "gzip")));
+        assertArrayEquals(plain, readAll(KeepAliveTransport.decode(new ByteArrayInputStream(zlib.toByteArray()), "deflate")));
+        assertArrayEquals(plain, readAll(KeepAliveTransport.decode(new ByteArrayInputStream(raw.toByteArray()), "deflate")));
+        assertArrayEquals(plain, readAll(KeepAliveTransport.decode(new ByteArrayInputStream(plain), null)));
+    }
+
+    @Test
+    void charsetOf_readsContentTypeParameter() {
+        assertEquals("utf-8", KeepAliveTransport.charsetOf("text/html; charset=utf-8"));
+        assertEquals("GBK", KeepAliveTransport.charsetOf("text/html;Charset=\"GBK\""));
+        assertNull(KeepAliveTransport.charsetOf("text/html"));
+        assertNull(KeepAliveTransport.charsetOf(null));
+    }
+
+    @Test
+    void parseSetCookies_dropsAttributesAndMalformedEntries() {
+        Map<String, String> cookies = KeepAliveTransport.parseSetCookies(
+            List.of("a=1; Path=/; HttpOnly", "=nameless", "b = 2 ", "noequals"));
+        assertEquals(Map.of("a", "1", "b", "2"), cookies);
+    }
+
+    @Test
+    void parseCookieExpiries_prefersMaxAgeAndReadsDashedDates() {
+        long now = 1_000_000L;
+        Map<String, Long> expiries = KeepAliveTransport.parseCookieExpiries(List.of(
+            "a=1; Max-Age=60; Expires=Thu, 01 Jan 2037 00:00:00 GMT",
+            "b=2; expires=Thu, 01-Jan-2037 00:00:00 GMT; path=/",
+            "c=3; Path=/",
+            "d=4; Expires=garbage"), now);
+
+        assertEquals(Map.of("a", now + 60_000, "b", 2114380800000L), expiries);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.cy311.omnisearch.data.client;
 
+import com.cy311.omnisearch.data.model.CacheValidators;
 import com.sun.net.httpserver.HttpServer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +13,10 @@ import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,6 +30,13 @@ class McmodHttpClientIntegrationTest {
     private int port;
     private volatile CapturedRequest capturedRequest;
     private String responseBody;
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final List<String> requestPaths = new CopyOnWriteArrayList<>();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger peakActiveRequests = new AtomicInteger();
+    private volatile long responseDelayMs;
+    private volatile String responseEtag;
+    private volatile String responseEncoding;
 
     @BeforeEach
     void setUp() throws IOException {
@@ -33,6 +45,17 @@ class McmodHttpClientIntegrationTest {
         server = HttpServer.create(new InetSocketAddress(0), 0);
         port = server.getAddress().getPort();
         server.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            requestPaths.add(exchange.getRequestURI().toString());
+            peakActiveRequests.accumulateAndGet(activeRequests.incrementAndGet(), Math::max);
+            if (responseDelayMs > 0) {
+                try {
+                    Thread.sleep(responseDelayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            activeRequests.decrementAndGet();
             // Capture the request
             CapturedRequest req = new CapturedRequest();
             req.method = exchange.getRequestMethod();
@@ -42,12 +65,24 @@ class McmodHttpClientIntegrationTest {
             capturedRequest = req;
 
             // Send response
-            byte[] resp = responseBody.getBytes(StandardCharsets.UTF_8);
+            if (responseEtag != null) {
+                exchange.getResponseHeaders().add("ETag", responseEtag);
+                if (responseEtag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+            }
+            byte[] resp = encode(responseBody.getBytes(StandardCharsets.UTF_8), responseEncoding);
+            if (responseEncoding != null) {
+                exchange.getResponseHeaders().add("Content-Encoding", responseEncoding);
+            }
             exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
             exchange.sendResponseHeaders(200, resp.length);
             exchange.getResponseBody().write(resp);
             exchange.close();
         });
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
         server.start();
     }
 
@@ -166,6 +201,261 @@ class McmodHttpClientIntegrationTest {
         }
     }
 
+    // ══════════════════════════════════════════════
+    // Tests: Single-flight request coalescing
+    // ══════════════════════════════════════════════
+
+    @Test
+    void getHtml_concurrentSameUrl_sharesOneRoundTrip() throws Exception {
+        responseDelayMs = 300;
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            String url = "http://localhost:" + port + "/s?key=test&filter=3";
+
+            CompletableFuture<String> first = client.getHtml(url);
+            CompletableFuture<String> second = client.getHtml(url);
+            // Same URL with reordered query parameters normalizes to the same key
+            CompletableFuture<String> third = client.getHtml("http://localhost:" + port + "/s?filter=3&key=test");
+
+            assertEquals(responseBody, first.get());
+            assertEquals(responseBody, second.get());
+            assertEquals(responseBody, third.get());
+            assertEquals(1, requestCount.get(), "Concurrent identical GETs should hit the server once");
+            assertEquals(2, client.coalescedRequestCount());
+            assertEquals(0, client.inFlightCount());
+        }
+    }
+
+    @Test
+    void getHtml_differentUrls_areNotCoalesced() throws Exception {
+        responseDelayMs = 100;
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            CompletableFuture<String> a = client.getHtml("http://localhost:" + port + "/s?key=a");
+            CompletableFuture<String> b = client.getHtml("http://localhost:" + port + "/s?key=b");
+            a.get();
+            b.get();
+            assertEquals(2, requestCount.get());
+            assertEquals(0, client.coalescedRequestCount());
+        }
+    }
+
+    @Test
+    void getHtml_afterCompletion_issuesFreshRequest() throws Exception {
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            String url = "http://localhost:" + port + "/item/1.html";
+            client.getHtml(url).get();
+            client.getHtml(url).get();
+            assertEquals(2, requestCount.get(), "Completed requests must not be served from the in-flight table");
+        }
+    }
+
+    @Test
+    void getHtml_cancellingOneCallerDoesNotFailOthers() throws Exception {
+        responseDelayMs = 200;
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            String url = "http://localhost:" + port + "/item/2.html";
+            CompletableFuture<String> first = client.getHtml(url);
+            CompletableFuture<String> second = client.getHtml(url);
+
+            first.cancel(true);
+
+            assertEquals(responseBody, second.get());
+        }
+    }
+
+    @Test
+    void getHtml_cancellingEveryCallerCancelsTheRequest() throws Exception {
+        responseDelayMs = 300;
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            String url = "http://localhost:" + port + "/item/3.html";
+            CompletableFuture<String> first = client.getHtml(url);
+            CompletableFuture<String> second = client.getHtml(url);
+
+            first.cancel(true);
+            assertEquals(1, client.inFlightCount(), "One caller is still waiting");
+            second.cancel(true);
+            assertEquals(0, client.inFlightCount());
+
+            // A new caller starts a fresh request instead of joining the cancelled one
+            assertEquals(responseBody, client.getHtml(url).get());
+        }
+    }
+
+    @Test
+    void getDocument_interactiveJoinerOfAQueuedPrefetch_skipsTheBackgroundBacklog() throws Exception {
+        // Two workers, one of them reserved for foreground work
+        RequestExecutor executor = new RequestExecutor(2, 1);
+        try (McmodHttpClient client = new McmodHttpClient(executor)) {
+            String base = "http://localhost:" + port;
+            java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+            executor.submit(() -> release.await(10, TimeUnit.SECONDS), RequestExecutor.Priority.BACKGROUND);
+            List<CompletableFuture<HtmlResponse>> backlog = new java.util.ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                backlog.add(client.getDocument(base + "/class/" + i + ".html", RequestExecutor.Priority.BACKGROUND));
+            }
+            String url = base + "/item/5.html";
+            CompletableFuture<HtmlResponse> prefetch = client.getDocument(url, RequestExecutor.Priority.PREFETCH);
+            Thread.sleep(100);
+            assertEquals(0, requestCount.get(), "the background lane is saturated");
+
+            HtmlResponse clicked = client.getDocument(url, RequestExecutor.Priority.INTERACTIVE).get(2, TimeUnit.SECONDS);
+
+            assertEquals("OK", clicked.document().selectFirst("div").text());
+            assertEquals(List.of("/item/5.html"), requestPaths, "only the joined request ran");
+            assertEquals(1, client.coalescedRequestCount());
+            assertSame(clicked, prefetch.get(1, TimeUnit.SECONDS), "the prefetch caller got the same response");
+            release.countDown();
+            for (CompletableFuture<HtmlResponse> future : backlog) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    void getHtml_cancelAbortsGovernorCooldownAndReleasesSlot() throws Exception {
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            String url = "http://localhost:" + port + "/item/4.html";
+            RateGovernor governor = client.governorFor(url);
+            governor.onThrottle();
+            governor.onThrottle();
+            governor.onThrottle();   // 2s cooldown
+
+            CompletableFuture<String> request = client.getHtml(url);
+            Thread.sleep(100);
+            request.cancel(true);
+            Thread.sleep(200);
+
+            assertEquals(0, requestCount.get(), "Cancelled request must never reach the server");
+            assertEquals(McmodHttpClient.MAX_CONCURRENT_PER_HOST, client.availableHostSlots("localhost"));
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Tests: Per-host connection slots
+    // ══════════════════════════════════════════════
+
+    @Test
+    void virtualExecutor_perHostSlotsCapServerConcurrency() throws Exception {
+        responseDelayMs = 700;
+        try (McmodHttpClient client = new McmodHttpClient(new RequestExecutor(RequestExecutor.Mode.VIRTUAL))) {
+            List<CompletableFuture<String>> futures = new java.util.ArrayList<>();
+            for (int i = 0; i < McmodHttpClient.MAX_CONCURRENT_PER_HOST + 2; i++) {
+                futures.add(client.getHtml("http://localhost:" + port + "/item/" + i + ".html"));
+            }
+            for (CompletableFuture<String> future : futures) {
+                assertEquals(responseBody, future.get());
+            }
+            assertEquals(McmodHttpClient.MAX_CONCURRENT_PER_HOST + 2, requestCount.get());
+            assertTrue(peakActiveRequests.get() <= McmodHttpClient.MAX_CONCURRENT_PER_HOST,
+                "Server saw " + peakActiveRequests.get() + " concurrent requests");
+            assertEquals(McmodHttpClient.MAX_CONCURRENT_PER_HOST, client.availableHostSlots("localhost"));
+        }
+    }
+
+    @Test
+    void throttledBackgroundRequests_holdNoSlotsAndAForegroundRequestGoesFirst() throws Exception {
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            String base = "http://localhost:" + port;
+            client.governorFor(base + "/").onThrottle();   // empty bucket, 500ms cooldown
+
+            List<CompletableFuture<HtmlResponse>> background = new java.util.ArrayList<>();
+            for (int i = 0; i < McmodHttpClient.MAX_CONCURRENT_PER_HOST; i++) {
+                background.add(client.getDocument(base + "/class/" + i + ".html", RequestExecutor.Priority.BACKGROUND));
+            }
+            Thread.sleep(100);
+            assertEquals(McmodHttpClient.MAX_CONCURRENT_PER_HOST, client.availableHostSlots("localhost"),
+                "Requests waiting out the cooldown must not hold connection slots");
+
+            assertEquals(responseBody, client.getHtml(base + "/s?key=search").get(5, TimeUnit.SECONDS));
+            assertEquals("/s?key=search", requestPaths.get(0), "The foreground request takes the first token");
+            background.forEach(future -> future.cancel(true));
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Tests: Conditional GET
+    // ══════════════════════════════════════════════
+
+    @Test
+    void getConditional_withoutValidators_returnsBodyAndServerValidators() throws Exception {
+        responseEtag = "\"v1\"";
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            HtmlResponse res = client.getConditional("http://localhost:" + port + "/item/1.html", CacheValidators.NONE).get();
+
+            assertFalse(res.notModified());
+            assertEquals("OK", res.document().selectFirst("div").text());
+            assertEquals("\"v1\"", res.validators().etag());
+            assertNull(header("If-None-Match"));
+        }
+    }
+
+    @Test
+    void getConditional_sendsValidatorsAndRecognises304() throws Exception {
+        responseEtag = "\"v1\"";
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            var validators = new CacheValidators("\"v1\"", "Tue, 01 Oct 2024 00:00:00 GMT");
+            HtmlResponse res = client.getConditional("http://localhost:" + port + "/item/1.html", validators).get();
+
+            assertTrue(res.notModified());
+            assertNull(res.document());
+            assertEquals("\"v1\"", header("If-None-Match"));
+            assertEquals("Tue, 01 Oct 2024 00:00:00 GMT", header("If-Modified-Since"));
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Tests: Streaming document parse
+    // ══════════════════════════════════════════════
+
+    @Test
+    void getDocument_parsesPlainResponse() throws Exception {
+        responseBody = "<html><body><div class=\"result-item\">娜迦鳞片</div></body></html>";
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            HtmlResponse res = client.getDocument("http://localhost:" + port + "/s?key=a").get();
+
+            assertTrue(res.hasContent());
+            assertEquals("娜迦鳞片", res.document().selectFirst(".result-item").text());
+            assertEquals(HtmlResponse.Interstitial.NONE, res.interstitial());
+        }
+    }
+
+    @Test
+    void getDocument_decodesGzipAndDeflateBodies() throws Exception {
+        responseBody = "<html><body><div class=\"result-item\">压缩内容</div></body></html>";
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            for (String encoding : List.of("gzip", "deflate")) {
+                responseEncoding = encoding;
+                HtmlResponse res = client.getDocument("http://localhost:" + port + "/s?key=" + encoding).get();
+                assertEquals("压缩内容", res.document().selectFirst(".result-item").text(), encoding);
+            }
+            assertTrue(header("Accept-Encoding").contains("deflate"));
+        }
+    }
+
+    @Test
+    void getDocument_classifiesCaptchaPage() throws Exception {
+        responseBody = "<html><body><p class=\"tips\">安全验证</p><img class=\"captcha\"></body></html>";
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            HtmlResponse res = client.getDocument("http://localhost:" + port + "/item/1.html").get();
+
+            assertEquals(HtmlResponse.Interstitial.CAPTCHA, res.interstitial());
+            assertFalse(res.hasContent());
+            assertNotNull(res.document(), "The CAPTCHA form is still needed to build the challenge");
+        }
+    }
+
+    @Test
+    void getDocument_concurrentSameUrl_sharesOneTree() throws Exception {
+        responseDelayMs = 300;
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            String url = "http://localhost:" + port + "/s?key=shared";
+            CompletableFuture<HtmlResponse> first = client.getDocument(url);
+            CompletableFuture<HtmlResponse> second = client.getDocument(url);
+
+            assertSame(first.get().document(), second.get().document());
+            assertEquals(1, requestCount.get());
+        }
+    }
+
     // ══════════════════════════════════════════════
     // Helper
     // ══════════════════════════════════════════════
@@ -183,6 +473,19 @@ class McmodHttpClientIntegrationTest {
         String body;
     }
 
+    private static byte[] encode(byte[] body, String encoding) throws IOException {
+        if (encoding == null) {
+            return body;
+        }
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        try (java.io.OutputStream out = encoding.equals("gzip")
+                ? new java.util.zip.GZIPOutputStream(buf)
+                : new java.util.zip.DeflaterOutputStream(buf, new java.util.zip.Deflater(java.util.zip.Deflater.DEFAULT_COMPRESSION, true))) {
+            out.write(body);
+        }
+        return buf.toByteArray();
+    }
+
     private static String readAll(InputStream in) throws IOException {
         ByteArrayOutputStream buf = new ByteArrayOutputStream();
         byte[] tmp = new byte[4096];
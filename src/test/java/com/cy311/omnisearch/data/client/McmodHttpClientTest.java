@@ -88,6 +88,82 @@ class McmodHttpClientTest {
         assertTrue(url.contains("key=test"));
     }
 
+    // ══════════════════════════════════════════════
+    // Single-flight key normalization
+    // ══════════════════════════════════════════════
+
+    @Test
+    void normalizeUrlLowercasesSchemeAndHost() {
+        assertEquals("https://www.mcmod.cn/item/1.html",
+            McmodHttpClient.normalizeUrl("HTTPS://WWW.MCMOD.CN/item/1.html"));
+    }
+
+    @Test
+    void normalizeUrlDropsDefaultPortAndFragment() {
+        assertEquals("https://www.mcmod.cn/item/1.html",
+            McmodHttpClient.normalizeUrl("https://www.mcmod.cn:443/item/1.html#intro"));
+    }
+
+    @Test
+    void normalizeUrlKeepsNonDefaultPort() {
+        assertEquals("http://localhost:8080/",
+            McmodHttpClient.normalizeUrl("http://localhost:8080"));
+    }
+
+    @Test
+    void normalizeUrlSortsQueryParameters() {
+        assertEquals(
+            McmodHttpClient.normalizeUrl("https://search.mcmod.cn/s?key=test&filter=3&page=2"),
+            McmodHttpClient.normalizeUrl("https://search.mcmod.cn/s?page=2&filter=3&key=test")
+        );
+    }
+
+    @Test
+    void normalizeUrlKeepsDistinctPagesApart() {
+        assertNotEquals(
+            McmodHttpClient.normalizeUrl(McmodHttpClient.buildSearchUrl("test", 2)),
+            McmodHttpClient.normalizeUrl(McmodHttpClient.buildSearchUrl("test", 3))
+        );
+    }
+
+    @Test
+    void normalizeUrlReturnsUnparseableInputTrimmed() {
+        assertEquals("not a url", McmodHttpClient.normalizeUrl("  not a url "));
+    }
+
+    @Test
+    void coalescedCountStartsAtZero() {
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            assertEquals(0, client.coalescedRequestCount());
+            assertEquals(0, client.inFlightCount());
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Rate governor scoping
+    // ══════════════════════════════════════════════
+
+    @Test
+    void governorIsSharedPerHost() {
+        try (McmodHttpClient client = new McmodHttpClient()) {
+            RateGovernor a = client.governorFor("https://www.mcmod.cn/item/1.html");
+            RateGovernor b = client.governorFor("https://WWW.mcmod.cn/class/2.html");
+            RateGovernor search = client.governorFor("https://search.mcmod.cn/s?key=x");
+
+            assertSame(a, b);
+            assertNotSame(a, search);
+            assertEquals("www.mcmod.cn", a.host());
+            assertEquals(2, client.governorStats().size());
+        }
+    }
+
+    @Test
+    void throttleAndCaptchaPagesAreRecognised() {
+        assertTrue(McmodHttpClient.isCaptchaChallenge("<p>安全验证</p><img class=\"captcha\">"));
+        assertFalse(McmodHttpClient.isCaptchaChallenge("<p>普通页面</p>"));
+        assertFalse(McmodHttpClient.isCaptchaChallenge(null));
+    }
+
     // ══════════════════════════════════════════════
     // Cookie management
     // ══════════════════════════════════════════════
@@ -0,0 +1,173 @@
+package com.cy311.omnisearch.data.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateGovernorTest {
+
+    // ══════════════════════════════════════════════
+    // Token bucket
+    // ══════════════════════════════════════════════
+
+    @Test
+    void acquire_withinBurst_doesNotWait() throws Exception {
+        RateGovernor governor = new RateGovernor("test", 1.0, 0.25, 8.0, 3, 500);
+
+        long start = System.nanoTime();
+        governor.acquire();
+        governor.acquire();
+        governor.acquire();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs < 100, "Burst tokens should be granted immediately, took " + elapsedMs + "ms");
+        assertEquals(3, governor.stats().granted());
+    }
+
+    @Test
+    void acquire_beyondBurst_waitsForRefill() throws Exception {
+        RateGovernor governor = new RateGovernor("test", 10.0, 0.25, 20.0, 1, 500);
+        governor.acquire();
+
+        long start = System.nanoTime();
+        governor.acquire();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // 10 tokens/s → roughly 100ms for the next token
+        assertTrue(elapsedMs >= 60, "Second token should wait for refill, took " + elapsedMs + "ms");
+    }
+
+    @Test
+    void acquire_isInterruptible() throws Exception {
+        RateGovernor governor = new RateGovernor("test", 0.25, 0.25, 1.0, 1, 500);
+        governor.acquire();
+
+        Thread.currentThread().interrupt();
+        assertThrows(InterruptedException.class, governor::acquire);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    // ══════════════════════════════════════════════
+    // AIMD rate control
+    // ══════════════════════════════════════════════
+
+    @Test
+    void onSuccess_increasesRateAdditively() {
+        RateGovernor governor = new RateGovernor("test", 1.0, 0.25, 8.0, 4, 500);
+        governor.onSuccess();
+        governor.onSuccess();
+        assertEquals(1.1, governor.currentRate(), 1e-9);
+    }
+
+    @Test
+    void onSuccess_isCappedAtMaxRate() {
+        RateGovernor governor = new RateGovernor("test", 1.95, 0.25, 2.0, 4, 500);
+        for (int i = 0; i < 10; i++) {
+            governor.onSuccess();
+        }
+        assertEquals(2.0, governor.currentRate(), 1e-9);
+    }
+
+    @Test
+    void onThrottle_halvesRate() {
+        RateGovernor governor = new RateGovernor("test", 4.0, 0.25, 8.0, 4, 500);
+        governor.onThrottle();
+        assertEquals(2.0, governor.currentRate(), 1e-9);
+        assertEquals(1, governor.stats().throttles());
+    }
+
+    @Test
+    void onThrottle_isFlooredAtMinRate() {
+        RateGovernor governor = new RateGovernor("test", 1.0, 0.5, 8.0, 4, 500);
+        governor.onThrottle();
+        governor.onThrottle();
+        governor.onThrottle();
+        assertEquals(0.5, governor.currentRate(), 1e-9);
+    }
+
+    @Test
+    void onThrottle_startsCooldownThatBlocksAcquire() throws Exception {
+        RateGovernor governor = new RateGovernor("test", 8.0, 0.25, 8.0, 4, 150);
+        governor.onThrottle();
+
+        long start = System.nanoTime();
+        governor.acquire();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs >= 120, "Acquire should wait out the cooldown, took " + elapsedMs + "ms");
+    }
+
+    @Test
+    void onThrottle_consecutiveThrottlesDoubleCooldown() throws Exception {
+        RateGovernor governor = new RateGovernor("test", 8.0, 0.25, 8.0, 4, 60);
+        governor.onThrottle();   // 60ms
+        governor.onThrottle();   // 120ms
+
+        long start = System.nanoTime();
+        governor.acquire();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMs >= 100, "Second consecutive throttle should double the cooldown, took " + elapsedMs + "ms");
+    }
+
+    @Test
+    void onSuccess_resetsCooldownGrowth() throws Exception {
+        RateGovernor governor = new RateGovernor("test", 8.0, 8.0, 8.0, 4, 200);
+        governor.onThrottle();
+        Thread.sleep(250);
+        governor.onSuccess();
+        governor.onThrottle();
+
+        long start = System.nanoTime();
+        governor.acquire();
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Back to the 200ms base cooldown rather than the doubled 400ms
+        assertTrue(elapsedMs < 350, "Cooldown should reset after a success, took " + elapsedMs + "ms");
+    }
+
+    @Test
+    void acquire_waitingForegroundCallerGetsTheNextTokenFirst() throws Exception {
+        RateGovernor governor = new RateGovernor("test", 5.0, 0.25, 8.0, 1, 500);
+        governor.acquire();
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        Thread background = Thread.ofPlatform().start(() -> {
+            try {
+                governor.acquire(false);
+                order.add("background");
+            } catch (InterruptedException ignored) {
+            }
+        });
+        Thread.sleep(50);
+        Thread foreground = Thread.ofPlatform().start(() -> {
+            try {
+                governor.acquire(true);
+                order.add("foreground");
+            } catch (InterruptedException ignored) {
+            }
+        });
+        foreground.join(5_000);
+        background.join(5_000);
+
+        assertEquals(List.of("foreground", "background"), order);
+    }
+
+    @Test
+    void stats_reportHostAndCounters() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        RateGovernor governor = new RateGovernor("www.mcmod.cn", 2.0, 0.25, 8.0, 4, 500, clock::get);
+        governor.acquire();
+        governor.onThrottle();
+
+        RateGovernor.Stats stats = governor.stats();
+        assertEquals("www.mcmod.cn", stats.host());
+        assertEquals(1, stats.granted());
+        assertEquals(1, stats.throttles());
+        assertEquals(1.0, stats.rate(), 1e-9);
+    }
+}
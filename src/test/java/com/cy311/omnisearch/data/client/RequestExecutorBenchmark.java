@@ -0,0 +1,94 @@
+package com.cy311.omnisearch.data.client;
+
+import com.sun.net.httpserver.HttpServer;
+import org.jsoup.Jsoup;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+/**
+ * Throughput benchmark: {@link RequestExecutor} platform pool vs virtual-thread mode,
+ * against a local stub server that answers every request after a fixed delay.
+ * <p>
+ * Not a unit test — run manually:
+ * {@code java ... RequestExecutorBenchmark [requests] [latencyMs]}. Each request is a
+ * plain Jsoup GET without the rate governor, so only the executor's concurrency differs.
+ * Latency is measured from submit to completion and therefore includes queueing time.
+ */
+public final class RequestExecutorBenchmark {
+
+    private RequestExecutorBenchmark() {}
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int latencyMs = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        byte[] page = "<html><body><div class=\"result\">stub</div></body></html>".getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, page.length);
+            exchange.getResponseBody().write(page);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        String base = "http://localhost:" + server.getAddress().getPort() + "/item/";
+
+        try {
+            // Warm up class loading and the JIT once per mode before measuring
+            for (RequestExecutor.Mode mode : RequestExecutor.Mode.values()) {
+                run(mode, base, 20);
+            }
+            System.out.printf(Locale.ROOT, "%d requests, %d ms server latency%n", requests, latencyMs);
+            for (RequestExecutor.Mode mode : RequestExecutor.Mode.values()) {
+                System.out.println(run(mode, base, requests));
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static Result run(RequestExecutor.Mode mode, String base, int requests) throws Exception {
+        long[] latencies = new long[requests];
+        List<CompletableFuture<?>> futures = new ArrayList<>(requests);
+        long start = System.nanoTime();
+        try (RequestExecutor executor = new RequestExecutor(mode)) {
+            for (int i = 0; i < requests; i++) {
+                int index = i;
+                long submitted = System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    String html = Jsoup.connect(base + index + ".html").execute().body();
+                    latencies[index] = System.nanoTime() - submitted;
+                    return html;
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        }
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        return new Result(mode, requests, elapsed / 1_000_000,
+            requests / (elapsed / 1e9),
+            latencies[requests / 2] / 1_000_000,
+            latencies[(int) Math.min(requests - 1, Math.ceil(requests * 0.95) - 1)] / 1_000_000);
+    }
+
+    private record Result(RequestExecutor.Mode mode, int requests, long wallMs, double perSecond, long p50Ms, long p95Ms) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-8s wall=%5d ms  throughput=%7.1f req/s  p50=%5d ms  p95=%5d ms",
+                mode, wallMs, perSecond, p50Ms, p95Ms);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.cy311.omnisearch.data.client;
+
+import com.cy311.omnisearch.data.client.RequestExecutor.Priority;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestExecutorTest {
+
+    // ══════════════════════════════════════════════
+    // Basic submission
+    // ══════════════════════════════════════════════
+
+    @Test
+    void submit_returnsTaskResult() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor()) {
+            assertEquals("ok", executor.submit(() -> "ok").get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void submit_wrapsExceptionsInCompletionException() {
+        try (RequestExecutor executor = new RequestExecutor()) {
+            CompletableFuture<String> future = executor.submit(() -> {
+                throw new IllegalStateException("boom");
+            });
+            CompletionException ex = assertThrows(CompletionException.class, future::join);
+            assertInstanceOf(IllegalStateException.class, ex.getCause());
+        }
+    }
+
+    @Test
+    void submit_errorFailsTheFutureAndTheWorkerSurvives() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(1, 0)) {
+            CompletableFuture<String> future = executor.submit(() -> {
+                throw new StackOverflowError("deep page");
+            });
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(StackOverflowError.class, ex.getCause());
+
+            assertEquals("ok", executor.submit(() -> "ok").get(5, TimeUnit.SECONDS), "the only worker is still running");
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Scheduling
+    // ══════════════════════════════════════════════
+
+    @Test
+    void queuedTasks_runInPriorityOrder() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(1, 0)) {
+            CountDownLatch release = new CountDownLatch(1);
+            executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+
+            List<String> order = new CopyOnWriteArrayList<>();
+            CompletableFuture<?> background = executor.submit(() -> order.add("background"), Priority.BACKGROUND);
+            CompletableFuture<?> prefetch = executor.submit(() -> order.add("prefetch"), Priority.PREFETCH);
+            CompletableFuture<?> image = executor.submit(() -> order.add("image"), Priority.VISIBLE_IMAGE);
+            CompletableFuture<?> interactive = executor.submit(() -> order.add("interactive"), Priority.INTERACTIVE);
+            release.countDown();
+
+            CompletableFuture.allOf(background, prefetch, image, interactive).get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("interactive", "image", "prefetch", "background"), order);
+        }
+    }
+
+    @Test
+    void interactiveTask_isNotBlockedByBusyBackgroundWorkers() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(2, 1)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            // One worker may take background work; the second prefetch has to wait for it
+            executor.submit(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            }, Priority.PREFETCH);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            executor.submit(() -> release.await(5, TimeUnit.SECONDS), Priority.PREFETCH);
+
+            String result = executor.submit(() -> "detail").get(2, TimeUnit.SECONDS);
+            assertEquals("detail", result);
+            assertEquals(1, executor.queuedCount(Priority.PREFETCH));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void agedBackgroundTask_outranksFreshForegroundTask() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        try (RequestExecutor executor = new RequestExecutor(1, 0, clock::get)) {
+            CountDownLatch release = new CountDownLatch(1);
+            executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+
+            List<String> order = new CopyOnWriteArrayList<>();
+            CompletableFuture<?> prefetch = executor.submit(() -> order.add("prefetch"), Priority.PREFETCH);
+            // Thirty seconds later the prefetch has waited well past its aging offset
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(30));
+            CompletableFuture<?> interactive = executor.submit(() -> order.add("interactive"));
+            release.countDown();
+
+            CompletableFuture.allOf(prefetch, interactive).get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("prefetch", "interactive"), order);
+        }
+    }
+
+    @Test
+    void promote_movesAQueuedTaskPastTheBusyBackgroundLane() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(2, 1)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            executor.submit(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            }, Priority.BACKGROUND);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Priority> prefetch = executor.submit(RequestExecutor::currentPriority, Priority.PREFETCH);
+
+            assertTrue(executor.promote(prefetch, Priority.INTERACTIVE));
+            assertEquals(Priority.INTERACTIVE, prefetch.get(2, TimeUnit.SECONDS));
+            assertFalse(executor.promote(prefetch, Priority.INTERACTIVE), "no longer queued");
+            release.countDown();
+        }
+    }
+
+    @Test
+    void currentPriority_isTheLaneOfTheRunningTask() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(1, 0)) {
+            assertEquals(RequestExecutor.Priority.PREFETCH,
+                executor.submit(RequestExecutor::currentPriority, RequestExecutor.Priority.PREFETCH).get());
+            assertEquals(RequestExecutor.Priority.VISIBLE_IMAGE,
+                executor.submit(RequestExecutor::currentPriority, RequestExecutor.Priority.VISIBLE_IMAGE).get());
+        }
+        assertEquals(RequestExecutor.Priority.INTERACTIVE, RequestExecutor.currentPriority(), "outside any task");
+    }
+
+    // ══════════════════════════════════════════════
+    // Cancellation
+    // ══════════════════════════════════════════════
+
+    @Test
+    void cancelTag_cancelsOnlyQueuedTasksWithThatTag() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(1, 0)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> running = executor.submit(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            }, Priority.INTERACTIVE, "screen");
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture<String> taggedA = executor.submit(() -> "a", Priority.VISIBLE_IMAGE, "screen");
+            CompletableFuture<String> taggedB = executor.submit(() -> "b", Priority.PREFETCH, "screen");
+            CompletableFuture<String> other = executor.submit(() -> "c", Priority.PREFETCH, "other");
+
+            assertEquals(2, executor.cancelTag("screen"));
+            release.countDown();
+
+            assertTrue(taggedA.isCancelled());
+            assertTrue(taggedB.isCancelled());
+            assertTrue(running.get(5, TimeUnit.SECONDS));
+            assertEquals("c", other.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void cancellingFuture_removesTaskFromQueue() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(1, 0)) {
+            CountDownLatch release = new CountDownLatch(1);
+            executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture<String> queued = executor.submit(() -> "never", Priority.PREFETCH);
+            assertEquals(1, executor.queuedCount(Priority.PREFETCH));
+
+            queued.cancel(true);
+            assertEquals(0, executor.queuedCount(Priority.PREFETCH));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void cancellingFuture_runsTheRunningTasksCancelHooks() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(1, 0)) {
+            CountDownLatch registered = new CountDownLatch(1);
+            CountDownLatch aborted = new CountDownLatch(1);
+            AtomicInteger unregisteredRuns = new AtomicInteger();
+            CompletableFuture<String> running = executor.submit(() -> {
+                RequestExecutor.onCancel(unregisteredRuns::incrementAndGet).close();
+                try (var hook = RequestExecutor.onCancel(aborted::countDown)) {
+                    registered.countDown();
+                    // Stands in for a socket read that ignores interrupts
+                    aborted.await(10, TimeUnit.SECONDS);
+                }
+                return "aborted";
+            });
+            assertTrue(registered.await(5, TimeUnit.SECONDS));
+
+            running.cancel(true);
+
+            assertTrue(aborted.await(5, TimeUnit.SECONDS), "the hook should run on cancel");
+            assertEquals(0, unregisteredRuns.get(), "a closed hook must not run");
+        }
+        RequestExecutor.onCancel(() -> fail("no task to cancel")).close();
+    }
+
+    @Test
+    void cancellingFuture_interruptsRunningTask() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(1, 0)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch interrupted = new CountDownLatch(1);
+            CompletableFuture<String> running = executor.submit(() -> {
+                started.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "finished";
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            running.cancel(true);
+
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Running task should be interrupted");
+            // The worker survives the interrupt and keeps serving tasks
+            assertEquals("next", executor.submit(() -> "next").get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void interruptedTask_isReportedAsCancelled() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(1, 0)) {
+            CompletableFuture<String> future = executor.submit(() -> {
+                throw new InterruptedException("stop");
+            });
+            assertThrows(CancellationException.class, () -> future.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void close_cancelsQueuedTasks() throws Exception {
+        RequestExecutor executor = new RequestExecutor(1, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(() -> release.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit(() -> "never", Priority.BACKGROUND);
+
+        executor.close();
+        release.countDown();
+
+        assertThrows(CancellationException.class, () -> queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_afterClose_returnsCancelledFuture() {
+        RequestExecutor executor = new RequestExecutor(1, 0);
+        executor.close();
+        CompletableFuture<String> future = executor.submit(() -> "late");
+        assertTrue(future.isCancelled());
+        assertThrows(CancellationException.class, future::get);
+    }
+
+    // ══════════════════════════════════════════════
+    // Virtual-thread mode
+    // ══════════════════════════════════════════════
+
+    @Test
+    void virtualMode_runsTasksOnVirtualThreads() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(RequestExecutor.Mode.VIRTUAL)) {
+            assertEquals(RequestExecutor.Mode.VIRTUAL, executor.mode());
+            assertTrue(executor.submit(() -> Thread.currentThread().isVirtual()).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void virtualMode_exceedsPlatformPoolConcurrency() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(RequestExecutor.Mode.VIRTUAL)) {
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger peak = new AtomicInteger();
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 24; i++) {
+                futures.add(executor.submit(() -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(200);
+                    return running.decrementAndGet();
+                }));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            assertTrue(peak.get() > 6, "Virtual mode should not be capped at the pool size, peak=" + peak.get());
+        }
+    }
+
+    @Test
+    void virtualMode_keepsPriorityOrderWhenSaturated() throws Exception {
+        try (RequestExecutor executor = new RequestExecutor(RequestExecutor.Mode.VIRTUAL, 1, 0, System::nanoTime)) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            executor.submit(() -> {
+                started.countDown();
+                return release.await(5, TimeUnit.SECONDS);
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            List<String> order = new CopyOnWriteArrayList<>();
+            CompletableFuture<?> prefetch = executor.submit(() -> order.add("prefetch"), Priority.PREFETCH);
+            CompletableFuture<?> interactive = executor.submit(() -> order.add("interactive"));
+            release.countDown();
+
+            CompletableFuture.allOf(prefetch, interactive).get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("interactive", "prefetch"), order);
+        }
+    }
+
+    @Test
+    void virtualMode_close_cancelsQueuedTasks() throws Exception {
+        RequestExecutor executor = new RequestExecutor(RequestExecutor.Mode.VIRTUAL, 1, 0, System::nanoTime);
+        CountDownLatch started = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            Thread.sleep(5_000);
+            return null;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = executor.submit(() -> "never", Priority.BACKGROUND);
+
+        executor.close();
+        assertThrows(CancellationException.class, () -> queued.get(5, TimeUnit.SECONDS));
+    }
+}
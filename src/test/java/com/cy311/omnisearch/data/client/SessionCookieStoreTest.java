@@ -0,0 +1,152 @@
+package com.cy311.omnisearch.data.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionCookieStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+    private SessionCookieStore open(boolean verifyIntegrity) {
+        return SessionCookieStore.persistent(tempDir.resolve("cookies.json"), verifyIntegrity, clock::get);
+    }
+
+    // ══════════════════════════════════════════════
+    // Expiry
+    // ══════════════════════════════════════════════
+
+    @Test
+    void snapshot_dropsExpiredCookies() {
+        SessionCookieStore store = new SessionCookieStore(null, false, clock::get);
+        store.merge(Map.of("short", "1", "long", "2"), Map.of("short", clock.get() + 1_000));
+
+        clock.addAndGet(2_000);
+
+        assertEquals(Map.of("long", "2"), store.snapshot());
+        assertFalse(store.containsKey("short"));
+    }
+
+    @Test
+    void merge_pastExpiryDeletesCookie() {
+        SessionCookieStore store = new SessionCookieStore(null, false, clock::get);
+        store.merge(Map.of("session", "abc"));
+        store.merge(Map.of("session", ""), Map.of("session", clock.get() - 1));
+
+        assertNull(store.get("session"));
+        assertTrue(store.snapshot().isEmpty());
+    }
+
+    @Test
+    void sessionCookies_expireAfterDefaultLifetime() {
+        SessionCookieStore store = new SessionCookieStore(null, false, clock::get);
+        store.merge(Map.of("PHPSESSID", "abc"));
+
+        clock.addAndGet(SessionCookieStore.SESSION_COOKIE_LIFETIME_MS - 1);
+        assertEquals("abc", store.snapshot().get("PHPSESSID"));
+        clock.addAndGet(2);
+        assertTrue(store.snapshot().isEmpty());
+    }
+
+    // ══════════════════════════════════════════════
+    // Persistence
+    // ══════════════════════════════════════════════
+
+    @Test
+    void changedCookies_survivePersistentReopen() {
+        open(true).merge(Map.of("PHPSESSID", "solved"), Map.of("PHPSESSID", clock.get() + TimeUnit.DAYS.toMillis(30)));
+
+        SessionCookieStore reopened = open(true);
+
+        assertEquals(Map.of("PHPSESSID", "solved"), reopened.snapshot());
+    }
+
+    @Test
+    void reopen_skipsCookiesThatExpiredWhileClosed() {
+        open(false).merge(Map.of("a", "1", "b", "2"), Map.of("a", clock.get() + 1_000));
+
+        clock.addAndGet(5_000);
+
+        assertEquals(Map.of("b", "2"), open(false).snapshot());
+    }
+
+    @Test
+    void refreshedExpiry_isWrittenOnFlush() {
+        SessionCookieStore store = open(false);
+        store.merge(Map.of("a", "1"), Map.of("a", clock.get() + 10_000));
+        store.merge(Map.of("a", "1"), Map.of("a", clock.get() + 20_000));
+        clock.addAndGet(15_000);
+        assertTrue(open(false).snapshot().isEmpty(), "Small refreshes are not written through");
+
+        store.flush();
+
+        assertEquals(Map.of("a", "1"), open(false).snapshot());
+    }
+
+    @Test
+    void save_leavesNoTempFilesBehind() throws Exception {
+        SessionCookieStore store = open(true);
+        store.merge(Map.of("a", "1"));
+        store.merge(Map.of("a", "2"));
+        store.clear();
+
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of(tempDir.resolve("cookies.json")), files.toList());
+        }
+        assertTrue(open(true).snapshot().isEmpty());
+    }
+
+    @Test
+    void inMemoryStore_writesNothing() throws Exception {
+        SessionCookieStore store = new SessionCookieStore();
+        store.merge(Map.of("a", "1"));
+        store.flush();
+
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Integrity
+    // ══════════════════════════════════════════════
+
+    @Test
+    void tamperedFile_isIgnoredWhenIntegrityChecked() throws Exception {
+        open(true).merge(Map.of("PHPSESSID", "genuine"));
+        Path file = tempDir.resolve("cookies.json");
+        Files.writeString(file, Files.readString(file).replace("genuine", "forged"));
+
+        assertTrue(open(true).snapshot().isEmpty());
+        assertEquals("forged", open(false).snapshot().get("PHPSESSID"));
+    }
+
+    @Test
+    void fileWithoutChecksum_isRejectedWhenIntegrityChecked() {
+        open(false).merge(Map.of("a", "1"));
+
+        assertTrue(open(true).snapshot().isEmpty());
+    }
+
+    @Test
+    void corruptFile_startsEmpty() throws Exception {
+        Files.writeString(tempDir.resolve("cookies.json"), "{not json");
+
+        SessionCookieStore store = open(true);
+
+        assertTrue(store.snapshot().isEmpty());
+        store.merge(Map.of("a", "1"));
+        assertEquals(Map.of("a", "1"), open(true).snapshot());
+    }
+}
@@ -0,0 +1,142 @@
+package com.cy311.omnisearch.data.client;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process {@link Transport} that answers from recorded mcmod.cn pages instead of the
+ * network, so client, data source and repository can be exercised end to end offline.
+ * <p>
+ * Routes are keyed by {@link McmodHttpClient#normalizeUrl normalized URL}; fixtures live
+ * under {@code src/test/resources/fixtures/mcmod/}. Unrouted URLs get a 404. A fixed
+ * latency can be added to every exchange to model a slow link; the wait honours
+ * interrupts the way a cancellable socket read would.
+ */
+public final class StubTransport implements Transport {
+
+    private static final String FIXTURE_ROOT = "/fixtures/mcmod/";
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final List<Request> requests = new CopyOnWriteArrayList<>();
+    private volatile long latencyMs;
+
+    private record Route(int status, byte[] body, Map<String, String> headers, Map<String, String> cookies) {}
+
+    /** Serves the fixture file {@code name} for {@code url}. */
+    public StubTransport serveFixture(String url, String name) {
+        return serve(url, 200, fixture(name), Map.of(), Map.of());
+    }
+
+    public StubTransport serveHtml(String url, String html) {
+        return serve(url, 200, html.getBytes(StandardCharsets.UTF_8), Map.of(), Map.of());
+    }
+
+    public StubTransport serve(String url, int status, byte[] body, Map<String, String> headers, Map<String, String> cookies) {
+        routes.put(McmodHttpClient.normalizeUrl(url), new Route(status, body, Map.copyOf(headers), Map.copyOf(cookies)));
+        return this;
+    }
+
+    /** Delay added before every response. */
+    public StubTransport withLatency(long millis) {
+        this.latencyMs = millis;
+        return this;
+    }
+
+    /** Every request received so far, in order. */
+    public List<Request> requests() {
+        return List.copyOf(requests);
+    }
+
+    public static byte[] fixture(String name) {
+        try (InputStream in = StubTransport.class.getResourceAsStream(FIXTURE_ROOT + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Missing fixture: " + FIXTURE_ROOT + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        requests.add(request);
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Stub request interrupted: " + request.url());
+            }
+        }
+        Route route = routes.get(McmodHttpClient.normalizeUrl(request.url()));
+        if (route == null) {
+            route = new Route(404, "<html><body>Not Found</body></html>".getBytes(StandardCharsets.UTF_8), Map.of(), Map.of());
+        }
+        return new StubResponse(request.url(), route);
+    }
+
+    private static final class StubResponse implements Response {
+        private final String url;
+        private final Route route;
+        private boolean bodyRead;
+
+        StubResponse(String url, Route route) {
+            this.url = url;
+            this.route = route;
+        }
+
+        @Override
+        public int statusCode() {
+            return route.status();
+        }
+
+        @Override
+        public String url() {
+            return url;
+        }
+
+        @Override
+        public @Nullable String header(String name) {
+            for (Map.Entry<String, String> entry : route.headers().entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Map<String, String> cookies() {
+            return route.cookies();
+        }
+
+        @Override
+        public @Nullable String charset() {
+            return "UTF-8";
+        }
+
+        @Override
+        public InputStream body() {
+            if (bodyRead) {
+                throw new IllegalStateException("Response body already read: " + url);
+            }
+            bodyRead = true;
+            return new ByteArrayInputStream(route.body());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.cy311.omnisearch.data.model.document;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Size and speed benchmark: {@link DocumentCodec} vs the Gson path through
+ * {@link DocNodeAdapterFactory} that cached pages used before.
+ * <p>
+ * Not a unit test — run manually:
+ * {@code java ... DocumentCodecBenchmark [sections] [iterations]}. The document is
+ * synthetic but shaped like a parsed mcmod.cn page: sections of styled paragraphs, links
+ * back to the same mod, recipe tables and images. "first screen" decodes only what
+ * {@link DocumentCodec#DEFAULT_EAGER_BYTES} covers, which is what a cache read pays before
+ * the page can be shown.
+ */
+public final class DocumentCodecBenchmark {
+
+    private DocumentCodecBenchmark() {}
+
+    public static void main(String[] args) {
+        int sections = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new DocNodeAdapterFactory()).create();
+        Document doc = sampleDocument(sections);
+        String json = gson.toJson(doc);
+        byte[] binary = DocumentCodec.encode(doc);
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+
+        // Warm up class loading and the JIT before measuring
+        run(iterations / 4, () -> gson.fromJson(new String(jsonBytes, StandardCharsets.UTF_8), Document.class));
+        run(iterations / 4, () -> fullyDecoded(binary));
+
+        System.out.printf(Locale.ROOT, "%d sections, %d iterations%n", sections, iterations);
+        System.out.printf(Locale.ROOT, "size      gson=%8d B  binary=%8d B  (%.1f%%)%n",
+            jsonBytes.length, binary.length, 100.0 * binary.length / jsonBytes.length);
+        report("encode", run(iterations, () -> gson.toJson(doc).getBytes(StandardCharsets.UTF_8)),
+            run(iterations, () -> DocumentCodec.encode(doc)));
+        long gsonDecode = run(iterations, () -> gson.fromJson(new String(jsonBytes, StandardCharsets.UTF_8), Document.class));
+        report("decode", gsonDecode, run(iterations, () -> fullyDecoded(binary)));
+        report("first screen", gsonDecode, run(iterations, () -> DocumentCodec.decode(binary)));
+    }
+
+    private static Document fullyDecoded(byte[] binary) {
+        Document doc = DocumentCodec.decode(binary);
+        DocumentCodec.decodeRemaining(doc);
+        return doc;
+    }
+
+    /** Mean nanoseconds per call. */
+    private static long run(int iterations, Supplier<?> task) {
+        Object sink = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink = task.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (sink == null) {
+            throw new IllegalStateException();
+        }
+        return elapsed / Math.max(1, iterations);
+    }
+
+    private static void report(String name, long gsonNanos, long binaryNanos) {
+        System.out.printf(Locale.ROOT, "%-12s gson=%8.1f us  binary=%8.1f us  (%.1fx)%n",
+            name, gsonNanos / 1e3, binaryNanos / 1e3, (double) gsonNanos / Math.max(1, binaryNanos));
+    }
+
+    /** A page-shaped document with {@code sections} top-level sections. */
+    static Document sampleDocument(int sections) {
+        String modUrl = "https://www.mcmod.cn/class/456.html";
+        TextStyle highlight = new TextStyle(true, false, false, false, "#ff5555");
+        TextStyle note = new TextStyle(false, true, false, false, "#999999");
+        List<DocNode> content = new ArrayList<>();
+        for (int s = 0; s < sections; s++) {
+            List<DocNode> children = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                children.add(new ParagraphNode(List.of(
+                    new TextNode("娜迦鳞片是暮色森林中娜迦掉落的物品，可用于合成娜迦鳞片盔甲。段落 " + s + "." + p + " "),
+                    new StyledTextNode("重要提示", highlight),
+                    new TextNode("，详见"),
+                    new LinkNode(modUrl, List.of(new StyledTextNode("暮色森林", note))),
+                    new ImageInlineNode("https://i.mcmod.cn/item/icon/32x32/12345.png", "icon")
+                ), true, ParagraphNode.Align.NONE));
+            }
+            List<List<DocNode>> rows = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                rows.add(List.of(new TextNode("材料 " + r), new StyledTextNode("x" + (r + 1), highlight)));
+            }
+            children.add(new TableNode(List.of("材料", "数量"), rows));
+            children.add(new ImageNode("https://i.mcmod.cn/editor/upload/" + s + ".png", "合成表", null, 320, 180));
+            children.add(new CaptionNode("合成表 " + s));
+            content.add(new SectionNode("章节 " + s, children));
+        }
+        return new Document("娜迦鳞片", "暮色森林", modUrl, content);
+    }
+}
@@ -0,0 +1,192 @@
+package com.cy311.omnisearch.data.model.document;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentCodecTest {
+
+    private static Document roundTrip(Document doc) {
+        return DocumentCodec.decode(DocumentCodec.encode(doc));
+    }
+
+    // ══════════════════════════════════════════════
+    // Round trip
+    // ══════════════════════════════════════════════
+
+    @Test
+    void roundTrip_everyNodeType() {
+        var red = new TextStyle(true, false, true, false, "#ff0000");
+        var doc = new Document("Title", "TestMod", "https://example.com/item/1", List.of(
+            new HeadingNode(2, List.of(new TextNode("Heading"))),
+            new ParagraphNode(List.of(
+                new TextNode("plain "),
+                new StyledTextNode("red", red),
+                new StyledTextNode("italic", TextStyle.ITALIC),
+                new ImageInlineNode("https://example.com/icon.png", "icon")
+            ), true, ParagraphNode.Align.CENTER),
+            new TableNode(
+                List.of("Name", "Value"),
+                List.of(
+                    List.of(new TextNode("a"), new TextNode("1")),
+                    List.of(new LinkNode("https://example.com/b", List.of(new TextNode("b")))))
+            ),
+            new TableNode(
+                List.of(),
+                List.of(List.of(new TextNode("wide")), List.of(new TextNode("x"), new TextNode("y"))),
+                List.of(List.of(2), List.of(1, 1))
+            ),
+            new ListNode(true, List.of(new TextNode("one"), new TextNode("two"))),
+            new ImageNode("https://example.com/img.png", "alt", "/local/img.png", 640, 480),
+            new ImageNode("https://example.com/img2.png", "", null),
+            new DividerNode(),
+            new SectionNode("Section", List.of(
+                new ParagraphNode(List.of(new StyledTextNode("again", red))),
+                new CaptionNode("caption")
+            ))
+        ));
+
+        assertEquals(doc, roundTrip(doc));
+    }
+
+    @Test
+    void roundTrip_nullableFieldsAndEmptyContent() {
+        var doc = new Document("Title", null, null, List.of());
+
+        Document restored = roundTrip(doc);
+
+        assertEquals(doc, restored);
+        assertTrue(restored.content().isEmpty());
+    }
+
+    @Test
+    void roundTrip_nonAsciiText() {
+        var doc = new Document("娜迦鳞片", "暮色森林", null, List.of(
+            new ParagraphNode(List.of(new TextNode("掉落于娜迦 — ✓"))),
+            new TextNode("")
+        ));
+
+        assertEquals(doc, roundTrip(doc));
+    }
+
+    // ══════════════════════════════════════════════
+    // Size
+    // ══════════════════════════════════════════════
+
+    @Test
+    void repeatedUrlsAndStyles_areStoredOnce() {
+        String url = "https://www.mcmod.cn/class/456.html";
+        var style = new TextStyle(true, false, false, false, "#336699");
+        List<DocNode> links = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            links.add(new LinkNode(url, List.of(new StyledTextNode("x", style))));
+        }
+        var doc = new Document("Links", null, null, List.of(new ParagraphNode(links)));
+
+        byte[] encoded = DocumentCodec.encode(doc);
+
+        assertEquals(1, occurrences(encoded, url.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(1, occurrences(encoded, "#336699".getBytes(StandardCharsets.UTF_8)));
+        assertTrue(encoded.length < 200 * 8, "was " + encoded.length + " bytes");
+    }
+
+    @Test
+    void encoded_isSmallerThanGsonJson() {
+        Gson gson = new GsonBuilder().registerTypeAdapterFactory(new DocNodeAdapterFactory()).create();
+        Document doc = DocumentCodecBenchmark.sampleDocument(20);
+
+        int json = gson.toJson(doc).getBytes(StandardCharsets.UTF_8).length;
+        int binary = DocumentCodec.encode(doc).length;
+
+        assertTrue(binary * 2 < json, binary + " binary vs " + json + " JSON bytes");
+    }
+
+    // ══════════════════════════════════════════════
+    // Lazy sections
+    // ══════════════════════════════════════════════
+
+    @Test
+    void decode_buildsOnlyFirstScreenUpFront() {
+        Document doc = DocumentCodecBenchmark.sampleDocument(50);
+        byte[] encoded = DocumentCodec.encode(doc);
+
+        Document restored = DocumentCodec.decode(encoded, 0, encoded.length, 1);
+
+        assertEquals(1, DocumentCodec.decodedSections(restored));
+        assertEquals(doc.content().get(30), restored.content().get(30));
+        assertEquals(2, DocumentCodec.decodedSections(restored));
+
+        DocumentCodec.decodeRemaining(restored);
+        assertEquals(doc.content().size(), DocumentCodec.decodedSections(restored));
+        assertEquals(doc, restored);
+    }
+
+    @Test
+    void decode_eagerBytesCoverSeveralSections() {
+        Document doc = DocumentCodecBenchmark.sampleDocument(50);
+        byte[] encoded = DocumentCodec.encode(doc);
+
+        Document restored = DocumentCodec.decode(encoded, 0, encoded.length, DocumentCodec.DEFAULT_EAGER_BYTES);
+
+        int decoded = DocumentCodec.decodedSections(restored);
+        assertTrue(decoded > 1 && decoded < doc.content().size(), decoded + " sections decoded");
+    }
+
+    @Test
+    void decode_atOffsetWithinLargerArray() {
+        var doc = new Document("T", null, null, List.of(new TextNode("a"), new TextNode("b")));
+        byte[] encoded = DocumentCodec.encode(doc);
+        byte[] framed = new byte[encoded.length + 7];
+        System.arraycopy(encoded, 0, framed, 3, encoded.length);
+
+        assertEquals(doc, DocumentCodec.decode(framed, 3, encoded.length, 0));
+    }
+
+    // ══════════════════════════════════════════════
+    // Malformed input
+    // ══════════════════════════════════════════════
+
+    @Test
+    void decode_rejectsOtherFormatVersion() {
+        byte[] encoded = DocumentCodec.encode(new Document("T", null, null, List.of()));
+        encoded[4] = (byte) (DocumentCodec.FORMAT_VERSION + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> DocumentCodec.decode(encoded));
+    }
+
+    @Test
+    void decode_rejectsForeignBytes() {
+        byte[] json = "{\"title\":\"T\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(IllegalArgumentException.class, () -> DocumentCodec.decode(json));
+    }
+
+    @Test
+    void decode_rejectsTruncatedInput() {
+        byte[] encoded = DocumentCodec.encode(DocumentCodecBenchmark.sampleDocument(3));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 5);
+
+        assertThrows(IllegalArgumentException.class, () -> DocumentCodec.decode(truncated));
+    }
+
+    private static int occurrences(byte[] haystack, byte[] needle) {
+        int count = 0;
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+}
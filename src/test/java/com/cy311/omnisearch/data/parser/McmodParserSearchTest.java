@@ -2,8 +2,11 @@ package com.cy311.omnisearch.data.parser;
 
 import com.cy311.omnisearch.data.model.SearchPageBatch;
 import com.cy311.omnisearch.data.model.SearchHit;
+import org.jsoup.Jsoup;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -322,6 +325,28 @@ class McmodParserSearchTest {
         );
     }
 
+    @Test
+    void parseSearchPage_streamedDocumentMatchesStringParse() throws Exception {
+        String html = """
+            <html><head><meta charset="utf-8"></head><body>
+            <div class="search-result-list">
+              <div class="result-item">
+                <div class="head"><a href="https://www.mcmod.cn/item/200.html">测试物品 - 测试模组</a></div>
+              </div>
+            </div>
+            <div class="pagination">
+              <span class="page-item"><a href="/s?key=test&filter=3&page=2">下一页</a></span>
+            </div>
+            </body></html>
+            """;
+        String url = "https://search.mcmod.cn/s?key=test&filter=3";
+
+        org.jsoup.nodes.Document streamed = Jsoup.parse(
+            new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8)), null, url);
+
+        assertEquals(parser.parseSearchPage(html, url), parser.parseSearchPageDom(streamed, url));
+    }
+
     @Test
     void resultLinkWithTrackingAmpersandSuffixIsParsed() {
         // Regression: mcmod.cn can emit result links with a tracking/redirect suffix joined by
@@ -442,6 +467,38 @@ class McmodParserSearchTest {
         assertEquals("https://search.mcmod.cn/s?key=%E5%B7%AB%E5%A6%96&filter=3&page=3", page2.nextPageUrl());
     }
 
+    @Test
+    void parseSearchPage_reportsPageNumberAndTotalPages() {
+        String html = """
+            <html><body>
+            <div class="search-result-list"></div>
+            <div class="pagination common-pages">
+              <span class="page-item"><a class="page-link" href="?key=巫妖&filter=3&page=2" data-page="2">2</a></span>
+              <span class="page-item active"><a class="page-link" href="?key=巫妖&filter=3&page=3" data-page="3">3</a></span>
+              <span class="page-item"><a class="page-link" href="?key=巫妖&filter=3&page=4" data-page="4">4</a></span>
+              <span class="page-item"><a class="page-link" href="?key=巫妖&filter=3&page=31" data-page="31">尾页</a></span>
+            </div>
+            </body></html>
+            """;
+
+        SearchPageBatch batch = parser.parseSearchPage(html, "https://search.mcmod.cn/s?key=%E5%B7%AB%E5%A6%96&filter=3&page=3");
+
+        assertEquals(3, batch.page());
+        assertEquals(31, batch.totalPages());
+        assertEquals("https://search.mcmod.cn/s?key=%E5%B7%AB%E5%A6%96&filter=3&page=7",
+            McmodParser.searchPageUrl(batch.nextPageUrl(), 7));
+    }
+
+    @Test
+    void parseSearchPage_withoutPaginationIsSinglePage() {
+        SearchPageBatch batch = parser.parseSearchPage("<html><body><div class=\"search-result-list\"></div></body></html>",
+            "https://search.mcmod.cn/s?key=x&filter=3");
+
+        assertEquals(1, batch.page());
+        assertEquals(1, batch.totalPages());
+        assertNull(batch.nextPageUrl());
+    }
+
     @Test
     void parseSearchPage_lastPageHasNoNextUrl() {
         // On the final page no pagination link points beyond the current page
@@ -0,0 +1,176 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheJanitorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong clock = new AtomicLong(10_000_000L);
+    private SegmentStore store;
+    private CacheWriteBehind queue;
+    private CacheJanitor janitor;
+
+    private CacheJanitor open(long budgetBytes) {
+        store = new SegmentStore(tempDir.resolve("store"), 17, Long.MAX_VALUE / 4, 1 << 20, clock::get);
+        queue = new CacheWriteBehind(store, 60_000, 1_000);
+        janitor = new CacheJanitor(tempDir, store, queue, budgetBytes, clock::get);
+        return janitor;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (janitor != null) {
+            janitor.close();
+            queue.close();
+            store.close();
+        }
+    }
+
+    private void write(String key) {
+        store.write(List.of(new SegmentStore.Write(key, true, clock.get(), "x".repeat(500).getBytes(StandardCharsets.UTF_8))));
+        clock.addAndGet(1_000);
+    }
+
+    // ══════════════════════════════════════════════
+    // Budget
+    // ══════════════════════════════════════════════
+
+    @Test
+    void sweep_evictsLeastRecentlyReadEntriesOverBudget() {
+        open(1_500);
+        write("a");
+        write("b");
+        write("c");
+        janitor.recordAccess("a");
+
+        janitor.sweep();
+
+        assertNotNull(store.readFresh("a"), "read since it was written");
+        assertNull(store.readFresh("b"));
+        assertNotNull(store.readFresh("c"));
+        CacheJanitor.Stats stats = janitor.stats();
+        assertTrue(stats.storeBytes() <= 1_500, stats.toString());
+        assertEquals(1, stats.evictedKeys());
+        assertTrue(stats.reclaimedBytes() > 0);
+        assertEquals(1, stats.sweeps());
+    }
+
+    @Test
+    void sweep_withinBudgetKeepsEverything() {
+        open(1 << 20);
+        write("a");
+        write("b");
+
+        janitor.sweep();
+
+        assertEquals(2, janitor.stats().keys());
+        assertEquals(0, janitor.stats().evictedKeys());
+        assertTrue(janitor.stats().directoryBytes() > 0);
+    }
+
+    @Test
+    void close_handsPendingAccessesToStore() {
+        open(1_000);
+        write("a");
+        write("b");
+        janitor.recordAccess("a");
+        janitor.close();
+
+        assertEquals(1, store.evictToBudget(1_000));
+        assertNotNull(store.readFresh("a"));
+        assertNull(store.readFresh("b"));
+    }
+
+    // ══════════════════════════════════════════════
+    // Leftovers
+    // ══════════════════════════════════════════════
+
+    @Test
+    void sweep_deletesLegacyAndVersionPrefixedFiles() throws IOException {
+        Path legacy = tempDir.resolve("stale").resolve("v12_item_1.json");
+        Files.createDirectories(legacy.getParent());
+        Files.writeString(legacy, "{}");
+        Path versioned = tempDir.resolve("v14_search_index.json");
+        Files.writeString(versioned, "{}");
+        Path unrelated = tempDir.resolve("notes.txt");
+        Files.writeString(unrelated, "keep");
+        open(1 << 20);
+
+        janitor.sweep();
+
+        assertFalse(Files.exists(tempDir.resolve("stale")));
+        assertFalse(Files.exists(versioned));
+        assertTrue(Files.exists(unrelated));
+        assertEquals(2, janitor.stats().orphansDeleted());
+    }
+
+    @Test
+    void sweep_deletesOnlyAbandonedTempFiles() throws IOException {
+        open(1 << 20);
+        write("a");
+        Path abandoned = tempDir.resolve("store").resolve("access.idx.tmp");
+        Path fresh = tempDir.resolve("store").resolve("other.tmp");
+        Files.writeString(abandoned, "");
+        Files.writeString(fresh, "");
+        Files.setLastModifiedTime(abandoned, FileTime.fromMillis(System.currentTimeMillis() - 2 * 60 * 60_000));
+
+        janitor.sweep();
+
+        assertFalse(Files.exists(abandoned));
+        assertTrue(Files.exists(fresh));
+        assertNotNull(store.readFresh("a"));
+    }
+
+    @Test
+    void sweep_inASharedRoot_deletesOlderVersionsNoInstanceHasOpen() throws IOException {
+        Path root = tempDir.resolve("shared");
+        Path current = root.resolve("v20");
+        Path currentArchive = root.resolve("html-v3");
+        Path retired = root.resolve("v19");
+        Path retiredArchive = root.resolve("html-v2");
+        Path inUse = root.resolve("v18");
+        Path newer = root.resolve("v21");
+        for (Path dir : List.of(retired, retiredArchive, newer)) {
+            Files.createDirectories(dir.resolve("store"));
+            Files.writeString(dir.resolve("store").resolve("seg-000001.log"), "old");
+        }
+        SegmentStore older = new SegmentStore(retired.resolve("store"), 19, Long.MAX_VALUE / 4, 1 << 20, clock::get, true);
+        older.write(List.of(new SegmentStore.Write("k", true, clock.get(), new byte[]{1})));
+        older.close();
+        SegmentStore stillOpen = new SegmentStore(inUse.resolve("store"), 18, Long.MAX_VALUE / 4, 1 << 20, clock::get, true);
+        stillOpen.write(List.of(new SegmentStore.Write("k", true, clock.get(), new byte[]{1})));
+        store = new SegmentStore(current.resolve("store"), 20, Long.MAX_VALUE / 4, 1 << 20, clock::get, true);
+        queue = new CacheWriteBehind(store, 60_000, 1_000);
+        janitor = new CacheJanitor(current, store, queue, 1 << 20, clock::get);
+        janitor.retireOlderVersions(current, currentArchive);
+        try {
+            janitor.sweep();
+
+            assertFalse(Files.exists(retired), "closed by the instance that used it");
+            assertFalse(Files.exists(retiredArchive));
+            assertTrue(Files.exists(inUse.resolve("store").resolve(SegmentStore.LOCK_FILE)), "another instance still has it open");
+            assertTrue(Files.exists(newer), "a newer version belongs to a newer instance");
+            assertNotNull(stillOpen.readFresh("k"));
+
+            stillOpen.close();
+            janitor.sweep();
+            assertFalse(Files.exists(inUse));
+        } finally {
+            stillOpen.close();
+        }
+    }
+}
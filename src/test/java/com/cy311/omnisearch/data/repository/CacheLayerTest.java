@@ -1,11 +1,19 @@
 package com.cy311.omnisearch.data.repository;
 
+import com.cy311.omnisearch.data.model.CacheValidators;
 import com.cy311.omnisearch.data.model.ItemPage;
 import com.cy311.omnisearch.data.model.SearchHit;
+import com.cy311.omnisearch.data.model.SearchPageBatch;
 import com.cy311.omnisearch.data.model.SearchQuery;
 import com.cy311.omnisearch.data.model.document.DocNodeAdapterFactory;
 import com.cy311.omnisearch.data.model.document.Document;
+import com.cy311.omnisearch.data.model.document.ImageNode;
+import com.cy311.omnisearch.data.model.document.ParagraphNode;
+import com.cy311.omnisearch.data.model.document.SectionNode;
+import com.cy311.omnisearch.data.model.document.StyledTextNode;
+import com.cy311.omnisearch.data.model.document.TableNode;
 import com.cy311.omnisearch.data.model.document.TextNode;
+import com.cy311.omnisearch.data.model.document.TextStyle;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,9 +23,6 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.HexFormat;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -62,12 +67,11 @@ class CacheLayerTest {
         var query = new SearchQuery("test search");
 
         // Write a CacheEntry with an old timestamp directly
-        Path cacheFile = tempDir.resolve("search").resolve(md5("test search") + ".json");
         var oldEntry = new CacheEntry<List<SearchHit>>(
             List.of(new SearchHit("id1", "old", "mod", "source", null)),
             0L // epoch timestamp → definitely expired
         );
-        writeEntry(cacheFile, oldEntry);
+        cache.putEntry(CacheLayer.searchKey(query), oldEntry);
 
         // Verify expired → null
         assertNull(cache.getSearchResults(query));
@@ -175,13 +179,19 @@ class CacheLayerTest {
     void searchCache_corruptedFile_returnsNull() throws IOException {
         var query = new SearchQuery("corrupted");
 
-        // Write garbage to the cache file
-        Path cacheFile = tempDir.resolve("search").resolve(md5("corrupted") + ".json");
-        Files.createDirectories(cacheFile.getParent());
-        Files.writeString(cacheFile, "this is not valid json");
+        // Write garbage where the store keeps its segments
+        Path segment = tempDir.resolve("store").resolve("seg-000001.log");
+        Files.createDirectories(segment.getParent());
+        Files.writeString(segment, "this is not valid json");
 
         // Should not throw, should return null
         assertNull(cache.getSearchResults(query));
+
+        // The damaged tail is cut off and the store stays usable
+        var results = List.of(new SearchHit("id1", "after", "mod", "source", null));
+        cache.putSearchResults(query, results);
+        cache.close();
+        assertEquals(results, new CacheLayer(tempDir).getSearchResults(query));
     }
 
     // ══════════════════════════════════════════════
@@ -214,26 +224,526 @@ class CacheLayerTest {
     }
 
     // ══════════════════════════════════════════════
-    // Helpers
+    // Conditional revalidation
+    // ══════════════════════════════════════════════
+
+    @Test
+    void putPage_withValidators_roundTripsThroughEntry() {
+        var validators = new CacheValidators("\"abc\"", "Tue, 01 Oct 2024 00:00:00 GMT");
+        cache.putPage("item/1", samplePage("item/1"), validators);
+
+        var entry = cache.getPageEntry("item/1");
+        assertNotNull(entry);
+        assertEquals(validators, entry.validators());
+    }
+
+    @Test
+    void touchPage_makesExpiredEntryFreshAgain() {
+        var page = samplePage("item/2");
+        var validators = new CacheValidators("\"v2\"", null);
+        writePageEntry("item/2", new CacheEntry<>(page, 0L, validators));
+        assertNull(cache.getPage("item/2"));
+
+        var expired = cache.getPageEntry("item/2");
+        assertNotNull(expired);
+        cache.touchPage("item/2", expired);
+
+        assertEquals(page, cache.getPage("item/2"));
+        assertEquals(validators, cache.getPageEntry("item/2").validators());
+    }
+
+    @Test
+    void getPageEntry_entryWithoutValidators_hasNullValidators() {
+        writePageEntry("item/3", new CacheEntry<>(samplePage("item/3"), 0L));
+
+        var entry = cache.getPageEntry("item/3");
+        assertNotNull(entry);
+        assertNull(entry.validators());
+    }
+
+    // ══════════════════════════════════════════════
+    // Memory tier
+    // ══════════════════════════════════════════════
+
+    @Test
+    void repeatedGet_isServedFromMemory() {
+        var page = samplePage("item/4");
+        cache.putPage("item/4", page);
+        cache.close();
+        cache = new CacheLayer(tempDir);
+
+        assertEquals(page, cache.getPage("item/4"));
+        assertSame(cache.getPage("item/4"), cache.getPage("item/4"));
+
+        var stats = cache.memoryStats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertTrue(stats.weight() > 0);
+    }
+
+    @Test
+    void memoryHit_stillHonoursTtl() {
+        writePageEntry("item/5", new CacheEntry<>(samplePage("item/5"), 0L));
+
+        assertNull(cache.getPage("item/5"));
+        assertNull(cache.getPage("item/5"));
+        assertNotNull(cache.getPageEntry("item/5"));
+        // Writes populate the memory tier, so every read above was a memory hit
+        assertEquals(3, cache.memoryStats().hits());
+    }
+
+    @Test
+    void put_replacesMemoryCopy() {
+        var query = new SearchQuery("replace");
+        var first = List.of(new SearchHit("id1", "first", "mod", "source", null));
+        var second = List.of(new SearchHit("id2", "second", "mod", "source", null));
+
+        cache.putSearchResults(query, first);
+        assertEquals(first, cache.getSearchResults(query));
+        cache.putSearchResults(query, second);
+
+        assertEquals(second, cache.getSearchResults(query));
+        assertEquals(first, cache.getSearchResultsStale(query));
+    }
+
+    @Test
+    void memoryTier_isBoundedByWeight() {
+        cache = new CacheLayer(tempDir, gson, 500);
+        for (int i = 0; i < 20; i++) {
+            cache.putPage("item/" + i, samplePage("item/" + i));
+        }
+
+        assertTrue(cache.memoryStats().weight() <= 500);
+        assertTrue(cache.memoryStats().evictions() > 0);
+        for (int i = 0; i < 20; i++) {
+            assertNotNull(cache.getPage("item/" + i), "evicted entries fall back to disk");
+        }
+    }
+
+    @Test
+    void clear_emptiesMemoryTier() {
+        cache.putPage("item/6", samplePage("item/6"));
+
+        cache.clear();
+
+        assertEquals(0, cache.memoryStats().size());
+        assertNull(cache.getPage("item/6"));
+    }
+
+    // ══════════════════════════════════════════════
+    // Async reads and write-behind
+    // ══════════════════════════════════════════════
+
+    @Test
+    void getPageAsync_readsDiskEntry() {
+        var page = samplePage("item/7");
+        writePageEntry("item/7", new CacheEntry<>(page, System.currentTimeMillis()));
+
+        assertEquals(page, cache.getPageAsync("item/7").join());
+        assertNull(cache.getPageAsync("item/missing").join());
+    }
+
+    @Test
+    void putPage_isReadableBeforeFlushAndOnDiskAfter() {
+        cache = new CacheLayer(tempDir, gson, 0);
+        var page = samplePage("item/8");
+
+        cache.putPage("item/8", page);
+        assertEquals(page, cache.getPageAsync("item/8").join());
+
+        cache.flush();
+        assertEquals(page, new CacheLayer(tempDir).getPage("item/8"));
+    }
+
+    @Test
+    void staleCopy_isReadableBeforeFlush() {
+        cache = new CacheLayer(tempDir, gson, 0);
+        var old = samplePage("item/9");
+        writePageEntry("item/9", new CacheEntry<>(old, System.currentTimeMillis()));
+        cache.flush();
+
+        cache.putPage("item/9", samplePage("item/9b"));
+
+        assertEquals(old, cache.getPageStaleAsync("item/9").join());
+    }
+
+    @Test
+    void close_drainsPendingWrites() {
+        var query = new SearchQuery("drain");
+        var results = List.of(new SearchHit("id1", "drained", "mod", "source", null));
+        cache.putSearchResults(query, results);
+
+        cache.close();
+
+        assertEquals(results, new CacheLayer(tempDir).getSearchResults(query));
+    }
+
+    @Test
+    void clear_dropsPendingWrites() {
+        cache.putPage("item/10", samplePage("item/10"));
+
+        cache.clear();
+        cache.flush();
+
+        assertNull(new CacheLayer(tempDir).getPage("item/10"));
+    }
+
     // ══════════════════════════════════════════════
+    // Segment store
+    // ══════════════════════════════════════════════
+
+    @Test
+    void generations_surviveReopen() {
+        var query = new SearchQuery("generations");
+        var oldResults = List.of(new SearchHit("id1", "old", "mod", "source", null));
+        var newResults = List.of(new SearchHit("id2", "new", "mod", "source", null));
+        cache.putSearchResults(query, oldResults);
+        cache.flush();
+        cache.putSearchResults(query, newResults);
+        cache.close();
+
+        var reopened = new CacheLayer(tempDir);
+
+        assertEquals(newResults, reopened.getSearchResults(query));
+        assertEquals(oldResults, reopened.getSearchResultsStale(query));
+    }
+
+    @Test
+    void pageRecord_keepsDocumentAndValidatorsAcrossReopen() {
+        var doc = new Document("Doc", "TestMod", "https://example.com/class/1.html", List.of(
+            new SectionNode("Recipe", List.of(
+                new ParagraphNode(List.of(new StyledTextNode("red", new TextStyle(true, false, false, false, "#ff0000")))),
+                new TableNode(List.of("A", "B"), List.of(List.of(new TextNode("1"), new TextNode("2")))))),
+            new ImageNode("https://example.com/a.png", "a", null, 16, 16)));
+        var page = new ItemPage("item/12", "Page", null, doc, "https://example.com/item/12.html");
+        var validators = new CacheValidators("\"etag\"", null);
+        cache.putPage("item/12", page, validators);
+        cache.close();
+
+        CacheEntry<ItemPage> entry = new CacheLayer(tempDir).getPageEntry("item/12");
+
+        assertNotNull(entry);
+        assertEquals(page, entry.data());
+        assertEquals(validators, entry.validators());
+    }
+
+    @Test
+    void compressionStats_reportEachEntryType() {
+        cache.putPage("item/13", samplePage("item/13"));
+        cache.putSearchResults(new SearchQuery("stats"), List.of(new SearchHit("id1", "hit", "mod", "source", null)));
+        cache.flush();
+
+        var stats = cache.compressionStats();
+
+        assertEquals(1, stats.get(EntryCompressor.Kind.PAGE).writes());
+        assertEquals(1, stats.get(EntryCompressor.Kind.SEARCH).writes());
+        assertTrue(stats.get(EntryCompressor.Kind.PAGE).storedBytes() > 0);
+    }
+
+    @Test
+    void searchPageKey_dependsOnQueryFilterAndPageOnly() {
+        String key = CacheLayer.searchPageKey("https://search.mcmod.cn/s?key=a+b&filter=3");
+
+        assertEquals(key, CacheLayer.searchPageKey("https://search.mcmod.cn/s?filter=3&key=a%20b&page=1"));
+        assertNotEquals(key, CacheLayer.searchPageKey("https://search.mcmod.cn/s?key=a+b&filter=3&page=2"));
+        assertNotEquals(key, CacheLayer.searchPageKey("https://search.mcmod.cn/s?key=a+b&filter=0"));
+        assertNotEquals(key, CacheLayer.searchPageKey("https://search.mcmod.cn/s?key=a&filter=3"));
+    }
 
-    private void writeEntry(Path path, Object entry) {
+    @Test
+    void searchPage_roundTripsAndSkipsEmptyBatches() {
+        String url = "https://search.mcmod.cn/s?key=x&filter=3&page=2";
+        var batch = new SearchPageBatch(List.of(new SearchHit("id1", "hit", "mod", "source", null)),
+            "https://search.mcmod.cn/s?key=x&filter=3&page=3", 2, 5);
+        cache.putSearchPage(url, batch);
+        cache.putSearchPage("https://search.mcmod.cn/s?key=empty", new SearchPageBatch(List.of(), null));
+        cache.close();
+
+        var reopened = new CacheLayer(tempDir);
+        assertEquals(batch, reopened.getSearchPage(url));
+        assertNull(reopened.getSearchPage("https://search.mcmod.cn/s?key=empty"));
+    }
+
+    @Test
+    void sweep_keepsDiskUsageWithinBudget() {
+        cache.close();
+        cache = new CacheLayer(tempDir, gson, 0, 2_000);
+        for (int i = 0; i < 40; i++) {
+            cache.putPage("item/" + i, samplePage("item/" + i));
+        }
+        cache.flush();
+
+        cache.sweep();
+
+        var stats = cache.diskStats();
+        assertEquals(2_000, stats.budgetBytes());
+        assertTrue(stats.storeBytes() <= 2_000, stats.toString());
+        assertTrue(stats.evictedKeys() > 0);
+        assertEquals(1, stats.sweeps());
+        assertTrue(stats.directoryBytes() >= stats.storeBytes());
+    }
+
+    @Test
+    void touchPage_keepsStaleGenerationAcrossReopen() {
+        var old = samplePage("item/11");
+        var current = samplePage("item/11b");
+        cache.putPage("item/11", old);
+        cache.putPage("item/11", current);
+        cache.flush();
+
+        cache.touchPage("item/11", cache.getPageEntry("item/11"));
+        cache.close();
+
+        var reopened = new CacheLayer(tempDir);
+        assertEquals(current, reopened.getPage("item/11"));
+        assertEquals(old, reopened.getPageStale("item/11"));
+    }
+
+    @Test
+    void entries_shareSegmentFilesInsteadOfOneFileEach() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            cache.putPage("item/" + i, samplePage("item/" + i));
+        }
+        cache.close();
+
+        try (var files = Files.list(tempDir.resolve("store"))) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".log")).count());
+        }
+        assertEquals(20, new CacheLayer(tempDir).storeStats().keys());
+    }
+
+    @Test
+    void legacyEntryFiles_areDeletedOnStartup() throws Exception {
+        Path legacy = tempDir.resolve("page").resolve("v15_item_1.json");
+        Files.createDirectories(legacy.getParent());
+        Files.writeString(legacy, "{}");
+
+        cache = new CacheLayer(tempDir);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.exists(tempDir.resolve("page")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(Files.exists(tempDir.resolve("page")));
+    }
+
+    // ══════════════════════════════════════════════
+    // HTML archive
+    // ══════════════════════════════════════════════
+
+    @Test
+    void archivedHtml_outlivesEntriesAndRestoresThem() throws IOException {
+        var validators = new CacheValidators("\"v1\"", null);
+        cache.putPage("item/1", samplePage("item/1"), validators);
+        cache.archiveHtml("item/1", "<html>one</html>", validators);
+        cache.close();
+        // What a CACHE_VERSION bump amounts to: every entry gone, the archive untouched
+        deleteRecursively(tempDir.resolve("store"));
+
+        cache = new CacheLayer(tempDir);
+        assertNull(cache.getPageEntry("item/1"));
+        ArchivedPage archived = cache.getArchivedPage("item/1");
+        assertNotNull(archived);
+        assertEquals("<html>one</html>", archived.html());
+        assertEquals(validators, archived.validators());
+        assertEquals(List.of("item/1"), cache.archivedPagesWithoutEntry());
+
+        cache.restorePage("item/1", archived, samplePage("item/1"));
+        CacheEntry<ItemPage> restored = cache.getPageEntry("item/1");
+        assertEquals(archived.fetchedAt(), restored.timestamp(), "keeps the original fetch time");
+        assertEquals(validators, restored.validators());
+        assertEquals(List.of(), cache.archivedPagesWithoutEntry());
+    }
+
+    @Test
+    void archiveHtml_replacesPreviousHtml() {
+        cache.archiveHtml("item/1", "<html>old</html>", null);
+        cache.flush();
+        cache.archiveHtml("item/1", "<html>new</html>", null);
+
+        assertEquals("<html>new</html>", cache.getArchivedPage("item/1").html());
+        cache.flush();
+        assertEquals("<html>new</html>", cache.getArchivedPage("item/1").html());
+    }
+
+    @Test
+    void archivedPage_encodingRoundTripsAndRejectsTruncation() {
+        var page = new ArchivedPage("<p>\u4e2d\u6587</p>", 1234L, new CacheValidators(null, "Tue, 01 Oct 2024 00:00:00 GMT"));
+        byte[] encoded = page.encode();
+
+        assertEquals(page, ArchivedPage.decode(encoded));
+        assertEquals(new ArchivedPage("", 0L, null), ArchivedPage.decode(new ArchivedPage("", 0L, null).encode()));
+        assertThrows(IllegalArgumentException.class,
+            () -> ArchivedPage.decode(java.util.Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+
+    @Test
+    void clear_removesArchivedHtml() {
+        cache.archiveHtml("item/1", "<html/>", null);
+        cache.flush();
+
+        cache.clear();
+
+        assertNull(cache.getArchivedPage("item/1"));
+        assertEquals(List.of(), cache.archivedPagesWithoutEntry());
+    }
+
+    // ══════════════════════════════════════════════
+    // Shared cache
+    // ══════════════════════════════════════════════
+
+    @Test
+    void sharedCache_instancesReadEachOthersEntries() {
+        Path root = tempDir.resolve("shared");
+        CacheLayer first = CacheLayer.shared(root, gson, CacheLayer.DEFAULT_MEMORY_WEIGHT, 1L << 30);
+        CacheLayer second = CacheLayer.shared(root, gson, CacheLayer.DEFAULT_MEMORY_WEIGHT, 1L << 30);
         try {
-            Files.createDirectories(path.getParent());
-            String json = gson.toJson(entry);
-            Files.writeString(path, json);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+            first.putPage("item/1", samplePage("item/1"));
+            first.flush();
+            assertNotNull(second.getPageEntry("item/1"));
+
+            var query = new SearchQuery("shared");
+            var results = List.of(new SearchHit("id1", "result1", "mod", "source", null));
+            second.putSearchResults(query, results);
+            second.flush();
+            assertEquals(results, first.getSearchResults(query));
+
+            // Entries are kept per schema version, so other versions never compact them away
+            assertTrue(Files.isDirectory(root.resolve("v" + CacheLayer.CACHE_VERSION).resolve("store")));
+        } finally {
+            first.close();
+            second.close();
         }
     }
 
-    private static String md5(String input) {
+    @Test
+    void open_withoutSharedDirPropertyUsesPrivateDirectory() {
+        System.clearProperty(CacheLayer.SHARED_DIR_PROPERTY);
+        CacheLayer opened = CacheLayer.open(tempDir.resolve("private"));
         try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(input.getBytes());
-            return HexFormat.of().formatHex(digest);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+            opened.putPage("item/1", samplePage("item/1"));
+            opened.flush();
+            assertTrue(Files.isDirectory(tempDir.resolve("private").resolve("store")));
+        } finally {
+            opened.close();
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Cache packs
+    // ══════════════════════════════════════════════
+
+    @Test
+    void exportedPack_seedsAnotherCacheUntilItStoresItsOwn() throws IOException {
+        var query = new SearchQuery("packed");
+        var results = List.of(new SearchHit("id1", "result1", "mod", "source", null));
+        cache.putPage("item/1", samplePage("item/1"));
+        cache.putSearchResults(query, results);
+        Path packDir = tempDir.resolve("packs");
+        Files.createDirectories(packDir);
+        assertEquals(2, cache.exportPack(packDir.resolve("modpack" + CachePack.EXTENSION)));
+
+        CacheLayer seeded = new CacheLayer(tempDir.resolve("seeded"), gson);
+        try {
+            assertNull(seeded.getPageEntry("item/1"));
+            assertEquals(1, seeded.mountPacks(packDir));
+            assertNotNull(seeded.getPageEntry("item/1"));
+            assertEquals(results, seeded.getSearchResults(query));
+            assertNull(seeded.getPageEntry("item/2"));
+
+            // What the cache stores itself shadows the pack
+            ItemPage refreshed = samplePage("item/1");
+            seeded.putPage("item/1", refreshed);
+            assertSame(refreshed, seeded.getPageEntry("item/1").data());
+        } finally {
+            seeded.close();
+        }
+    }
+
+    @Test
+    void mountPacks_skipsUnreadablePacks() throws IOException {
+        Path packDir = tempDir.resolve("packs");
+        Files.createDirectories(packDir);
+        Files.writeString(packDir.resolve("broken" + CachePack.EXTENSION), "not a pack");
+        Files.writeString(packDir.resolve("readme.txt"), "ignored");
+
+        assertEquals(0, cache.mountPacks(packDir));
+        assertEquals(0, cache.mountPacks(tempDir.resolve("missing")));
+    }
+
+    // ══════════════════════════════════════════════
+    // Negative caching
+    // ══════════════════════════════════════════════
+
+    @Test
+    void confirmedEmptySearch_isRememberedButUnconfirmedOnesAreNot() {
+        String confirmed = "https://search.mcmod.cn/s?key=nothing&filter=3";
+        String throttled = "https://search.mcmod.cn/s?key=throttled&filter=3";
+        cache.putSearchPage(confirmed, SearchPageBatch.noResults());
+        cache.putSearchPage(throttled, new SearchPageBatch(List.of(), null));
+        cache.putNoSearchResults(new SearchQuery("nothing"));
+
+        assertTrue(cache.getSearchPage(confirmed).confirmedEmpty());
+        assertTrue(cache.getSearchPageAsync(confirmed).join().results().isEmpty());
+        assertNull(cache.getSearchPage(throttled));
+        assertEquals(List.of(), cache.getSearchResults(new SearchQuery("nothing")));
+        assertEquals(List.of(), cache.getSearchResultsAsync(new SearchQuery("nothing")).join());
+        assertNull(cache.getSearchResults(new SearchQuery("throttled")));
+    }
+
+    @Test
+    void storingResults_replacesANegativeAnswer() {
+        var query = new SearchQuery("late addition");
+        var results = List.of(new SearchHit("item/1", "hit", "item", "source", null));
+        String url = "https://search.mcmod.cn/s?key=late&filter=3";
+        cache.putNoSearchResults(query);
+        cache.putSearchPage(url, SearchPageBatch.noResults());
+        cache.putMissingPage("item/1");
+
+        cache.putSearchResults(query, results);
+        cache.putSearchPage(url, new SearchPageBatch(results, null));
+        cache.putPage("item/1", samplePage("item/1"));
+
+        assertEquals(results, cache.getSearchResults(query));
+        assertEquals(results, cache.getSearchPage(url).results());
+        assertFalse(cache.isMissingPage("item/1"));
+        assertNotNull(cache.getPage("item/1"));
+    }
+
+    @Test
+    void negativeAnswers_areMemoryOnlyAndCleared() {
+        cache.putMissingPage("item/404");
+        cache.putNoSearchResults(new SearchQuery("nothing"));
+        assertTrue(cache.isMissingPage("item/404"));
+
+        cache.clear();
+        assertFalse(cache.isMissingPage("item/404"));
+        assertNull(cache.getSearchResults(new SearchQuery("nothing")));
+
+        cache.putMissingPage("item/404");
+        cache.close();
+        assertFalse(new CacheLayer(tempDir).isMissingPage("item/404"));
+    }
+
+    // ══════════════════════════════════════════════
+    // Helpers
+    // ══════════════════════════════════════════════
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(java.util.Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
         }
     }
+
+    private void writePageEntry(String pageId, CacheEntry<ItemPage> entry) {
+        cache.putEntry(CacheLayer.pageKey(pageId), entry);
+    }
+
+    private static ItemPage samplePage(String pageId) {
+        return new ItemPage(pageId, "Page", "TestMod",
+            new Document("Doc", null, null, List.of(new TextNode("content"))),
+            "https://example.com/" + pageId);
+    }
 }
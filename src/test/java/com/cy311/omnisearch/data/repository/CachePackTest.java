@@ -0,0 +1,149 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachePackTest {
+
+    private static final int VERSION = 17;
+
+    @TempDir
+    Path tempDir;
+
+    /** A page-like entry: shared boilerplate around a little unique text. */
+    private static byte[] page(int i) {
+        return ("{\"title\":\"娜迦鳞片 " + i + "\",\"sourceMod\":\"暮色森林|https://www.mcmod.cn/class/456.html\","
+            + "\"links\":[\"https://www.mcmod.cn/item/" + i + ".html\",\"https://i.mcmod.cn/item/icon/32x32/" + i + ".png\"],"
+            + "\"text\":\"可用于合成娜迦鳞片盔甲，编号 " + (i * 7919) + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Path build(int pages, int searches) throws IOException {
+        CachePack.Builder builder = new CachePack.Builder(VERSION);
+        for (int i = 0; i < pages; i++) {
+            builder.add("page/item/" + i, page(i));
+        }
+        for (int i = 0; i < searches; i++) {
+            builder.add("search/" + i, page(i + 100_000));
+        }
+        Path file = tempDir.resolve("test" + CachePack.EXTENSION);
+        builder.write(file, 1234L);
+        return file;
+    }
+
+    // ══════════════════════════════════════════════
+    // Round trip
+    // ══════════════════════════════════════════════
+
+    @Test
+    void entries_roundTripThroughAPack() throws IOException {
+        CachePack pack = CachePack.open(build(200, 10), VERSION);
+
+        assertEquals(210, pack.size());
+        assertEquals(1234L, pack.createdAt());
+        for (int i = 0; i < 200; i++) {
+            assertArrayEquals(page(i), pack.read("page/item/" + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertArrayEquals(page(i + 100_000), pack.read("search/" + i));
+        }
+        assertNull(pack.read("page/item/200"));
+        assertNull(pack.read("search/missing"));
+    }
+
+    @Test
+    void dictionaries_makeThePackSmallerThanItsEntries() throws IOException {
+        Path file = build(500, 0);
+        long raw = 0;
+        for (int i = 0; i < 500; i++) {
+            raw += page(i).length;
+        }
+
+        assertTrue(Files.size(file) < raw / 2, Files.size(file) + " vs " + raw);
+    }
+
+    @Test
+    void emptyPack_opensAndMisses() throws IOException {
+        CachePack pack = CachePack.open(build(0, 0), VERSION);
+
+        assertEquals(0, pack.size());
+        assertNull(pack.read("page/item/1"));
+    }
+
+    @Test
+    void addingAKeyAgain_replacesItsEntry() throws IOException {
+        Path file = tempDir.resolve("again" + CachePack.EXTENSION);
+        new CachePack.Builder(VERSION)
+            .add("page/item/1", page(1))
+            .add("page/item/1", page(2))
+            .write(file, 0);
+
+        CachePack pack = CachePack.open(file, VERSION);
+        assertEquals(1, pack.size());
+        assertArrayEquals(page(2), pack.read("page/item/1"));
+    }
+
+    // ══════════════════════════════════════════════
+    // Damage and versions
+    // ══════════════════════════════════════════════
+
+    @Test
+    void damagedEntry_failsItsChecksumAndOthersStillRead() throws IOException {
+        Path file = tempDir.resolve("damaged" + CachePack.EXTENSION);
+        new CachePack.Builder(VERSION)
+            .add("search/a", "first-entry".getBytes(StandardCharsets.UTF_8))
+            .add("search/b", "second-entry".getBytes(StandardCharsets.UTF_8))
+            .write(file, 0);
+        // Too small to compress, so the payload sits in the file as is
+        byte[] bytes = Files.readAllBytes(file);
+        int at = indexOf(bytes, "first-entry".getBytes(StandardCharsets.UTF_8));
+        bytes[at] ^= 1;
+        Files.write(file, bytes);
+
+        CachePack pack = CachePack.open(file, VERSION);
+        assertNull(pack.read("search/a"));
+        assertArrayEquals("second-entry".getBytes(StandardCharsets.UTF_8), pack.read("search/b"));
+    }
+
+    @Test
+    void packOfAnotherCacheVersion_isRefused() throws IOException {
+        Path file = build(3, 0);
+
+        IOException e = assertThrows(IOException.class, () -> CachePack.open(file, VERSION + 1));
+        assertTrue(e.getMessage().contains("cache version"));
+    }
+
+    @Test
+    void truncatedOrForeignFiles_areRefused() throws IOException {
+        Path file = build(3, 0);
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = tempDir.resolve("truncated" + CachePack.EXTENSION);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 5));
+        Path foreign = tempDir.resolve("foreign" + CachePack.EXTENSION);
+        Files.writeString(foreign, "not a pack at all, just some text");
+
+        assertThrows(IOException.class, () -> CachePack.open(truncated, VERSION));
+        assertThrows(IOException.class, () -> CachePack.open(foreign, VERSION));
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i + needle.length <= haystack.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new AssertionError("not found");
+    }
+}
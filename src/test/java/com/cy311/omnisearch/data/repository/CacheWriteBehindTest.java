@@ -0,0 +1,139 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheWriteBehindTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SegmentStore store;
+    private CacheWriteBehind queue;
+
+    private CacheWriteBehind open(long flushDelayMs, int batchSize) {
+        store = new SegmentStore(tempDir, 15, Long.MAX_VALUE / 2);
+        queue = new CacheWriteBehind(store, flushDelayMs, batchSize);
+        return queue;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.close();
+            store.close();
+        }
+    }
+
+    private static CacheEntry<String> entry(String data) {
+        return new CacheEntry<>(data, 1L);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] payload) {
+        return payload != null ? new String(payload, StandardCharsets.UTF_8) : null;
+    }
+
+    // ══════════════════════════════════════════════
+    // Coalescing
+    // ══════════════════════════════════════════════
+
+    // Long delay and batch size: nothing flushes unless the test asks for it
+    private CacheWriteBehind manual() {
+        return open(60_000, 1_000);
+    }
+
+    @Test
+    void repeatedPuts_keepOnlyLastTwoVersions() {
+        manual().put("k", entry("1"), bytes("one"));
+        queue.put("k", entry("2"), bytes("two"));
+        queue.put("k", entry("3"), bytes("three"));
+
+        assertEquals(List.of("two", "three"), queue.pending("k").stream().map(write -> text(write.payload())).toList());
+        assertNull(store.readFresh("k"), "Nothing is written before the flush");
+
+        queue.flush();
+
+        assertEquals("three", text(store.readFresh("k")));
+        assertEquals("two", text(store.readStale("k")));
+        assertNull(queue.pending("k"));
+    }
+
+    @Test
+    void touch_replacesLastQueuedVersionInPlace() {
+        manual().put("k", entry("1"), bytes("one"));
+        queue.flush();
+        queue.put("k", entry("2"), bytes("two"));
+        queue.touch("k", entry("2b"), bytes("two-b"));
+
+        List<CacheWriteBehind.Write> pending = queue.pending("k");
+        assertEquals(1, pending.size());
+        assertTrue(pending.getFirst().newGeneration(), "The touch keeps the put's new generation");
+
+        queue.flush();
+
+        assertEquals("two-b", text(store.readFresh("k")));
+        assertEquals("one", text(store.readStale("k")));
+    }
+
+    @Test
+    void touchAlone_keepsStoredStaleGeneration() {
+        manual().put("k", entry("1"), bytes("one"));
+        queue.put("k", entry("2"), bytes("two"));
+        queue.flush();
+
+        queue.touch("k", entry("2b"), bytes("two-b"));
+        queue.flush();
+
+        assertEquals("two-b", text(store.readFresh("k")));
+        assertEquals("one", text(store.readStale("k")));
+    }
+
+    // ══════════════════════════════════════════════
+    // Lifecycle
+    // ══════════════════════════════════════════════
+
+    @Test
+    void batchSize_triggersFlushWithoutWaitingForDelay() throws Exception {
+        open(60_000, 2).put("a", entry("a"), bytes("a"));
+        queue.put("b", entry("b"), bytes("b"));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (queue.pendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("b", text(store.readFresh("b")));
+    }
+
+    @Test
+    void close_drainsQueueAndLaterWritesGoStraightToStore() {
+        manual().put("a", entry("a"), bytes("a"));
+
+        queue.close();
+        assertEquals("a", text(store.readFresh("a")));
+
+        queue.put("b", entry("b"), bytes("b"));
+        assertEquals("b", text(store.readFresh("b")));
+        assertEquals(0, queue.pendingCount());
+    }
+
+    @Test
+    void discardAnd_dropsPendingWrites() {
+        manual().put("a", entry("a"), bytes("a"));
+
+        queue.discardAnd(() -> {});
+        queue.flush();
+
+        assertNull(store.readFresh("a"));
+    }
+}
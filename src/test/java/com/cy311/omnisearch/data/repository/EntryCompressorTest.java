@@ -0,0 +1,231 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntryCompressorTest {
+
+    private static final int VERSION = 17;
+    private static final int SAMPLES = 8;
+
+    @TempDir
+    Path tempDir;
+
+    private EntryCompressor open() {
+        return new EntryCompressor(tempDir, VERSION, SAMPLES);
+    }
+
+    /** A page-like entry: shared boilerplate around a little unique text. */
+    private static byte[] page(int i) {
+        return ("{\"title\":\"娜迦鳞片 " + i + "\",\"sourceMod\":\"暮色森林|https://www.mcmod.cn/class/456.html\","
+            + "\"style\":{\"bold\":true,\"italic\":false,\"underline\":false,\"strikethrough\":false,\"color\":\"#ff5555\"},"
+            + "\"links\":[\"https://www.mcmod.cn/item/" + i + ".html\",\"https://i.mcmod.cn/item/icon/32x32/" + i + ".png\"],"
+            + "\"text\":\"可用于合成娜迦鳞片盔甲，编号 " + (i * 7919) + "\"}")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void assertRoundTrip(EntryCompressor compressor, String key, byte[] raw) {
+        assertArrayEquals(raw, compressor.decompress(key, compressor.compress(key, raw)));
+    }
+
+    // ══════════════════════════════════════════════
+    // Round trip
+    // ══════════════════════════════════════════════
+
+    @Test
+    void tinyEntries_areStoredAsIs() {
+        EntryCompressor compressor = open();
+        byte[] raw = "[]".getBytes(StandardCharsets.UTF_8);
+
+        byte[] stored = compressor.compress("search/x", raw);
+
+        assertEquals(EntryCompressor.STORED, stored[0]);
+        assertArrayEquals(raw, compressor.decompress("search/x", stored));
+    }
+
+    @Test
+    void repetitiveEntries_shrink() {
+        EntryCompressor compressor = open();
+        byte[] raw = "x".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+
+        byte[] stored = compressor.compress("page/1", raw);
+
+        assertEquals(EntryCompressor.DEFLATE, stored[0]);
+        assertTrue(stored.length < 200, stored.length + " bytes");
+        assertArrayEquals(raw, compressor.decompress("page/1", stored));
+    }
+
+    @Test
+    void incompressibleEntries_areStoredAsIs() {
+        EntryCompressor compressor = open();
+        byte[] raw = new byte[4_096];
+        new Random(1).nextBytes(raw);
+
+        byte[] stored = compressor.compress("page/1", raw);
+
+        assertEquals(EntryCompressor.STORED, stored[0]);
+        assertEquals(raw.length + 1, stored.length);
+    }
+
+    @Test
+    void damagedEntries_throwIllegalArgument() {
+        EntryCompressor compressor = open();
+        byte[] stored = compressor.compress("page/1", page(1));
+
+        byte[] truncated = Arrays.copyOf(stored, stored.length / 2);
+        assertThrows(IllegalArgumentException.class, () -> compressor.decompress("page/1", truncated));
+        assertThrows(IllegalArgumentException.class, () -> compressor.decompress("page/1", new byte[] {9, 1, 2}));
+        assertThrows(IllegalArgumentException.class, () -> compressor.decompress("page/1", new byte[0]));
+    }
+
+    // ══════════════════════════════════════════════
+    // Dictionaries
+    // ══════════════════════════════════════════════
+
+    @Test
+    void dictionary_isTrainedAfterSamplesAndImprovesRatio() {
+        EntryCompressor compressor = open();
+        int withoutDictionary = compressor.compress("page/100", page(100)).length;
+        for (int i = 1; i < SAMPLES; i++) {
+            compressor.compress("page/" + i, page(i));
+        }
+        assertTrue(Files.exists(tempDir.resolve("page-v" + VERSION + ".dict")));
+        assertTrue(compressor.stats().get(EntryCompressor.Kind.PAGE).dictionary());
+        assertFalse(compressor.stats().get(EntryCompressor.Kind.SEARCH).dictionary());
+
+        byte[] stored = compressor.compress("page/100", page(100));
+
+        assertEquals(EntryCompressor.DEFLATE_DICT, stored[0]);
+        assertTrue(stored.length < withoutDictionary * 2 / 3, stored.length + " vs " + withoutDictionary);
+        assertArrayEquals(page(100), compressor.decompress("page/100", stored));
+    }
+
+    @Test
+    void dictionary_isReloadedFromDisk() {
+        EntryCompressor first = open();
+        for (int i = 0; i < SAMPLES; i++) {
+            first.compress("page/" + i, page(i));
+        }
+        byte[] stored = first.compress("page/100", page(100));
+
+        assertArrayEquals(page(100), open().decompress("page/100", stored));
+    }
+
+    @Test
+    void dictionariesOfOtherVersions_areDeleted() throws IOException {
+        Path old = tempDir.resolve("page-v" + (VERSION - 1) + ".dict");
+        Files.write(old, new byte[] {1, 2, 3});
+
+        open().stats();
+
+        assertFalse(Files.exists(old));
+    }
+
+    @Test
+    void unknownDictionary_throwsIllegalArgument() {
+        EntryCompressor trained = open();
+        for (int i = 0; i < SAMPLES; i++) {
+            trained.compress("page/" + i, page(i));
+        }
+        byte[] stored = trained.compress("page/100", page(100));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new EntryCompressor(tempDir.resolve("elsewhere"), VERSION, SAMPLES).decompress("page/100", stored));
+    }
+
+    @Test
+    void dictionarySavedFirst_isAdoptedByAnotherInstance() {
+        // Two processes sharing the directory, both collecting samples before either saves
+        EntryCompressor first = open();
+        EntryCompressor second = open();
+        for (int i = 0; i < SAMPLES; i++) {
+            first.compress("page/" + i, page(i));
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            second.compress("page/" + i, page(i + 1000));
+        }
+
+        byte[] stored = second.compress("page/100", page(100));
+        assertArrayEquals(page(100), first.decompress("page/100", stored));
+    }
+
+    @Test
+    void dictionarySavedByAnotherInstance_isPickedUpOnRead() {
+        EntryCompressor reader = open();
+        reader.stats();
+        EntryCompressor writer = open();
+        for (int i = 0; i < SAMPLES; i++) {
+            writer.compress("page/" + i, page(i));
+        }
+        byte[] stored = writer.compress("page/100", page(100));
+
+        assertArrayEquals(page(100), reader.decompress("page/100", stored));
+        assertTrue(reader.stats().get(EntryCompressor.Kind.PAGE).dictionary());
+    }
+
+    @Test
+    void kinds_trainSeparately() {
+        EntryCompressor compressor = open();
+        for (int i = 0; i < SAMPLES; i++) {
+            assertRoundTrip(compressor, "search/" + i, page(i));
+        }
+        assertTrue(compressor.stats().get(EntryCompressor.Kind.SEARCH).dictionary());
+        assertFalse(compressor.stats().get(EntryCompressor.Kind.PAGE).dictionary());
+        assertRoundTrip(compressor, "page/1", page(1));
+        assertRoundTrip(compressor, "search/100", page(100));
+    }
+
+    // ══════════════════════════════════════════════
+    // Stats and training
+    // ══════════════════════════════════════════════
+
+    @Test
+    void stats_reportRatioAndCountsPerKind() {
+        EntryCompressor compressor = open();
+        byte[] stored = compressor.compress("page/1", "y".repeat(1_000).getBytes(StandardCharsets.UTF_8));
+        compressor.decompress("page/1", stored);
+
+        EntryCompressor.Stats page = compressor.stats().get(EntryCompressor.Kind.PAGE);
+        assertEquals(1, page.writes());
+        assertEquals(1, page.reads());
+        assertEquals(1_000, page.rawBytes());
+        assertEquals(stored.length, page.storedBytes());
+        assertTrue(page.ratio() < 0.1, String.valueOf(page.ratio()));
+        assertEquals(0, compressor.stats().get(EntryCompressor.Kind.SEARCH).writes());
+    }
+
+    @Test
+    void trainer_keepsSharedContentAndRespectsSizeLimit() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            samples.add(page(i));
+        }
+
+        byte[] dictionary = DictionaryTrainer.train(samples, 512);
+
+        assertTrue(dictionary.length > 0 && dictionary.length <= 512, dictionary.length + " bytes");
+        String text = new String(dictionary, StandardCharsets.ISO_8859_1);
+        assertTrue(text.contains("mcmod.cn"), "shared URL prefix is in the dictionary");
+    }
+
+    @Test
+    void trainer_returnsEmptyDictionaryWithoutSharedContent() {
+        byte[] a = new byte[1_000];
+        byte[] b = new byte[1_000];
+        new Random(1).nextBytes(a);
+        new Random(2).nextBytes(b);
+
+        assertEquals(0, DictionaryTrainer.train(List.of(a, b), 4_096).length);
+    }
+}
@@ -0,0 +1,73 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NegativeCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void confirmedKey_isRememberedUntilTheTtlRunsOut() {
+        NegativeCache cache = new NegativeCache(60_000, 64 * 1024, now::get);
+        cache.put("page/item/404");
+
+        assertTrue(cache.contains("page/item/404"));
+        assertFalse(cache.contains("page/item/405"));
+
+        now.addAndGet(59_999);
+        assertTrue(cache.contains("page/item/404"));
+        now.addAndGet(1);
+        assertFalse(cache.contains("page/item/404"));
+    }
+
+    @Test
+    void putAgain_restartsTheTtl() {
+        NegativeCache cache = new NegativeCache(60_000, 64 * 1024, now::get);
+        cache.put("search/a");
+        now.addAndGet(50_000);
+        cache.put("search/a");
+        now.addAndGet(50_000);
+
+        assertTrue(cache.contains("search/a"));
+    }
+
+    @Test
+    void invalidateAndClear_forget() {
+        NegativeCache cache = new NegativeCache(60_000, 64 * 1024, now::get);
+        cache.put("search/a");
+        cache.put("search/b");
+
+        cache.invalidate("search/a");
+        assertFalse(cache.contains("search/a"));
+        assertTrue(cache.contains("search/b"));
+
+        cache.clear();
+        assertFalse(cache.contains("search/b"));
+    }
+
+    @Test
+    void zeroTtl_disablesTheCache() {
+        NegativeCache cache = new NegativeCache(0, 64 * 1024, now::get);
+        cache.put("search/a");
+
+        assertFalse(cache.contains("search/a"));
+    }
+
+    @Test
+    void budget_boundsHowManyKeysAreKept() {
+        NegativeCache cache = new NegativeCache(60_000, 4 * 1024, now::get);
+        for (int i = 0; i < 1_000; i++) {
+            cache.put("page/item/" + i);
+        }
+        int kept = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (cache.contains("page/item/" + i)) kept++;
+        }
+
+        assertTrue(kept > 0 && kept < 100, "kept " + kept);
+    }
+}
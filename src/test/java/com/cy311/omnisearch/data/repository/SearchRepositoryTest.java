@@ -1,32 +1,38 @@
 package com.cy311.omnisearch.data.repository;
 
+import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.RequestExecutor;
+import com.cy311.omnisearch.data.client.StubTransport;
+import com.cy311.omnisearch.data.model.CacheValidators;
 import com.cy311.omnisearch.data.model.ItemPage;
 import com.cy311.omnisearch.data.model.CaptchaContext;
+import com.cy311.omnisearch.data.model.PageFetchResult;
 import com.cy311.omnisearch.data.model.PendingRequest;
 import com.cy311.omnisearch.data.model.PendingRequestResult;
 import com.cy311.omnisearch.data.model.SearchPageBatch;
 import com.cy311.omnisearch.data.model.SearchHit;
 import com.cy311.omnisearch.data.model.SearchQuery;
-import com.cy311.omnisearch.data.model.document.DocNodeAdapterFactory;
 import com.cy311.omnisearch.data.model.document.Document;
 import com.cy311.omnisearch.data.model.document.TextNode;
+import com.cy311.omnisearch.data.parser.McmodParser;
 import com.cy311.omnisearch.data.source.CaptchaCapableDataSource;
 import com.cy311.omnisearch.data.source.DataSource;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.cy311.omnisearch.data.source.McmodDataSource;
+import com.cy311.omnisearch.data.source.ReparsingDataSource;
+import com.cy311.omnisearch.data.source.RevalidatingDataSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.HexFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -36,14 +42,10 @@ class SearchRepositoryTest {
     Path tempDir;
 
     private CacheLayer cache;
-    private Gson gson;
 
     @BeforeEach
     void setUp() {
         cache = new CacheLayer(tempDir);
-        gson = new GsonBuilder()
-            .registerTypeAdapterFactory(new DocNodeAdapterFactory())
-            .create();
     }
 
     // ══════════════════════════════════════════════
@@ -258,30 +260,410 @@ class SearchRepositoryTest {
     }
 
     // ══════════════════════════════════════════════
-    // Helpers
+    // getPage() - conditional revalidation
     // ══════════════════════════════════════════════
 
-    private void writeStaleSearchEntry(SearchQuery query, List<SearchHit> data) {
-        try {
-            Path staleDir = tempDir.resolve("stale").resolve("search");
-            Path staleFile = staleDir.resolve("v" + CacheLayer.CACHE_VERSION + "_" + md5(query.text()) + ".json");
-            Files.createDirectories(staleDir);
-            var entry = new CacheEntry<>(data, System.currentTimeMillis());
-            String json = gson.toJson(entry);
-            Files.writeString(staleFile, json);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    @Test
+    void getPage_expiredEntryNotModified_returnsCachedPageAndRefreshesIt() throws Exception {
+        var pageId = "item/900";
+        var cachedPage = samplePage(pageId, "Cached Page");
+        var validators = new CacheValidators("\"etag-1\"", "Tue, 01 Oct 2024 00:00:00 GMT");
+        writeExpiredPageEntry(pageId, cachedPage, validators);
+
+        var mockDS = new MockRevalidatingDataSource(new PageFetchResult.NotModified());
+        try (var repo = new SearchRepository(cache, mockDS)) {
+
+        assertEquals(cachedPage, repo.getPage(pageId).get());
+        assertEquals(validators, mockDS.sentValidators);
+        assertFalse(mockDS.getPageCalled, "A revalidating source should not do a full fetch");
+        assertEquals(cachedPage, cache.getPage(pageId), "304 should make the entry fresh again");
+        }
+    }
+
+    @Test
+    void getPage_expiredEntryModified_storesNewPageAndValidators() throws Exception {
+        var pageId = "item/901";
+        writeExpiredPageEntry(pageId, samplePage(pageId, "Old"), new CacheValidators("\"old\"", null));
+        var newPage = samplePage(pageId, "New");
+        var newValidators = new CacheValidators("\"new\"", null);
+
+        var mockDS = new MockRevalidatingDataSource(new PageFetchResult.Fetched(newPage, newValidators));
+        try (var repo = new SearchRepository(cache, mockDS)) {
+
+        assertEquals(newPage, repo.getPage(pageId).get());
+        assertEquals(newPage, cache.getPage(pageId));
+        assertEquals(newValidators, cache.getPageEntry(pageId).validators());
+        }
+    }
+
+    @Test
+    void getPage_expiredEntryWithoutValidators_fetchesUnconditionally() throws Exception {
+        var pageId = "item/902";
+        writeExpiredPageEntry(pageId, samplePage(pageId, "Old"), null);
+        var newPage = samplePage(pageId, "New");
+
+        var mockDS = new MockRevalidatingDataSource(new PageFetchResult.Fetched(newPage, CacheValidators.NONE));
+        try (var repo = new SearchRepository(cache, mockDS)) {
+
+        assertEquals(newPage, repo.getPage(pageId).get());
+        assertTrue(mockDS.fetchPageCalled);
+        assertNull(mockDS.sentValidators);
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Stale-while-revalidate
+    // ══════════════════════════════════════════════
+
+    @Test
+    void getPage_staleWhileRevalidate_returnsExpiredPageAndNotifiesWhenNewerArrives() throws Exception {
+        var pageId = "item/910";
+        var oldPage = samplePage(pageId, "Old");
+        var validators = new CacheValidators("\"old\"", null);
+        writeExpiredPageEntry(pageId, oldPage, validators);
+        var newPage = samplePage(pageId, "New");
+        var ds = new DeferredRevalidatingDataSource();
+        var refreshed = new CopyOnWriteArrayList<ItemPage>();
+        try (var repo = new SearchRepository(cache, ds, true)) {
+
+        assertEquals(oldPage, repo.getPage(pageId, refreshed::add).get());
+        assertEquals(1, ds.pageRefreshes.get());
+        assertEquals(validators, ds.sentValidators);
+        assertTrue(refreshed.isEmpty());
+
+        ds.pageRefresh.complete(new PageFetchResult.Fetched(newPage, CacheValidators.NONE));
+
+        assertEquals(List.of(newPage), refreshed);
+        assertEquals(newPage, cache.getPage(pageId));
+        }
+    }
+
+    @Test
+    void getPage_staleWhileRevalidate_concurrentCallersShareOneRefresh() throws Exception {
+        var pageId = "item/911";
+        writeExpiredPageEntry(pageId, samplePage(pageId, "Old"), null);
+        var newPage = samplePage(pageId, "New");
+        var ds = new DeferredRevalidatingDataSource();
+        var first = new CopyOnWriteArrayList<ItemPage>();
+        var second = new CopyOnWriteArrayList<ItemPage>();
+        try (var repo = new SearchRepository(cache, ds, true)) {
+
+        repo.getPage(pageId, first::add).get();
+        repo.getPage(pageId, second::add).get();
+        ds.pageRefresh.complete(new PageFetchResult.Fetched(newPage, CacheValidators.NONE));
+
+        assertEquals(1, ds.pageRefreshes.get());
+        assertEquals(List.of(newPage), first);
+        assertEquals(List.of(newPage), second);
+        }
+    }
+
+    @Test
+    void getPage_staleWhileRevalidate_notModifiedRefreshesEntryWithoutNotifying() throws Exception {
+        var pageId = "item/912";
+        var oldPage = samplePage(pageId, "Old");
+        writeExpiredPageEntry(pageId, oldPage, new CacheValidators("\"etag\"", null));
+        var ds = new DeferredRevalidatingDataSource();
+        var refreshed = new CopyOnWriteArrayList<ItemPage>();
+        try (var repo = new SearchRepository(cache, ds, true)) {
+
+        repo.getPage(pageId, refreshed::add).get();
+        ds.pageRefresh.complete(new PageFetchResult.NotModified());
+
+        assertTrue(refreshed.isEmpty());
+        assertEquals(oldPage, cache.getPage(pageId), "304 should make the entry fresh again");
+        }
+    }
+
+    @Test
+    void getPage_staleWhileRevalidate_failedRefreshIsRetriedNextTime() throws Exception {
+        var pageId = "item/913";
+        var oldPage = samplePage(pageId, "Old");
+        writeExpiredPageEntry(pageId, oldPage, null);
+        var ds = new DeferredRevalidatingDataSource();
+        try (var repo = new SearchRepository(cache, ds, true)) {
+
+        repo.getPage(pageId, page -> fail("nothing new arrived")).get();
+        ds.pageRefresh.completeExceptionally(new RuntimeException("network error"));
+
+        assertEquals(oldPage, repo.getPage(pageId).get());
+        assertEquals(2, ds.pageRefreshes.get());
+        }
+    }
+
+    @Test
+    void getPage_staleWhileRevalidate_missStillFetchesInForeground() throws Exception {
+        var pageId = "item/914";
+        var page = samplePage(pageId, "Fetched");
+        var mockDS = new MockDataSource(null, page, false);
+        try (var repo = new SearchRepository(cache, mockDS, true)) {
+
+        assertEquals(page, repo.getPage(pageId).get());
+        assertTrue(mockDS.getPageCalled);
+        assertEquals(page, cache.getPage(pageId));
+        }
+    }
+
+    @Test
+    void search_staleWhileRevalidate_returnsExpiredResultsAndRefreshesThem() throws Exception {
+        var query = new SearchQuery("swr");
+        var oldResults = List.of(new SearchHit("id1", "old", "mod", "source", null));
+        var newResults = List.of(new SearchHit("id2", "new", "mod", "source", null));
+        cache.putEntry(CacheLayer.searchKey(query), new CacheEntry<>(oldResults, 0L));
+        var ds = new DeferredRevalidatingDataSource();
+        var refreshed = new CopyOnWriteArrayList<List<SearchHit>>();
+        try (var repo = new SearchRepository(cache, ds, true)) {
+
+        assertEquals(oldResults, repo.search(query, refreshed::add).get());
+        assertFalse(ds.searchCalled, "The refresh should go through the background lane");
+        ds.searchRefresh.complete(newResults);
+
+        assertEquals(List.of(newResults), refreshed);
+        assertEquals(newResults, cache.getSearchResults(query));
+        }
+    }
+
+    @Test
+    void getPage_withoutStaleWhileRevalidate_waitsForTheRefresh() throws Exception {
+        var pageId = "item/915";
+        writeExpiredPageEntry(pageId, samplePage(pageId, "Old"), null);
+        var newPage = samplePage(pageId, "New");
+        var mockDS = new MockRevalidatingDataSource(new PageFetchResult.Fetched(newPage, CacheValidators.NONE));
+        try (var repo = new SearchRepository(cache, mockDS)) {
+
+        assertEquals(newPage, repo.getPage(pageId, page -> fail("no background refresh")).get());
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Paginated search cache
+    // ══════════════════════════════════════════════
+
+    // ══════════════════════════════════════════════
+    // getPage() - archived HTML
+    // ══════════════════════════════════════════════
+
+    @Test
+    void getPage_afterEntriesAreLost_rederivesPageFromArchivedHtml() throws Exception {
+        var pageId = "item/950";
+        var validators = new CacheValidators("\"e\"", null);
+        var source = new MockReparsingDataSource(
+            new PageFetchResult.Fetched(samplePage(pageId, "Fetched"), validators, "Archived"));
+        try (var repo = new SearchRepository(cache, source)) {
+            repo.getPage(pageId).get();
+        }
+        // A schema bump leaves the archive and nothing else
+        try (var paths = java.nio.file.Files.walk(tempDir.resolve("store"))) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                java.nio.file.Files.delete(path);
+            }
+        }
+
+        cache = new CacheLayer(tempDir);
+        source.fetchPageCalled = false;
+        try (var repo = new SearchRepository(cache, source, true)) {
+            ItemPage page = repo.getPage(pageId).get();
+
+            assertEquals("Archived", page.title(), "parsed from the archived HTML");
+            assertFalse(source.fetchPageCalled, "no network request");
+            assertEquals(validators, cache.getPageEntry(pageId).validators());
+        }
+    }
+
+    @Test
+    void reparseArchiveInBackground_restoresEveryPageWithoutEntry() throws Exception {
+        cache.archiveHtml("item/1", "One", null);
+        cache.archiveHtml("item/2", "Two", null);
+        cache.putPage("item/3", samplePage("item/3", "Cached"));
+        cache.archiveHtml("item/3", "Three", null);
+        cache.flush();
+        var source = new MockReparsingDataSource(new PageFetchResult.NotModified());
+        try (var repo = new SearchRepository(cache, source)) {
+
+            assertEquals(2, (int) repo.reparseArchiveInBackground().get(5, TimeUnit.SECONDS));
+            assertEquals("One", cache.getPage("item/1").title());
+            assertEquals("Two", cache.getPage("item/2").title());
+            assertEquals("Cached", cache.getPage("item/3").title(), "existing entries are left alone");
+            assertEquals(0, (int) repo.reparseArchiveInBackground().get(5, TimeUnit.SECONDS));
+            assertFalse(source.fetchPageCalled);
+        }
+    }
+
+    @Test
+    void searchPage_repeatedPaginatedSearch_makesNoRequests() throws Exception {
+        var query = new SearchQuery("暮色森林");
+        String searchUrl = McmodHttpClient.buildSearchUrl(query.text(), 1, 3);
+        var transport = new StubTransport().serveFixture(searchUrl, "search-page1.html");
+        for (int page = 2; page <= 4; page++) {
+            transport.serveHtml(McmodParser.searchPageUrl(searchUrl, page), resultPage(page, 4));
+        }
+        try (var repo = new SearchRepository(cache, new McmodDataSource(new McmodHttpClient(new RequestExecutor(), transport)))) {
+
+        List<SearchHit> firstRun = runPaginatedSearch(repo, query);
+        int requests = transport.requests().size();
+        assertEquals(4, requests);
+
+        assertEquals(firstRun, runPaginatedSearch(repo, query));
+        assertEquals(requests, transport.requests().size(), "Every page should come from the cache");
+        assertEquals(firstRun, cache.getSearchResults(query), "The whole result set is cached for search()");
+        assertEquals(5, firstRun.size());
+        }
+    }
+
+    @Test
+    void searchRemainingPages_throttledMiddlePage_cachesNoMergedResults() throws Exception {
+        var query = new SearchQuery("暮色森林");
+        String searchUrl = McmodHttpClient.buildSearchUrl(query.text(), 1, 3);
+        String throttledUrl = McmodParser.searchPageUrl(searchUrl, 3);
+        var transport = new StubTransport().serveFixture(searchUrl, "search-page1.html");
+        for (int page = 2; page <= 4; page++) {
+            transport.serveHtml(McmodParser.searchPageUrl(searchUrl, page), resultPage(page, 4));
+        }
+        var source = new McmodDataSource(new McmodHttpClient(new RequestExecutor(), transport)) {
+            @Override
+            public CompletableFuture<SearchPageBatch> searchMore(String pageUrl) {
+                // What a throttle page the client could not get past parses to
+                return pageUrl.equals(throttledUrl)
+                    ? CompletableFuture.completedFuture(new SearchPageBatch(List.of(), null))
+                    : super.searchMore(pageUrl);
+            }
+        };
+        try (var repo = new SearchRepository(cache, source)) {
+
+        List<SearchHit> delivered = runPaginatedSearch(repo, query);
+
+        assertEquals(4, delivered.size(), "the other pages still reach the screen");
+        assertNull(cache.getSearchResults(query), "a set missing page 3 must not be cached as the query's results");
+        assertNull(cache.getSearchPage(throttledUrl), "nor the stand-in page itself");
+        }
+    }
+
+    @Test
+    void submitCaptchaForPage_archivesTheRetriedPagesHtml() throws Exception {
+        String answerUrl = "https://www.mcmod.cn/captcha/verify";
+        var transport = new StubTransport()
+            .serveHtml(answerUrl, "<html><body>ok</body></html>")
+            .serveFixture("https://www.mcmod.cn/item/123.html", "item-123.html");
+        try (var repo = new SearchRepository(cache, new McmodDataSource(new McmodHttpClient(new RequestExecutor(), transport)))) {
+
+        ItemPage page = repo.submitCaptchaForPage("item/123", new CaptchaContext("img", "id", answerUrl), "42")
+            .get(5, TimeUnit.SECONDS);
+
+        assertEquals(page, cache.getPage("item/123"));
+        assertNotNull(cache.getArchivedPage("item/123"), "a page fetched after a CAPTCHA is archived like any other");
+        }
+    }
+
+    @Test
+    void resumeAfterCaptcha_searchMoreRequest_cachesThatPage() throws Exception {
+        var query = new SearchQuery("captcha query");
+        var results = List.of(new SearchHit("id3", "page2", "mod", "source", null));
+        var pageUrl = "https://search.mcmod.cn/s?key=captcha+query&page=2";
+        var mockDS = new MockCaptchaDataSource(results, null);
+        try (var repo = new SearchRepository(cache, mockDS)) {
+
+        repo.resumeAfterCaptcha(new PendingRequest.SearchMoreUrl(query, pageUrl),
+            new CaptchaContext("url", "id", "answerUrl"), "42").get();
+
+        assertEquals(results, cache.getSearchPage(pageUrl).results());
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Negative caching
+    // ══════════════════════════════════════════════
+
+    @Test
+    void getPage_missingPage_isNotFetchedAgain() throws Exception {
+        var mockDS = new MockDataSource(List.of(), null, false);
+        try (var repo = new SearchRepository(cache, mockDS)) {
+
+        assertNull(repo.getPage("item/404").get(5, TimeUnit.SECONDS));
+        assertTrue(mockDS.getPageCalled);
+
+        mockDS.getPageCalled = false;
+        assertNull(repo.getPage("item/404").get(5, TimeUnit.SECONDS));
+        assertFalse(mockDS.getPageCalled, "A confirmed missing page should be answered from the cache");
+        }
+    }
+
+    @Test
+    void search_confirmedEmptySearch_makesNoSecondRequest() throws Exception {
+        var query = new SearchQuery("没有这个模组");
+        String empty = "<html><head><title>没有这个模组 - MC百科搜索</title></head>"
+            + "<body><div class=\"search-result-list\"></div></body></html>";
+        var transport = new StubTransport()
+            .serveHtml(McmodHttpClient.buildSearchUrl(query.text(), 1, 3), empty)
+            .serveHtml(McmodHttpClient.buildSearchUrl(query.text(), 1, 0), empty);
+        try (var repo = new SearchRepository(cache, new McmodDataSource(new McmodHttpClient(new RequestExecutor(), transport)))) {
+
+        assertEquals(List.of(), repo.search(query).get(5, TimeUnit.SECONDS));
+        int requests = transport.requests().size();
+        assertEquals(2, requests);
+
+        assertEquals(List.of(), repo.search(query).get(5, TimeUnit.SECONDS));
+        assertTrue(repo.searchPage(query).get(5, TimeUnit.SECONDS).confirmedEmpty());
+        assertEquals(requests, transport.requests().size(), "The empty answer should come from the cache");
+        }
+    }
+
+    @Test
+    void search_unconfirmedEmptySearch_isAskedAgain() throws Exception {
+        var query = new SearchQuery("404 query");
+        var transport = new StubTransport();
+        try (var repo = new SearchRepository(cache, new McmodDataSource(new McmodHttpClient(new RequestExecutor(), transport)))) {
+
+        assertEquals(List.of(), repo.search(query).get(5, TimeUnit.SECONDS));
+        int requests = transport.requests().size();
+
+        repo.search(query).get(5, TimeUnit.SECONDS);
+        assertTrue(transport.requests().size() > requests, "A 404 is not proof that nothing matches");
         }
     }
 
-    private static String md5(String input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("MD5");
-            byte[] digest = md.digest(input.getBytes());
-            return HexFormat.of().formatHex(digest);
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
+    // ══════════════════════════════════════════════
+    // Helpers
+    // ══════════════════════════════════════════════
+
+    /** Runs a search the way the results screen does: first page, then the rest in parallel. */
+    private static List<SearchHit> runPaginatedSearch(SearchRepository repo, SearchQuery query) throws Exception {
+        SearchPageBatch first = repo.searchPage(query).get(5, TimeUnit.SECONDS);
+        var pages = new CopyOnWriteArrayList<SearchPageBatch>();
+        repo.searchRemainingPages(query, first, pages::add).get(5, TimeUnit.SECONDS);
+        List<SearchHit> all = new ArrayList<>(first.results());
+        pages.stream()
+            .sorted(Comparator.comparingInt(SearchPageBatch::page))
+            .forEach(page -> all.addAll(page.results()));
+        return all;
+    }
+
+    private static String resultPage(int page, int lastPage) {
+        StringBuilder html = new StringBuilder("<html><body><div class=\"search-result-list\">")
+            .append("<div class=\"result-item\"><div class=\"head\"><a href=\"https://www.mcmod.cn/item/")
+            .append(1000 + page).append(".html\">物品").append(page).append(" - 暮色森林</a></div></div></div>")
+            .append("<ul class=\"pagination\">");
+        for (int p = Math.max(1, page - 1); p <= lastPage; p++) {
+            html.append("<li class=\"page-item\"><a class=\"page-link\" data-page=\"").append(p)
+                .append("\" href=\"?page=").append(p).append("\">").append(p).append("</a></li>");
         }
+        return html.append("</ul></body></html>").toString();
+    }
+
+    /** Leaves {@code data} as the stale generation behind an expired, empty fresh one. */
+    private void writeStaleSearchEntry(SearchQuery query, List<SearchHit> data) {
+        String key = CacheLayer.searchKey(query);
+        cache.putEntry(key, new CacheEntry<>(data, System.currentTimeMillis()));
+        cache.putEntry(key, new CacheEntry<>(List.<SearchHit>of(), 0L));
+    }
+
+    private void writeExpiredPageEntry(String pageId, ItemPage page, CacheValidators validators) {
+        cache.putEntry(CacheLayer.pageKey(pageId), new CacheEntry<>(page, 0L, validators));
+    }
+
+    private static ItemPage samplePage(String pageId, String title) {
+        return new ItemPage(pageId, title, "TestMod",
+            new Document("Doc", null, null, List.of(new TextNode("content"))),
+            "https://example.com/" + pageId);
     }
 
     // ══════════════════════════════════════════════
@@ -361,4 +743,64 @@ class SearchRepositoryTest {
             return CompletableFuture.completedFuture(itemPage);
         }
     }
+
+    static class MockRevalidatingDataSource extends MockDataSource implements RevalidatingDataSource {
+        private final PageFetchResult result;
+        boolean fetchPageCalled;
+        CacheValidators sentValidators;
+
+        MockRevalidatingDataSource(PageFetchResult result) {
+            super(null, null, false);
+            this.result = result;
+        }
+
+        @Override
+        public CompletableFuture<PageFetchResult> fetchPage(String pageId, CacheValidators validators) {
+            fetchPageCalled = true;
+            sentValidators = validators;
+            return CompletableFuture.completedFuture(result);
+        }
+    }
+
+    /** Parses archived HTML by taking it as the page title. */
+    static class MockReparsingDataSource extends MockRevalidatingDataSource implements ReparsingDataSource {
+        MockReparsingDataSource(PageFetchResult result) {
+            super(result);
+        }
+
+        @Override
+        public ItemPage parsePage(String pageId, String html) {
+            return samplePage(pageId, html);
+        }
+    }
+
+    /** Refreshes complete only when the test completes {@link #pageRefresh} / {@link #searchRefresh}. */
+    static class DeferredRevalidatingDataSource extends MockDataSource implements RevalidatingDataSource {
+        final CompletableFuture<PageFetchResult> pageRefresh = new CompletableFuture<>();
+        final CompletableFuture<List<SearchHit>> searchRefresh = new CompletableFuture<>();
+        final AtomicInteger pageRefreshes = new AtomicInteger();
+        volatile CacheValidators sentValidators;
+
+        DeferredRevalidatingDataSource() {
+            super(null, null, true);
+        }
+
+        @Override
+        public CompletableFuture<PageFetchResult> fetchPage(String pageId, CacheValidators validators) {
+            return CompletableFuture.failedFuture(new AssertionError("expired pages are refreshed in the background"));
+        }
+
+        @Override
+        public CompletableFuture<PageFetchResult> refreshPage(String pageId, CacheValidators validators) {
+            pageRefreshes.incrementAndGet();
+            sentValidators = validators;
+            // A retry after a failure gets a fresh future
+            return pageRefresh.isCompletedExceptionally() ? new CompletableFuture<>() : pageRefresh;
+        }
+
+        @Override
+        public CompletableFuture<List<SearchHit>> refreshSearch(SearchQuery query) {
+            return searchRefresh;
+        }
+    }
 }
@@ -0,0 +1,503 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentStoreTest {
+
+    private static final int VERSION = 15;
+    private static final long MAX_AGE = 1_000_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong clock = new AtomicLong(10_000_000L);
+    private SegmentStore store;
+
+    private SegmentStore open(long segmentBytes) {
+        store = new SegmentStore(tempDir, VERSION, MAX_AGE, segmentBytes, clock::get);
+        return store;
+    }
+
+    private SegmentStore reopen() {
+        store.close();
+        return open(1 << 20);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private SegmentStore.Write put(String key, String value) {
+        return new SegmentStore.Write(key, true, clock.get(), value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private SegmentStore.Write touch(String key, String value) {
+        return new SegmentStore.Write(key, false, clock.get(), value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String fresh(String key) {
+        return text(store.readFresh(key));
+    }
+
+    private String stale(String key) {
+        return text(store.readStale(key));
+    }
+
+    private static String text(byte[] payload) {
+        return payload != null ? new String(payload, StandardCharsets.UTF_8) : null;
+    }
+
+    // ══════════════════════════════════════════════
+    // Generations
+    // ══════════════════════════════════════════════
+
+    @Test
+    void newGeneration_demotesFreshToStale() {
+        open(1 << 20).write(List.of(put("k", "a"), put("k", "b"), put("k", "c")));
+
+        assertEquals("c", fresh("k"));
+        assertEquals("b", stale("k"));
+        assertNull(fresh("other"));
+    }
+
+    @Test
+    void sameGeneration_replacesFreshAndKeepsStale() {
+        open(1 << 20).write(List.of(put("k", "a"), put("k", "b"), touch("k", "b2")));
+
+        assertEquals("b2", fresh("k"));
+        assertEquals("a", stale("k"));
+    }
+
+    @Test
+    void reopen_replaysGenerations() {
+        open(1 << 20).write(List.of(put("k", "a"), put("k", "b")));
+        store.write(List.of(touch("k", "b2"), put("j", "x")));
+
+        reopen();
+
+        assertEquals("b2", fresh("k"));
+        assertEquals("a", stale("k"));
+        assertEquals("x", fresh("j"));
+    }
+
+    // ══════════════════════════════════════════════
+    // Load filtering
+    // ══════════════════════════════════════════════
+
+    @Test
+    void reopen_skipsOtherSchemaVersions() {
+        open(1 << 20).write(List.of(put("k", "a")));
+        store.close();
+
+        store = new SegmentStore(tempDir, VERSION + 1, MAX_AGE, 1 << 20, clock::get);
+
+        assertNull(fresh("k"));
+        assertEquals(0, store.stats().liveBytes());
+    }
+
+    @Test
+    void reopen_skipsExpiredRecords() {
+        open(1 << 20).write(List.of(put("old", "o")));
+        clock.addAndGet(MAX_AGE / 2);
+        store.write(List.of(put("new", "n")));
+        clock.addAndGet(MAX_AGE / 2 + 1);
+
+        reopen();
+
+        assertNull(fresh("old"));
+        assertEquals("n", fresh("new"));
+    }
+
+    @Test
+    void tornTail_isTruncatedAndStoreStaysWritable() throws IOException {
+        open(1 << 20).write(List.of(put("k", "a"), put("j", "b")));
+        store.close();
+        Path segment = onlySegment();
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+
+        open(1 << 20);
+        assertEquals("a", fresh("k"));
+        assertNull(fresh("j"));
+
+        store.write(List.of(put("j", "c")));
+        reopen();
+        assertEquals("c", fresh("j"));
+    }
+
+    @Test
+    void corruptedRecord_failsChecksum() throws IOException {
+        open(1 << 20).write(List.of(put("k", "abcdef")));
+        store.close();
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), Files.size(segment) - 2);
+        }
+
+        assertNull(open(1 << 20).readFresh("k"));
+    }
+
+    // ══════════════════════════════════════════════
+    // Segments and compaction
+    // ══════════════════════════════════════════════
+
+    @Test
+    void segments_rollOverAtSizeLimit() {
+        open(200);
+        for (int i = 0; i < 10; i++) {
+            store.write(List.of(put("k" + i, "x".repeat(60))));
+        }
+
+        assertTrue(store.stats().segments() > 1);
+        reopen();
+        assertEquals("x".repeat(60), fresh("k9"));
+    }
+
+    @Test
+    void compaction_reclaimsSupersededRecordsAndKeepsGenerations() throws IOException {
+        open(400);
+        for (int i = 0; i < 30; i++) {
+            store.write(List.of(put("k", "value-" + i)));
+        }
+        store.write(List.of(put("j", "only")));
+        long before = store.stats().totalBytes();
+
+        assertTrue(store.compactIfNeeded());
+
+        SegmentStore.Stats after = store.stats();
+        assertTrue(after.totalBytes() < before, after + " vs " + before);
+        assertEquals(after.liveBytes(), after.totalBytes());
+        assertEquals("value-29", fresh("k"));
+        assertEquals("value-28", stale("k"));
+
+        reopen();
+        assertEquals("value-29", fresh("k"));
+        assertEquals("value-28", stale("k"));
+        assertEquals("only", fresh("j"));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.filter(SegmentStoreTest::isSegment).count());
+        }
+    }
+
+    @Test
+    void compaction_dropsExpiredEntries() {
+        open(400);
+        store.write(List.of(put("old", "x".repeat(150))));
+        clock.addAndGet(MAX_AGE + 1);
+        store.write(List.of(put("new", "y")));
+
+        assertTrue(store.compactIfNeeded());
+
+        assertNull(fresh("old"));
+        assertEquals("y", fresh("new"));
+        assertEquals(1, store.stats().keys());
+    }
+
+    @Test
+    void compaction_skippedWhileMostlyLive() {
+        open(400);
+        store.write(List.of(put("a", "1"), put("b", "2"), put("c", "3")));
+
+        assertFalse(store.compactIfNeeded());
+    }
+
+    @Test
+    void compactIfNeeded_lowThresholdsCompactSmallGarbage() {
+        open(1 << 20).write(List.of(put("k", "a"), put("k", "b"), put("k", "c"), put("j", "x")));
+
+        assertFalse(store.compactIfNeeded(), "far below the write-path threshold");
+        assertTrue(store.compactIfNeeded(1, 0));
+        assertFalse(store.compactIfNeeded(1, 0), "nothing left to reclaim");
+        assertEquals("c", fresh("k"));
+        assertEquals("b", stale("k"));
+    }
+
+    @Test
+    void segmentCompactedAwayUnderAClosedChannel_isReloadedNotRecreated() throws IOException {
+        open(1 << 20).write(List.of(put("k", "a"), put("k", "b"), put("k", "c")));
+        Path segment = onlySegment();
+        // An interrupted read closes the segment's channel, so the next read reopens the file
+        Thread.currentThread().interrupt();
+        try {
+            assertNull(fresh("k"));
+        } finally {
+            Thread.interrupted();
+        }
+        SegmentStore other = new SegmentStore(tempDir, VERSION, MAX_AGE, 1 << 20, clock::get);
+        try {
+            assertTrue(other.compactIfNeeded(0, 0));
+        } finally {
+            other.close();
+        }
+        assertFalse(Files.exists(segment));
+
+        assertEquals("c", fresh("k"));
+        assertEquals("b", stale("k"));
+        assertFalse(Files.exists(segment), "a read must not bring the deleted segment back");
+        assertEquals(1, store.stats().segments());
+    }
+
+    // ══════════════════════════════════════════════
+    // Budget and access times
+    // ══════════════════════════════════════════════
+
+    @Test
+    void evictToBudget_dropsLeastRecentlyUsedKeys() {
+        open(1 << 20);
+        for (String key : List.of("a", "b", "c", "d")) {
+            store.write(List.of(put(key, "x".repeat(500))));
+            clock.addAndGet(1_000);
+        }
+        store.recordAccess(Map.of("a", clock.get()));
+        long budget = store.stats().totalBytes() - 100;
+
+        assertEquals(2, store.evictToBudget(budget));
+
+        assertNotNull(fresh("a"), "recently read");
+        assertNull(fresh("b"));
+        assertNull(fresh("c"));
+        assertNotNull(fresh("d"));
+        assertTrue(store.stats().totalBytes() <= budget);
+    }
+
+    @Test
+    void evictToBudget_withinBudgetDoesNothing() {
+        open(1 << 20).write(List.of(put("a", "1")));
+
+        assertEquals(0, store.evictToBudget(1 << 20));
+        assertEquals("1", fresh("a"));
+    }
+
+    @Test
+    void accessTimes_surviveReopen() {
+        open(1 << 20);
+        for (String key : List.of("a", "b")) {
+            store.write(List.of(put(key, "x".repeat(500))));
+            clock.addAndGet(1_000);
+        }
+        store.recordAccess(Map.of("a", clock.get()));
+
+        reopen();
+        assertEquals(1, store.evictToBudget(store.stats().totalBytes() - 100));
+
+        assertNotNull(fresh("a"));
+        assertNull(fresh("b"));
+    }
+
+    @Test
+    void clear_removesEverything() {
+        open(1 << 20).write(List.of(put("k", "a")));
+
+        store.clear();
+
+        assertNull(fresh("k"));
+        reopen();
+        assertNull(fresh("k"));
+        assertEquals(0, store.stats().keys());
+    }
+
+    // ══════════════════════════════════════════════
+    // Index timestamps and manifest
+    // ══════════════════════════════════════════════
+
+    @Test
+    void readWithNotBefore_missesOlderRecords() {
+        long written = clock.get();
+        open(1 << 20).write(List.of(put("k", "a"), put("k", "b")));
+
+        assertEquals("b", text(store.readFresh("k", written)));
+        assertNull(store.readFresh("k", written + 1));
+        assertEquals("a", text(store.readStale("k", written)));
+        assertNull(store.readStale("k", written + 1));
+        assertNull(store.readFresh("missing", Long.MIN_VALUE));
+    }
+
+    @Test
+    void manifest_loadReplaysOnlyRecordsAppendedAfterIt() throws IOException {
+        open(1 << 20).write(List.of(put("k", "abcdef"), put("j", "b")));
+        store.saveManifest();
+        store.write(List.of(put("i", "c"), put("j", "d")));
+        store.close();
+        // Damage a record the manifest covers: a full replay would stop there and lose the rest
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), 42);
+        }
+        long size = Files.size(segment);
+
+        open(1 << 20);
+        assertEquals("c", fresh("i"));
+        assertEquals("d", fresh("j"));
+        assertEquals("b", stale("j"));
+        assertNull(fresh("k"), "a damaged record still fails its checksum on read");
+        assertEquals(size, Files.size(segment));
+    }
+
+    @Test
+    void manifest_outdatedByCompactionIsIgnored() {
+        open(1 << 20).write(List.of(put("k", "a"), put("k", "b"), put("j", "c")));
+        store.saveManifest();
+        store.compactIfNeeded(0, 0);
+        store.write(List.of(put("i", "d")));
+
+        // Another instance reads the directory as it is now, not as the manifest saw it
+        SegmentStore other = new SegmentStore(tempDir, VERSION, MAX_AGE, 1 << 20, clock::get);
+        try {
+            assertEquals("b", text(other.readFresh("k")));
+            assertEquals("a", text(other.readStale("k")));
+            assertEquals("c", text(other.readFresh("j")));
+            assertEquals("d", text(other.readFresh("i")));
+            assertEquals(3, other.stats().keys());
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void manifest_ofAnotherSchemaVersionIsIgnored() {
+        open(1 << 20).write(List.of(put("k", "a")));
+        store.close();
+
+        store = new SegmentStore(tempDir, VERSION + 1, MAX_AGE, 1 << 20, clock::get);
+        assertNull(fresh("k"));
+        assertEquals(0, store.stats().keys());
+    }
+
+    // ══════════════════════════════════════════════
+    // Shared stores
+    // ══════════════════════════════════════════════
+
+    private SegmentStore openShared() {
+        store = new SegmentStore(tempDir, VERSION, MAX_AGE, 1 << 20, clock::get, true);
+        return store;
+    }
+
+    /** A second process's view of the same directory. */
+    private SegmentStore otherShared() {
+        return new SegmentStore(tempDir, VERSION, MAX_AGE, 1 << 20, clock::get, true);
+    }
+
+    private static SegmentStore.ChangeListener recordingTo(List<String> heard) {
+        return new SegmentStore.ChangeListener() {
+            @Override
+            public void changed(String key) {
+                heard.add(key);
+            }
+
+            @Override
+            public void everything() {
+                heard.add("*");
+            }
+        };
+    }
+
+    @Test
+    void shared_missPicksUpWhatAnotherInstanceAppended() {
+        openShared().write(List.of(put("k", "a")));
+        SegmentStore other = otherShared();
+        try {
+            assertEquals("a", text(other.readFresh("k")));
+            store.write(List.of(put("j", "b"), put("k", "c")));
+            assertEquals("b", text(other.readFresh("j")));
+            assertEquals("c", text(other.readFresh("k")));
+            assertEquals("a", text(other.readStale("k")));
+
+            other.write(List.of(put("i", "d")));
+            assertEquals("d", fresh("i"));
+            assertEquals(store.stats(), other.stats());
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void shared_refreshReportsKeysAnotherInstanceWrote() {
+        openShared().write(List.of(put("k", "a")));
+        SegmentStore other = otherShared();
+        List<String> heard = new ArrayList<>();
+        other.setChangeListener(recordingTo(heard));
+        try {
+            assertEquals("a", text(other.readFresh("k")));
+            store.write(List.of(put("k", "b")));
+            assertEquals("a", text(other.readFresh("k")), "a hit does not look for changes");
+
+            other.refresh();
+            assertEquals(List.of("k"), heard);
+            assertEquals("b", text(other.readFresh("k")));
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void shared_compactionByAnotherInstanceReloadsTheIndex() {
+        openShared().write(List.of(put("k", "a"), put("k", "b"), put("k", "c")));
+        SegmentStore other = otherShared();
+        List<String> heard = new ArrayList<>();
+        other.setChangeListener(recordingTo(heard));
+        try {
+            assertEquals("c", text(other.readFresh("k")));
+            assertTrue(store.compactIfNeeded(0, 0));
+            store.write(List.of(put("i", "d")));
+
+            other.refresh();
+            assertEquals(List.of("*"), heard);
+            assertEquals("c", text(other.readFresh("k")));
+            assertEquals("b", text(other.readStale("k")));
+            assertEquals("d", text(other.readFresh("i")));
+            assertEquals(store.stats(), other.stats());
+        } finally {
+            other.close();
+        }
+    }
+
+    @Test
+    void shared_clearReachesOtherInstancesAndKeepsTheLockFile() {
+        openShared().write(List.of(put("k", "a")));
+        SegmentStore other = otherShared();
+        try {
+            assertEquals("a", text(other.readFresh("k")));
+            store.clear();
+
+            other.refresh();
+            assertNull(other.readFresh("k"));
+            assertEquals(0, other.stats().keys());
+            assertTrue(Files.exists(tempDir.resolve(SegmentStore.LOCK_FILE)));
+        } finally {
+            other.close();
+        }
+    }
+
+    private static boolean isSegment(Path file) {
+        return file.getFileName().toString().endsWith(".log");
+    }
+
+    private Path onlySegment() throws IOException {
+        try (var files = Files.list(tempDir)) {
+            List<Path> segments = files.filter(SegmentStoreTest::isSegment).toList();
+            assertEquals(1, segments.size());
+            return segments.get(0);
+        }
+    }
+}
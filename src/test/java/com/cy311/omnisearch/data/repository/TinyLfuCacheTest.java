@@ -0,0 +1,120 @@
+package com.cy311.omnisearch.data.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuCacheTest {
+
+    // ══════════════════════════════════════════════
+    // Weight bound
+    // ══════════════════════════════════════════════
+
+    @Test
+    void put_staysWithinWeightBudget() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(1_000, 64);
+        for (int i = 0; i < 200; i++) {
+            cache.put("k" + i, "v" + i, 30);
+        }
+
+        TinyLfuCache.Stats stats = cache.stats();
+        assertTrue(stats.weight() <= 1_000, "weight=" + stats.weight());
+        assertEquals(200 - stats.size(), stats.evictions());
+    }
+
+    @Test
+    void put_entryHeavierThanBudget_isNotKept() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 16);
+        cache.put("small", "s", 10);
+        cache.put("huge", "h", 101);
+
+        assertNull(cache.get("huge"));
+        assertEquals("s", cache.get("small"));
+    }
+
+    @Test
+    void put_replacingValue_updatesWeight() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(1_000, 16);
+        cache.put("a", "first", 10);
+        cache.put("a", "second", 40);
+
+        assertEquals("second", cache.get("a"));
+        assertEquals(40, cache.stats().weight());
+        assertEquals(1, cache.stats().size());
+    }
+
+    // ══════════════════════════════════════════════
+    // Admission
+    // ══════════════════════════════════════════════
+
+    @Test
+    void frequentlyUsedEntries_surviveAScanOfOneOffKeys() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(1_000, 64);
+        for (int i = 0; i < 10; i++) {
+            cache.put("hot" + i, "v", 50);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                assertNotNull(cache.get("hot" + i));
+            }
+        }
+
+        for (int i = 0; i < 500; i++) {
+            cache.put("scan" + i, "v", 50);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.get("hot" + i), "hot" + i + " was evicted by one-off keys");
+        }
+    }
+
+    @Test
+    void newKey_replacesColdEntries() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 16);
+        for (int i = 0; i < 10; i++) {
+            cache.put("old" + i, "v", 10);
+        }
+        for (int round = 0; round < 3; round++) {
+            cache.get("new");
+        }
+        cache.put("new", "v", 10);
+
+        assertEquals("v", cache.get("new"));
+    }
+
+    // ══════════════════════════════════════════════
+    // Stats
+    // ══════════════════════════════════════════════
+
+    @Test
+    void stats_countHitsAndMisses() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 16);
+        cache.put("a", "1", 1);
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        TinyLfuCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(2.0 / 3, stats.hitRate(), 1e-9);
+    }
+
+    @Test
+    void invalidateAndClear_dropEntriesButKeepCounters() {
+        TinyLfuCache<String, String> cache = new TinyLfuCache<>(100, 16);
+        cache.put("a", "1", 5);
+        cache.put("b", "2", 5);
+        cache.get("a");
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        cache.clear();
+        assertNull(cache.get("b"));
+
+        TinyLfuCache.Stats stats = cache.stats();
+        assertEquals(0, stats.size());
+        assertEquals(0, stats.weight());
+        assertEquals(1, stats.hits());
+    }
+}
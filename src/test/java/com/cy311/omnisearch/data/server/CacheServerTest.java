@@ -0,0 +1,170 @@
+package com.cy311.omnisearch.data.server;
+
+import com.cy311.omnisearch.data.client.KeepAliveTransport;
+import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.RequestExecutor;
+import com.cy311.omnisearch.data.client.StubTransport;
+import com.cy311.omnisearch.data.client.Transport;
+import com.cy311.omnisearch.data.repository.CacheLayer;
+import com.cy311.omnisearch.data.repository.SearchRepository;
+import com.cy311.omnisearch.data.source.McmodDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheServerTest {
+
+    private static final String ITEM_URL = "https://www.mcmod.cn/item/123.html";
+
+    @TempDir
+    Path tempDir;
+
+    private final StubTransport upstream = new StubTransport().serveFixture(ITEM_URL, "item-123.html");
+    private final KeepAliveTransport http = new KeepAliveTransport(5_000);
+    private SearchRepository repository;
+    private CacheServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = new SearchRepository(new CacheLayer(tempDir),
+            new McmodDataSource(new McmodHttpClient(new RequestExecutor(), upstream)));
+        server = new CacheServer(repository, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+        repository.close();
+    }
+
+    private Transport.Response get(String pathAndQuery, Map<String, String> headers) throws IOException {
+        return http.execute(Transport.Request.get("http://127.0.0.1:" + server.port() + pathAndQuery, headers, Map.of()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    // ══════════════════════════════════════════════
+    // Pages
+    // ══════════════════════════════════════════════
+
+    @Test
+    void page_isFetchedOnceAndServedFromCacheAfterwards() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            try (var response = get(CacheServer.PAGE_PATH + "?id=item/123", Map.of("Accept-Encoding", "gzip"))) {
+                assertEquals(200, response.statusCode());
+                assertEquals("gzip", response.header("Content-Encoding"));
+                assertTrue(response.bodyText().contains("娜迦鳞片"));
+            }
+        }
+
+        assertEquals(1, upstream.requests().size());
+        assertEquals(3, server.servedCount());
+    }
+
+    // ══════════════════════════════════════════════
+    // Searches
+    // ══════════════════════════════════════════════
+
+    @Test
+    void emptySearchNotConfirmedUpstream_is503() throws IOException {
+        // Unrouted upstream URLs answer 404, as a throttled or failing mcmod.cn would not confirm anything
+        try (var response = get(CacheServer.SEARCH_PATH + "?q=" + encode("被限流"), Map.of())) {
+            assertEquals(503, response.statusCode());
+        }
+        assertEquals(0, server.servedCount());
+        assertEquals(1, server.failedCount());
+    }
+
+    @Test
+    void confirmedEmptySearch_isAnAnswer() throws IOException {
+        String query = "没有这个模组";
+        String empty = "<html><head><title>" + query + " - MC百科搜索</title></head>"
+            + "<body><div class=\"search-result-list\"></div></body></html>";
+        upstream.serveHtml(McmodHttpClient.buildSearchUrl(query, 1, 3), empty)
+            .serveHtml(McmodHttpClient.buildSearchUrl(query, 1, 0), empty);
+
+        try (var response = get(CacheServer.SEARCH_PATH + "?q=" + encode(query), Map.of())) {
+            assertEquals(200, response.statusCode());
+            assertTrue(response.bodyText().contains("\"confirmedEmpty\":true"));
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Access
+    // ══════════════════════════════════════════════
+
+    @Test
+    void tokenServer_rejectsRequestsWithoutTheToken() throws IOException {
+        server.close();
+        server = new CacheServer(repository, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), "team-secret");
+
+        for (Map<String, String> headers : List.of(Map.<String, String>of(), Map.of("Authorization", "Bearer guess"))) {
+            try (var response = get(CacheServer.PAGE_PATH + "?id=item/123", headers)) {
+                assertEquals(401, response.statusCode());
+            }
+        }
+        assertEquals(0, upstream.requests().size());
+
+        try (var response = get(CacheServer.PAGE_PATH + "?id=item/123", Map.of("Authorization", "Bearer team-secret"))) {
+            assertEquals(200, response.statusCode());
+        }
+    }
+
+    @Test
+    void beyondLoopbackWithoutToken_isRefused() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new CacheServer(repository, new InetSocketAddress(0)));
+        assertThrows(IllegalArgumentException.class,
+            () -> new CacheServer(repository, new InetSocketAddress(0), " "));
+    }
+
+    @Test
+    void bindAddress_defaultsToLoopback() {
+        assertTrue(CacheServer.bindAddress(null, 0).getAddress().isLoopbackAddress());
+        assertTrue(CacheServer.bindAddress("", 0).getAddress().isLoopbackAddress());
+        assertEquals("0.0.0.0", CacheServer.bindAddress("0.0.0.0", 0).getAddress().getHostAddress());
+    }
+
+    // ══════════════════════════════════════════════
+    // Request validation
+    // ══════════════════════════════════════════════
+
+    @Test
+    void malformedRequests_areRejectedWithoutUpstreamTraffic() throws IOException {
+        String foreign = URLEncoder.encode("https://example.com/s?key=x", StandardCharsets.UTF_8);
+        for (String path : new String[] {
+            CacheServer.PAGE_PATH + "?id=item/../admin",
+            CacheServer.PAGE_PATH,
+            CacheServer.SEARCH_PATH + "?q=",
+            CacheServer.SEARCH_PAGE_PATH + "?url=" + foreign,
+        }) {
+            try (var response = get(path, Map.of())) {
+                assertEquals(400, response.statusCode(), path);
+            }
+        }
+        assertEquals(0, upstream.requests().size());
+    }
+
+    @Test
+    void isSearchPageUrl_acceptsOnlyMcmodSearchPages() {
+        assertTrue(CacheServer.isSearchPageUrl(McmodHttpClient.buildSearchUrl("test", 2, 3)));
+        assertFalse(CacheServer.isSearchPageUrl("http://search.mcmod.cn/s?key=test"));
+        assertFalse(CacheServer.isSearchPageUrl("https://search.mcmod.cn:8443/s?key=test"));
+        assertFalse(CacheServer.isSearchPageUrl("https://www.mcmod.cn/item/1.html"));
+        assertFalse(CacheServer.isSearchPageUrl("not a url"));
+    }
+}
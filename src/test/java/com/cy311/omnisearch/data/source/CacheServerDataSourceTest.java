@@ -0,0 +1,184 @@
+package com.cy311.omnisearch.data.source;
+
+import com.cy311.omnisearch.data.client.KeepAliveTransport;
+import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.RequestExecutor;
+import com.cy311.omnisearch.data.client.StubTransport;
+import com.cy311.omnisearch.data.client.Transport;
+import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.PageFetchResult;
+import com.cy311.omnisearch.data.model.SearchPageBatch;
+import com.cy311.omnisearch.data.model.SearchQuery;
+import com.cy311.omnisearch.data.repository.CacheLayer;
+import com.cy311.omnisearch.data.repository.SearchRepository;
+import com.cy311.omnisearch.data.server.CacheServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A {@link CacheServerDataSource} against a real {@link CacheServer} on the loopback
+ * interface; both sides reach "mcmod.cn" through their own {@link StubTransport}.
+ */
+class CacheServerDataSourceTest {
+
+    private static final String QUERY = "暮色森林";
+    private static final String SEARCH_URL = McmodHttpClient.buildSearchUrl(QUERY, 1, 3);
+    private static final String ITEM_URL = "https://www.mcmod.cn/item/123.html";
+
+    @TempDir
+    Path tempDir;
+
+    private final StubTransport upstream = new StubTransport()
+        .serveFixture(SEARCH_URL, "search-page1.html")
+        .serveFixture(ITEM_URL, "item-123.html");
+    private final StubTransport direct = new StubTransport()
+        .serveFixture(SEARCH_URL, "search-page1.html")
+        .serveFixture(ITEM_URL, "item-123.html");
+    private final AtomicInteger peerRequests = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private SearchRepository serverRepository;
+    private CacheServer server;
+    private CacheServerDataSource source;
+
+    private CacheServerDataSource connect(String serverUrl) {
+        return connect(serverUrl, null);
+    }
+
+    private CacheServerDataSource connect(String serverUrl, String token) {
+        KeepAliveTransport http = new KeepAliveTransport(2_000);
+        Transport counting = request -> {
+            peerRequests.incrementAndGet();
+            return http.execute(request);
+        };
+        source = new CacheServerDataSource(serverUrl, token, counting,
+            new McmodHttpClient(new RequestExecutor(), direct), clock::get);
+        return source;
+    }
+
+    private String startServer() throws IOException {
+        return startServer(null);
+    }
+
+    private String startServer(String token) throws IOException {
+        serverRepository = new SearchRepository(new CacheLayer(tempDir),
+            new McmodDataSource(new McmodHttpClient(new RequestExecutor(), upstream)));
+        server = new CacheServer(serverRepository, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), token);
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (source != null) {
+            source.close();
+        }
+        if (server != null) {
+            server.close();
+            serverRepository.close();
+        }
+    }
+
+    // ══════════════════════════════════════════════
+    // Served by the team server
+    // ══════════════════════════════════════════════
+
+    @Test
+    void getPage_comesFromServerWithoutDirectRequests() throws Exception {
+        connect(startServer());
+
+        ItemPage page = source.getPage("item/123").get(5, TimeUnit.SECONDS);
+        ItemPage again = source.getPage("item/123").get(5, TimeUnit.SECONDS);
+
+        assertEquals("娜迦鳞片", page.title());
+        assertEquals(page, again);
+        assertEquals(0, direct.requests().size());
+        assertEquals(1, upstream.requests().size(), "the server fetched it once and cached it");
+    }
+
+    @Test
+    void searchPage_andFetchPage_comeFromServer() throws Exception {
+        connect(startServer());
+
+        SearchPageBatch batch = source.searchPage(new SearchQuery(QUERY)).get(5, TimeUnit.SECONDS);
+        var fetched = (PageFetchResult.Fetched) source.fetchPage("item/123", null).get(5, TimeUnit.SECONDS);
+
+        assertEquals("item/123", batch.results().get(0).id());
+        assertNotNull(batch.nextPageUrl());
+        assertEquals("娜迦鳞片", fetched.page().title());
+        assertEquals(0, direct.requests().size());
+    }
+
+    @Test
+    void repository_overServerSource_cachesLocallyToo() throws Exception {
+        connect(startServer());
+        try (var local = new SearchRepository(new CacheLayer(tempDir.resolve("client")), source)) {
+            local.getPage("item/123").get(5, TimeUnit.SECONDS);
+            local.getPage("item/123").get(5, TimeUnit.SECONDS);
+            source = null; // closed by the repository
+        }
+
+        assertEquals(1, peerRequests.get());
+    }
+
+    @Test
+    void tokenServer_servesAClientThatSendsTheToken() throws Exception {
+        connect(startServer("team-secret"), "team-secret");
+
+        assertEquals("娜迦鳞片", source.getPage("item/123").get(5, TimeUnit.SECONDS).title());
+        assertEquals(0, direct.requests().size());
+    }
+
+    // ══════════════════════════════════════════════
+    // Fallback
+    // ══════════════════════════════════════════════
+
+    @Test
+    void wrongToken_fallsBackToDirect() throws Exception {
+        connect(startServer("team-secret"), "guess");
+
+        assertEquals("娜迦鳞片", source.getPage("item/123").get(5, TimeUnit.SECONDS).title());
+        assertEquals(1, direct.requests().size());
+        assertEquals(0, upstream.requests().size());
+    }
+
+    @Test
+    void searchTheServerCouldNotConfirm_fallsBackToDirect() throws Exception {
+        String query = "被限流";
+        // Upstream has no route for it and answers 404; the direct path gets real results
+        direct.serveFixture(McmodHttpClient.buildSearchUrl(query, 1, 3), "search-page1.html");
+        connect(startServer());
+
+        SearchPageBatch batch = source.searchPage(new SearchQuery(query)).get(5, TimeUnit.SECONDS);
+
+        assertFalse(batch.results().isEmpty(), "An unconfirmed empty answer is not \"no results\"");
+        assertEquals(1, direct.requests().size());
+    }
+
+    @Test
+    void unreachableServer_fallsBackToDirectAndIsSkippedForAWhile() throws Exception {
+        String url = startServer();
+        server.close();
+        connect(url);
+
+        assertEquals("娜迦鳞片", source.getPage("item/123").get(5, TimeUnit.SECONDS).title());
+        assertEquals(1, peerRequests.get());
+        assertEquals(1, direct.requests().size());
+
+        source.getPage("item/123").get(5, TimeUnit.SECONDS);
+        assertEquals(1, peerRequests.get(), "skipped after the failure");
+
+        clock.addAndGet(CacheServerDataSource.RETRY_AFTER_MS + 1);
+        source.getPage("item/123").get(5, TimeUnit.SECONDS);
+        assertEquals(2, peerRequests.get(), "tried again later");
+    }
+}
@@ -0,0 +1,251 @@
+package com.cy311.omnisearch.data.source;
+
+import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.client.RequestExecutor;
+import com.cy311.omnisearch.data.client.StubTransport;
+import com.cy311.omnisearch.data.model.CaptchaContext;
+import com.cy311.omnisearch.data.model.ItemPage;
+import com.cy311.omnisearch.data.model.PageFetchResult;
+import com.cy311.omnisearch.data.model.SearchPageBatch;
+import com.cy311.omnisearch.data.model.SearchQuery;
+import com.cy311.omnisearch.data.parser.McmodParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * End-to-end tests of search and detail fetching over {@link StubTransport}: the real
+ * client, parser and data source run against recorded mcmod.cn pages, with no network.
+ */
+class McmodDataSourceOfflineTest {
+
+    private static final String QUERY = "暮色森林";
+    private static final String SEARCH_URL = McmodHttpClient.buildSearchUrl(QUERY, 1, 3);
+    private static final String ITEM_URL = "https://www.mcmod.cn/item/123.html";
+
+    private final StubTransport transport = new StubTransport()
+        .serveFixture(SEARCH_URL, "search-page1.html")
+        .serveFixture(ITEM_URL, "item-123.html");
+    private final McmodDataSource source = new McmodDataSource(new McmodHttpClient(new RequestExecutor(), transport));
+
+    @AfterEach
+    void tearDown() {
+        source.close();
+    }
+
+    @Test
+    void searchPage_parsesRecordedResults() throws Exception {
+        SearchPageBatch batch = source.searchPage(new SearchQuery(QUERY)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, batch.results().size());
+        assertEquals("item/123", batch.results().get(0).id());
+        assertEquals("娜迦鳞片", batch.results().get(0).name());
+        assertEquals("class/456", batch.results().get(1).id());
+        assertNotNull(batch.nextPageUrl());
+        assertTrue(batch.nextPageUrl().contains("page=2"), batch.nextPageUrl());
+        assertEquals(1, transport.requests().size());
+    }
+
+    @Test
+    void getPage_parsesRecordedItemPage() throws Exception {
+        ItemPage page = source.getPage("item/123").get(5, TimeUnit.SECONDS);
+
+        assertNotNull(page);
+        assertEquals("娜迦鳞片", page.title());
+        assertEquals("暮色森林|https://www.mcmod.cn/class/456.html", page.sourceMod());
+        assertEquals(ITEM_URL, page.url());
+    }
+
+    @Test
+    void fetchPage_htmlParsesBackToTheSamePage() throws Exception {
+        var fetched = (PageFetchResult.Fetched) source.fetchPage("item/123", null).get(5, TimeUnit.SECONDS);
+
+        assertNotNull(fetched.html());
+        assertEquals(new String(StubTransport.fixture("item-123.html"), StandardCharsets.UTF_8), fetched.html(),
+            "the archive keeps the markup as served");
+        assertEquals(fetched.page(), source.parsePage("item/123", fetched.html()));
+        assertEquals(1, transport.requests().size(), "parsing archived HTML needs no request");
+    }
+
+    @Test
+    void submitCaptchaForPageFetch_keepsTheRetriedPageAndItsHtml() throws Exception {
+        String answerUrl = "https://www.mcmod.cn/captcha/verify";
+        transport.serveHtml(answerUrl, "<html><body>ok</body></html>");
+
+        PageFetchResult.Fetched fetched = source.submitCaptchaForPageFetch("item/123",
+            new CaptchaContext("img", "id", answerUrl), "42").get(5, TimeUnit.SECONDS);
+
+        assertEquals("娜迦鳞片", fetched.page().title());
+        assertEquals(new String(StubTransport.fixture("item-123.html"), StandardCharsets.UTF_8), fetched.html());
+    }
+
+    @Test
+    void requestsCarryBrowserHeaders() throws Exception {
+        source.getPage("item/123").get(5, TimeUnit.SECONDS);
+
+        var headers = transport.requests().get(0).headers();
+        assertTrue(headers.get("User-Agent").contains("Mozilla/5.0"));
+        assertEquals("https://www.mcmod.cn/", headers.get("Referer"));
+        assertEquals("gzip, deflate", headers.get("Accept-Encoding"));
+    }
+
+    @Test
+    void latency_overlapsForConcurrentRequests() throws Exception {
+        transport.withLatency(300);
+        long start = System.nanoTime();
+        CompletableFuture<SearchPageBatch> search = source.searchPage(new SearchQuery(QUERY));
+        CompletableFuture<ItemPage> item = source.getPage("item/123");
+        CompletableFuture.allOf(search, item).get(5, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs >= 300, "Latency should apply, elapsed=" + elapsedMs);
+        assertTrue(elapsedMs < 600, "Requests should overlap, elapsed=" + elapsedMs);
+    }
+
+    @Test
+    void cancelledSlowRequest_doesNotBlockRetry() throws Exception {
+        transport.withLatency(10_000);
+        CompletableFuture<ItemPage> slow = source.getPage("item/123");
+        Thread.sleep(100);
+        slow.cancel(true);
+
+        transport.withLatency(0);
+        ItemPage page = source.getPage("item/123").get(2, TimeUnit.SECONDS);
+        assertTrue(slow.isCancelled());
+        assertEquals("娜迦鳞片", page.title());
+    }
+
+    // ══════════════════════════════════════════════
+    // Parallel pagination
+    // ══════════════════════════════════════════════
+
+    @Test
+    void searchRemainingPages_fetchesAllPagesInParallel() throws Exception {
+        for (int page = 2; page <= 4; page++) {
+            transport.serveHtml(McmodParser.searchPageUrl(SEARCH_URL, page), resultPage(page, 4));
+        }
+        SearchPageBatch first = source.searchPage(new SearchQuery(QUERY)).get(5, TimeUnit.SECONDS);
+        assertEquals(1, first.page());
+        assertEquals(4, first.totalPages());
+
+        transport.withLatency(300);
+        List<SearchPageBatch> pages = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        source.searchRemainingPages(first, pages::add).get(5, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of(2, 3, 4), pages.stream().map(SearchPageBatch::page).sorted().toList());
+        for (SearchPageBatch page : pages) {
+            assertEquals("item/" + (1000 + page.page()), page.results().get(0).id());
+        }
+        assertTrue(elapsedMs < 900, "Three pages should not take three round trips, elapsed=" + elapsedMs);
+    }
+
+    @Test
+    void searchRemainingPages_extendsPastWindowedPagination() throws Exception {
+        // The first page only links up to page 4; page 4 reveals a fifth
+        transport.serveHtml(McmodParser.searchPageUrl(SEARCH_URL, 2), resultPage(2, 4));
+        transport.serveHtml(McmodParser.searchPageUrl(SEARCH_URL, 3), resultPage(3, 4));
+        transport.serveHtml(McmodParser.searchPageUrl(SEARCH_URL, 4), resultPage(4, 5));
+        transport.serveHtml(McmodParser.searchPageUrl(SEARCH_URL, 5), resultPage(5, 5));
+        SearchPageBatch first = source.searchPage(new SearchQuery(QUERY)).get(5, TimeUnit.SECONDS);
+
+        List<SearchPageBatch> pages = new CopyOnWriteArrayList<>();
+        source.searchRemainingPages(first, pages::add).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(2, 3, 4, 5), pages.stream().map(SearchPageBatch::page).sorted().toList());
+    }
+
+    @Test
+    void searchRemainingPages_boundsPagesInFlight() throws Exception {
+        for (int page = 2; page <= 4; page++) {
+            transport.serveHtml(McmodParser.searchPageUrl(SEARCH_URL, page), resultPage(page, 12));
+        }
+        // Pages 5-12 are unrouted and come back as empty 404 pages
+        SearchPageBatch first = source.searchPage(new SearchQuery(QUERY)).get(5, TimeUnit.SECONDS);
+        SearchPageBatch wide = new SearchPageBatch(first.results(), first.nextPageUrl(), 1, 12);
+
+        transport.withLatency(100);
+        List<SearchPageBatch> pages = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        source.searchRemainingPages(wide, pages::add).get(5, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(11, pages.size());
+        // 11 pages, at most MAX_PARALLEL_PAGES at a time: at least four rounds of latency
+        assertTrue(elapsedMs >= 4 * 100 - 20, "Fan-out should be bounded, elapsed=" + elapsedMs);
+    }
+
+    @Test
+    void searchRemainingPages_cancelStopsRemainingPages() throws Exception {
+        SearchPageBatch first = source.searchPage(new SearchQuery(QUERY)).get(5, TimeUnit.SECONDS);
+        int before = transport.requests().size();
+        transport.withLatency(10_000);
+
+        CompletableFuture<Void> fanOut = source.searchRemainingPages(first, page -> fail("No page should arrive"));
+        Thread.sleep(100);
+        fanOut.cancel(true);
+        Thread.sleep(100);
+
+        assertEquals(McmodDataSource.MAX_PARALLEL_PAGES, transport.requests().size() - before);
+    }
+
+    // ══════════════════════════════════════════════
+    // Confirmed absence
+    // ══════════════════════════════════════════════
+
+    @Test
+    void searchPage_genuineEmptyResultPage_isConfirmedEmpty() throws Exception {
+        String query = "没有这个模组";
+        transport.serveHtml(McmodHttpClient.buildSearchUrl(query, 1, 3), emptySearchPage(query));
+        transport.serveHtml(McmodHttpClient.buildSearchUrl(query, 1, 0), emptySearchPage(query));
+
+        SearchPageBatch batch = source.searchPage(new SearchQuery(query)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(batch.results().isEmpty());
+        assertTrue(batch.confirmedEmpty());
+        assertEquals(2, transport.requests().size(), "primary and fallback filter were both asked");
+    }
+
+    @Test
+    void searchPage_emptyPageThatIsNotAResultPage_isNotConfirmed() throws Exception {
+        String query = "维护中";
+        transport.serveHtml(McmodHttpClient.buildSearchUrl(query, 1, 3),
+            "<html><head><title>系统维护</title></head><body>稍后再来</body></html>");
+        // The fallback URL is unrouted and answers 404
+
+        SearchPageBatch batch = source.searchPage(new SearchQuery(query)).get(5, TimeUnit.SECONDS);
+
+        assertTrue(batch.results().isEmpty());
+        assertFalse(batch.confirmedEmpty());
+    }
+
+    @Test
+    void getPage_notFound_isNull() throws Exception {
+        assertNull(source.getPage("item/999999").get(5, TimeUnit.SECONDS));
+    }
+
+    private static String emptySearchPage(String query) {
+        return "<html><head><title>" + query + " - MC百科搜索</title></head>"
+            + "<body><div class=\"search-result-list\"></div></body></html>";
+    }
+
+    private static String resultPage(int page, int lastPage) {
+        StringBuilder html = new StringBuilder("<html><body><div class=\"search-result-list\">")
+            .append("<div class=\"result-item\"><div class=\"head\"><a href=\"https://www.mcmod.cn/item/")
+            .append(1000 + page).append(".html\">物品").append(page).append(" - 暮色森林</a></div></div></div>")
+            .append("<ul class=\"pagination\">");
+        for (int p = Math.max(1, page - 1); p <= lastPage; p++) {
+            html.append("<li class=\"page-item\"><a class=\"page-link\" data-page=\"").append(p)
+                .append("\" href=\"?page=").append(p).append("\">").append(p).append("</a></li>");
+        }
+        return html.append("</ul></body></html>").toString();
+    }
+}
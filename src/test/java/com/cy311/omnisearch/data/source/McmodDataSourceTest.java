@@ -1,6 +1,8 @@
 package com.cy311.omnisearch.data.source;
 
+import com.cy311.omnisearch.data.client.HtmlResponse;
 import com.cy311.omnisearch.data.client.McmodHttpClient;
+import com.cy311.omnisearch.data.model.CacheValidators;
 import com.cy311.omnisearch.data.model.CaptchaContext;
 import com.cy311.omnisearch.data.model.ItemPage;
 import com.cy311.omnisearch.data.model.SearchPageBatch;
@@ -9,6 +11,7 @@ import com.cy311.omnisearch.data.model.SearchQuery;
 import com.cy311.omnisearch.data.model.document.Document;
 import com.cy311.omnisearch.data.model.document.TextNode;
 import com.cy311.omnisearch.data.parser.McmodParser;
+import org.jsoup.Jsoup;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -104,17 +107,17 @@ class McmodDataSourceTest {
             null
         );
 
-        when(mockClient.getHtml(primaryUrl)).thenReturn(CompletableFuture.completedFuture(emptyHtml));
-        when(mockClient.getHtml(fallbackUrl)).thenReturn(CompletableFuture.completedFuture(fallbackHtml));
-        when(mockParser.parseSearchPage(emptyHtml, primaryUrl)).thenReturn(emptyBatch);
-        when(mockParser.parseSearchPage(fallbackHtml, fallbackUrl)).thenReturn(fallbackBatch);
+        when(mockClient.getDocument(primaryUrl)).thenReturn(CompletableFuture.completedFuture(response(emptyHtml, primaryUrl)));
+        when(mockClient.getDocument(fallbackUrl)).thenReturn(CompletableFuture.completedFuture(response(fallbackHtml, fallbackUrl)));
+        when(mockParser.parseSearchPageDom(any(org.jsoup.nodes.Document.class), eq(primaryUrl))).thenReturn(emptyBatch);
+        when(mockParser.parseSearchPageDom(any(org.jsoup.nodes.Document.class), eq(fallbackUrl))).thenReturn(fallbackBatch);
 
         SearchPageBatch result = ds.searchPage(new SearchQuery("巫妖")).get();
 
         assertEquals(1, result.results().size());
         assertEquals("item/1", result.results().get(0).id());
-        verify(mockClient).getHtml(primaryUrl);
-        verify(mockClient).getHtml(fallbackUrl);
+        verify(mockClient).getDocument(primaryUrl);
+        verify(mockClient).getDocument(fallbackUrl);
         }
     }
 
@@ -161,12 +164,12 @@ class McmodDataSourceTest {
         String searchHtml = "<html><body><div class=\"result\">结果</div></body></html>";
         when(mockClient.submitCaptcha(anyString(), anyString(), any()))
             .thenReturn(CompletableFuture.completedFuture("redirect-body"));
-        when(mockClient.getHtml(anyString()))
-            .thenReturn(CompletableFuture.completedFuture(searchHtml));
+        when(mockClient.getDocument(anyString()))
+            .thenReturn(CompletableFuture.completedFuture(response(searchHtml, "https://search.mcmod.cn/s?key=test")));
 
         List<SearchHit> expectedHits = List.of(
             new SearchHit("item/1", "测试物品", "item", "测试模组", null));
-        when(mockParser.parseSearchPage(anyString(), anyString()))
+        when(mockParser.parseSearchPageDom(any(org.jsoup.nodes.Document.class), anyString()))
             .thenReturn(new SearchPageBatch(expectedHits, null));
 
         CaptchaContext captcha = new CaptchaContext(
@@ -179,7 +182,7 @@ class McmodDataSourceTest {
 
         // Assert
         assertEquals(expectedHits, result);
-        verify(mockParser).parseSearchPage(eq(searchHtml), anyString());
+        verify(mockParser).parseSearchPageDom(any(org.jsoup.nodes.Document.class), anyString());
         }
     }
 
@@ -247,12 +250,12 @@ class McmodDataSourceTest {
         String pageHtml = "<html><body>物品页面内容</body></html>";
         when(mockClient.submitCaptcha(anyString(), anyString(), any()))
             .thenReturn(CompletableFuture.completedFuture("redirect-body"));
-        when(mockClient.getItemPage(anyString()))
-            .thenReturn(CompletableFuture.completedFuture(pageHtml));
+        when(mockClient.getDocument(anyString()))
+            .thenReturn(CompletableFuture.completedFuture(response(pageHtml, "https://www.mcmod.cn/item/123.html")));
 
         Document doc = new Document("测试物品", "测试模组", "https://www.mcmod.cn/item/123.html",
             List.of(new TextNode("content")));
-        when(mockParser.parseItemPage(anyString(), anyString()))
+        when(mockParser.parseItemPageDom(any(org.jsoup.nodes.Document.class), anyString()))
             .thenReturn(doc);
 
         CaptchaContext captcha = new CaptchaContext(
@@ -294,4 +297,12 @@ class McmodDataSourceTest {
         assertThrows(CompletionException.class, future::join);
         }
     }
+
+    // ══════════════════════════════════════════════
+    // Helpers
+    // ══════════════════════════════════════════════
+
+    private static HtmlResponse response(String html, String url) {
+        return new HtmlResponse(200, Jsoup.parse(html, url), HtmlResponse.Interstitial.NONE, CacheValidators.NONE);
+    }
 }
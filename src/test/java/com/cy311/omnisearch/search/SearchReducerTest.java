@@ -175,6 +175,16 @@ class SearchReducerTest {
         assertNull(result.pendingRequest());
     }
 
+    @Test
+    void detailRefreshed_replacesDetailPageOnlyOnDetailPage() {
+        var doc = new Document("Title", null, null, List.of());
+        var page = new ItemPage("id", "title", "mod", doc, "url");
+        var event = new SearchEvent.DetailRefreshed(page);
+
+        assertEquals(page, SearchReducer.reduce(SearchState.initial().withPage(SearchState.Page.DETAIL), event).detailPage());
+        assertNull(SearchReducer.reduce(SearchState.initial(), event).detailPage());
+    }
+
     @Test
     void linkClicked_switchesToDetailAndLoading() {
         var state = SearchState.initial()